@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2004-2023 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.data_access;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.featuredata.IonSeries;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads ahead of a sequential data access. The values of the next items are touched on the common
+ * pool, once per memory page, so that cold pages of a {@link io.github.mzmine.util.MemoryMapStorage}
+ * are faulted in before the consumer copies them. The number of items in flight is bounded by the
+ * look ahead. Only the consumer thread calls this class, the data is never modified.
+ *
+ * @param <T> the item type, e.g., scans or features
+ */
+public class DataAccessPrefetcher<T> {
+
+  private static final Logger logger = Logger.getLogger(DataAccessPrefetcher.class.getName());
+
+  /**
+   * Default number of items read ahead of the consumer
+   */
+  public static final int DEFAULT_LOOK_AHEAD = 16;
+
+  /**
+   * 512 values of 8 bytes fill a 4 KB page. Smaller value types are touched more than once per
+   * page.
+   */
+  private static final int VALUES_PER_PAGE = 512;
+
+  private final IntFunction<T> itemAt;
+  private final ToDoubleFunction<T> touch;
+  private final int numItems;
+  private final int lookAhead;
+  private final ArrayDeque<Prefetch> pending;
+
+  // only written to keep the touched values alive
+  private volatile double sink;
+
+  // statistics
+  private int prefetched;
+  private int ready;
+  private int notReady;
+  private long backgroundTouchNanos;
+
+  /**
+   * @param numItems  the total number of items of the data access
+   * @param lookAhead maximum number of items touched ahead of the consumer
+   * @param itemAt    the item at an index or null, only called by the consumer thread
+   * @param touch     reads the values of an item, called by worker threads
+   */
+  DataAccessPrefetcher(int numItems, int lookAhead, @NotNull IntFunction<T> itemAt,
+      @NotNull ToDoubleFunction<T> touch) {
+    this.numItems = numItems;
+    this.lookAhead = Math.max(1, lookAhead);
+    this.itemAt = itemAt;
+    this.touch = touch;
+    pending = new ArrayDeque<>(this.lookAhead);
+  }
+
+  /**
+   * Touches one value per page of the spectrum
+   *
+   * @return the sum of the touched values
+   */
+  static double touch(@Nullable MassSpectrum spectrum) {
+    if (spectrum == null) {
+      return 0d;
+    }
+    final int n = spectrum.getNumberOfDataPoints();
+    double sum = 0d;
+    for (int i = 0; i < n; i += VALUES_PER_PAGE) {
+      sum += spectrum.getMzValue(i) + spectrum.getIntensityValue(i);
+    }
+    return n > 0 ? sum + spectrum.getMzValue(n - 1) + spectrum.getIntensityValue(n - 1) : sum;
+  }
+
+  /**
+   * Touches one value per page of the series
+   *
+   * @return the sum of the touched values
+   */
+  static double touch(@Nullable IonSeries series) {
+    if (series == null) {
+      return 0d;
+    }
+    final int n = series.getNumberOfValues();
+    double sum = 0d;
+    for (int i = 0; i < n; i += VALUES_PER_PAGE) {
+      sum += series.getMZ(i) + series.getIntensity(i);
+    }
+    return n > 0 ? sum + series.getMZ(n - 1) + series.getIntensity(n - 1) : sum;
+  }
+
+  /**
+   * Called by the consumer before it loads the item at index. Updates the statistics and schedules
+   * the following items.
+   *
+   * @param index the index of the item that is loaded next
+   */
+  void next(int index) {
+    // skipped items
+    while (!pending.isEmpty() && pending.peekFirst().index() < index) {
+      pending.pollFirst().touchNanos().cancel(false);
+    }
+    if (!pending.isEmpty() && pending.peekFirst().index() == index) {
+      final CompletableFuture<Long> current = pending.pollFirst().touchNanos();
+      if (current.isDone() && !current.isCompletedExceptionally()) {
+        ready++;
+        backgroundTouchNanos += current.join();
+      } else {
+        notReady++;
+        current.cancel(false);
+      }
+    }
+    // jumped backwards or too far ahead
+    if (!pending.isEmpty() && pending.peekFirst().index() != index + 1) {
+      cancel();
+    }
+
+    int nextIndex = pending.isEmpty() ? index + 1 : pending.peekLast().index() + 1;
+    final int end = Math.min(numItems, index + 1 + lookAhead);
+    for (; nextIndex < end; nextIndex++) {
+      final T item = itemAt.apply(nextIndex);
+      pending.addLast(new Prefetch(nextIndex, CompletableFuture.supplyAsync(() -> {
+        final long start = System.nanoTime();
+        try {
+          sink = touch.applyAsDouble(item);
+        } catch (RuntimeException e) {
+          // the consumer will run into the same problem and handle it
+          return 0L;
+        }
+        return System.nanoTime() - start;
+      })));
+      prefetched++;
+    }
+
+    if (index == numItems - 1 && logger.isLoggable(Level.FINE)) {
+      logger.fine(getStatistics().toString());
+    }
+  }
+
+  /**
+   * Cancels all items that were not touched yet
+   */
+  void cancel() {
+    pending.forEach(p -> p.touchNanos().cancel(false));
+    pending.clear();
+  }
+
+  @NotNull
+  PrefetchStatistics getStatistics() {
+    return new PrefetchStatistics(prefetched, ready, notReady, backgroundTouchNanos);
+  }
+
+  private record Prefetch(int index, CompletableFuture<Long> touchNanos) {
+
+  }
+
+  /**
+   * @param prefetched           number of items scheduled ahead of the consumer
+   * @param ready                number of items that were touched before the consumer reached
+   *                             them
+   * @param notReady             number of items that the consumer reached first
+   * @param backgroundTouchNanos time that workers spent touching the ready items. Includes page
+   *                             faults, but is not a measurement of the load time saved by the
+   *                             consumer.
+   */
+  public record PrefetchStatistics(int prefetched, int ready, int notReady,
+                                   long backgroundTouchNanos) {
+
+    @Override
+    public String toString() {
+      return ("Prefetched %d items, %d ready in time, %d not ready. "
+          + "Touched ready items for %.1f ms in the background").formatted(prefetched,
+          ready, notReady, backgroundTouchNanos / 1_000_000d);
+    }
+  }
+}
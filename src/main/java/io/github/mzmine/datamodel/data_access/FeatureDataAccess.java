@@ -71,6 +71,8 @@ public abstract class FeatureDataAccess implements IonTimeSeries<Scan> {
   protected int currentRowIndex = -1;
   protected int currentRawFileIndex = -1;
   protected int currentNumberOfDataPoints = -1;
+  @Nullable
+  protected DataAccessPrefetcher<Feature> prefetcher;
 
   /**
    * Access the chromatographic data of features in a feature list sorted by scan ID (usually sorted
@@ -153,6 +155,34 @@ public abstract class FeatureDataAccess implements IonTimeSeries<Scan> {
     return max;
   }
 
+  /**
+   * Touches the data of the features in the next rows in the background, while the current feature
+   * is processed. Reduces page fault stalls of sequential passes if the data is stored in cold
+   * memory mapped files. Features of the same raw data file as the current feature are read ahead.
+   *
+   * @param lookAhead maximum number of rows read ahead of {@link #nextFeature()}
+   * @return this data access
+   */
+  public FeatureDataAccess enablePrefetching(int lookAhead) {
+    if (prefetcher != null) {
+      prefetcher.cancel();
+    }
+    prefetcher = new DataAccessPrefetcher<>(rows.size(), lookAhead, rowIndex -> {
+      final RawDataFile raw = dataFile != null ? dataFile
+          : feature != null ? feature.getRawDataFile() : null;
+      return raw == null ? null : rows.get(rowIndex).getFeature(raw);
+    }, f -> DataAccessPrefetcher.touch(f == null ? null : f.getFeatureData()));
+    return this;
+  }
+
+  /**
+   * @return the statistics of the read ahead or null if prefetching is disabled
+   */
+  @Nullable
+  public DataAccessPrefetcher.PrefetchStatistics getPrefetchStatistics() {
+    return prefetcher == null ? null : prefetcher.getStatistics();
+  }
+
   @Override
   public Scan getSpectrum(int index) {
     return getSpectra().get(index);
@@ -189,6 +219,10 @@ public abstract class FeatureDataAccess implements IonTimeSeries<Scan> {
       }
 
       featureData = (IonTimeSeries<Scan>) feature.getFeatureData();
+      if (prefetcher != null) {
+        // the prefetcher resolves the next features by the file of the current feature
+        prefetcher.next(currentRowIndex);
+      }
       return feature;
     } else {
       feature = null;
@@ -55,7 +55,12 @@ public class FileScanDataAccess extends ScanDataAccess {
 
   @Override
   public Scan getCurrentScan() {
-    return scanIndex >= 0 && scanIndex < totalScans ? dataFile.getScan(scanIndex) : null;
+    return getScan(scanIndex);
+  }
+
+  @Override
+  protected Scan getScan(int index) {
+    return index >= 0 && index < totalScans ? dataFile.getScan(index) : null;
   }
 
   @Override
@@ -70,8 +70,13 @@ public class FilteredScanDataAccess extends ScanDataAccess {
   }
 
   public Scan getCurrentScan() {
-    return scanIndex >= 0 && scanIndex < totalScans ?
-        dataFile.getScan(filteredScanIndexesInFile.get(scanIndex)) : null;
+    return getScan(scanIndex);
+  }
+
+  @Override
+  protected Scan getScan(int index) {
+    return index >= 0 && index < totalScans ?
+        dataFile.getScan(filteredScanIndexesInFile.get(index)) : null;
   }
 
   @Override
@@ -59,6 +59,8 @@ public abstract class ScanDataAccess implements Scan {
   protected Map<Scan, Integer> scanIndexMap;
   protected int currentNumberOfDataPoints = -1;
   protected int scanIndex = -1;
+  @Nullable
+  protected DataAccessPrefetcher<Scan> prefetcher;
 
   /**
    * The intended use of this memory access is to loop over all scans and access data points via
@@ -92,6 +94,41 @@ public abstract class ScanDataAccess implements Scan {
   @Nullable
   public abstract Scan getCurrentScan();
 
+  /**
+   * @param index index of scan in this data access (of all matching scans)
+   * @return the scan at index or null if index is out of bounds
+   */
+  @Nullable
+  protected abstract Scan getScan(int index);
+
+  /**
+   * Touches the data of the next scans in the background, while the current scan is processed.
+   * Reduces page fault stalls of sequential passes if the data is stored in cold memory mapped
+   * files. Only useful for raw data files with a {@link io.github.mzmine.util.MemoryMapStorage}.
+   *
+   * @param lookAhead maximum number of scans read ahead of {@link #nextScan()}
+   * @return this data access
+   */
+  public ScanDataAccess enablePrefetching(int lookAhead) {
+    if (prefetcher != null) {
+      prefetcher.cancel();
+    }
+    prefetcher = new DataAccessPrefetcher<>(getNumberOfScans(), lookAhead, this::getScan,
+        scan -> DataAccessPrefetcher.touch(switch (type) {
+          case RAW -> scan;
+          case MASS_LIST -> scan == null ? null : scan.getMassList();
+        }));
+    return this;
+  }
+
+  /**
+   * @return the statistics of the read ahead or null if prefetching is disabled
+   */
+  @Nullable
+  public DataAccessPrefetcher.PrefetchStatistics getPrefetchStatistics() {
+    return prefetcher == null ? null : prefetcher.getStatistics();
+  }
+
   /**
    * @return the masslist of the current scan (if available)
    */
@@ -182,6 +219,9 @@ public abstract class ScanDataAccess implements Scan {
   public Scan nextScan() throws MissingMassListException {
     if (hasNextScan()) {
       scanIndex++;
+      if (prefetcher != null) {
+        prefetcher.next(scanIndex);
+      }
       Scan scan = getCurrentScan();
       loadScanData(scan);
       return scan;
@@ -243,6 +283,9 @@ public abstract class ScanDataAccess implements Scan {
   public void reset() {
     currentNumberOfDataPoints = -1;
     scanIndex = -1;
+    if (prefetcher != null) {
+      prefetcher.cancel();
+    }
   }
 
   /**
@@ -62,7 +62,12 @@ public class ScanListDataAccess extends ScanDataAccess {
   @Override
   @Nullable
   public Scan getCurrentScan() {
-    return scanIndex >= 0 && scanIndex < scans.size() ? scans.get(scanIndex) : null;
+    return getScan(scanIndex);
+  }
+
+  @Override
+  protected Scan getScan(int index) {
+    return index >= 0 && index < scans.size() ? scans.get(index) : null;
   }
 
   @Override
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import io.github.mzmine.util.MemoryMapStorage;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compact storage of m/z and intensity values with 8 instead of 16 bytes per data point. m/z values
+ * are stored as fixed-point deltas (4-byte int) to the lowest m/z with a resolution of
+ * {@link #MZ_RESOLUTION}, intensities are stored as floats. Random access stays O(1) and the order
+ * of m/z values is retained, so binary searches on sorted values still work.
+ * <p>
+ * Bulk access via {@link #getMzValues(double[])} and {@link #getIntensityValues(double[])} decodes
+ * the values block-wise into the destination array without further allocations. The data access
+ * classes (e.g. {@link io.github.mzmine.datamodel.data_access.ScanDataAccess}) use these methods.
+ * <p>
+ * The compact encoding is disabled by default and can be enabled by
+ * {@link #setUseCompactEncoding(boolean)}.
+ *
+ * @see StorageUtils
+ */
+public final class CompactDataPoints {
+
+  /**
+   * Resolution of the fixed-point m/z values. 0.002 ppm at m/z 500, clearly below the precision of
+   * any mass analyzer.
+   */
+  public static final double MZ_RESOLUTION = 1E-6;
+  /**
+   * Maximum m/z range within one spectrum or series (~2147). Wider ranges are stored as doubles.
+   */
+  private static final double MAX_MZ_RANGE = (Integer.MAX_VALUE - 1) * MZ_RESOLUTION;
+  private static final int BLOCK_SIZE = 1024;
+  private static final ThreadLocal<int[]> intBlock = ThreadLocal.withInitial(
+      () -> new int[BLOCK_SIZE]);
+  private static final ThreadLocal<float[]> floatBlock = ThreadLocal.withInitial(
+      () -> new float[BLOCK_SIZE]);
+
+  private static boolean useCompactEncoding = false;
+
+  private final double mzBase;
+  private final IntBuffer mzDeltas;
+  private final FloatBuffer intensities;
+
+  private CompactDataPoints(double mzBase, @NotNull IntBuffer mzDeltas,
+      @NotNull FloatBuffer intensities) {
+    assert mzDeltas.capacity() == intensities.capacity();
+    this.mzBase = mzBase;
+    this.mzDeltas = mzDeltas;
+    this.intensities = intensities;
+  }
+
+  public static boolean isUseCompactEncoding() {
+    return useCompactEncoding;
+  }
+
+  /**
+   * Only applies to new data.
+   *
+   * @param useCompactEncoding true to store m/z and intensity values of new spectra and series in
+   *                           the compact format.
+   */
+  public static void setUseCompactEncoding(boolean useCompactEncoding) {
+    CompactDataPoints.useCompactEncoding = useCompactEncoding;
+  }
+
+  /**
+   * @param storage     The storage to be used. If null, the values will be stored in ram.
+   * @param mzs         the m/z values
+   * @param intensities the intensity values, same length as mzs
+   * @return the compact data points or null if the compact encoding is disabled or the values
+   * cannot be encoded without loss of precision (m/z range too wide, non-finite values). The
+   * values shall be stored as doubles in this case.
+   */
+  @Nullable
+  public static CompactDataPoints storeIfEnabled(@Nullable final MemoryMapStorage storage,
+      @NotNull final double[] mzs, @NotNull final double[] intensities) {
+    if (!useCompactEncoding) {
+      return null;
+    }
+    return store(storage, mzs, intensities);
+  }
+
+  /**
+   * @param storage     The storage to be used. If null, the values will be stored in ram.
+   * @param mzs         the m/z values
+   * @param intensities the intensity values, same length as mzs
+   * @return the compact data points or null if the values cannot be encoded without loss of
+   * precision (m/z range too wide, non-finite values).
+   */
+  @Nullable
+  public static CompactDataPoints store(@Nullable final MemoryMapStorage storage,
+      @NotNull final double[] mzs, @NotNull final double[] intensities) {
+    if (mzs.length != intensities.length) {
+      throw new IllegalArgumentException("Length of mz and intensity values does not match.");
+    }
+
+    double min = mzs.length > 0 ? Double.POSITIVE_INFINITY : 0d;
+    double max = mzs.length > 0 ? Double.NEGATIVE_INFINITY : 0d;
+    for (final double mz : mzs) {
+      min = Math.min(min, mz);
+      max = Math.max(max, mz);
+    }
+    // also excludes NaN and infinite values
+    if (!(max - min <= MAX_MZ_RANGE)) {
+      return null;
+    }
+
+    final int[] deltas = new int[mzs.length];
+    final float[] floatIntensities = new float[intensities.length];
+    for (int i = 0; i < mzs.length; i++) {
+      deltas[i] = (int) Math.round((mzs[i] - min) / MZ_RESOLUTION);
+      final double intensity = intensities[i];
+      if (!(Math.abs(intensity) <= Float.MAX_VALUE)) {
+        return null;
+      }
+      floatIntensities[i] = (float) intensity;
+    }
+
+    return new CompactDataPoints(min, StorageUtils.storeValuesToIntBuffer(storage, deltas),
+        StorageUtils.storeValuesToFloatBuffer(storage, floatIntensities));
+  }
+
+  public int getNumberOfValues() {
+    return mzDeltas.capacity();
+  }
+
+  public double getMz(int index) {
+    return mzBase + mzDeltas.get(index) * MZ_RESOLUTION;
+  }
+
+  public double getIntensity(int index) {
+    return intensities.get(index);
+  }
+
+  /**
+   * @param dst the destination array, a new array is created if dst is too small
+   * @return the decoded m/z values, either dst or a new array.
+   */
+  public double[] getMzValues(@NotNull double[] dst) {
+    final int numValues = getNumberOfValues();
+    if (dst.length < numValues) {
+      dst = new double[numValues];
+    }
+    final int[] block = intBlock.get();
+    for (int start = 0; start < numValues; start += BLOCK_SIZE) {
+      final int length = Math.min(BLOCK_SIZE, numValues - start);
+      mzDeltas.get(start, block, 0, length);
+      for (int i = 0; i < length; i++) {
+        dst[start + i] = mzBase + block[i] * MZ_RESOLUTION;
+      }
+    }
+    return dst;
+  }
+
+  /**
+   * @param dst the destination array, a new array is created if dst is too small
+   * @return the decoded intensity values, either dst or a new array.
+   */
+  public double[] getIntensityValues(@NotNull double[] dst) {
+    final int numValues = getNumberOfValues();
+    if (dst.length < numValues) {
+      dst = new double[numValues];
+    }
+    final float[] block = floatBlock.get();
+    for (int start = 0; start < numValues; start += BLOCK_SIZE) {
+      final int length = Math.min(BLOCK_SIZE, numValues - start);
+      intensities.get(start, block, 0, length);
+      for (int i = 0; i < length; i++) {
+        dst[start + i] = block[i];
+      }
+    }
+    return dst;
+  }
+
+  /**
+   * Decodes all m/z values into a new buffer. Use {@link #getMzValues(double[])} in loops.
+   */
+  @NotNull
+  public DoubleBuffer getMzValueBuffer() {
+    return DoubleBuffer.wrap(getMzValues(new double[getNumberOfValues()]));
+  }
+
+  /**
+   * Decodes all intensity values into a new buffer. Use {@link #getIntensityValues(double[])} in
+   * loops.
+   */
+  @NotNull
+  public DoubleBuffer getIntensityValueBuffer() {
+    return DoubleBuffer.wrap(getIntensityValues(new double[getNumberOfValues()]));
+  }
+
+  /**
+   * @return the number of bytes used to store the values
+   */
+  public long getStorageBytes() {
+    return (long) getNumberOfValues() * (Integer.BYTES + Float.BYTES);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CompactDataPoints that)) {
+      return false;
+    }
+    return Double.compare(mzBase, that.mzBase) == 0 && mzDeltas.equals(that.mzDeltas)
+        && intensities.equals(that.intensities);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Double.hashCode(mzBase);
+    result = 31 * result + mzDeltas.hashCode();
+    result = 31 * result + intensities.hashCode();
+    return result;
+  }
+}
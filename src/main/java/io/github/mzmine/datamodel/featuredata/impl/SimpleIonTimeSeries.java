@@ -50,7 +50,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * Used to store LC-MS data.
+ * Used to store LC-MS data. If enabled, the values are stored in the {@link CompactDataPoints}
+ * format.
  *
  * @author https://github.com/SteffenHeu
  */
@@ -61,6 +62,10 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
   protected final List<Scan> scans;
   protected final DoubleBuffer intensityValues;
   protected final DoubleBuffer mzValues;
+  /**
+   * Set instead of mzValues and intensityValues if the compact encoding is enabled.
+   */
+  protected final CompactDataPoints compactValues;
 
   /**
    * @param storage         may be null if forceStoreInRam is true
@@ -82,8 +87,14 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
 
     this.scans = scans;
 
-    this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzValues);
-    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensityValues);
+    this.compactValues = CompactDataPoints.storeIfEnabled(storage, mzValues, intensityValues);
+    if (compactValues == null) {
+      this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzValues);
+      this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensityValues);
+    } else {
+      this.mzValues = null;
+      this.intensityValues = null;
+    }
   }
 
   public static SimpleIonTimeSeries loadFromXML(XMLStreamReader reader, MemoryMapStorage storage,
@@ -161,12 +172,44 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
 
   @Override
   public DoubleBuffer getIntensityValueBuffer() {
-    return intensityValues;
+    return compactValues != null ? compactValues.getIntensityValueBuffer() : intensityValues;
   }
 
   @Override
   public DoubleBuffer getMZValueBuffer() {
-    return mzValues;
+    return compactValues != null ? compactValues.getMzValueBuffer() : mzValues;
+  }
+
+  @Override
+  public int getNumberOfValues() {
+    return compactValues != null ? compactValues.getNumberOfValues() : mzValues.capacity();
+  }
+
+  @Override
+  public double getMZ(int index) {
+    return compactValues != null ? compactValues.getMz(index) : mzValues.get(index);
+  }
+
+  @Override
+  public double getIntensity(int index) {
+    return compactValues != null ? compactValues.getIntensity(index)
+        : intensityValues.get(index);
+  }
+
+  @Override
+  public double[] getMzValues(double[] dst) {
+    if (compactValues != null) {
+      return compactValues.getMzValues(dst);
+    }
+    return IonTimeSeries.super.getMzValues(dst);
+  }
+
+  @Override
+  public double[] getIntensityValues(double[] dst) {
+    if (compactValues != null) {
+      return compactValues.getIntensityValues(dst);
+    }
+    return IonTimeSeries.super.getIntensityValues(dst);
   }
 
   @Override
@@ -220,6 +263,13 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
 
   @Override
   public int hashCode() {
-    return Objects.hash(scans, intensityValues.hashCode(), mzValues.hashCode());
+    // hash the decoded values like DoubleBuffer#hashCode, so that compact and double series with
+    // equal values have equal hash codes
+    int hash = Objects.hashCode(scans);
+    for (int i = getNumberOfValues() - 1; i >= 0; i--) {
+      hash = 31 * hash + (int) getIntensity(i);
+      hash = 31 * hash + (int) getMZ(i);
+    }
+    return hash;
   }
 }
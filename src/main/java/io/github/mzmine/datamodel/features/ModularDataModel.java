@@ -168,7 +168,7 @@ public interface ModularDataModel {
    */
   @NotNull
   default <T> T getNonNullElse(DataType<T> type, @NotNull T defaultValue) {
-    return (T) requireNonNullElse(getMap().getOrDefault(type, null), defaultValue);
+    return requireNonNullElse(get(type), defaultValue);
   }
 
 
@@ -178,7 +178,7 @@ public interface ModularDataModel {
    */
   @Nullable
   default <T extends Object> boolean hasValueFor(DataType<T> type) {
-    return getMap().get(type) != null;
+    return get(type) != null;
   }
 
   /**
@@ -37,6 +37,7 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.featuredata.FeatureDataUtils;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.columnar.ColumnarModularDataModel;
 import io.github.mzmine.datamodel.features.types.DataType;
 import io.github.mzmine.datamodel.features.types.DetectionType;
 import io.github.mzmine.datamodel.features.types.FeatureDataType;
@@ -64,7 +65,6 @@ import io.github.mzmine.modules.tools.qualityparameters.QualityParameters;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.FeatureUtils;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -72,9 +72,6 @@ import java.util.Set;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javafx.collections.FXCollections;
-import javafx.collections.MapChangeListener;
-import javafx.collections.ObservableMap;
-import javafx.collections.SetChangeListener;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -83,36 +80,27 @@ import org.jetbrains.annotations.Nullable;
  *
  * @author Robin Schmid (robinschmid@uni-muenster.de)
  */
-public class ModularFeature implements Feature, ModularDataModel {
+public class ModularFeature extends ColumnarModularDataModel implements Feature {
 
   private static final Logger logger = Logger.getLogger(ModularFeature.class.getName());
-  private final ObservableMap<DataType, Object> map = FXCollections.observableMap(new HashMap<>());
   // buffert col charts and nodes
   @NotNull
   private ModularFeatureList flist;
 
   private FeatureListRow parentRow;
 
+  /**
+   * Values are stored in the feature value store of the feature list once the row of this feature
+   * is added to the feature list. Removed feature types are removed from all features by the
+   * feature list.
+   */
   public ModularFeature(@NotNull ModularFeatureList flist) {
     this.flist = flist;
+  }
 
-    // TODO turn into weak bindings? with WeakAdapter in FeatureList
-    // register listener to types map to automatically generate default properties for new DataTypes
-    flist.getFeatureTypes().addListener((SetChangeListener<? super DataType>) change -> {
-      if (change.wasAdded()) {
-        // do nothing for now
-      } else if (change.wasRemoved()) {
-        // remove type columns to maps
-        DataType type = change.getElementRemoved();
-        this.remove(type);
-      }
-    });
-    //
-    map.addListener((MapChangeListener<? super DataType, ? super Object>) change -> {
-      if (change.wasAdded()) {
-        flist.addFeatureType(change.getKey());
-      }
-    });
+  @Override
+  protected void onTypeSet(@NotNull DataType type) {
+    flist.addFeatureType(type);
   }
 
   // NOT TESTED
@@ -295,12 +283,6 @@ public class ModularFeature implements Feature, ModularDataModel {
     return flist.getFeatureTypes();
   }
 
-  // todo make this private?
-  @Override
-  public ObservableMap<DataType, Object> getMap() {
-    return map;
-  }
-
   /**
    * Use {@link ModularFeature#getFeatureData()} and
    * {@link
@@ -443,6 +425,26 @@ public class ModularFeature implements Feature, ModularDataModel {
   @Override
   public void setFeatureList(@NotNull FeatureList flist) {
     this.flist = (ModularFeatureList) flist;
+    // features that are not in the feature list yet are attached with their row
+    if (!isDetached()) {
+      moveToStore(this.flist.getFeatureValueStore());
+    }
+  }
+
+  /**
+   * Releases the values of this feature from the columns of the feature list, e.g., when the
+   * feature or its row is removed.
+   */
+  void detachValues() {
+    detachFromStore();
+  }
+
+  /**
+   * Moves detached values to the columns of the feature list, when the row of this feature is added
+   * to the feature list
+   */
+  void attachValues() {
+    moveToStore(flist.getFeatureValueStore());
   }
 
   @Override
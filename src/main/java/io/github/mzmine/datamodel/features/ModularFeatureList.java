@@ -31,6 +31,7 @@ import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.columnar.DataTypeValueStore;
 import io.github.mzmine.datamodel.features.correlation.R2RNetworkingMaps;
 import io.github.mzmine.datamodel.features.correlation.RowGroup;
 import io.github.mzmine.datamodel.features.types.DataType;
@@ -39,6 +40,7 @@ import io.github.mzmine.datamodel.features.types.annotations.ManualAnnotationTyp
 import io.github.mzmine.datamodel.features.types.modifiers.GraphicalColumType;
 import io.github.mzmine.datamodel.features.types.numbers.IDType;
 import io.github.mzmine.datamodel.features.types.tasks.NodeGenerationThread;
+import io.github.mzmine.datamodel.features.types.tasks.SparklineRenderer;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.io.projectload.CachedIMSFrame;
 import io.github.mzmine.modules.io.projectload.CachedIMSRawDataFile;
@@ -53,10 +55,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.DoubleSummaryStatistics;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +72,7 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableMap;
 import javafx.collections.ObservableSet;
@@ -109,6 +114,9 @@ public class ModularFeatureList implements FeatureList {
   // TODO do we need two sets? We could have observableSet of LinkedHashSet
   private final ObservableSet<DataType> featureTypes = FXCollections.observableSet(
       new LinkedHashSet<>());
+  // values of all rows and features in columns
+  private final DataTypeValueStore rowValueStore = new DataTypeValueStore();
+  private final DataTypeValueStore featureValueStore = new DataTypeValueStore();
   private final ObservableList<FeatureListRow> featureListRows;
   private final ObservableList<FeatureListAppliedMethod> descriptionOfAppliedTasks;
 
@@ -131,6 +139,14 @@ public class ModularFeatureList implements FeatureList {
    */
   private final Map<String, Node> bufferedCharts = new HashMap<>();
 
+  /**
+   * Renders and caches the images of
+   * {@link io.github.mzmine.datamodel.features.types.modifiers.SparklineColumnType} columns, e.g.,
+   * feature shapes, in the
+   * {@link io.github.mzmine.modules.visualization.featurelisttable_modular.FeatureTableFX}
+   */
+  private final SparklineRenderer sparklineRenderer = new SparklineRenderer();
+
   public ModularFeatureList(String name, @Nullable MemoryMapStorage storage,
       @NotNull RawDataFile... dataFiles) {
     this(name, storage, List.of(dataFiles));
@@ -145,6 +161,9 @@ public class ModularFeatureList implements FeatureList {
     dateCreated = DATA_FORMAT.format(new Date());
     selectedScans = FXCollections.observableMap(new HashMap<>());
     this.memoryMapStorage = storage;
+    if (storage != null) {
+      storage.addOwner(this);
+    }
 
     // only a few standard types
     addRowType(new IDType());
@@ -167,6 +186,60 @@ public class ModularFeatureList implements FeatureList {
       // add row bindings
       addRowBinding(added.createDefaultRowBindings());
     });
+
+    // remove values of removed types once for all rows and features
+    featureTypes.addListener((SetChangeListener<? super DataType>) change -> {
+      if (change.wasRemoved()) {
+        DataType removed = change.getElementRemoved();
+        streamFeatures().forEach(feature -> feature.remove(removed));
+        featureValueStore.removeColumn(removed);
+      }
+    });
+    rowTypes.addListener((SetChangeListener<? super DataType>) change -> {
+      if (change.wasRemoved()) {
+        DataType removed = change.getElementRemoved();
+        modularStream().forEach(row -> row.remove(removed));
+        rowValueStore.removeColumn(removed);
+      }
+    });
+
+    // release the columns of removed rows, rows that are removed and added again are kept
+    featureListRows.addListener((ListChangeListener<? super FeatureListRow>) change -> {
+      while (change.next()) {
+        if (change.wasPermutated()) {
+          continue;
+        }
+        final List<? extends FeatureListRow> added = change.getAddedSubList();
+        final Set<FeatureListRow> readded = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (change.wasRemoved() && change.wasAdded()) {
+          readded.addAll(added);
+        }
+        for (FeatureListRow row : change.getRemoved()) {
+          if (!readded.contains(row)) {
+            ((ModularFeatureListRow) row).detachValues();
+          }
+        }
+        for (FeatureListRow row : added) {
+          ((ModularFeatureListRow) row).attachValues();
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the column store of all row values of this feature list
+   */
+  @NotNull
+  public DataTypeValueStore getRowValueStore() {
+    return rowValueStore;
+  }
+
+  /**
+   * @return the column store of all feature values of this feature list
+   */
+  @NotNull
+  public DataTypeValueStore getFeatureValueStore() {
+    return featureValueStore;
   }
 
   @Override
@@ -486,8 +559,8 @@ public class ModularFeatureList implements FeatureList {
       }
     }
 //    logger.log(Level.FINEST, "SET ALL ROWS");
-    featureListRows.clear();
-    featureListRows.addAll(rows);
+    // one change, so that rows that stay in the list keep their columns
+    featureListRows.setAll(rows);
     applyRowBindings();
   }
 
@@ -904,5 +977,10 @@ public class ModularFeatureList implements FeatureList {
     });*/
 
     bufferedCharts.clear();
+    sparklineRenderer.clear();
+  }
+
+  public SparklineRenderer getSparklineRenderer() {
+    return sparklineRenderer;
   }
 }
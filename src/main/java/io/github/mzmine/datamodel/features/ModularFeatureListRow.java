@@ -32,6 +32,7 @@ import io.github.mzmine.datamodel.FeatureStatus;
 import io.github.mzmine.datamodel.IsotopePattern;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.columnar.ColumnarModularDataModel;
 import io.github.mzmine.datamodel.features.compoundannotations.CompoundDBAnnotation;
 import io.github.mzmine.datamodel.features.compoundannotations.FeatureAnnotation;
 import io.github.mzmine.datamodel.features.correlation.RowGroup;
@@ -82,10 +83,7 @@ import java.util.Set;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 import javafx.collections.FXCollections;
-import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.ObservableMap;
-import javafx.collections.SetChangeListener;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -99,14 +97,13 @@ import org.jetbrains.annotations.Nullable;
  * chromatogram builder ~SteffenHeu
  */
 @SuppressWarnings("rawtypes")
-public class ModularFeatureListRow implements FeatureListRow {
+public class ModularFeatureListRow extends ColumnarModularDataModel implements FeatureListRow {
 
   private static final Logger logger = Logger.getLogger(ModularFeatureListRow.class.getName());
   /**
    * this final map is used in the FeaturesType - only ModularFeatureListRow is supposed to change
    * this map see {@link #addFeature}
    */
-  private final ObservableMap<DataType, Object> map = FXCollections.observableMap(new HashMap<>());
   private final Map<RawDataFile, ModularFeature> features;
   @NotNull
   private ModularFeatureList flist;
@@ -118,25 +115,10 @@ public class ModularFeatureListRow implements FeatureListRow {
    * @param id    the row id
    */
   public ModularFeatureListRow(@NotNull ModularFeatureList flist, int id) {
+    // values are stored in the row value store of the feature list once the row is added to it.
+    // Removed row types are removed from all rows by the feature list.
     this.flist = flist;
 
-    // register listener to types map to automatically generate default properties for new DataTypes
-    flist.getRowTypes().addListener((SetChangeListener<? super DataType>) change -> {
-      if (change.wasAdded()) {
-        // do nothing for now
-      } else if (change.wasRemoved()) {
-        // remove type columns to maps
-        DataType type = change.getElementRemoved();
-        this.remove(type);
-      }
-    });
-    //
-    map.addListener((MapChangeListener<? super DataType, ? super Object>) change -> {
-      if (change.wasAdded()) {
-        flist.addRowType(change.getKey());
-      }
-    });
-
     // features
     List<RawDataFile> raws = flist.getRawDataFiles();
     if (!raws.isEmpty()) {
@@ -209,10 +191,9 @@ public class ModularFeatureListRow implements FeatureListRow {
     return flist.getRowTypes();
   }
 
-  // todo make private?
   @Override
-  public ObservableMap<DataType, Object> getMap() {
-    return map;
+  protected void onTypeSet(@NotNull DataType type) {
+    flist.addRowType(type);
   }
 
   @Override
@@ -265,6 +246,16 @@ public class ModularFeatureListRow implements FeatureListRow {
     ModularFeature oldFeature = features.put(raw, modularFeature);
     modularFeature.setFeatureList(flist);
     modularFeature.setRow(this);
+    // features follow their row into or out of the columns of the feature list
+    if (isDetached()) {
+      modularFeature.detachValues();
+    } else {
+      modularFeature.attachValues();
+    }
+    if (oldFeature != null && oldFeature != modularFeature) {
+      // release the columns of the replaced feature
+      oldFeature.detachValues();
+    }
 
     if (!Objects.equals(oldFeature, modularFeature)) {
       // reflect changes by updating all row bindings
@@ -291,7 +282,28 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void removeFeature(RawDataFile file) {
-    this.features.remove(file);
+    final ModularFeature removed = this.features.remove(file);
+    if (removed != null) {
+      removed.detachValues();
+    }
+  }
+
+  /**
+   * Called by the feature list when this row is removed. Releases the values of this row and its
+   * features from the columns of the feature list.
+   */
+  void detachValues() {
+    detachFromStore();
+    features.values().forEach(ModularFeature::detachValues);
+  }
+
+  /**
+   * Called by the feature list when this row is added. Moves detached values to the columns of the
+   * feature list.
+   */
+  void attachValues() {
+    moveToStore(flist.getRowValueStore());
+    features.values().forEach(ModularFeature::attachValues);
   }
 
   @Override
@@ -390,6 +402,10 @@ public class ModularFeatureListRow implements FeatureListRow {
           "Cannot set non-modular feature list to modular feature list row.");
     }
     this.flist = (ModularFeatureList) flist;
+    // rows that are not in the feature list yet are attached when they are added
+    if (!isDetached()) {
+      moveToStore(this.flist.getRowValueStore());
+    }
   }
 
   @Override
@@ -509,7 +525,7 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void addCompoundAnnotation(CompoundDBAnnotation id) {
-    synchronized (getMap()) {
+    synchronized (this) {
       List<CompoundDBAnnotation> matches = get(CompoundDatabaseMatchesType.class);
       if (matches == null) {
         matches = new ArrayList<>();
@@ -535,8 +551,7 @@ public class ModularFeatureListRow implements FeatureListRow {
    */
   @Override
   public boolean isIdentified() {
-    for (Entry<DataType, Object> entry : getMap().entrySet()) {
-      final DataType dt = entry.getKey();
+    for (final DataType dt : getTypes()) {
       if (dt instanceof ListWithSubsType<?> listType && dt instanceof AnnotationType) {
         final List<?> list = get(listType);
         if (list != null && !list.isEmpty()) {
@@ -549,14 +564,14 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void setCompoundAnnotations(List<CompoundDBAnnotation> annotations) {
-    synchronized (getMap()) {
+    synchronized (this) {
       set(CompoundDatabaseMatchesType.class, annotations);
     }
   }
 
   @Override
   public void addSpectralLibraryMatch(SpectralDBAnnotation id) {
-    synchronized (getMap()) {
+    synchronized (this) {
       List<SpectralDBAnnotation> matches = get(SpectralLibraryMatchesType.class);
       if (matches == null) {
         matches = new ArrayList<>();
@@ -568,7 +583,7 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void addSpectralLibraryMatches(List<SpectralDBAnnotation> matches) {
-    synchronized (getMap()) {
+    synchronized (this) {
       List<SpectralDBAnnotation> old = get(SpectralLibraryMatchesType.class);
       if (old == null) {
         old = new ArrayList<>();
@@ -586,7 +601,7 @@ public class ModularFeatureListRow implements FeatureListRow {
 
   @Override
   public void setSpectralLibraryMatch(List<SpectralDBAnnotation> matches) {
-    synchronized (getMap()) {
+    synchronized (this) {
       set(SpectralLibraryMatchesType.class, matches);
     }
   }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import io.github.mzmine.datamodel.features.DataTypeValueChangeListener;
+import io.github.mzmine.datamodel.features.ModularDataModel;
+import io.github.mzmine.datamodel.features.types.DataType;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.stream.Stream;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link ModularDataModel} that keeps its values in a shared {@link DataTypeValueStore} instead of
+ * an own map. The {@link ObservableMap} returned by {@link #getMap()} is only a view on the store
+ * and is created on first access, e.g., when the GUI binds to it.
+ * <p>
+ * New models keep their values in a {@link DetachedDataTypeValueStore} and only move into the
+ * columns of the feature list when they are added to it. Models that are created but never added
+ * therefore never allocate an index in the columns.
+ * <p>
+ * Writes and {@link #moveToStore(DataTypeValueStore)} are synchronized on the model. Reads are
+ * optimistic: they are validated against {@link #moveCount}, which is odd during a move, and are
+ * repeated under the lock if a move interfered. A read never returns a value from an index that was
+ * already released and maybe reused by another model.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public abstract class ColumnarModularDataModel implements ModularDataModel {
+
+  @NotNull
+  private DataTypeValueStore store;
+  private int storeIndex;
+  /**
+   * Incremented before and after each move to another store
+   */
+  private volatile int moveCount = 0;
+  @Nullable
+  private ObservableMap<DataType, Object> map;
+
+  protected ColumnarModularDataModel() {
+    this.store = new DetachedDataTypeValueStore();
+    this.storeIndex = store.allocateIndex();
+  }
+
+  /**
+   * Called whenever a value is put into this model. Used to register the type as a column.
+   *
+   * @param type the type that was set
+   */
+  protected abstract void onTypeSet(@NotNull DataType type);
+
+  @NotNull
+  synchronized DataTypeValueStore getStore() {
+    return store;
+  }
+
+  /**
+   * @return true if the values are not in the columns of a feature list, e.g., because the model
+   * was not added to the feature list yet or was removed from it
+   */
+  protected synchronized boolean isDetached() {
+    return store instanceof DetachedDataTypeValueStore;
+  }
+
+  /**
+   * Copies all values into a new store and releases the index in the old store. Used when a model
+   * is added to a feature list or moved to another feature list.
+   *
+   * @param newStore the store of the new feature list
+   */
+  protected synchronized void moveToStore(@NotNull DataTypeValueStore newStore) {
+    if (newStore == store) {
+      return;
+    }
+    final int newIndex = newStore.allocateIndex();
+    store.forEach(storeIndex, (type, value) -> newStore.set(type, newIndex, value));
+
+    final DataTypeValueStore oldStore = store;
+    final int oldIndex = storeIndex;
+    moveCount++;
+    // the new store and index must not become visible before readers can see the odd count
+    VarHandle.releaseFence();
+    store = newStore;
+    storeIndex = newIndex;
+    oldStore.releaseIndex(oldIndex);
+    moveCount++;
+  }
+
+  /**
+   * Moves all values into a small store of this model and releases the index in the store of the
+   * feature list. Called when the model is removed from its feature list or replaced, so that the
+   * columns of the list do not keep the values of removed models alive. The model stays usable and
+   * moves back with {@link #moveToStore(DataTypeValueStore)} when it is added again.
+   */
+  protected synchronized void detachFromStore() {
+    if (!(store instanceof DetachedDataTypeValueStore)) {
+      moveToStore(new DetachedDataTypeValueStore());
+    }
+  }
+
+  /**
+   * Reads from the current store without the lock. The read is repeated under the lock if the
+   * model moved to another store in the meantime.
+   */
+  private <R> R read(@NotNull StoreReader<R> reader) {
+    final int count = moveCount;
+    if ((count & 1) == 0) {
+      final R result = reader.read(store, storeIndex);
+      // same as StampedLock.validate: the reads above must not be reordered after the check
+      VarHandle.acquireFence();
+      if (moveCount == count) {
+        return result;
+      }
+    }
+    synchronized (this) {
+      return reader.read(store, storeIndex);
+    }
+  }
+
+  @Nullable
+  Object getValue(@NotNull DataType type) {
+    return read((store, index) -> store.get(type, index));
+  }
+
+  /**
+   * @return the old value
+   */
+  @Nullable
+  synchronized Object setValue(@NotNull DataType type, @Nullable Object value) {
+    return store.set(type, storeIndex, value);
+  }
+
+  /**
+   * @return the removed value
+   */
+  @Nullable
+  synchronized Object removeValue(@NotNull DataType type) {
+    return store.remove(type, storeIndex);
+  }
+
+  @NotNull
+  List<Entry<DataType, Object>> getEntries() {
+    return read(DataTypeValueStore::getEntries);
+  }
+
+  /**
+   * The view on the values of this model. Prefer the get and set methods, which do not create the
+   * observable map.
+   *
+   * @return an observable view on the store
+   */
+  @Override
+  public synchronized ObservableMap<DataType, Object> getMap() {
+    if (map == null) {
+      map = FXCollections.observableMap(new DataTypeValueStoreMap(this));
+    }
+    return map;
+  }
+
+  @Override
+  @Nullable
+  public <T> T get(DataType<T> type) {
+    return (T) getValue(type);
+  }
+
+  @Override
+  @Nullable
+  public <T> T getOrDefault(DataType<T> type, T defaultValue) {
+    final T value = get(type);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return read(DataTypeValueStore::isEmpty);
+  }
+
+  @Override
+  public <T> boolean set(DataType<T> type, T value) {
+    final ObservableMap<DataType, Object> map = this.map;
+    // route through the observable map if it exists to notify its listeners
+    final Object old = map != null ? map.put(type, value) : setValue(type, value);
+    onTypeSet(type);
+
+    if (!Objects.equals(old, value)) {
+      fireValueChanged(type, old, value);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public <T> void remove(DataType<T> type) {
+    if (type == null) {
+      return;
+    }
+    final ObservableMap<DataType, Object> map = this.map;
+    final Object old = map != null ? map.remove(type) : removeValue(type);
+    if (old != null) {
+      fireValueChanged(type, old, null);
+    }
+  }
+
+  @Override
+  public Stream<Entry<DataType, Object>> stream() {
+    return getEntries().stream();
+  }
+
+  private void fireValueChanged(DataType type, Object old, Object value) {
+    // send changes to all listeners for this data type
+    List<DataTypeValueChangeListener<?>> listeners = getValueChangeListeners().get(type);
+    if (listeners != null) {
+      for (DataTypeValueChangeListener listener : listeners) {
+        listener.valueChanged(this, type, old, value);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface StoreReader<R> {
+
+    R read(@NotNull DataTypeValueStore store, int index);
+  }
+}
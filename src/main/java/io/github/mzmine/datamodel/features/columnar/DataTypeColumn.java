@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single column (slot) of a {@link DataTypeValueStore}. Values are stored in pages that are only
+ * allocated once the first value is written to an index of this page. This way, sparse columns
+ * (e.g., annotations that only exist for few rows) stay small.
+ * <p>
+ * Pages are published by a volatile write of the page array, so that readers on other threads see
+ * the page after it was created. Concurrent writes to different indices are safe, concurrent writes
+ * to the same index have the same semantics as a plain field.
+ */
+abstract class DataTypeColumn {
+
+  static final int PAGE_BITS = 10;
+  static final int PAGE_SIZE = 1 << PAGE_BITS;
+  static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  @NotNull
+  private final DataType<?> type;
+  private final int slot;
+
+  DataTypeColumn(@NotNull DataType<?> type, int slot) {
+    this.type = type;
+    this.slot = slot;
+  }
+
+  /**
+   * Number types are stored in primitive columns, all other types as object references.
+   *
+   * @param type the data type of this column
+   * @param slot the slot index of this column in the {@link DataTypeValueStore}
+   * @return a new column for this type
+   */
+  @NotNull
+  static DataTypeColumn create(@NotNull DataType<?> type, int slot) {
+    if (type instanceof FloatType) {
+      return new FloatDataTypeColumn(type, slot);
+    }
+    if (type instanceof DoubleType) {
+      return new DoubleDataTypeColumn(type, slot);
+    }
+    return new ObjectDataTypeColumn(type, slot);
+  }
+
+  static int page(int index) {
+    return index >>> PAGE_BITS;
+  }
+
+  static int offset(int index) {
+    return index & PAGE_MASK;
+  }
+
+  @NotNull
+  DataType<?> getType() {
+    return type;
+  }
+
+  int getSlot() {
+    return slot;
+  }
+
+  /**
+   * @param index the model index
+   * @return the value or null if no value was set
+   */
+  @Nullable
+  abstract Object get(int index);
+
+  /**
+   * @param index the model index
+   * @param value the new value or null to remove the value
+   * @return the old value or null
+   */
+  @Nullable
+  abstract Object set(int index, @Nullable Object value);
+
+  /**
+   * @return the approximate number of bytes allocated by the pages of this column
+   */
+  abstract long estimateMemoryBytes();
+
+}
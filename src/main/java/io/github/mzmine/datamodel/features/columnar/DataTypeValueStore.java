@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.types.DataType;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Column based storage of {@link DataType} values for all rows or all features of a
+ * {@link ModularFeatureList}. Every {@link DataType} gets a slot (column) once the first value is
+ * set. Number types ({@link io.github.mzmine.datamodel.features.types.numbers.abstr.FloatType} and
+ * {@link io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType}) are stored in
+ * primitive arrays, all other values as references. Each {@link ColumnarModularDataModel} holds an
+ * index into the columns.
+ * <p>
+ * Compared to one HashMap per feature, this removes the map entries, the boxed numbers and the
+ * listeners per feature, which dominate the heap of large aligned feature lists.
+ * <p>
+ * Indices are released when a model moves to another store or is removed from its feature list.
+ * Removed models keep their values in a {@link DetachedDataTypeValueStore}.
+ */
+public class DataTypeValueStore {
+
+  private final Map<DataType, DataTypeColumn> columns = new ConcurrentHashMap<>();
+  // columns ordered by slot index
+  private volatile DataTypeColumn[] slots = new DataTypeColumn[0];
+
+  private final IntArrayList freeIndices = new IntArrayList();
+  private int nextIndex = 0;
+
+  /**
+   * @return a new index for a model. Reuses released indices.
+   */
+  public synchronized int allocateIndex() {
+    if (!freeIndices.isEmpty()) {
+      return freeIndices.removeInt(freeIndices.size() - 1);
+    }
+    return nextIndex++;
+  }
+
+  /**
+   * Removes all values of this index and marks the index for reuse. The index must not be used
+   * afterwards.
+   *
+   * @param index the model index
+   */
+  public synchronized void releaseIndex(int index) {
+    for (DataTypeColumn column : slots) {
+      column.set(index, null);
+    }
+    freeIndices.add(index);
+  }
+
+  /**
+   * @return the slot index of this type or -1 if there is no column for this type
+   */
+  public int getSlot(@NotNull DataType<?> type) {
+    final DataTypeColumn column = columns.get(type);
+    return column == null ? -1 : column.getSlot();
+  }
+
+  /**
+   * @return all types that have a column in this store, ordered by their slot index
+   */
+  @NotNull
+  public List<DataType> getTypes() {
+    final DataTypeColumn[] slots = this.slots;
+    final List<DataType> types = new ArrayList<>(slots.length);
+    for (DataTypeColumn column : slots) {
+      types.add(column.getType());
+    }
+    return types;
+  }
+
+  @Nullable
+  public Object get(@NotNull DataType<?> type, int index) {
+    final DataTypeColumn column = columns.get(type);
+    return column == null ? null : column.get(index);
+  }
+
+  /**
+   * @param value the new value. null removes the value
+   * @return the old value or null
+   */
+  @Nullable
+  public Object set(@NotNull DataType<?> type, int index, @Nullable Object value) {
+    if (value == null) {
+      return remove(type, index);
+    }
+    return getOrCreateColumn(type).set(index, value);
+  }
+
+  /**
+   * @return the removed value or null
+   */
+  @Nullable
+  public Object remove(@NotNull DataType<?> type, int index) {
+    final DataTypeColumn column = columns.get(type);
+    return column == null ? null : column.set(index, null);
+  }
+
+  /**
+   * @return true if no value is set for this index
+   */
+  public boolean isEmpty(int index) {
+    for (DataTypeColumn column : slots) {
+      if (column.get(index) != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Applies the consumer to all non-null values of this index in slot order.
+   */
+  public void forEach(int index, @NotNull BiConsumer<DataType, Object> consumer) {
+    for (DataTypeColumn column : slots) {
+      final Object value = column.get(index);
+      if (value != null) {
+        consumer.accept(column.getType(), value);
+      }
+    }
+  }
+
+  /**
+   * @return a snapshot of all non-null values of this index in slot order
+   */
+  @NotNull
+  public List<Entry<DataType, Object>> getEntries(int index) {
+    final List<Entry<DataType, Object>> entries = new ArrayList<>();
+    forEach(index, (type, value) -> entries.add(new SimpleEntry<>(type, value)));
+    return entries;
+  }
+
+  /**
+   * Removes the column of this type and all its values. Other slot indices stay the same.
+   */
+  public synchronized void removeColumn(@NotNull DataType<?> type) {
+    final DataTypeColumn removed = columns.remove(type);
+    if (removed != null) {
+      slots = Arrays.stream(slots).filter(c -> c != removed).toArray(DataTypeColumn[]::new);
+    }
+  }
+
+  /**
+   * @return number of allocated model indices
+   */
+  public synchronized int getNumberOfIndices() {
+    return nextIndex - freeIndices.size();
+  }
+
+  public int getNumberOfColumns() {
+    return slots.length;
+  }
+
+  /**
+   * @return approximate number of bytes of all columns. Referenced objects are not included.
+   */
+  public long estimateMemoryBytes() {
+    long bytes = 0;
+    for (DataTypeColumn column : slots) {
+      bytes += column.estimateMemoryBytes();
+    }
+    return bytes;
+  }
+
+  @NotNull
+  private DataTypeColumn getOrCreateColumn(@NotNull DataType<?> type) {
+    final DataTypeColumn column = columns.get(type);
+    if (column != null) {
+      return column;
+    }
+    synchronized (this) {
+      return columns.computeIfAbsent(type, t -> {
+        final DataTypeColumn newColumn = DataTypeColumn.create(t, nextSlot());
+        final DataTypeColumn[] newSlots = Arrays.copyOf(slots, slots.length + 1);
+        newSlots[newSlots.length - 1] = newColumn;
+        slots = newSlots;
+        return newColumn;
+      });
+    }
+  }
+
+  private int nextSlot() {
+    final DataTypeColumn[] slots = this.slots;
+    return slots.length == 0 ? 0 : slots[slots.length - 1].getSlot() + 1;
+  }
+}
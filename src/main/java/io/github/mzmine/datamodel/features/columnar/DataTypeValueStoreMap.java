@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Map view on the values of one {@link ColumnarModularDataModel}. Always accesses the current store
+ * of the model, so that the view stays valid when the model moves to another store.
+ */
+@SuppressWarnings("rawtypes")
+class DataTypeValueStoreMap extends AbstractMap<DataType, Object> {
+
+  private final ColumnarModularDataModel model;
+
+  DataTypeValueStoreMap(@NotNull ColumnarModularDataModel model) {
+    this.model = model;
+  }
+
+  @Override
+  public Object get(Object key) {
+    return key instanceof DataType type ? model.getValue(type) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public Object put(DataType key, Object value) {
+    return model.setValue(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    return key instanceof DataType type ? model.removeValue(type) : null;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return model.isEmpty();
+  }
+
+  @NotNull
+  @Override
+  public Set<Entry<DataType, Object>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<DataType, Object>> iterator() {
+        // snapshot to allow modifications while iterating
+        final List<Entry<DataType, Object>> entries = model.getEntries();
+        final Iterator<Entry<DataType, Object>> it = entries.iterator();
+        return new Iterator<>() {
+          private Entry<DataType, Object> last;
+
+          @Override
+          public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override
+          public Entry<DataType, Object> next() {
+            last = it.next();
+            return last;
+          }
+
+          @Override
+          public void remove() {
+            if (last == null) {
+              throw new IllegalStateException();
+            }
+            DataTypeValueStoreMap.this.remove(last.getKey());
+            last = null;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return model.getEntries().size();
+      }
+    };
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds the values of a single model that was removed from its feature list. A small map instead
+ * of columns, so that the columns of the feature list release the values and removed models do not
+ * allocate pages. The index is ignored.
+ */
+final class DetachedDataTypeValueStore extends DataTypeValueStore {
+
+  private final Map<DataType, Object> values = new LinkedHashMap<>();
+
+  @Override
+  public int allocateIndex() {
+    return 0;
+  }
+
+  @Override
+  public synchronized void releaseIndex(int index) {
+    values.clear();
+  }
+
+  @Override
+  public synchronized int getSlot(@NotNull DataType<?> type) {
+    int slot = 0;
+    for (DataType t : values.keySet()) {
+      if (t.equals(type)) {
+        return slot;
+      }
+      slot++;
+    }
+    return -1;
+  }
+
+  @Override
+  public synchronized @NotNull List<DataType> getTypes() {
+    return new ArrayList<>(values.keySet());
+  }
+
+  @Override
+  public synchronized @Nullable Object get(@NotNull DataType<?> type, int index) {
+    return values.get(type);
+  }
+
+  @Override
+  public synchronized @Nullable Object set(@NotNull DataType<?> type, int index,
+      @Nullable Object value) {
+    return value == null ? values.remove(type) : values.put(type, value);
+  }
+
+  @Override
+  public synchronized @Nullable Object remove(@NotNull DataType<?> type, int index) {
+    return values.remove(type);
+  }
+
+  @Override
+  public synchronized boolean isEmpty(int index) {
+    return values.isEmpty();
+  }
+
+  @Override
+  public void forEach(int index, @NotNull BiConsumer<DataType, Object> consumer) {
+    getEntries(index).forEach(e -> consumer.accept(e.getKey(), e.getValue()));
+  }
+
+  @Override
+  public synchronized @NotNull List<Entry<DataType, Object>> getEntries(int index) {
+    final List<Entry<DataType, Object>> entries = new ArrayList<>(values.size());
+    values.forEach((type, value) -> entries.add(new SimpleEntry<>(type, value)));
+    return entries;
+  }
+
+  @Override
+  public synchronized void removeColumn(@NotNull DataType<?> type) {
+    values.remove(type);
+  }
+
+  @Override
+  public int getNumberOfIndices() {
+    return 1;
+  }
+
+  @Override
+  public synchronized int getNumberOfColumns() {
+    return values.size();
+  }
+
+  @Override
+  public synchronized long estimateMemoryBytes() {
+    return 48L + values.size() * 40L;
+  }
+}
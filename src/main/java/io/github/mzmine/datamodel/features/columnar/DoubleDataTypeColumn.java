@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores double values as their long bits. Missing values are marked by a non-canonical NaN, which
+ * cannot collide with any value because {@link Double#doubleToLongBits(double)} collapses all NaN values
+ * to the canonical NaN.
+ */
+final class DoubleDataTypeColumn extends DataTypeColumn {
+
+  private static final long NULL_BITS = 0x7ff8000000000001L;
+
+  private volatile long[][] pages = new long[0][];
+
+  DoubleDataTypeColumn(@NotNull DataType<?> type, int slot) {
+    super(type, slot);
+  }
+
+  @Override
+  @Nullable
+  Object get(int index) {
+    final long[][] pages = this.pages;
+    final int page = page(index);
+    if (page >= pages.length || pages[page] == null) {
+      return null;
+    }
+    final long bits = pages[page][offset(index)];
+    return bits == NULL_BITS ? null : Double.longBitsToDouble(bits);
+  }
+
+  @Override
+  @Nullable
+  Object set(int index, @Nullable Object value) {
+    final long bits = value == null ? NULL_BITS : Double.doubleToLongBits(((Number) value).doubleValue());
+    final long[] page = value == null ? getPageOrNull(page(index)) : getOrCreatePage(page(index));
+    if (page == null) {
+      return null;
+    }
+    final long old = page[offset(index)];
+    page[offset(index)] = bits;
+    return old == NULL_BITS ? null : Double.longBitsToDouble(old);
+  }
+
+  @Nullable
+  private long[] getPageOrNull(int page) {
+    final long[][] pages = this.pages;
+    return page < pages.length ? pages[page] : null;
+  }
+
+  private long[] getOrCreatePage(int page) {
+    // fast path without the lock, pages are never replaced once created
+    final long[] existing = getPageOrNull(page);
+    return existing != null ? existing : createPage(page);
+  }
+
+  private synchronized long[] createPage(int page) {
+    long[][] pages = this.pages;
+    if (page < pages.length && pages[page] != null) {
+      return pages[page];
+    }
+    // copy on write, the fast path reads published page arrays without the lock
+    pages = Arrays.copyOf(pages,
+        page < pages.length ? pages.length : Math.max(page + 1, pages.length * 2));
+    final long[] values = new long[PAGE_SIZE];
+    Arrays.fill(values, NULL_BITS);
+    pages[page] = values;
+    // volatile write publishes the new page
+    this.pages = pages;
+    return values;
+  }
+
+  @Override
+  long estimateMemoryBytes() {
+    final long[][] pages = this.pages;
+    long bytes = 16L + pages.length * 8L;
+    for (long[] page : pages) {
+      if (page != null) {
+        bytes += 16L + PAGE_SIZE * 8L;
+      }
+    }
+    return bytes;
+  }
+}
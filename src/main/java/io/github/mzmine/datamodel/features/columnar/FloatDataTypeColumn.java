@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores float values as their int bits. Missing values are marked by a non-canonical NaN, which
+ * cannot collide with any value because {@link Float#floatToIntBits(float)} collapses all NaN values
+ * to the canonical NaN.
+ */
+final class FloatDataTypeColumn extends DataTypeColumn {
+
+  private static final int NULL_BITS = 0x7fc00001;
+
+  private volatile int[][] pages = new int[0][];
+
+  FloatDataTypeColumn(@NotNull DataType<?> type, int slot) {
+    super(type, slot);
+  }
+
+  @Override
+  @Nullable
+  Object get(int index) {
+    final int[][] pages = this.pages;
+    final int page = page(index);
+    if (page >= pages.length || pages[page] == null) {
+      return null;
+    }
+    final int bits = pages[page][offset(index)];
+    return bits == NULL_BITS ? null : Float.intBitsToFloat(bits);
+  }
+
+  @Override
+  @Nullable
+  Object set(int index, @Nullable Object value) {
+    final int bits = value == null ? NULL_BITS : Float.floatToIntBits(((Number) value).floatValue());
+    final int[] page = value == null ? getPageOrNull(page(index)) : getOrCreatePage(page(index));
+    if (page == null) {
+      return null;
+    }
+    final int old = page[offset(index)];
+    page[offset(index)] = bits;
+    return old == NULL_BITS ? null : Float.intBitsToFloat(old);
+  }
+
+  @Nullable
+  private int[] getPageOrNull(int page) {
+    final int[][] pages = this.pages;
+    return page < pages.length ? pages[page] : null;
+  }
+
+  private int[] getOrCreatePage(int page) {
+    // fast path without the lock, pages are never replaced once created
+    final int[] existing = getPageOrNull(page);
+    return existing != null ? existing : createPage(page);
+  }
+
+  private synchronized int[] createPage(int page) {
+    int[][] pages = this.pages;
+    if (page < pages.length && pages[page] != null) {
+      return pages[page];
+    }
+    // copy on write, the fast path reads published page arrays without the lock
+    pages = Arrays.copyOf(pages,
+        page < pages.length ? pages.length : Math.max(page + 1, pages.length * 2));
+    final int[] values = new int[PAGE_SIZE];
+    Arrays.fill(values, NULL_BITS);
+    pages[page] = values;
+    // volatile write publishes the new page
+    this.pages = pages;
+    return values;
+  }
+
+  @Override
+  long estimateMemoryBytes() {
+    final int[][] pages = this.pages;
+    long bytes = 16L + pages.length * 8L;
+    for (int[] page : pages) {
+      if (page != null) {
+        bytes += 16L + PAGE_SIZE * 4L;
+      }
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores references for all non-numeric types. null marks a missing value.
+ */
+final class ObjectDataTypeColumn extends DataTypeColumn {
+
+  private volatile Object[][] pages = new Object[0][];
+
+  ObjectDataTypeColumn(@NotNull DataType<?> type, int slot) {
+    super(type, slot);
+  }
+
+  @Override
+  @Nullable
+  Object get(int index) {
+    final Object[][] pages = this.pages;
+    final int page = page(index);
+    if (page >= pages.length || pages[page] == null) {
+      return null;
+    }
+    return pages[page][offset(index)];
+  }
+
+  @Override
+  @Nullable
+  Object set(int index, @Nullable Object value) {
+    final Object[] page = value == null ? getPageOrNull(page(index)) : getOrCreatePage(page(index));
+    if (page == null) {
+      return null;
+    }
+    final Object old = page[offset(index)];
+    page[offset(index)] = value;
+    return old;
+  }
+
+  @Nullable
+  private Object[] getPageOrNull(int page) {
+    final Object[][] pages = this.pages;
+    return page < pages.length ? pages[page] : null;
+  }
+
+  private Object[] getOrCreatePage(int page) {
+    // fast path without the lock, pages are never replaced once created
+    final Object[] existing = getPageOrNull(page);
+    return existing != null ? existing : createPage(page);
+  }
+
+  private synchronized Object[] createPage(int page) {
+    Object[][] pages = this.pages;
+    if (page < pages.length && pages[page] != null) {
+      return pages[page];
+    }
+    // copy on write, the fast path reads published page arrays without the lock
+    pages = Arrays.copyOf(pages,
+        page < pages.length ? pages.length : Math.max(page + 1, pages.length * 2));
+    final Object[] values = new Object[PAGE_SIZE];
+    pages[page] = values;
+    // volatile write publishes the new page
+    this.pages = pages;
+    return values;
+  }
+
+  @Override
+  long estimateMemoryBytes() {
+    final Object[][] pages = this.pages;
+    long bytes = 16L + pages.length * 8L;
+    for (Object[] page : pages) {
+      if (page != null) {
+        // only the references, the referenced values are not counted
+        bytes += 16L + PAGE_SIZE * 4L;
+      }
+    }
+    return bytes;
+  }
+}
@@ -25,7 +25,8 @@
 
 package io.github.mzmine.datamodel.features.correlation;
 
-import io.github.mzmine.util.maths.similarity.Similarity;
+import io.github.mzmine.util.maths.kernels.Kernels;
+import io.github.mzmine.util.maths.kernels.NumericKernels;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -42,16 +43,25 @@ public class FullCorrelationData implements CorrelationData {
   // data points
   // [data point number intensity][feature a, b]
   private final double[][] data;
-  private final SimpleRegression reg;
+  // only created on demand for slope and significance
+  private SimpleRegression reg;
 
+  private final double pearsonR;
   // cosineSimilarity
   private final double cosineSim;
 
   public FullCorrelationData(double[][] data) {
     this.data = data;
-    reg = new SimpleRegression();
-    reg.addData(data);
-    cosineSim = Similarity.COSINE.calc(data);
+    final int n = data.length;
+    final double[] a = new double[n];
+    final double[] b = new double[n];
+    for (int i = 0; i < n; i++) {
+      a[i] = data[i][0];
+      b[i] = data[i][1];
+    }
+    final NumericKernels kernels = Kernels.get();
+    pearsonR = kernels.pearson(a, b, n);
+    cosineSim = kernels.cosine(a, b, n);
   }
 
   public FullCorrelationData(List<double[]> data) {
@@ -86,13 +96,17 @@ public class FullCorrelationData implements CorrelationData {
     return new FullCorrelationData(data);
   }
 
-  public SimpleRegression getRegression() {
+  public synchronized SimpleRegression getRegression() {
+    if (reg == null) {
+      reg = new SimpleRegression();
+      reg.addData(data);
+    }
     return reg;
   }
 
   @Override
   public int getDPCount() {
-    return reg == null ? 0 : (int) reg.getN();
+    return data.length;
   }
 
   /**
@@ -102,7 +116,7 @@ public class FullCorrelationData implements CorrelationData {
    */
   @Override
   public double getPearsonR() {
-    return reg == null ? 0 : reg.getR();
+    return pearsonR;
   }
 
   /**
@@ -26,6 +26,7 @@
 package io.github.mzmine.datamodel.features.types;
 
 import com.google.common.reflect.ClassPath;
+import com.google.common.reflect.ClassPath.ClassInfo;
 import io.github.mzmine.datamodel.MobilityType;
 import io.github.mzmine.datamodel.features.types.alignment.AlignmentMainType;
 import io.github.mzmine.datamodel.features.types.annotations.CommentType;
@@ -70,13 +71,18 @@ import io.github.mzmine.datamodel.features.types.numbers.PrecursorMZType;
 import io.github.mzmine.datamodel.features.types.numbers.RTRangeType;
 import io.github.mzmine.datamodel.features.types.numbers.RTType;
 import io.github.mzmine.datamodel.features.types.numbers.TailingFactorType;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -100,31 +106,78 @@ public class DataTypes {
    * map unique ID to instance
    */
   private static final HashMap<String, DataType<?>> map = new HashMap<>();
+  /**
+   * Resource next to this class that lists all data type class names, one per line
+   */
+  private static final String INDEX_RESOURCE = "datatypes.index";
 
   static {
+    List<String> classNames = loadIndexedClassNames();
+    if (classNames == null) {
+      // index is generated by the gradle build (generateDataTypeIndex) - scan in IDE runs
+      logger.fine("No data type index found, scanning the class path for data types");
+      classNames = scanClassNames();
+    }
+    for (String className : classNames) {
+      try {
+        register(Class.forName(className, true, DataType.class.getClassLoader())
+            .getDeclaredConstructor().newInstance());
+      } catch (ClassNotFoundException | InstantiationException | IllegalAccessException
+               | InvocationTargetException | NoSuchMethodException e) {
+        //               can go silent
+        //              logger.log(Level.INFO, e.getMessage(), e);
+      }
+    }
+    // additional data types provided as services, e.g., by plugins
+    for (DataType<?> type : ServiceLoader.load(DataType.class)) {
+      if (!TYPES.containsKey(type.getClass().getName())) {
+        register(type);
+      }
+    }
+  }
+
+  private static void register(Object o) {
+    if (o instanceof DataType dt) {
+      var value = map.put(dt.getUniqueID(), dt);
+      if (value != null) {
+        throw new IllegalStateException(
+            "FATAL: Multiple data types with unique ID " + dt.getUniqueID() + "\n"
+            + value.getClass().getName() + "\n" + dt.getClass().getName());
+      }
+      TYPES.put(dt.getClass().getName(), dt);
+    }
+  }
+
+  /**
+   * The index lists all top level classes in the types package and is generated at build time.
+   * This avoids scanning all jars on the class path during startup.
+   *
+   * @return the class names or null if there is no index
+   */
+  @Nullable
+  private static List<String> loadIndexedClassNames() {
+    try (var in = DataTypes.class.getResourceAsStream(INDEX_RESOURCE)) {
+      if (in == null) {
+        return null;
+      }
+      try (var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+        return reader.lines().map(String::trim).filter(line -> !line.isEmpty()).toList();
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot read data type index " + INDEX_RESOURCE, e);
+      return null;
+    }
+  }
+
+  @NotNull
+  private static List<String> scanClassNames() {
     try {
       ClassPath classPath = ClassPath.from(DataType.class.getClassLoader());
-      classPath.getTopLevelClassesRecursive("io.github.mzmine.datamodel.features.types")
-          .forEach(classInfo -> {
-            try {
-              Object o = classInfo.load().getDeclaredConstructor().newInstance();
-              if (o instanceof DataType dt) {
-                var value = map.put(dt.getUniqueID(), dt);
-                if (value != null) {
-                  throw new IllegalStateException(
-                      "FATAL: Multiple data types with unique ID " + dt.getUniqueID() + "\n"
-                      + value.getClass().getName() + "\n" + dt.getClass().getName());
-                }
-                TYPES.put(dt.getClass().getName(), dt);
-              }
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
-                     NoSuchMethodException e) {
-              //               can go silent
-              //              logger.log(Level.INFO, e.getMessage(), e);
-            }
-          });
+      return classPath.getTopLevelClassesRecursive("io.github.mzmine.datamodel.features.types")
+          .stream().map(ClassInfo::getName).toList();
     } catch (IOException e) {
       logger.severe("Cannot instantiate classPath for DataType.class. Cannot load projects.");
+      return List.of();
     }
   }
 
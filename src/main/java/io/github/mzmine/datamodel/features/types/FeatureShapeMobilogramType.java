@@ -30,12 +30,16 @@ import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.types.graphicalnodes.FeatureShapeMobilogramChart;
+import io.github.mzmine.datamodel.features.types.graphicalnodes.SparklineImages;
+import io.github.mzmine.datamodel.features.types.modifiers.SparklineColumnType;
+import java.awt.image.BufferedImage;
 import java.util.logging.Logger;
 import javafx.scene.Node;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-public class FeatureShapeMobilogramType extends LinkedGraphicalType {
+public class FeatureShapeMobilogramType extends LinkedGraphicalType implements
+    SparklineColumnType<Boolean> {
 
   private static final Logger logger = Logger.getLogger(FeatureShapeMobilogramType.class.getName());
 
@@ -73,4 +77,22 @@ public class FeatureShapeMobilogramType extends LinkedGraphicalType {
     var chart = new FeatureShapeMobilogramChart(row, progress);
     return chart;
   }
+
+  @Override
+  public @Nullable BufferedImage createSparkline(@NotNull ModularFeatureListRow row,
+      Boolean cellData, @Nullable RawDataFile raw, int width, int height) {
+    if (cellData == null || !cellData || row.getRawDataFiles().stream()
+        .filter(file -> (file instanceof IMSRawDataFile)).findAny().isEmpty()) {
+      return null;
+    }
+    return SparklineImages.createMobilograms(row, width, height);
+  }
+
+  @Override
+  public int getSparklineRevision(@NotNull ModularFeatureListRow row, Boolean cellData,
+      @Nullable RawDataFile raw) {
+    return 31 * Boolean.hashCode(cellData != null && cellData)
+        + SparklineImages.getFeatureDataRevision(row);
+  }
+
 }
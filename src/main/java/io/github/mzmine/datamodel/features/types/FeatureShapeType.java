@@ -30,8 +30,11 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.types.graphicalnodes.FeatureShapeChart;
+import io.github.mzmine.datamodel.features.types.graphicalnodes.SparklineImages;
+import io.github.mzmine.datamodel.features.types.modifiers.SparklineColumnType;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.visualization.chromatogram.ChromatogramVisualizerModule;
+import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.logging.Logger;
 import javafx.scene.Node;
@@ -44,7 +47,8 @@ import org.jetbrains.annotations.Nullable;
  *
  * @author Robin Schmid (https://github.com/robinschmid)
  */
-public class FeatureShapeType extends LinkedGraphicalType {
+public class FeatureShapeType extends LinkedGraphicalType implements
+    SparklineColumnType<Boolean> {
 
   private static final Logger logger = Logger.getLogger(FeatureShapeType.class.getName());
 
@@ -73,6 +77,23 @@ public class FeatureShapeType extends LinkedGraphicalType {
     return chart;
   }
 
+  @Override
+  public @Nullable BufferedImage createSparkline(@NotNull ModularFeatureListRow row,
+      Boolean cellData, @Nullable RawDataFile raw, int width, int height) {
+    if (cellData == null || !cellData) {
+      return null;
+    }
+    return SparklineImages.createFeatureShapes(row, width, height);
+  }
+
+  @Override
+  public int getSparklineRevision(@NotNull ModularFeatureListRow row, Boolean cellData,
+      @Nullable RawDataFile raw) {
+    return 31 * Boolean.hashCode(cellData != null && cellData)
+        + SparklineImages.getFeatureDataRevision(row);
+  }
+
+
   @Override
   public double getColumnWidth() {
     return LARGE_GRAPHICAL_CELL_WIDTH;
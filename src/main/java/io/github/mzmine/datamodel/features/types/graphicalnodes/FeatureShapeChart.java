@@ -79,8 +79,29 @@ public class FeatureShapeChart extends BufferedChartNode {
     chart.getChart().setBackgroundPaint((new Color(0, 0, 0, 0)));
     chart.getXYPlot().setBackgroundPaint((new Color(0, 0, 0, 0)));
 
+    final org.jfree.data.Range defaultRange = getDefaultRTRange(row);
+
+    chart.addDatasets(datasets);
+    try {
+      chart.getXYPlot().getDomainAxis().setRange(defaultRange);
+      chart.getXYPlot().getDomainAxis().setDefaultAutoRange(defaultRange);
+    } catch (NoSuchElementException ex) {
+      // error in jfreechart draw method
+    }
+
+    var width = GraphicalColumType.LARGE_GRAPHICAL_CELL_WIDTH;
+    var height = GraphicalColumType.DEFAULT_GRAPHICAL_CELL_HEIGHT;
+    // set the chart to create a buffered image
+    setChartCreateImage(chart, width, height);
+  }
+
+  /**
+   * @return the retention time range shown for the feature shapes of this row. Zooms on the best
+   * feature if its FWHM defines most of the feature, otherwise shows the full feature width.
+   */
+  @NotNull
+  public static Range getDefaultRTRange(@NotNull ModularFeatureListRow row) {
     final ModularFeature bestFeature = row.getBestFeature();
-    final org.jfree.data.Range defaultRange;
     if (bestFeature != null) {
       final Float rt = bestFeature.getRT();
 
@@ -93,29 +114,16 @@ public class FeatureShapeChart extends BufferedChartNode {
       if (fwhm != null && !Float.isNaN(fwhm) && fwhm > 0f && fwhm / fullWidth > 0.4) {
         // zoom on feature
         var window = 5 * fwhm;
-        defaultRange = new org.jfree.data.Range(Math.max(rt - window, rawMinRt),
+        return new org.jfree.data.Range(Math.max(rt - window, rawMinRt),
             Math.min(rt + window, rawMaxRt));
       } else {
         // show full RT range
         final float length = Math.max(fullWidth, 0.001f);
-        defaultRange = new org.jfree.data.Range(Math.max(rt - length * 1.05, rawMinRt),
+        return new org.jfree.data.Range(Math.max(rt - length * 1.05, rawMinRt),
             Math.min(rt + length * 1.05, rawMaxRt));
       }
     } else {
-      defaultRange = new Range(0, 1);
-    }
-
-    chart.addDatasets(datasets);
-    try {
-      chart.getXYPlot().getDomainAxis().setRange(defaultRange);
-      chart.getXYPlot().getDomainAxis().setDefaultAutoRange(defaultRange);
-    } catch (NoSuchElementException ex) {
-      // error in jfreechart draw method
+      return new Range(0, 1);
     }
-
-    var width = GraphicalColumType.LARGE_GRAPHICAL_CELL_WIDTH;
-    var height = GraphicalColumType.DEFAULT_GRAPHICAL_CELL_HEIGHT;
-    // set the chart to create a buffered image
-    setChartCreateImage(chart, width, height);
   }
 }
@@ -84,21 +84,7 @@ public class FeatureShapeMobilogramChart extends BufferedChartNode {
     chart.getChart().setBackgroundPaint((new Color(0, 0, 0, 0)));
     chart.getXYPlot().setBackgroundPaint((new Color(0, 0, 0, 0)));
 
-    final ModularFeature bestFeature = row.getBestFeature();
-    org.jfree.data.Range defaultRange = null;
-    if (bestFeature != null && bestFeature.getRawDataFile() instanceof IMSRawDataFile imsRaw) {
-      com.google.common.collect.Range<Float> mobilityRange = bestFeature.getMobilityRange();
-      final Float mobility = bestFeature.getMobility();
-      if (mobilityRange != null && mobility != null && !Float.isNaN(mobility)) {
-        final Float length = RangeUtils.rangeLength(mobilityRange);
-        defaultRange = new org.jfree.data.Range(
-            Math.max(mobility - 3 * length, imsRaw.getDataMobilityRange().lowerEndpoint()),
-            Math.min(mobility + 3 * length, imsRaw.getDataMobilityRange().upperEndpoint()));
-      }
-    }
-    if (defaultRange == null) {
-      defaultRange = new Range(0, 1);
-    }
+    final org.jfree.data.Range defaultRange = getDefaultMobilityRange(row);
 
     chart.addDatasets(datasets);
     try {
@@ -111,4 +97,24 @@ public class FeatureShapeMobilogramChart extends BufferedChartNode {
     setChartCreateImage(chart, GraphicalColumType.DEFAULT_GRAPHICAL_CELL_WIDTH,
         GraphicalColumType.DEFAULT_GRAPHICAL_CELL_HEIGHT);
   }
+
+  /**
+   * @return the mobility range shown for the mobilograms of this row. Shows three times the mobility
+   * range of the best feature around its mobility.
+   */
+  @NotNull
+  public static Range getDefaultMobilityRange(@NotNull ModularFeatureListRow row) {
+    final ModularFeature bestFeature = row.getBestFeature();
+    if (bestFeature != null && bestFeature.getRawDataFile() instanceof IMSRawDataFile imsRaw) {
+      com.google.common.collect.Range<Float> mobilityRange = bestFeature.getMobilityRange();
+      final Float mobility = bestFeature.getMobility();
+      if (mobilityRange != null && mobility != null && !Float.isNaN(mobility)) {
+        final Float length = RangeUtils.rangeLength(mobilityRange);
+        return new org.jfree.data.Range(
+            Math.max(mobility - 3 * length, imsRaw.getDataMobilityRange().lowerEndpoint()),
+            Math.min(mobility + 3 * length, imsRaw.getDataMobilityRange().upperEndpoint()));
+      }
+    }
+    return new Range(0, 1);
+  }
 }
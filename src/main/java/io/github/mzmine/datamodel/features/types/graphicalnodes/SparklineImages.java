@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.types.graphicalnodes;
+
+import io.github.mzmine.datamodel.ImagingRawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.featuredata.impl.SummedIntensityMobilitySeries;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jfree.data.Range;
+
+/**
+ * Draws feature shapes and mobilograms of a row as small line plots (sparklines) into images.
+ * Lightweight replacement of {@link FeatureShapeChart} and {@link FeatureShapeMobilogramChart} for
+ * feature table cells: no chart or JavaFX nodes are created, so the images can be drawn by any
+ * thread. The x-axis ranges are the same as in the charts.
+ */
+public class SparklineImages {
+
+  private static final Color AXIS_COLOR = new Color(128, 128, 128, 160);
+
+  private SparklineImages() {
+  }
+
+  /**
+   * The feature data is immutable and replaced on change, e.g., by smoothing or resolving.
+   *
+   * @return a revision that changes when features are added, removed or their data is replaced
+   */
+  public static int getFeatureDataRevision(@NotNull ModularFeatureListRow row) {
+    int revision = 1;
+    for (ModularFeature f : row.getFeatures()) {
+      revision = 31 * revision + System.identityHashCode(f.getFeatureData());
+    }
+    return revision;
+  }
+
+  /**
+   * @return the chromatograms of all features of the row
+   */
+  @NotNull
+  public static BufferedImage createFeatureShapes(@NotNull ModularFeatureListRow row, int width,
+      int height) {
+    final List<Line> lines = new ArrayList<>();
+    for (Feature f : row.getFeatures()) {
+      if (f.getRawDataFile() instanceof ImagingRawDataFile) {
+        continue;
+      }
+      final IonTimeSeries<? extends Scan> series = ((ModularFeature) f).getFeatureData();
+      if (series == null) {
+        continue;
+      }
+      final int n = series.getNumberOfValues();
+      final double[] rts = new double[n];
+      final double[] intensities = new double[n];
+      for (int i = 0; i < n; i++) {
+        rts[i] = series.getRetentionTime(i);
+        intensities[i] = series.getIntensity(i);
+      }
+      lines.add(new Line(rts, intensities, f.getRawDataFile().getColorAWT()));
+    }
+    return draw(lines, FeatureShapeChart.getDefaultRTRange(row), width, height);
+  }
+
+  /**
+   * @return the summed mobilograms of all ion mobility features of the row
+   */
+  @NotNull
+  public static BufferedImage createMobilograms(@NotNull ModularFeatureListRow row, int width,
+      int height) {
+    final List<Line> lines = new ArrayList<>();
+    for (Feature f : row.getFeatures()) {
+      if (!(((ModularFeature) f).getFeatureData() instanceof IonMobilogramTimeSeries series)) {
+        continue;
+      }
+      final SummedIntensityMobilitySeries mobilogram = series.getSummedMobilogram();
+      final int n = mobilogram.getNumberOfValues();
+      final double[] mobilities = new double[n];
+      final double[] intensities = new double[n];
+      for (int i = 0; i < n; i++) {
+        mobilities[i] = mobilogram.getMobility(i);
+        intensities[i] = mobilogram.getIntensity(i);
+      }
+      lines.add(new Line(mobilities, intensities, f.getRawDataFile().getColorAWT()));
+    }
+    return draw(lines, FeatureShapeMobilogramChart.getDefaultMobilityRange(row), width, height);
+  }
+
+  /**
+   * Draws all lines scaled to the x range and the maximum intensity within the x range on a
+   * transparent background.
+   */
+  private static BufferedImage draw(List<Line> lines, Range xRange, int width, int height) {
+    final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    final int pad = 2;
+    final double plotWidth = width - 2d * pad;
+    final double plotHeight = height - 2d * pad;
+
+    double maxY = 0;
+    for (Line line : lines) {
+      for (int i = 0; i < line.x().length; i++) {
+        if (xRange.contains(line.x()[i])) {
+          maxY = Math.max(maxY, line.y()[i]);
+        }
+      }
+    }
+
+    final Graphics2D g = img.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g.setColor(AXIS_COLOR);
+      g.drawLine(pad, height - pad, width - pad, height - pad);
+      if (maxY <= 0 || xRange.getLength() <= 0) {
+        return img;
+      }
+
+      g.setStroke(new BasicStroke(1.2f));
+      final double xScale = plotWidth / xRange.getLength();
+      final double yScale = plotHeight / maxY;
+      for (Line line : lines) {
+        final Path2D.Double path = new Path2D.Double();
+        for (int i = 0; i < line.x().length; i++) {
+          final double x = pad + (line.x()[i] - xRange.getLowerBound()) * xScale;
+          final double y = height - pad - line.y()[i] * yScale;
+          if (i == 0) {
+            path.moveTo(x, y);
+          } else {
+            path.lineTo(x, y);
+          }
+        }
+        g.setColor(line.color());
+        g.draw(path);
+      }
+    } finally {
+      g.dispose();
+    }
+    return img;
+  }
+
+  private record Line(double[] x, double[] y, Color color) {
+
+  }
+}
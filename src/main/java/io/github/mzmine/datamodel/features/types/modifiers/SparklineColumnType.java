@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.types.modifiers;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataType;
+import java.awt.image.BufferedImage;
+import java.util.Objects;
+import javafx.scene.Node;
+import javafx.scene.control.TreeTableCell;
+import javafx.scene.control.TreeTableColumn;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A graphical column that shows a small image (sparkline) in the feature table instead of a chart
+ * node. The images are drawn off the JavaFX thread and cached by the
+ * {@link io.github.mzmine.datamodel.features.types.tasks.SparklineRenderer} of the feature list.
+ * The full chart of {@link #createCellContent} is only created on click.
+ */
+public interface SparklineColumnType<T> extends GraphicalColumType<T> {
+
+  @Override
+  default Node getCellNode(TreeTableCell<ModularFeatureListRow, T> cell,
+      TreeTableColumn<ModularFeatureListRow, T> coll, DataType type, T cellData, RawDataFile raw) {
+    final ModularFeatureListRow row = cell.getTableRow().getItem();
+
+    if (row.getFeatureList() != null) {
+      return row.getFeatureList().getSparklineRenderer()
+          .getSparklineNode(cell, row, type, cellData, raw);
+    }
+    throw new IllegalStateException("No feature list associated with row.");
+  }
+
+  /**
+   * Draws the sparkline image. Executed outside the JavaFX thread.
+   *
+   * @return the image or null if there is nothing to show
+   */
+  @Nullable BufferedImage createSparkline(@NotNull ModularFeatureListRow row, T cellData,
+      @Nullable RawDataFile raw, int width, int height);
+
+  /**
+   * Part of the cache key of the sparkline. Must change when the drawn data changes, so that an
+   * outdated image is not shown from the cache.
+   *
+   * @return the revision of the data drawn by {@link #createSparkline}
+   */
+  default int getSparklineRevision(@NotNull ModularFeatureListRow row, T cellData,
+      @Nullable RawDataFile raw) {
+    return Objects.hashCode(cellData);
+  }
+}
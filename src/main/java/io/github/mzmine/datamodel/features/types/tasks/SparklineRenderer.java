@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.types.tasks;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.modifiers.SparklineColumnType;
+import io.github.mzmine.main.MZmineCore;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.control.Label;
+import javafx.scene.control.TreeTableCell;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Renders the images of {@link SparklineColumnType} cells off the JavaFX thread and keeps them in
+ * an LRU cache that is bounded by the image size in bytes. One renderer per feature list.
+ * <p>
+ * Requests are rendered newest first. While scrolling, the cells in the viewport are updated last,
+ * so the visible rows are rendered first. A table cell only keeps its latest request. When a cell
+ * is reused for another row, its previous request is canceled and skipped by the workers.
+ */
+public class SparklineRenderer {
+
+  private static final Logger logger = Logger.getLogger(SparklineRenderer.class.getName());
+  /**
+   * Maximum bytes of all cached images. A 300x100 ARGB image uses 120 kB.
+   */
+  private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+  /**
+   * Key of the current request in the properties of a cell
+   */
+  private static final String CELL_REQUEST_KEY = "sparkline_request";
+  private static final int NUM_THREADS = Math.max(1,
+      Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+  // access ordered for LRU
+  private final Map<SparklineKey, Image> cache = new LinkedHashMap<>(256, 0.75f, true);
+  private final LinkedBlockingDeque<SparklineRequest> requests = new LinkedBlockingDeque<>();
+  private long cacheBytes = 0;
+  private ExecutorService executor;
+
+  /**
+   * Called by the JavaFX thread for each cell update.
+   *
+   * @return the cached image or a placeholder that shows the image once it is rendered
+   */
+  @NotNull
+  public <T> StackPane getSparklineNode(@NotNull TreeTableCell<ModularFeatureListRow, T> cell,
+      @NotNull ModularFeatureListRow row, @NotNull DataType type, T cellData,
+      @Nullable RawDataFile raw) {
+    final SparklineColumnType<T> sparklineType = (SparklineColumnType<T>) type;
+
+    // the cell shows another row now, the previous request is not needed anymore
+    if (cell.getProperties().remove(CELL_REQUEST_KEY) instanceof SparklineRequest<?> previous) {
+      previous.cancel();
+    }
+
+    // follow the column width when the user resizes the column
+    final double columnWidth =
+        cell.getTableColumn() != null ? cell.getTableColumn().getWidth() : 0d;
+    final int width = (int) (columnWidth > 0 ? columnWidth : sparklineType.getColumnWidth());
+    final int height = (int) sparklineType.getCellHeight();
+    final SparklineKey key = createKey(row, sparklineType, cellData, raw, width, height);
+    final StackPane pane = new StackPane();
+    pane.setPrefSize(width, height);
+    pane.setMinHeight(height);
+    pane.setMaxHeight(height);
+    // show the full chart on click
+    pane.setOnMouseClicked(e -> pane.getChildren()
+        .setAll(row.getFeatureList().getChartForRow(row, type, raw)));
+
+    final Image cached = getCached(key);
+    if (cached != null) {
+      pane.getChildren().add(new ImageView(cached));
+      return pane;
+    }
+
+    pane.getChildren().add(new Label("Preparing content..."));
+    final SparklineRequest<T> request = new SparklineRequest<>(key, row, sparklineType, cellData,
+        raw, width, height, pane);
+    cell.getProperties().put(CELL_REQUEST_KEY, request);
+    requests.addFirst(request);
+    getExecutor().execute(this::renderNext);
+    return pane;
+  }
+
+  /**
+   * Renders the newest request that was not canceled. Executed once per request, so all requests
+   * are processed.
+   */
+  private void renderNext() {
+    SparklineRequest<?> request;
+    while ((request = requests.pollFirst()) != null) {
+      if (!request.isCanceled()) {
+        break;
+      }
+    }
+    if (request == null) {
+      return;
+    }
+
+    try {
+      Image image = getCached(request.key);
+      if (image == null) {
+        final BufferedImage img = request.createSparkline();
+        if (img == null) {
+          request.show(null);
+          return;
+        }
+        image = SwingFXUtils.toFXImage(img, null);
+        putCached(request.key, image);
+      }
+      request.show(image);
+    } catch (Exception e) {
+      // sometimes some exceptions occur during the drawing, catch them here.
+      logger.log(Level.FINE, e.getMessage(), e);
+    }
+  }
+
+  @Nullable
+  private synchronized Image getCached(SparklineKey key) {
+    return cache.get(key);
+  }
+
+  private synchronized void putCached(SparklineKey key, Image image) {
+    final Image old = cache.put(key, image);
+    if (old != null) {
+      cacheBytes -= bytes(old);
+    }
+    cacheBytes += bytes(image);
+
+    // remove the least recently used images
+    final Iterator<Image> iterator = cache.values().iterator();
+    while (cacheBytes > MAX_CACHE_BYTES && iterator.hasNext()) {
+      final Image eldest = iterator.next();
+      if (eldest == image) {
+        break;
+      }
+      cacheBytes -= bytes(eldest);
+      iterator.remove();
+    }
+  }
+
+  /**
+   * The key contains the size and the data revision of the image, so images of resized columns or
+   * changed data are rendered again instead of taken from the cache. Outdated images are evicted
+   * as least recently used.
+   */
+  @NotNull
+  static <T> SparklineKey createKey(@NotNull ModularFeatureListRow row,
+      @NotNull SparklineColumnType<T> type, T cellData, @Nullable RawDataFile raw, int width,
+      int height) {
+    return new SparklineKey(row.getID(), ((DataType<?>) type).getUniqueID(),
+        raw != null ? raw.getName() : "", width, height,
+        type.getSparklineRevision(row, cellData, raw));
+  }
+
+  private static long bytes(Image image) {
+    return 4L * (long) image.getWidth() * (long) image.getHeight();
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(NUM_THREADS, r -> {
+        final Thread thread = new Thread(r, "Sparkline renderer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return executor;
+  }
+
+  /**
+   * Stops rendering and clears the cache, e.g., when the feature table is closed.
+   */
+  public synchronized void clear() {
+    requests.forEach(SparklineRequest::cancel);
+    requests.clear();
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+    cache.clear();
+    cacheBytes = 0;
+  }
+
+  record SparklineKey(int rowId, @NotNull String typeId, @NotNull String rawName, int width,
+                      int height, int revision) {
+
+  }
+
+  private static class SparklineRequest<T> {
+
+    private final SparklineKey key;
+    private final ModularFeatureListRow row;
+    private final SparklineColumnType<T> type;
+    private final T cellData;
+    private final RawDataFile raw;
+    private final int width;
+    private final int height;
+    private final StackPane pane;
+    private volatile boolean canceled = false;
+
+    private SparklineRequest(SparklineKey key, ModularFeatureListRow row, SparklineColumnType<T> type,
+        T cellData, RawDataFile raw, int width, int height, StackPane pane) {
+      this.key = key;
+      this.row = row;
+      this.type = type;
+      this.cellData = cellData;
+      this.raw = raw;
+      this.width = width;
+      this.height = height;
+      this.pane = pane;
+    }
+
+    private BufferedImage createSparkline() {
+      return type.createSparkline(row, cellData, raw, width, height);
+    }
+
+    /**
+     * Shows the image in the cell, if the cell still shows this row
+     *
+     * @param image the image or null to clear the placeholder
+     */
+    private void show(@Nullable Image image) {
+      MZmineCore.runLater(() -> {
+        if (canceled) {
+          return;
+        }
+        if (image == null) {
+          pane.getChildren().clear();
+        } else {
+          pane.getChildren().setAll(new ImageView(image));
+        }
+      });
+    }
+
+    private void cancel() {
+      canceled = true;
+    }
+
+    private boolean isCanceled() {
+      return canceled;
+    }
+  }
+}
@@ -26,6 +26,7 @@
 package io.github.mzmine.datamodel.impl;
 
 import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.featuredata.impl.CompactDataPoints;
 import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
@@ -35,7 +36,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * An implementation of MassSpectrum that stores the data points in a MemoryMapStorage.
+ * An implementation of MassSpectrum that stores the data points in a MemoryMapStorage. If enabled,
+ * the data points are stored in the {@link CompactDataPoints} format.
  */
 public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
 
@@ -44,6 +46,10 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
 
   protected DoubleBuffer mzValues;
   protected DoubleBuffer intensityValues;
+  /**
+   * Set instead of mzValues and intensityValues if the compact encoding is enabled.
+   */
+  protected CompactDataPoints compactValues;
 
   /**
    * Note: mz and intensity values for a scan shall only be set once and are enforced to be
@@ -76,18 +82,51 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
       // allow re-generation of frame spectra
       assert this.mzValues == null;
       assert this.intensityValues == null;
+      assert this.compactValues == null;
     }
 
     // so many data sources have unsorted spectra - so better sort the spectrum here
     // this is only done if the mzs were unsorted
     var mzsIntensities = DataPointUtils.ensureSortingMzAscendingDefault(mzValues, intensityValues);
 
-    this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzsIntensities[0]);
-    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzsIntensities[1]);
+    this.compactValues = CompactDataPoints.storeIfEnabled(storage, mzsIntensities[0],
+        mzsIntensities[1]);
+    if (compactValues == null) {
+      this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzsIntensities[0]);
+      this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzsIntensities[1]);
+    } else {
+      this.mzValues = null;
+      this.intensityValues = null;
+    }
+    updateMzRangeAndTICValues();
+  }
+
+  /**
+   * Sets the data points to an m/z buffer that is shared by multiple spectra, e.g., all spectra of
+   * a continuous mode imaging file. Only the intensities are stored for this spectrum, the compact
+   * encoding is not applied.
+   *
+   * @param storage         If null, intensity values will be stored in ram.
+   * @param sharedMzValues  the shared m/z values sorted ascending. Only absolute reads are used on
+   *                        this buffer.
+   * @param intensityValues the intensities, same length as the m/z values.
+   */
+  protected synchronized void setDataPoints(@Nullable MemoryMapStorage storage,
+      @NotNull DoubleBuffer sharedMzValues, @NotNull double[] intensityValues) {
+    assert sharedMzValues.capacity() == intensityValues.length;
+    assert this.mzValues == null;
+    assert this.intensityValues == null;
+    assert this.compactValues == null;
+
+    this.mzValues = sharedMzValues;
+    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensityValues);
     updateMzRangeAndTICValues();
   }
 
   DoubleBuffer getMzValues() {
+    if (compactValues != null) {
+      return compactValues.getMzValueBuffer();
+    }
     if (mzValues == null) {
       return EMPTY_BUFFER;
     } else {
@@ -96,6 +135,9 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
   }
 
   DoubleBuffer getIntensityValues() {
+    if (compactValues != null) {
+      return compactValues.getIntensityValueBuffer();
+    }
     if (intensityValues == null) {
       return EMPTY_BUFFER;
     } else {
@@ -103,8 +145,51 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     }
   }
 
+  @Override
+  public int getNumberOfDataPoints() {
+    if (compactValues != null) {
+      return compactValues.getNumberOfValues();
+    }
+    return super.getNumberOfDataPoints();
+  }
+
+  @Override
+  public double getMzValue(int index) {
+    if (compactValues != null) {
+      return compactValues.getMz(index);
+    }
+    return super.getMzValue(index);
+  }
+
+  @Override
+  public double getIntensityValue(int index) {
+    if (compactValues != null) {
+      return compactValues.getIntensity(index);
+    }
+    return super.getIntensityValue(index);
+  }
+
+  @Override
+  public @Nullable Double getBasePeakMz() {
+    if (compactValues != null) {
+      return basePeakIndex == null ? null : compactValues.getMz(basePeakIndex);
+    }
+    return super.getBasePeakMz();
+  }
+
+  @Override
+  public @Nullable Double getBasePeakIntensity() {
+    if (compactValues != null) {
+      return basePeakIndex == null ? null : compactValues.getIntensity(basePeakIndex);
+    }
+    return super.getBasePeakIntensity();
+  }
+
   @Override
   public double[] getMzValues(@NotNull double[] dst) {
+    if (compactValues != null) {
+      return compactValues.getMzValues(dst);
+    }
     if (mzValues == null) {
       return new double[0];
     }
@@ -117,6 +202,9 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
 
   @Override
   public double[] getIntensityValues(@NotNull double[] dst) {
+    if (compactValues != null) {
+      return compactValues.getIntensityValues(dst);
+    }
     if (intensityValues == null) {
       return new double[0];
     }
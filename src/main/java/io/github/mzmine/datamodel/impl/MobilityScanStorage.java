@@ -109,11 +109,7 @@ public class MobilityScanStorage {
     this(storage, frame, mobilityScans);
 
     if (useAsMassList) {
-      massListBasePeakIndices = rawBasePeakIndices;
-      massListMaxNumPoints = rawMaxNumPoints;
-      massListMzValues = rawMzValues;
-      massListIntensityValues = rawIntensityValues;
-      massListStorageOffsets = rawStorageOffsets;
+      useRawDataAsMassLists();
     }
   }
 
@@ -126,20 +122,49 @@ public class MobilityScanStorage {
       @NotNull MassDetector massDetector, @NotNull ParameterSet massDetectorParameters,
       boolean denormalizeMSnScans) {
 
-    if (massDetector instanceof CentroidMassDetector &&
-        Double.compare(massDetectorParameters.getValue(CentroidMassDetectorParameters.noiseLevel),
-            0d) == 0) {
+    if (canUseRawDataAsMassLists(massDetector, massDetectorParameters)) {
       // no need to run mass detection in this case.
-      massListBasePeakIndices = rawBasePeakIndices;
-      massListMaxNumPoints = rawMaxNumPoints;
-      massListMzValues = rawMzValues;
-      massListIntensityValues = rawIntensityValues;
-      massListStorageOffsets = rawStorageOffsets;
+      useRawDataAsMassLists();
       return;
     }
 
+    setMassLists(storage,
+        detectMobilityScanMasses(massDetector, massDetectorParameters, denormalizeMSnScans));
+  }
+
+  /**
+   * @return true if the mass detection would not change the raw data and the raw data can be used
+   * as mass lists via {@link #useRawDataAsMassLists()}.
+   */
+  public static boolean canUseRawDataAsMassLists(@NotNull MassDetector massDetector,
+      @NotNull ParameterSet massDetectorParameters) {
+    return massDetector instanceof CentroidMassDetector && Double.compare(
+        massDetectorParameters.getValue(CentroidMassDetectorParameters.noiseLevel), 0d) == 0;
+  }
+
+  /**
+   * Uses the raw data of the mobility scans as mass lists without copying.
+   */
+  public void useRawDataAsMassLists() {
+    massListBasePeakIndices = rawBasePeakIndices;
+    massListMaxNumPoints = rawMaxNumPoints;
+    massListMzValues = rawMzValues;
+    massListIntensityValues = rawIntensityValues;
+    massListStorageOffsets = rawStorageOffsets;
+  }
+
+  /**
+   * Detects the masses of all mobility scans without setting them. Only reads the raw data, so this
+   * method may be called from a worker thread while the results are set with
+   * {@link #setMassLists(MemoryMapStorage, List)} by another thread.
+   *
+   * @return the mass lists as [0,1] as [mzs, intensities] arrays, one for each MobilityScan in this
+   * frame
+   */
+  public List<double[][]> detectMobilityScanMasses(@NotNull MassDetector massDetector,
+      @NotNull ParameterSet massDetectorParameters, boolean denormalizeMSnScans) {
     // mobility scan -> [0][] = mzs, [1][] = intensities
-    final List<double[][]> data = new ArrayList<>();
+    final List<double[][]> data = new ArrayList<>(getNumberOfMobilityScans());
 
     for (MobilityScan mobilityScan : getMobilityScans()) {
       double[][] mzIntensity = massDetector.getMassValues(mobilityScan, massDetectorParameters);
@@ -149,8 +174,7 @@ public class MobilityScanStorage {
       }
       data.add(mzIntensity);
     }
-
-    setMassLists(storage, data);
+    return data;
   }
 
   /**
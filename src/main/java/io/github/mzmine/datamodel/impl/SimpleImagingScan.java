@@ -32,6 +32,7 @@ import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.io.import_rawdata_bruker_tdf.datamodel.sql.MaldiSpotInfo;
 import io.github.mzmine.modules.io.import_rawdata_imzml.Coordinates;
+import java.nio.DoubleBuffer;
 import org.jetbrains.annotations.Nullable;
 
 
@@ -55,6 +56,23 @@ public class SimpleImagingScan extends SimpleScan implements ImagingScan {
     this.setCoordinates(coordinates);
   }
 
+  /**
+   * Creates a scan on an m/z array that is shared by multiple scans of the same data file, e.g., in
+   * continuous mode imzML files. Only the intensities are stored for this scan.
+   *
+   * @param sharedMzValues  m/z values sorted ascending, stored once for all scans
+   * @param intensityValues intensities of this scan
+   */
+  public SimpleImagingScan(RawDataFile dataFile, int scanNumber, int msLevel, float retentionTime,
+      double precursorMZ, int precursorCharge, DoubleBuffer sharedMzValues,
+      double intensityValues[], MassSpectrumType spectrumType, PolarityType polarity,
+      String scanDefinition, Range<Double> scanMZRange, Coordinates coordinates) {
+    this(dataFile, scanNumber, msLevel, retentionTime, precursorMZ, precursorCharge,
+        (double[]) null, (double[]) null, spectrumType, polarity, scanDefinition, scanMZRange,
+        coordinates);
+    setDataPoints(dataFile.getMemoryMapStorage(), sharedMzValues, intensityValues);
+  }
+
   /**
    * @return the xyz coordinates. null if no coordinates were specified
    */
@@ -66,6 +66,7 @@ import io.github.mzmine.parameters.parametertypes.selectors.SpectralLibrarySelec
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.util.ExitCode;
 import io.github.mzmine.util.FeatureTableFXUtil;
+import io.github.mzmine.util.StorageMemoryBudget;
 import io.github.mzmine.util.javafx.FxIconUtil;
 import io.github.mzmine.util.javafx.MiniTaskView;
 import io.github.mzmine.util.javafx.groupablelistview.GroupEntity;
@@ -284,7 +285,8 @@ public class MainWindowController {
     selectTab(MZmineIntroductionTab.TITLE);
 
     memoryBar.setOnMouseClicked(event -> handleMemoryBarClick(event));
-    memoryBar.setTooltip(new Tooltip("Free memory (is done automatically)"));
+    final Tooltip memoryTooltip = new Tooltip("Free memory (is done automatically)");
+    memoryBar.setTooltip(memoryTooltip);
 
     // Setup the Timeline to update the memory indicator periodically
     final Timeline memoryUpdater = new Timeline();
@@ -300,6 +302,8 @@ public class MainWindowController {
 
       memoryBar.setProgress(memory);
       memoryBarLabel.setText(freeMemMB + "/" + totalMemMB + " MB free");
+      memoryTooltip.setText(
+          "Free memory (is done automatically)\n" + StorageMemoryBudget.getStatus());
     }));
     memoryUpdater.play();
   }
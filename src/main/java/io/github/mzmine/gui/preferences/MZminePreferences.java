@@ -25,6 +25,7 @@
 
 package io.github.mzmine.gui.preferences;
 
+import io.github.mzmine.datamodel.featuredata.impl.CompactDataPoints;
 import io.github.mzmine.gui.chartbasics.chartthemes.ChartThemeParameters;
 import io.github.mzmine.gui.chartbasics.chartutils.paintscales.PaintScaleTransform;
 import io.github.mzmine.main.KeepInMemory;
@@ -35,9 +36,11 @@ import io.github.mzmine.parameters.dialogs.GroupedParameterSetupDialog;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
+import io.github.mzmine.parameters.parametertypes.DoubleParameter;
 import io.github.mzmine.parameters.parametertypes.FontSpecs;
 import io.github.mzmine.parameters.parametertypes.HiddenParameter;
 import io.github.mzmine.parameters.parametertypes.OptOutParameter;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
 import io.github.mzmine.parameters.parametertypes.WindowSettingsParameter;
 import io.github.mzmine.parameters.parametertypes.colorpalette.ColorPaletteParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.DirectoryParameter;
@@ -47,6 +50,7 @@ import io.github.mzmine.parameters.parametertypes.paintscale.PaintScalePalettePa
 import io.github.mzmine.parameters.parametertypes.submodules.OptionalModuleParameter;
 import io.github.mzmine.parameters.parametertypes.submodules.ParameterSetParameter;
 import io.github.mzmine.util.ExitCode;
+import io.github.mzmine.util.StorageMemoryBudget;
 import io.github.mzmine.util.color.ColorUtils;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import java.io.File;
@@ -154,6 +158,20 @@ public class MZminePreferences extends SimpleParameterSet {
       KeepInMemory.ALL, KeepInMemory.MASSES_AND_FEATURES), KeepInMemory.values(),
       KeepInMemory.NONE);
 
+  public static final OptionalParameter<DoubleParameter> memoryBudget = new OptionalParameter<>(
+      new DoubleParameter("RAM budget for data (GB)", """
+          Data of raw files, mass lists, and features that would be memory mapped (see "Keep in memory") \
+          is kept in RAM until this global budget is reached. Only additional data is then memory \
+          mapped into the temp directory. Should be clearly below the maximum heap size. Parameter is \
+          overriden by the program argument --memory-budget.""", new DecimalFormat("0.0#"), 4d,
+          0d, null), false);
+
+  public static final BooleanParameter compactDataStorage = new BooleanParameter(
+      "Compact data storage", """
+      Stores m/z values of new spectra and chromatograms as fixed-point values (resolution 1E-6)
+      and intensities as floats. Halves the memory and temp file footprint of spectral data at a
+      negligible loss of precision. Only applies to newly imported or processed data.""", false);
+
   /*public static final BooleanParameter applyTimsPressureCompensation = new BooleanParameter(
       "Use MALDI-TIMS pressure compensation", """
       Specifies if mobility values from Bruker timsTOF fleX MALDI raw data shall be recalibrated using a Bruker algorithm.
@@ -188,7 +206,8 @@ public class MZminePreferences extends SimpleParameterSet {
 
   public MZminePreferences() {
     super(// start with performance
-        numOfThreads, memoryOption, tempDirectory, proxySettings, rExecPath, sendStatistics,
+        numOfThreads, memoryOption, memoryBudget, compactDataStorage, tempDirectory, proxySettings,
+        rExecPath, sendStatistics,
         /*applyTimsPressureCompensation,*/
         // visuals
         // number formats
@@ -204,6 +223,15 @@ public class MZminePreferences extends SimpleParameterSet {
         showTempFolderAlert);
   }
 
+  /**
+   * Sets the global {@link StorageMemoryBudget} to the value of {@link #memoryBudget} and the
+   * {@link CompactDataPoints} encoding. Only applies to new data.
+   */
+  public void applyStorageOptions() {
+    StorageMemoryBudget.setBudgetGB(getEmbeddedParameterValueIfSelectedOrElse(memoryBudget, 0d));
+    CompactDataPoints.setUseCompactEncoding(getValue(compactDataStorage));
+  }
+
   @Override
   public ExitCode showSetupDialog(boolean valueCheckRequired) {
     return showSetupDialog(valueCheckRequired, "");
@@ -216,8 +244,8 @@ public class MZminePreferences extends SimpleParameterSet {
 
     // add groups
     dialog.addParameterGroup("General",
-        new Parameter[]{numOfThreads, memoryOption, tempDirectory, proxySettings, rExecPath,
-            sendStatistics/*, applyTimsPressureCompensation*/});
+        new Parameter[]{numOfThreads, memoryOption, memoryBudget, compactDataStorage,
+            tempDirectory, proxySettings, rExecPath, sendStatistics/*, applyTimsPressureCompensation*/});
     dialog.addParameterGroup("Formats",
         new Parameter[]{mzFormat, rtFormat, mobilityFormat, ccsFormat, intensityFormat, ppmFormat,
             scoreFormat, unitFormat});
@@ -243,6 +271,7 @@ public class MZminePreferences extends SimpleParameterSet {
     final KeepInMemory keepInMemory = MZmineCore.getConfiguration().getPreferences()
         .getParameter(MZminePreferences.memoryOption).getValue();
     keepInMemory.enforceToMemoryMapping();
+    applyStorageOptions();
 
     final Themes theme = getValue(MZminePreferences.theme);
     updateChartColorsToTheme(previousTheme, theme);
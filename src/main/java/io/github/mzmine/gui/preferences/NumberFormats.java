@@ -35,96 +35,106 @@ public record NumberFormats(NumberFormat mzFormat, NumberFormat rtFormat,
                             UnitFormat unitFormat) {
 
   private static final String empty = "";
+
+  /**
+   * The formats are shared by all threads, but {@link NumberFormat} is not thread safe.
+   */
+  private static String format(NumberFormat format, Object value) {
+    synchronized (format) {
+      return format.format(value);
+    }
+  }
+
   public String mz(double mz) {
-    return mzFormat.format(mz);
+    return format(mzFormat, mz);
   }
 
   public String mz(@Nullable Number mz) {
     if(mz == null) {
       return empty;
     }
-    return mzFormat.format(mz);
+    return format(mzFormat, mz);
   }
 
   public String rt(float rt) {
-    return rtFormat.format(rt);
+    return format(rtFormat, rt);
   }
 
   public String rt(@Nullable Number rt) {
     if(rt == null) {
       return empty;
     }
-    return rtFormat.format(rt);
+    return format(rtFormat, rt);
   }
 
   public String mobility(float mobility) {
-    return mobilityFormat.format(mobility);
+    return format(mobilityFormat, mobility);
   }
 
   public String mobility(double mobility) {
-    return mobilityFormat.format(mobility);
+    return format(mobilityFormat, mobility);
   }
 
   public String mobility(@Nullable Number mobility) {
     if(mobility == null) {
       return empty;
     }
-    return mobilityFormat.format(mobility);
+    return format(mobilityFormat, mobility);
   }
 
   public String ccs(float ccs) {
-    return ccsFormat.format(ccs);
+    return format(ccsFormat, ccs);
   }
 
   public String ccs(@Nullable Number ccs) {
     if(ccs == null) {
       return empty;
     }
-    return ccsFormat.format(ccs);
+    return format(ccsFormat, ccs);
   }
 
   public String intensity(double intensity) {
-    return intensityFormat.format(intensity);
+    return format(intensityFormat, intensity);
   }
 
   public String intensity(@Nullable Number intensity) {
     if(intensity == null) {
       return empty;
     }
-    return intensityFormat.format(intensity);
+    return format(intensityFormat, intensity);
   }
 
   public String ppm(double ppm) {
-    return ppmFormat.format(ppm);
+    return format(ppmFormat, ppm);
   }
 
   public String ppm(@Nullable Number ppm) {
     if(ppm == null) {
       return empty;
     }
-    return ppmFormat.format(ppm);
+    return format(ppmFormat, ppm);
   }
 
   public String percent(double percent) {
-    return ppmFormat.format(percent);
+    return format(ppmFormat, percent);
   }
 
   public String percent(@Nullable Number percent) {
     if(percent == null) {
       return empty;
     }
-    return percentFormat.format(percent);
+    return format(percentFormat, percent);
   }
 
   public String score(double score) {
-    return scoreFormat.format(score);
+    return format(scoreFormat, score);
   }
 
   public String score(@Nullable Number score) {
     if(score == null) {
       return empty;
     }
-    return scoreFormat.format(score);
+    return format(scoreFormat, score);
   }
 
   public String unit(String label, String unit) {
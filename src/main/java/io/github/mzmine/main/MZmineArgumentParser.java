@@ -54,11 +54,14 @@ public class MZmineArgumentParser {
   private @Nullable File[] overrideSpectralLibrariesFiles;
   private File preferencesFile;
   private File tempDirectory;
+  private File stepCacheDirectory;
   private boolean isKeepRunningAfterBatch = false;
   private boolean loadTdfPseudoProfile = false;
   private boolean loadTsfProfile = false;
   private KeepInMemory isKeepInMemory = null;
   private String numCores;
+  private Double memoryBudgetGB = null;
+  private Integer serverPort = null;
 
   public void parse(String[] args) {
     Options options = new Options();
@@ -100,15 +103,34 @@ public class MZmineArgumentParser {
     tmpFolder.setRequired(false);
     options.addOption(tmpFolder);
 
+    Option stepCache = new Option(null, "step-cache", true,
+        "directory to cache the results of batch steps. Re-running the batch resumes from the last step with unchanged parameters.");
+    stepCache.setRequired(false);
+    options.addOption(stepCache);
+
     Option keepRunning = new Option("r", "running", false, "keep MZmine running in headless mode");
     keepRunning.setRequired(false);
     options.addOption(keepRunning);
 
+    Option server = new Option(null, "server", true,
+        "run MZmine as a headless batch job server on localhost:<port> (0 for any free port). "
+        + "Jobs are submitted as JSON to http://localhost:<port>/jobs with the header "
+        + "Authorization: Bearer <token>, the token is written to ~/.mzmine/batch_server_token");
+    server.setRequired(false);
+    options.addOption(server);
+
     Option keepInMemory = new Option("m", "memory", true,
         "keep objects (scan data, features, etc) in memory. Options: none, all, features, centroids, raw, masses_features (masses_features for features and centroids)");
     keepInMemory.setRequired(false);
     options.addOption(keepInMemory);
 
+    Option memoryBudget = new Option(null, "memory-budget", true,
+        "global RAM budget in GB for data that is otherwise memory mapped (scan data, features, etc). "
+        + "Additional data is memory mapped once the budget is reached. 0 to memory map all data. "
+        + "Overwrites the specified value in the preferences.");
+    memoryBudget.setRequired(false);
+    options.addOption(memoryBudget);
+
     Option numCores = new Option(null, "threads", true,
         "the number of threads to use during processing, or 'auto' to automatically detect available resources. "
         + "threads overwrites the specified value in the preference.");
@@ -187,6 +209,12 @@ public class MZmineArgumentParser {
         tempDirectory = new File(stemp);
       }
 
+      String sStepCache = cmd.getOptionValue(stepCache.getLongOpt());
+      if (sStepCache != null) {
+        logger.info(() -> "Batch step cache set by command line: " + sStepCache);
+        stepCacheDirectory = new File(sStepCache);
+      }
+
       isKeepRunningAfterBatch = cmd.hasOption(keepRunning.getLongOpt());
       if (isKeepRunningAfterBatch) {
 
@@ -194,6 +222,17 @@ public class MZmineArgumentParser {
             () -> "the -r / --running argument was set to keep MZmine alive after batch is finished");
       }
 
+      String sServer = cmd.getOptionValue(server.getLongOpt());
+      if (sServer != null) {
+        try {
+          serverPort = Integer.parseInt(sServer);
+          logger.info(() -> "the --server argument was set to run a batch job server on port "
+                            + serverPort);
+        } catch (NumberFormatException e) {
+          logger.warning("Cannot parse --server " + sServer + ", expected a port number");
+        }
+      }
+
       String keepInData = cmd.getOptionValue(keepInMemory.getLongOpt());
       if (keepInData != null) {
         isKeepInMemory = KeepInMemory.parse(keepInData);
@@ -201,6 +240,17 @@ public class MZmineArgumentParser {
                           + " to keep objects in RAM (scan data, features, etc) which are otherwise stored in memory mapped ");
       }
 
+      String budget = cmd.getOptionValue(memoryBudget.getLongOpt());
+      if (budget != null) {
+        try {
+          memoryBudgetGB = Double.parseDouble(budget);
+          logger.info(() -> "the --memory-budget argument was set to " + memoryBudgetGB
+                            + " GB of data that is kept in RAM before memory mapping");
+        } catch (NumberFormatException e) {
+          logger.warning("Cannot parse --memory-budget " + budget + ", expected a number in GB");
+        }
+      }
+
       this.numCores = cmd.getOptionValue(numCores.getLongOpt());
 
       if (cmd.hasOption(loadTdfPseudoProfile.getOpt())) {
@@ -221,6 +271,14 @@ public class MZmineArgumentParser {
     return numCores;
   }
 
+  /**
+   * @return the global RAM budget in GB for data that is otherwise memory mapped or null if not set
+   */
+  @Nullable
+  public Double getMemoryBudgetGB() {
+    return memoryBudgetGB;
+  }
+
   /**
    * The temp directory overrides all other definitions if set
    *
@@ -231,6 +289,14 @@ public class MZmineArgumentParser {
     return tempDirectory;
   }
 
+  /**
+   * @return the directory to cache batch step results or null
+   */
+  @Nullable
+  public File getStepCacheDirectory() {
+    return stepCacheDirectory;
+  }
+
   @Nullable
   public File getPreferencesFile() {
     return preferencesFile;
@@ -241,6 +307,14 @@ public class MZmineArgumentParser {
     return batchFile;
   }
 
+  /**
+   * @return the port of the batch job server or null if MZmine does not run as a server
+   */
+  @Nullable
+  public Integer getServerPort() {
+    return serverPort;
+  }
+
   /**
    * After batch is finished, keep mzmine running
    *
@@ -39,6 +39,7 @@ import io.github.mzmine.main.impl.MZmineConfigurationImpl;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineRunnableModule;
 import io.github.mzmine.modules.batchmode.BatchModeModule;
+import io.github.mzmine.modules.batchmode.server.BatchJobServer;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.ProjectManager;
@@ -195,18 +196,29 @@ public final class MZmineCore {
       // apply memory management option
       keepInMemory.enforceToMemoryMapping();
 
+      final Double memoryBudgetGB = argsParser.getMemoryBudgetGB();
+      final MZminePreferences preferences = getInstance().configuration.getPreferences();
+      if (memoryBudgetGB != null) {
+        // set to preferences
+        preferences.setParameter(MZminePreferences.memoryBudget, memoryBudgetGB > 0,
+            memoryBudgetGB);
+      }
+      preferences.applyStorageOptions();
+
       // batch mode defined by command line argument
       File batchFile = argsParser.getBatchFile();
       File[] overrideDataFiles = argsParser.getOverrideDataFiles();
       File[] overrideSpectralLibraryFiles = argsParser.getOverrideSpectralLibrariesFiles();
       boolean keepRunningInHeadless = argsParser.isKeepRunningAfterBatch();
+      final Integer serverPort = argsParser.getServerPort();
 
       // track version use
       String versionString = "MZmine version " + version;
       GoogleAnalyticsTracker.track(versionString, versionString);
       GoogleAnalyticsTracker.track("MZmine3_start", "MZmine3_start");
 
-      getInstance().headLessMode = (batchFile != null || keepRunningInHeadless);
+      getInstance().headLessMode = (batchFile != null || keepRunningInHeadless
+                                    || serverPort != null);
       // If we have no arguments, run in GUI mode, otherwise run in batch mode
       if (!getInstance().headLessMode) {
         try {
@@ -234,12 +246,17 @@ public final class MZmineCore {
           // run batch file
           getInstance().batchExitCode = BatchModeModule.runBatch(
               getInstance().projectManager.getCurrentProject(), batchFile, overrideDataFiles,
-              overrideSpectralLibraryFiles, Instant.now());
+              overrideSpectralLibraryFiles, argsParser.getStepCacheDirectory(), Instant.now());
+        }
+
+        // accept batch jobs - the server keeps MZmine running
+        if (serverPort != null) {
+          BatchJobServer.start(serverPort);
         }
 
         // option to keep MZmine running after the batch is finished
         // currently used to test - maybe useful to provide an API to access more data or to run other modules on demand
-        if (!keepRunningInHeadless) {
+        if (!keepRunningInHeadless && serverPort == null) {
           exit();
         }
       }
@@ -66,7 +66,7 @@ public class BatchModeModule implements MZmineProcessingModule {
    */
   public static ExitCode runBatch(@NotNull MZmineProject project, File batchFile,
       @NotNull Instant moduleCallDate) {
-    return runBatch(project, batchFile, null, null, moduleCallDate);
+    return runBatch(project, batchFile, null, null, null, moduleCallDate);
   }
 
   /**
@@ -75,10 +75,12 @@ public class BatchModeModule implements MZmineProcessingModule {
    * @param batchFile                    local file
    * @param overrideDataFiles            change the data import to those files if not null
    * @param overrideSpectralLibraryFiles change the spectral libraries imported
+   * @param stepCacheDir                 directory to cache step results or null
    * @return exit code that reflects if the batch mode was started
    */
   public static ExitCode runBatch(@NotNull MZmineProject project, File batchFile,
-      @Nullable File[] overrideDataFiles, final File[] overrideSpectralLibraryFiles, @NotNull Instant moduleCallDate) {
+      @Nullable File[] overrideDataFiles, final File[] overrideSpectralLibraryFiles,
+      @Nullable File stepCacheDir, @NotNull Instant moduleCallDate) {
     if (MZmineCore.getTaskController().isTaskInstanceRunningOrQueued(BatchTask.class)) {
       MZmineCore.getDesktop().displayErrorMessage(
           "Cannot run a second batch while the current batch is not finished.");
@@ -125,6 +127,7 @@ public class BatchModeModule implements MZmineProcessingModule {
 
       ParameterSet parameters = new BatchModeParameters();
       parameters.getParameter(BatchModeParameters.batchQueue).setValue(newQueue);
+      parameters.setParameter(BatchModeParameters.stepCache, stepCacheDir != null, stepCacheDir);
       Task batchTask = new BatchTask(project, parameters, moduleCallDate);
       batchTask.run();
       if (batchTask.getStatus() == TaskStatus.FINISHED) {
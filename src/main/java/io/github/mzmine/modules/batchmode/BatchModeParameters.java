@@ -28,6 +28,8 @@ package io.github.mzmine.modules.batchmode;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.AdvancedParametersParameter;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.DirectoryParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNameListSilentParameter;
 import io.github.mzmine.util.ExitCode;
 
@@ -40,8 +42,15 @@ public class BatchModeParameters extends SimpleParameterSet {
   public static final AdvancedParametersParameter<AdvancedBatchModeParameters> advanced = new AdvancedParametersParameter<>(
       new AdvancedBatchModeParameters());
 
+  public static final OptionalParameter<DirectoryParameter> stepCache = new OptionalParameter<>(
+      new DirectoryParameter("Step result cache", """
+          Saves the project after each batch step to this directory. Re-running a batch resumes
+          from the last step with unchanged parameters and input files, e.g., after changing a late
+          step or after a crash. Resuming requires an empty project. Export steps are always run
+          again. Delete the directory to free the disk space."""), false);
+
   public BatchModeParameters() {
-    super(new Parameter[]{batchQueue, advanced, lastFiles});
+    super(new Parameter[]{batchQueue, advanced, stepCache, lastFiles});
   }
 
   @Override
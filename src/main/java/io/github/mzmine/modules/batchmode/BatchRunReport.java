@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.batchmode;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.taskcontrol.metrics.TaskMetrics;
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsRecorder;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Resource usage of all steps of a batch run: wall time, CPU time, allocated bytes, peak heap,
+ * bytes written to memory map storages and feature list rows in and out. Each step is committed
+ * as a JFR {@link BatchStepEvent}, and the report is written as JSON after the batch.
+ * <p>
+ * CPU time and allocations are summed over the batch thread and the task worker threads. Threads
+ * of parallel streams or other pools that the tasks use are not measured.
+ */
+class BatchRunReport {
+
+  private final Instant start = Instant.now();
+  private final List<Map<String, Object>> steps = new ArrayList<>();
+
+  /**
+   * Start measuring a step. Needs to be called on the batch thread.
+   *
+   * @param inputFeatureLists the feature lists that are passed to the step
+   */
+  @NotNull
+  StepMeasurement startStep(int dataset, int step, @NotNull String module,
+      @NotNull List<FeatureList> inputFeatureLists) {
+    return new StepMeasurement(dataset, step, module, inputFeatureLists);
+  }
+
+  /**
+   * @param taskMetrics        the metrics of all tasks that were started by this step
+   * @param outputFeatureLists the feature lists that are passed to the next step
+   */
+  void finishStep(@NotNull StepMeasurement measurement, @NotNull TaskStatus status,
+      @NotNull List<TaskMetrics> taskMetrics, @NotNull List<FeatureList> outputFeatureLists) {
+    final long wallNanos = System.nanoTime() - measurement.startNanos;
+    final long peakHeap = TaskMetricsRecorder.getPeakHeapBytes();
+
+    // the batch thread itself may do some work in the module call
+    long cpuNanos = Math.max(0,
+        TaskMetricsRecorder.getCurrentThreadCpuNanos() - measurement.startCpuNanos);
+    long allocated = Math.max(0,
+        TaskMetricsRecorder.getCurrentThreadAllocatedBytes() - measurement.startAllocatedBytes);
+    for (TaskMetrics metrics : taskMetrics) {
+      cpuNanos += Math.max(0, metrics.cpuNanos());
+      allocated += Math.max(0, metrics.allocatedBytes());
+    }
+    // tasks of one step often share a storage, count each storage once
+    final long storage = measurement.storageBytesWritten();
+    final long rowsOut = countRows(outputFeatureLists);
+
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("dataset", measurement.dataset + 1);
+    map.put("step", measurement.step + 1);
+    map.put("module", measurement.module);
+    map.put("status", status.name());
+    map.put("start", measurement.start.toString());
+    map.put("wallMillis", wallNanos / 1_000_000);
+    map.put("cpuMillis", cpuNanos / 1_000_000);
+    map.put("allocatedBytes", allocated);
+    map.put("peakHeapBytes", peakHeap);
+    map.put("storageBytes", storage);
+    map.put("featureListsIn", measurement.featureListsIn);
+    map.put("rowsIn", measurement.rowsIn);
+    map.put("featureListsOut", outputFeatureLists.size());
+    map.put("rowsOut", rowsOut);
+    map.put("tasks", taskMetrics.stream().map(TaskMetrics::toMap).toList());
+    synchronized (steps) {
+      steps.add(map);
+    }
+
+    final BatchStepEvent event = measurement.event;
+    event.end();
+    if (event.shouldCommit()) {
+      event.module = measurement.module;
+      event.step = measurement.step + 1;
+      event.dataset = measurement.dataset + 1;
+      event.status = status.name();
+      event.tasks = taskMetrics.size();
+      event.cpuTime = cpuNanos;
+      event.allocated = allocated;
+      event.peakHeap = peakHeap;
+      event.storageWritten = storage;
+      event.rowsIn = measurement.rowsIn;
+      event.rowsOut = rowsOut;
+      event.commit();
+    }
+  }
+
+  /**
+   * Write the report as JSON
+   */
+  void write(@NotNull File file, @NotNull TaskStatus status, int totalSteps, int processedSteps)
+      throws IOException {
+    final Instant end = Instant.now();
+    final Runtime runtime = Runtime.getRuntime();
+    final Map<String, Object> batch = new LinkedHashMap<>();
+    batch.put("version", String.valueOf(MZmineCore.getMZmineVersion()));
+    batch.put("status", status.name());
+    batch.put("start", start.toString());
+    batch.put("end", end.toString());
+    batch.put("wallMillis", Duration.between(start, end).toMillis());
+    batch.put("totalSteps", totalSteps);
+    batch.put("processedSteps", processedSteps);
+    batch.put("availableProcessors", runtime.availableProcessors());
+    batch.put("heapMaxBytes", runtime.maxMemory());
+
+    final Map<String, Object> report = new LinkedHashMap<>();
+    report.put("batch", batch);
+    synchronized (steps) {
+      report.put("steps", new ArrayList<>(steps));
+    }
+
+    final File dir = file.getAbsoluteFile().getParentFile();
+    if (dir != null && !dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Cannot create directory " + dir.getAbsolutePath());
+    }
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, report);
+  }
+
+  private static long countRows(@NotNull List<FeatureList> featureLists) {
+    return featureLists.stream().mapToLong(FeatureList::getNumberOfRows).sum();
+  }
+
+  private static long storedBytes(@NotNull MemoryMapStorage storage) {
+    return storage.getBytesInRam() + storage.getBytesMapped();
+  }
+
+  /**
+   * @return the stored bytes of all registered storages
+   */
+  private static Map<MemoryMapStorage, Long> snapshotStorages() {
+    final Map<MemoryMapStorage, Long> bytes = new IdentityHashMap<>();
+    synchronized (MZmineCore.getStorageList()) {
+      for (MemoryMapStorage storage : MZmineCore.getStorageList()) {
+        bytes.put(storage, storedBytes(storage));
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Start values of a batch step
+   */
+  static final class StepMeasurement {
+
+    private final int dataset;
+    private final int step;
+    private final String module;
+    private final int featureListsIn;
+    private final long rowsIn;
+    private final BatchStepEvent event = new BatchStepEvent();
+    private final Instant start = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final long startCpuNanos = TaskMetricsRecorder.getCurrentThreadCpuNanos();
+    private final long startAllocatedBytes = TaskMetricsRecorder.getCurrentThreadAllocatedBytes();
+    private final Map<MemoryMapStorage, Long> startStorageBytes = snapshotStorages();
+
+    private StepMeasurement(int dataset, int step, String module,
+        List<FeatureList> inputFeatureLists) {
+      this.dataset = dataset;
+      this.step = step;
+      this.module = module;
+      featureListsIn = inputFeatureLists.size();
+      rowsIn = countRows(inputFeatureLists);
+      TaskMetricsRecorder.resetPeakHeap();
+      event.begin();
+    }
+
+    /**
+     * @return the bytes written to all storages since the start of the step. Storages that were
+     * discarded in the meantime are ignored.
+     */
+    private long storageBytesWritten() {
+      long written = 0;
+      for (Entry<MemoryMapStorage, Long> entry : snapshotStorages().entrySet()) {
+        final long before = startStorageBytes.getOrDefault(entry.getKey(), 0L);
+        written += Math.max(0, entry.getValue() - before);
+      }
+      return written;
+    }
+  }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.batchmode;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.MZmineModuleCategory;
+import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.modules.MZmineRunnableModule;
+import io.github.mzmine.modules.io.projectload.ProjectOpeningTask;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveAsParameters;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveOption;
+import io.github.mzmine.modules.io.projectsave.ProjectSavingTask;
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.EmbeddedParameter;
+import io.github.mzmine.parameters.parametertypes.EmbeddedParameterSet;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNameListSilentParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNamesParameter;
+import io.github.mzmine.parameters.parametertypes.submodules.ModuleComboParameter;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Content-addressed cache of batch step results. After each step, the project is saved to the cache
+ * directory under a key that is the hash of the step's module and parameters chained with the key
+ * of the previous step. The key of the first step also covers the size and modification date of
+ * the imported files. Re-running a batch with the same first steps therefore resumes from the
+ * project of the last unchanged step, which also allows a restart after a crash.
+ * <p>
+ * Projects are saved as referencing projects, raw data files are re-imported from their original
+ * location when a checkpoint is loaded. Steps that only export data do not create checkpoints and
+ * a batch never resumes after an export step, so that all exports are written again.
+ */
+class BatchStepCache {
+
+  private static final Logger logger = Logger.getLogger(BatchStepCache.class.getName());
+  private static final String PROJECT_SUFFIX = ".mzmine";
+  private static final String MANIFEST_SUFFIX = ".properties";
+  private static final String DATA_FILE_KEY = "dataFile.";
+  private static final String DATA_FILE_PATH_KEY = "dataFilePath.";
+  private static final String FEATURE_LIST_KEY = "featureList.";
+
+  private final File cacheDir;
+  private String[] stepKeys = new String[0];
+
+  BatchStepCache(@NotNull File cacheDir) {
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * Computes the keys of all steps. Call before the first step and whenever the queue changes,
+   * e.g., after the import files were set for a new dataset.
+   */
+  void updateKeys(@NotNull BatchQueue queue) {
+    final String version = String.valueOf(MZmineCore.getMZmineVersion());
+    stepKeys = new String[queue.size()];
+    String previous = version;
+    for (int i = 0; i < queue.size(); i++) {
+      previous = computeStepKey(previous, queue.get(i));
+      stepKeys[i] = previous;
+    }
+  }
+
+  /**
+   * @return the key of a step that depends on all previous steps (previousKey)
+   */
+  @NotNull
+  static String computeStepKey(@NotNull String previousKey, @NotNull MZmineProcessingStep<?> step) {
+    final Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(previousKey, StandardCharsets.UTF_8);
+    hasher.putString(step.getModule().getClass().getName(), StandardCharsets.UTF_8);
+
+    final ParameterSet parameters = step.getParameterSet();
+    if (parameters != null) {
+      hasher.putString(parametersToString(parameters), StandardCharsets.UTF_8);
+      // changed input files invalidate the cache
+      hashInputFiles(hasher, parameters);
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Adds path, size and modification date of all files of the parameter set to the hasher. Embedded
+   * parameters and parameter sets are included unless they are switched off.
+   */
+  private static void hashInputFiles(@NotNull Hasher hasher, @NotNull ParameterSet parameters) {
+    for (Parameter<?> p : parameters.getParameters()) {
+      hashInputFiles(hasher, p);
+    }
+  }
+
+  private static void hashInputFiles(@NotNull Hasher hasher, @NotNull Parameter<?> p) {
+    if (Boolean.FALSE.equals(p.getValue())) {
+      // unselected optional parameters do not read their files
+      return;
+    }
+
+    if (p instanceof FileNamesParameter fnp) {
+      hashFiles(hasher, fnp.getValue() != null ? List.of(fnp.getValue()) : null);
+    } else if (p instanceof FileNameParameter fnp) {
+      hashFiles(hasher, fnp.getValue() != null ? List.of(fnp.getValue()) : null);
+    } else if (p instanceof FileNameListSilentParameter fnp) {
+      hashFiles(hasher, fnp.getValue());
+    } else if (p instanceof EmbeddedParameter<?, ?, ?> embedded) {
+      hashInputFiles(hasher, embedded.getEmbeddedParameter());
+    } else if (p instanceof ModuleComboParameter<?> combo) {
+      if (combo.getValue() != null && combo.getValue().getParameterSet() != null) {
+        hashInputFiles(hasher, combo.getValue().getParameterSet());
+      }
+    } else if (p instanceof EmbeddedParameterSet<?, ?> embedded
+        && embedded.getEmbeddedParameters() != null) {
+      hashInputFiles(hasher, embedded.getEmbeddedParameters());
+    }
+  }
+
+  private static void hashFiles(@NotNull Hasher hasher, @Nullable List<File> files) {
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      hasher.putString(file.getAbsolutePath(), StandardCharsets.UTF_8);
+      hasher.putLong(file.length());
+      hasher.putLong(file.lastModified());
+    }
+  }
+
+  @NotNull
+  private static String parametersToString(@NotNull ParameterSet parameters) {
+    try {
+      final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+          .newDocument();
+      final Element element = document.createElement("parameters");
+      document.appendChild(element);
+      parameters.saveValuesToXML(element);
+
+      final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+      transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+      final StringWriter writer = new StringWriter();
+      transformer.transform(new DOMSource(document), new StreamResult(writer));
+      return writer.toString();
+    } catch (Exception e) {
+      // parameters cannot be compared - never reuse a cached result
+      logger.log(Level.WARNING, "Cannot serialize parameters for the batch step cache", e);
+      return Instant.now().toString();
+    }
+  }
+
+  /**
+   * @param step a step of the batch queue
+   * @return true if the step changes the project and shall be cached
+   */
+  static boolean isCachedStep(@NotNull MZmineProcessingStep<?> step) {
+    return !(step.getModule() instanceof MZmineRunnableModule mod && (
+        mod.getModuleCategory() == MZmineModuleCategory.FEATURELISTEXPORT
+        || mod.getModuleCategory() == MZmineModuleCategory.RAWDATAEXPORT));
+  }
+
+  private File getProjectFile(int stepNumber) {
+    return new File(cacheDir, stepKeys[stepNumber] + PROJECT_SUFFIX);
+  }
+
+  private File getManifestFile(int stepNumber) {
+    return new File(cacheDir, stepKeys[stepNumber] + MANIFEST_SUFFIX);
+  }
+
+  /**
+   * @param queue the batch queue that was used to compute the keys
+   * @return the last step with a cached result before the first export step or -1 if there is
+   * none. Export steps are not cached and would be skipped when resuming after them.
+   */
+  int findLastCachedStep(@NotNull BatchQueue queue) {
+    int lastStep = stepKeys.length - 1;
+    for (int i = 0; i < queue.size() && i <= lastStep; i++) {
+      if (!isCachedStep(queue.get(i))) {
+        lastStep = i - 1;
+        break;
+      }
+    }
+    for (int i = lastStep; i >= 0; i--) {
+      if (getProjectFile(i).exists() && getManifestFile(i).exists()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Saves the project as the result of a step. Errors are logged, the cache is optional.
+   *
+   * @param lastDataFiles    the data files that are used as batch last files by the next step
+   * @param lastFeatureLists the feature lists that are used as batch last feature lists by the
+   *                         next step
+   */
+  void save(int stepNumber, @NotNull MZmineProject project,
+      @NotNull List<RawDataFile> lastDataFiles, @NotNull List<FeatureList> lastFeatureLists) {
+    if (!FileAndPathUtil.createDirectory(cacheDir)) {
+      logger.warning("Cannot create batch step cache directory " + cacheDir);
+      return;
+    }
+
+    final File projectFile = getProjectFile(stepNumber);
+    final ParameterSet saveParameters = new ProjectSaveAsParameters().cloneParameterSet();
+    saveParameters.setParameter(ProjectSaveAsParameters.projectFile, projectFile);
+    saveParameters.setParameter(ProjectSaveAsParameters.option, ProjectSaveOption.REFERENCING);
+
+    logger.info("Saving result of batch step #" + (stepNumber + 1) + " to the step cache");
+    final File previousProjectFile = project.getProjectFile();
+    final Boolean previousStandalone = project.isStandalone();
+    final ProjectSavingTask saveTask = new ProjectSavingTask(project, saveParameters,
+        Instant.now());
+    saveTask.run();
+    // the checkpoint shall not replace the file the user saves the project to
+    if (project instanceof MZmineProjectImpl impl) {
+      impl.setProjectFile(previousProjectFile);
+    }
+    project.setStandalone(previousStandalone);
+    if (saveTask.getStatus() != TaskStatus.FINISHED) {
+      logger.warning("Could not save batch step #" + (stepNumber + 1) + " to the step cache. "
+          + saveTask.getErrorMessage());
+      return;
+    }
+
+    final Properties manifest = new Properties();
+    for (int i = 0; i < lastDataFiles.size(); i++) {
+      final RawDataFile file = lastDataFiles.get(i);
+      manifest.setProperty(DATA_FILE_KEY + i, file.getName());
+      // names are not unique across folders, the path identifies imported files
+      if (file.getAbsolutePath() != null) {
+        manifest.setProperty(DATA_FILE_PATH_KEY + i, file.getAbsolutePath());
+      }
+    }
+    for (int i = 0; i < lastFeatureLists.size(); i++) {
+      manifest.setProperty(FEATURE_LIST_KEY + i, lastFeatureLists.get(i).getName());
+    }
+    // manifest is written last and marks a complete entry
+    try (Writer writer = new FileWriter(getManifestFile(stepNumber), StandardCharsets.UTF_8)) {
+      manifest.store(writer, "MZmine batch step cache");
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not write batch step cache manifest", e);
+    }
+  }
+
+  /**
+   * Replaces the current project with the cached result of a step. Only call for an empty current
+   * project.
+   *
+   * @return the restored state or null if the cached result could not be loaded.
+   */
+  @Nullable
+  CachedStepResult restore(int stepNumber) {
+    final File projectFile = getProjectFile(stepNumber);
+    final Properties manifest = new Properties();
+    try (Reader reader = new FileReader(getManifestFile(stepNumber), StandardCharsets.UTF_8)) {
+      manifest.load(reader);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not read batch step cache manifest", e);
+      return null;
+    }
+
+    logger.info("Resuming batch after step #" + (stepNumber + 1) + " from the step cache "
+        + projectFile);
+    // clear first to avoid the confirmation to replace the current project
+    MZmineCore.getProjectManager().clearProject();
+    final ProjectOpeningTask openTask = new ProjectOpeningTask(projectFile, Instant.now());
+    openTask.run();
+    if (openTask.getStatus() != TaskStatus.FINISHED) {
+      logger.warning("Could not load batch step cache " + projectFile + ". "
+          + openTask.getErrorMessage());
+      return null;
+    }
+
+    final MZmineProject project = MZmineCore.getProject();
+    final List<RawDataFile> dataFiles = new ArrayList<>();
+    for (int i = 0; manifest.containsKey(DATA_FILE_KEY + i); i++) {
+      final String path = manifest.getProperty(DATA_FILE_PATH_KEY + i);
+      final RawDataFile file = path != null ? findDataFileByPath(project, path)
+          : project.getDataFileByName(manifest.getProperty(DATA_FILE_KEY + i));
+      if (file == null) {
+        return null;
+      }
+      dataFiles.add(file);
+    }
+    final List<FeatureList> featureLists = new ArrayList<>();
+    for (int i = 0; manifest.containsKey(FEATURE_LIST_KEY + i); i++) {
+      final FeatureList flist = project.getFeatureList(
+          manifest.getProperty(FEATURE_LIST_KEY + i));
+      if (flist == null) {
+        return null;
+      }
+      featureLists.add(flist);
+    }
+    return new CachedStepResult(project, dataFiles, featureLists);
+  }
+
+  @Nullable
+  private static RawDataFile findDataFileByPath(@NotNull MZmineProject project,
+      @NotNull String path) {
+    final File file = new File(path);
+    for (RawDataFile raw : project.getCurrentRawDataFiles()) {
+      if (raw.getAbsolutePath() != null && new File(raw.getAbsolutePath()).equals(file)) {
+        return raw;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The project and batch last files after a cached step
+   */
+  record CachedStepResult(@NotNull MZmineProject project, @NotNull List<RawDataFile> dataFiles,
+                          @NotNull List<FeatureList> featureLists) {
+
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.batchmode;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for each step of a batch run
+ */
+@Name("io.github.mzmine.BatchStep")
+@Label("MZmine Batch Step")
+@Category({"MZmine", "Batch"})
+@Description("Execution of a batch step including all its tasks")
+@StackTrace(false)
+class BatchStepEvent extends jdk.jfr.Event {
+
+  @Label("Module")
+  String module;
+
+  @Label("Step")
+  int step;
+
+  @Label("Dataset")
+  int dataset;
+
+  @Label("Status")
+  String status;
+
+  @Label("Tasks")
+  int tasks;
+
+  @Label("CPU Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long cpuTime;
+
+  @Label("Allocated")
+  @DataAmount
+  long allocated;
+
+  @Label("Peak Heap")
+  @DataAmount
+  long peakHeap;
+
+  @Label("Storage Written")
+  @DataAmount
+  long storageWritten;
+
+  @Label("Rows In")
+  long rowsIn;
+
+  @Label("Rows Out")
+  long rowsOut;
+}
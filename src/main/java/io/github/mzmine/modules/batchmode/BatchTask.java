@@ -34,6 +34,8 @@ import io.github.mzmine.modules.MZmineModuleCategory;
 import io.github.mzmine.modules.MZmineProcessingModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.MZmineRunnableModule;
+import io.github.mzmine.modules.batchmode.BatchRunReport.StepMeasurement;
+import io.github.mzmine.modules.batchmode.BatchStepCache.CachedStepResult;
 import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.ParameterSet;
@@ -47,17 +49,26 @@ import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.taskcontrol.TaskStatusListener;
 import io.github.mzmine.taskcontrol.impl.WrappedTask;
+import io.github.mzmine.taskcontrol.metrics.TaskMetrics;
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsCollector;
 import io.github.mzmine.util.ExitCode;
+import io.github.mzmine.util.StorageMemoryBudget;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Batch mode task
@@ -69,7 +80,7 @@ public class BatchTask extends AbstractTask {
   private final int stepsPerDataset;
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final int totalSteps;
-  private final MZmineProject project;
+  private MZmineProject project;
   private int processedSteps;
   private final boolean useAdvanced;
   private final int datasets;
@@ -83,6 +94,10 @@ public class BatchTask extends AbstractTask {
   private Boolean createResultsDir;
   private File parentDir;
   private int currentDataset;
+  private final BatchStepCache stepCache;
+  private final BatchRunReport report = new BatchRunReport();
+  // collects the metrics of the tasks of the current step
+  private TaskMetricsCollector stepMetricsCollector;
 
   BatchTask(MZmineProject project, ParameterSet parameters, @NotNull Instant moduleCallDate) {
     this(project, parameters, moduleCallDate,
@@ -110,6 +125,9 @@ public class BatchTask extends AbstractTask {
     } else {
       datasets = 1;
     }
+    final File stepCacheDir = parameters.getEmbeddedParameterValueIfSelectedOrElse(
+        BatchModeParameters.stepCache, null);
+    stepCache = stepCacheDir != null ? new BatchStepCache(stepCacheDir) : null;
     stepsPerDataset = queue.size();
     totalSteps = stepsPerDataset * datasets;
     createdDataFiles = new ArrayList<>();
@@ -120,6 +138,14 @@ public class BatchTask extends AbstractTask {
 
   @Override
   public void run() {
+    try {
+      runQueue();
+    } finally {
+      writeReport();
+    }
+  }
+
+  private void runQueue() {
 
     setStatus(TaskStatus.PROCESSING);
     logger.info("Starting a batch of " + totalSteps + " steps");
@@ -175,8 +201,24 @@ public class BatchTask extends AbstractTask {
         }
       }
 
+      // resume from the last cached step at the start of each dataset
+      if (stepCache != null && i % stepsPerDataset == 0) {
+        final int skippedSteps = resumeFromStepCache();
+        if (skippedSteps > 0) {
+          processedSteps += skippedSteps;
+          // continue after the last restored step
+          i += skippedSteps - 1;
+          continue;
+        }
+      }
+
       // run step
+      final StepMeasurement stepMeasurement = report.startStep(Math.max(0, currentDataset),
+          i % stepsPerDataset, queue.get(i % stepsPerDataset).getModule().getName(),
+          getBatchLastFeatureLists());
       processQueueStep(i % stepsPerDataset);
+      report.finishStep(stepMeasurement, getStatus(), collectStepTaskMetrics(),
+          getBatchLastFeatureLists());
       processedSteps++;
 
       // If we are canceled or ran into error, stop here
@@ -193,12 +235,112 @@ public class BatchTask extends AbstractTask {
           return;
         }
       }
+
+      final MZmineProcessingStep<?> step = queue.get(i % stepsPerDataset);
+      if (stepCache != null && BatchStepCache.isCachedStep(step)) {
+        stepCache.save(i % stepsPerDataset, project, previousCreatedDataFiles,
+            previousCreatedFeatureLists);
+      }
     }
 
     logger.info("Finished a batch of " + totalSteps + " steps");
     setStatus(TaskStatus.FINISHED);
   }
 
+  /**
+   * @return the feature lists that are passed to the next step
+   */
+  private List<FeatureList> getBatchLastFeatureLists() {
+    return createdFeatureLists.isEmpty() ? previousCreatedFeatureLists : createdFeatureLists;
+  }
+
+  /**
+   * @return the metrics of all tasks of the last step
+   */
+  private List<TaskMetrics> collectStepTaskMetrics() {
+    if (stepMetricsCollector == null) {
+      return List.of();
+    }
+    try (var collector = stepMetricsCollector) {
+      stepMetricsCollector = null;
+      // canceled tasks may not finish in time
+      return collector.awaitMetrics(getStatus() == TaskStatus.PROCESSING ? 5000 : 0);
+    }
+  }
+
+  /**
+   * Writes the batch report next to the batch output
+   */
+  private void writeReport() {
+    final File dir = getReportDirectory();
+    if (dir == null) {
+      logger.info("No export step with an output file in batch, the batch report is not written");
+      return;
+    }
+    final String time = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
+        .withZone(ZoneId.systemDefault()).format(moduleCallDate);
+    final File file = new File(dir, "batch_report_" + time + ".json");
+    try {
+      report.write(file, getStatus(), totalSteps, processedSteps);
+      logger.info("Batch report written to " + file.getAbsolutePath());
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot write batch report to " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * @return the processing directory in advanced mode or the directory of the first export file
+   */
+  @Nullable
+  private File getReportDirectory() {
+    if (useAdvanced && parentDir != null) {
+      return createResultsDir ? new File(parentDir, "results") : parentDir;
+    }
+    for (MZmineProcessingStep<?> step : queue) {
+      if (step.getModule() instanceof MZmineRunnableModule mod && (
+          mod.getModuleCategory() == MZmineModuleCategory.FEATURELISTEXPORT
+          || mod.getModuleCategory() == MZmineModuleCategory.RAWDATAEXPORT)) {
+        for (final Parameter<?> p : step.getParameterSet().getParameters()) {
+          if (p instanceof FileNameParameter fnp && fnp.getValue() != null) {
+            return fnp.getValue().getAbsoluteFile().getParentFile();
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Replaces the project with the result of the last cached step of the current queue.
+   *
+   * @return the number of steps that were restored from the cache and shall be skipped
+   */
+  private int resumeFromStepCache() {
+    stepCache.updateKeys(queue);
+    final int lastCachedStep = stepCache.findLastCachedStep(queue);
+    if (lastCachedStep < 0) {
+      return 0;
+    }
+    // the cached project replaces the current project, never discard the user's data
+    final MZmineProject current = MZmineCore.getProjectManager().getCurrentProject();
+    if (!current.getCurrentRawDataFiles().isEmpty() || !current.getCurrentFeatureLists()
+        .isEmpty()) {
+      logger.info("The batch step cache is only used for an empty project. Running all steps.");
+      return 0;
+    }
+    final CachedStepResult result = stepCache.restore(lastCachedStep);
+    if (result == null) {
+      // start from the beginning
+      return 0;
+    }
+    project = result.project();
+    createdDataFiles = new ArrayList<>();
+    createdFeatureLists = new ArrayList<>();
+    previousCreatedDataFiles = result.dataFiles();
+    previousCreatedFeatureLists = result.featureLists();
+    return lastCachedStep + 1;
+  }
+
   private void setOutputFiles(final File parentDir, final boolean createResultsDir,
       final String datasetName) {
     int changedOutputSteps = 0;
@@ -319,6 +461,16 @@ public class BatchTask extends AbstractTask {
 
     boolean allTasksFinished = false;
 
+    // collect the resource usage of all tasks of this step for the batch report
+    stepMetricsCollector = new TaskMetricsCollector(currentStepTasks);
+    // wake up as soon as a task of this step changes its status instead of waiting for the timeout
+    final TaskStatusListener wakeUp = (task, newStatus, oldStatus) -> {
+      synchronized (this) {
+        notifyAll();
+      }
+    };
+    currentStepTasks.forEach(task -> task.addTaskStatusListener(wakeUp));
+
     // Submit the tasks to the task controller for processing
     WrappedTask[] currentStepWrappedTasks = MZmineCore.getTaskController()
         .addTasks(currentStepTasks.toArray(new Task[0]));
@@ -367,7 +519,7 @@ public class BatchTask extends AbstractTask {
 
       }
 
-      // Wait 1s before checking the tasks again
+      // Wait until a task status changes, at most 1s before checking the tasks again
       if (!allTasksFinished) {
         synchronized (this) {
           try {
@@ -384,6 +536,11 @@ public class BatchTask extends AbstractTask {
     createdDataFiles.removeAll(beforeDataFiles);
     createdFeatureLists.removeAll(beforeFeatureLists);
 
+    if (StorageMemoryBudget.isEnabled()) {
+      logger.fine(() -> "Memory usage after step " + method.getName() + ": "
+                        + StorageMemoryBudget.getSummary());
+    }
+
     // special option to skip already imported files in the AllSpectralDataImportParameters
     // add skipped files
     setLastFilesIfAllDataImportStep(batchStepParameters);
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.batchmode.server;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.features.FeatureList;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Status and metrics of a batch job in the {@link BatchJobServer}
+ */
+public class BatchJob {
+
+  private final String id;
+  private final BatchJobRequest request;
+  private final Instant submitted = Instant.now();
+  private volatile State state = State.QUEUED;
+  private volatile Instant started;
+  private volatile Instant finished;
+  private volatile String errorMessage;
+  // result metrics
+  private volatile int dataFiles;
+  private volatile int featureLists;
+  private volatile long rows;
+  private volatile int spectralLibraries;
+
+  public BatchJob(@NotNull String id, @NotNull BatchJobRequest request) {
+    this.id = id;
+    this.request = request;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public BatchJobRequest getRequest() {
+    return request;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * @return true if the job was queued and is now running
+   */
+  synchronized boolean start() {
+    if (state != State.QUEUED) {
+      return false;
+    }
+    started = Instant.now();
+    state = State.RUNNING;
+    return true;
+  }
+
+  /**
+   * @return true if the job was queued and is now canceled
+   */
+  synchronized boolean cancel() {
+    if (state != State.QUEUED) {
+      return false;
+    }
+    finished = Instant.now();
+    state = State.CANCELED;
+    return true;
+  }
+
+  /**
+   * @param project      the project of this job to collect metrics
+   * @param errorMessage null if the batch finished successfully
+   */
+  void setFinished(@NotNull MZmineProject project, @Nullable String errorMessage) {
+    dataFiles = project.getDataFiles().length;
+    featureLists = project.getCurrentFeatureLists().size();
+    rows = project.getCurrentFeatureLists().stream().mapToLong(FeatureList::getNumberOfRows).sum();
+    spectralLibraries = project.getCurrentSpectralLibraries().size();
+    this.errorMessage = errorMessage;
+    finished = Instant.now();
+    state = errorMessage == null ? State.FINISHED : State.ERROR;
+  }
+
+  public boolean isDone() {
+    return state == State.FINISHED || state == State.ERROR || state == State.CANCELED;
+  }
+
+  /**
+   * @return status and metrics for the JSON response
+   */
+  public Map<String, Object> toMap() {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("id", id);
+    map.put("state", state.name());
+    map.put("batch", request.batch());
+    map.put("submitted", submitted.toString());
+    if (started != null) {
+      map.put("started", started.toString());
+      map.put("queuedMillis", Duration.between(submitted, started).toMillis());
+    }
+    if (finished != null) {
+      map.put("finished", finished.toString());
+      if (started != null) {
+        map.put("runtimeMillis", Duration.between(started, finished).toMillis());
+      }
+    }
+    if (state == State.FINISHED || state == State.ERROR) {
+      map.put("dataFiles", dataFiles);
+      map.put("featureLists", featureLists);
+      map.put("rows", rows);
+      map.put("spectralLibraries", spectralLibraries);
+    }
+    if (errorMessage != null) {
+      map.put("error", errorMessage);
+    }
+    return map;
+  }
+
+  public enum State {
+    QUEUED, RUNNING, FINISHED, ERROR, CANCELED
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.batchmode.server;
+
+import java.io.File;
+import java.util.List;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A batch job submitted to the {@link BatchJobServer} as JSON, e.g.,
+ * <pre>
+ * {"batch": "/data/batch.mzbatch", "input": ["/data/a.mzML"], "libraries": ["/libs/lib.mgf"]}
+ * </pre>
+ *
+ * @param batch     the batch file
+ * @param input     overrides the data files of the import step, null to keep the batch files
+ * @param libraries overrides the spectral libraries, null to keep the batch libraries
+ */
+public record BatchJobRequest(String batch, @Nullable List<String> input,
+                              @Nullable List<String> libraries) {
+
+  public File getBatchFile() {
+    return new File(batch);
+  }
+
+  @Nullable
+  public File[] getInputFiles() {
+    return toFiles(input);
+  }
+
+  @Nullable
+  public File[] getLibraryFiles() {
+    return toFiles(libraries);
+  }
+
+  @Nullable
+  private static File[] toFiles(@Nullable List<String> paths) {
+    return paths == null || paths.isEmpty() ? null
+        : paths.stream().map(File::new).toArray(File[]::new);
+  }
+}
@@ -0,0 +1,518 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.batchmode.server;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.batchmode.BatchModeModule;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryImportTask;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.metrics.TaskMetrics;
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsRecorder;
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsRecorder.TaskTotals;
+import io.github.mzmine.util.ExitCode;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.StorageMemoryBudget;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Headless server that accepts batch jobs over a local HTTP endpoint. Jobs are run one after the
+ * other in isolated projects on the shared task controller of this MZmine instance. Spectral
+ * libraries stay loaded between jobs, and so do all classes, data types and compiled code, which
+ * removes the start up costs of a new MZmine process per batch.
+ * <p>
+ * Endpoints (bound to the loopback address only):
+ * <ul>
+ *   <li>POST /jobs with a {@link BatchJobRequest} as JSON: submit a job, returns the job</li>
+ *   <li>GET /jobs: status of all jobs</li>
+ *   <li>GET /jobs/{id}: status and metrics of a job</li>
+ *   <li>DELETE /jobs/{id}: cancel a queued job</li>
+ *   <li>GET /status: server metrics</li>
+ *   <li>GET /metrics: task metrics per task class in the Prometheus text format</li>
+ *   <li>GET /metrics/tasks: metrics of the most recently finished tasks as JSON</li>
+ *   <li>POST /shutdown: stop the server and exit MZmine</li>
+ * </ul>
+ * Every request needs the header <code>Authorization: Bearer &lt;token&gt;</code>. The token is
+ * created randomly on each start and written to a file that is only readable by the user, see
+ * {@link #getTokenFile()}. POST requests need the content type <code>application/json</code>, and
+ * requests with an <code>Origin</code> header other than this server are rejected. This keeps web
+ * pages in a browser from submitting jobs or shutting down MZmine.
+ */
+public class BatchJobServer {
+
+  private static final Logger logger = Logger.getLogger(BatchJobServer.class.getName());
+  /**
+   * finished jobs that are kept for status requests
+   */
+  private static final int MAX_FINISHED_JOBS = 1000;
+  private static final String TOKEN_FILE_NAME = "batch_server_token";
+  private static final String BEARER = "Bearer ";
+  /**
+   * time to wait for the running job after it was interrupted on stop
+   */
+  private static final Duration STOP_TIMEOUT = Duration.ofSeconds(30);
+
+  private final ObjectMapper mapper = new ObjectMapper().configure(
+      DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private final Instant startTime = Instant.now();
+  private final AtomicLong jobCounter = new AtomicLong(0);
+  // insertion ordered, guarded by itself
+  private final Map<String, BatchJob> jobs = new LinkedHashMap<>();
+  private final ExecutorService jobRunner = Executors.newSingleThreadExecutor(
+      r -> new Thread(r, "mzmine-batch-job-runner"));
+  private final HttpServer server;
+  private final byte[] token;
+  private final @NotNull File tokenFile;
+
+  private BatchJobServer(int port, @NotNull File tokenFile) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/jobs", authorized(this::handleJobs));
+    server.createContext("/status", authorized(this::handleStatus));
+    server.createContext("/metrics", authorized(this::handleMetrics));
+    server.createContext("/shutdown", authorized(this::handleShutdown));
+    server.setExecutor(Executors.newFixedThreadPool(2));
+
+    final byte[] random = new byte[32];
+    new SecureRandom().nextBytes(random);
+    final String tokenText = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+    token = tokenText.getBytes(StandardCharsets.US_ASCII);
+    this.tokenFile = tokenFile;
+    writeTokenFile(tokenFile, tokenText);
+  }
+
+  /**
+   * Start the server on the loopback address. The token for requests is written to
+   * batch_server_token in the MZmine user directory.
+   *
+   * @param port the port or 0 for any free port
+   */
+  public static BatchJobServer start(int port) throws IOException {
+    return start(port, new File(FileAndPathUtil.getUserSettingsDir(), TOKEN_FILE_NAME));
+  }
+
+  /**
+   * Start the server on the loopback address
+   *
+   * @param port      the port or 0 for any free port
+   * @param tokenFile receives the token for requests
+   */
+  static BatchJobServer start(int port, @NotNull File tokenFile) throws IOException {
+    final BatchJobServer jobServer = new BatchJobServer(port, tokenFile);
+    SpectralLibraryImportTask.setKeepLibrariesLoaded(true);
+    jobServer.server.start();
+    logger.info("MZmine batch job server listening on http://localhost:" + jobServer.getPort()
+                + ", the token for requests is in " + tokenFile.getAbsolutePath());
+    return jobServer;
+  }
+
+  /**
+   * Writes the token to a file that only the user can read
+   */
+  private static void writeTokenFile(@NotNull File tokenFile, @NotNull String tokenText)
+      throws IOException {
+    final Path path = tokenFile.toPath();
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    Files.deleteIfExists(path);
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(path,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } else {
+      Files.createFile(path);
+      tokenFile.setReadable(false, false);
+      tokenFile.setReadable(true, true);
+    }
+    Files.writeString(path, tokenText, StandardCharsets.US_ASCII);
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * @return the file with the token that is required for all requests
+   */
+  public @NotNull File getTokenFile() {
+    return tokenFile;
+  }
+
+  /**
+   * Stops accepting requests, cancels queued jobs, interrupts the running job and waits a limited
+   * time for it to end
+   */
+  public void stop() {
+    server.stop(1);
+    jobRunner.shutdownNow();
+    synchronized (jobs) {
+      jobs.values().forEach(BatchJob::cancel);
+    }
+    try {
+      if (!jobRunner.awaitTermination(STOP_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+        logger.warning("The running batch job did not end within " + STOP_TIMEOUT.toSeconds()
+                       + " seconds after the server was stopped");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    SpectralLibraryImportTask.setKeepLibrariesLoaded(false);
+    tokenFile.delete();
+    logger.info("MZmine batch job server stopped");
+  }
+
+  /**
+   * Only passes requests with the token of this server, without foreign origin and, for POST
+   * requests, with JSON content to the handler
+   */
+  private HttpHandler authorized(@NotNull HttpHandler handler) {
+    return exchange -> {
+      final String error;
+      final int code;
+      final String origin = exchange.getRequestHeaders().getFirst("Origin");
+      final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+      if (!hasToken(exchange.getRequestHeaders().getFirst("Authorization"))) {
+        code = 401;
+        error = "Missing or wrong token, send the header Authorization: Bearer <token>";
+      } else if (origin != null && !isOwnOrigin(origin)) {
+        code = 403;
+        error = "Requests from origin " + origin + " are not allowed";
+      } else if ("POST".equals(exchange.getRequestMethod()) && (contentType == null
+          || !contentType.toLowerCase().startsWith("application/json"))) {
+        code = 415;
+        error = "POST requests need the content type application/json";
+      } else {
+        handler.handle(exchange);
+        return;
+      }
+      try (exchange) {
+        // do not read the body of rejected requests
+        sendError(exchange, code, error);
+      }
+    };
+  }
+
+  private boolean hasToken(@Nullable String authorization) {
+    if (authorization == null || !authorization.startsWith(BEARER)) {
+      return false;
+    }
+    // constant time comparison
+    return MessageDigest.isEqual(token,
+        authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private boolean isOwnOrigin(@NotNull String origin) {
+    final int port = getPort();
+    return origin.equals("http://localhost:" + port) || origin.equals("http://127.0.0.1:" + port)
+           || origin.equals("http://[::1]:" + port);
+  }
+
+  /**
+   * Queue a job
+   *
+   * @return the queued job
+   */
+  public BatchJob submit(@NotNull BatchJobRequest request) {
+    final BatchJob job = new BatchJob(String.valueOf(jobCounter.incrementAndGet()), request);
+    synchronized (jobs) {
+      removeOldJobs();
+      jobs.put(job.getId(), job);
+    }
+    jobRunner.execute(() -> runJob(job));
+    logger.info(() -> "Queued batch job " + job.getId() + " " + request.batch());
+    return job;
+  }
+
+  @Nullable
+  public BatchJob getJob(String id) {
+    synchronized (jobs) {
+      return jobs.get(id);
+    }
+  }
+
+  private void removeOldJobs() {
+    final long finished = jobs.values().stream().filter(BatchJob::isDone).count();
+    if (finished >= MAX_FINISHED_JOBS) {
+      final var it = jobs.values().iterator();
+      for (long i = 0; i <= finished - MAX_FINISHED_JOBS && it.hasNext(); ) {
+        if (it.next().isDone()) {
+          it.remove();
+          i++;
+        }
+      }
+    }
+  }
+
+  private void runJob(BatchJob job) {
+    if (!job.start()) {
+      // canceled
+      return;
+    }
+    logger.info(() -> "Starting batch job " + job.getId() + " " + job.getRequest().batch());
+
+    // each job runs in its own project
+    final MZmineProject project = new MZmineProjectImpl();
+    MZmineCore.getProjectManager().setCurrentProject(project);
+    try {
+      final BatchJobRequest request = job.getRequest();
+      final ExitCode exitCode = BatchModeModule.runBatch(project, request.getBatchFile(),
+          request.getInputFiles(), request.getLibraryFiles(), null, Instant.now());
+      job.setFinished(project, exitCode == ExitCode.OK ? null : "Batch finished with " + exitCode);
+    } catch (Throwable t) {
+      logger.log(Level.SEVERE, "Error in batch job " + job.getId(), t);
+      job.setFinished(project, t.getMessage() != null ? t.getMessage() : t.toString());
+    } finally {
+      // delete the temporary files and release the memory of this job, only kept libraries remain
+      discardStorages(project);
+      MZmineCore.getProjectManager().setCurrentProject(new MZmineProjectImpl());
+    }
+    logger.info(() -> "Batch job " + job.getId() + " " + job.getState());
+  }
+
+  /**
+   * Discards the storages of all raw data files, feature lists, and spectral libraries of a
+   * finished job that are not kept for the next jobs
+   */
+  private static void discardStorages(@NotNull MZmineProject project) {
+    final List<Object> owners = new ArrayList<>(project.getCurrentRawDataFiles());
+    owners.addAll(project.getCurrentFeatureLists());
+    project.getCurrentSpectralLibraries().stream()
+        .filter(library -> !SpectralLibraryImportTask.isKeptLibrary(library))
+        .forEach(owners::add);
+    owners.addAll(SpectralLibraryImportTask.drainReleasedLibraries());
+    MemoryMapStorage.discardStoragesOf(owners);
+  }
+
+  private void handleJobs(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      final String path = exchange.getRequestURI().getPath();
+      final String id = path.replaceFirst("^/jobs/?", "");
+      final String method = exchange.getRequestMethod();
+
+      if (id.isEmpty()) {
+        switch (method) {
+          case "GET" -> {
+            final List<Map<String, Object>> all;
+            synchronized (jobs) {
+              all = jobs.values().stream().map(BatchJob::toMap).toList();
+            }
+            sendJson(exchange, 200, all);
+          }
+          case "POST" -> {
+            final BatchJobRequest request;
+            try (InputStream in = exchange.getRequestBody()) {
+              request = mapper.readValue(in, BatchJobRequest.class);
+            } catch (IOException e) {
+              sendError(exchange, 400, "Cannot parse job request: " + e.getMessage());
+              return;
+            }
+            final String error = validate(request);
+            if (error != null) {
+              sendError(exchange, 400, error);
+              return;
+            }
+            sendJson(exchange, 202, submit(request).toMap());
+          }
+          default -> sendError(exchange, 405, "Method not allowed: " + method);
+        }
+        return;
+      }
+
+      final BatchJob job = getJob(id);
+      if (job == null) {
+        sendError(exchange, 404, "No job with id " + id);
+        return;
+      }
+      switch (method) {
+        case "GET" -> sendJson(exchange, 200, job.toMap());
+        case "DELETE" -> {
+          if (!job.cancel()) {
+            sendError(exchange, 409, "Only queued jobs can be canceled, job is " + job.getState());
+            return;
+          }
+          sendJson(exchange, 200, job.toMap());
+        }
+        default -> sendError(exchange, 405, "Method not allowed: " + method);
+      }
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error while handling job server request", e);
+    }
+  }
+
+  @Nullable
+  private static String validate(@Nullable BatchJobRequest request) {
+    if (request == null || request.batch() == null) {
+      return "No batch file defined";
+    }
+    final File batchFile = request.getBatchFile();
+    if (!batchFile.isFile() || !batchFile.canRead()) {
+      return "Cannot read batch file " + batchFile.getAbsolutePath();
+    }
+    final File[] input = request.getInputFiles();
+    if (input != null) {
+      final File missing = Arrays.stream(input).filter(file -> !file.exists()).findFirst()
+          .orElse(null);
+      if (missing != null) {
+        return "Input file does not exist " + missing.getAbsolutePath();
+      }
+    }
+    return null;
+  }
+
+  private void handleStatus(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      final Map<String, Object> status = new LinkedHashMap<>();
+      status.put("version", String.valueOf(MZmineCore.getMZmineVersion()));
+      status.put("uptimeSeconds", Duration.between(startTime, Instant.now()).toSeconds());
+      synchronized (jobs) {
+        for (BatchJob.State state : BatchJob.State.values()) {
+          status.put(state.name().toLowerCase() + "Jobs",
+              jobs.values().stream().filter(job -> job.getState() == state).count());
+        }
+      }
+      status.put("submittedJobs", jobCounter.get());
+      status.put("loadedSpectralLibraries", SpectralLibraryImportTask.getNumberOfKeptLibraries());
+      final Runtime runtime = Runtime.getRuntime();
+      status.put("heapUsedMB", (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+      status.put("heapMaxMB", runtime.maxMemory() >> 20);
+      status.put("memoryBudget", StorageMemoryBudget.getStatus());
+      sendJson(exchange, 200, status);
+    }
+  }
+
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (exchange.getRequestURI().getPath().equals("/metrics/tasks")) {
+        sendJson(exchange, 200,
+            TaskMetricsRecorder.getRecentMetrics().stream().map(TaskMetrics::toMap).toList());
+        return;
+      }
+
+      final Map<String, TaskTotals> totals = TaskMetricsRecorder.getTotals();
+      final StringBuilder b = new StringBuilder();
+      appendCounter(b, "mzmine_tasks_total", "Finished tasks", totals, TaskTotals::tasks, 1);
+      appendCounter(b, "mzmine_task_wall_seconds_total", "Wall clock time of tasks", totals,
+          TaskTotals::wallNanos, 1e-9);
+      appendCounter(b, "mzmine_task_cpu_seconds_total", "CPU time of tasks", totals,
+          TaskTotals::cpuNanos, 1e-9);
+      appendCounter(b, "mzmine_task_allocated_bytes_total", "Bytes allocated by tasks", totals,
+          TaskTotals::allocatedBytes, 1);
+      appendCounter(b, "mzmine_task_storage_bytes_total",
+          "Bytes written to memory map storages by tasks", totals, TaskTotals::storageBytes, 1);
+      final Runtime runtime = Runtime.getRuntime();
+      appendGauge(b, "mzmine_heap_used_bytes", "Used heap", TaskMetricsRecorder.getUsedHeapBytes());
+      appendGauge(b, "mzmine_heap_max_bytes", "Maximum heap", runtime.maxMemory());
+      appendGauge(b, "mzmine_storage_budget_used_bytes", "Used memory budget of storages",
+          StorageMemoryBudget.getUsedBytes());
+
+      final byte[] bytes = b.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+  }
+
+  private static void appendCounter(StringBuilder b, String name, String help,
+      Map<String, TaskTotals> totals, ToLongFunction<TaskTotals> value,
+      double scale) {
+    b.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    b.append("# TYPE ").append(name).append(" counter\n");
+    totals.forEach((taskClass, total) -> b.append(name).append("{task=\"")
+        .append(taskClass.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"} ")
+        .append(scale == 1 ? String.valueOf(value.applyAsLong(total))
+            : String.valueOf(value.applyAsLong(total) * scale)).append('\n'));
+  }
+
+  private static void appendGauge(StringBuilder b, String name, String help, long value) {
+    b.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    b.append("# TYPE ").append(name).append(" gauge\n");
+    b.append(name).append(' ').append(value).append('\n');
+  }
+
+  private void handleShutdown(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        sendError(exchange, 405, "Use POST to shut down");
+        return;
+      }
+      sendJson(exchange, 200, Map.of("message", "Shutting down"));
+    }
+    new Thread(() -> {
+      stop();
+      MZmineCore.exit();
+    }, "mzmine-batch-job-server-shutdown").start();
+  }
+
+  private void sendError(HttpExchange exchange, int code, String message) throws IOException {
+    sendJson(exchange, code, Map.of("error", message));
+  }
+
+  private void sendJson(HttpExchange exchange, int code, Object value) throws IOException {
+    final byte[] bytes = mapper.writeValueAsBytes(value);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
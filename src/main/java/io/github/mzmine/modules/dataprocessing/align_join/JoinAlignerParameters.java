@@ -89,6 +89,12 @@ public class JoinAlignerParameters extends SimpleParameterSet {
       "Compare spectra similarity", "Compare MS1 or MS2 spectra similarity",
       new JoinAlignerSpectraSimilarityScoreParameters(), false);
 
+  public static final BooleanParameter mzSlices = new BooleanParameter(
+      "Align m/z slices in parallel",
+      "If checked, the m/z axis is split into slices at gaps that are larger than the m/z tolerance."
+          + "\nEach slice is aligned independently and in parallel, which reduces the run time and "
+          + "memory for studies with many samples.\nThe base feature list of each iteration is "
+          + "chosen from all slices, so the result is the same as the default alignment.", false);
 
   public static final OriginalFeatureListHandlingParameter handleOriginal = new OriginalFeatureListHandlingParameter(
       "Original feature list",
@@ -98,7 +104,7 @@ public class JoinAlignerParameters extends SimpleParameterSet {
   public JoinAlignerParameters() {
     super(new Parameter[]{peakLists, peakListName, MZTolerance, MZWeight, RTTolerance, RTWeight,
             mobilityTolerance, mobilityWeight, SameChargeRequired, SameIDRequired,
-            compareIsotopePattern, compareSpectraSimilarity, handleOriginal},
+            compareIsotopePattern, compareSpectraSimilarity, mzSlices, handleOriginal},
         "https://mzmine.github.io/mzmine_documentation/module_docs/join_aligner/join_aligner.html");
   }
 
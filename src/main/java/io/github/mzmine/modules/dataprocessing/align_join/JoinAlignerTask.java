@@ -56,6 +56,7 @@ import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
 import it.unimi.dsi.fastutil.objects.Object2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -71,8 +72,13 @@ import org.jetbrains.annotations.Nullable;
 public class JoinAlignerTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(JoinAlignerTask.class.getName());
+  /**
+   * Minimum number of rows of an m/z slice, smaller groups are merged with their neighbors
+   */
+  private static final int MIN_SLICE_ROWS = 5_000;
   private final MZmineProject project;
   private final AtomicInteger alignedRows = new AtomicInteger(0);
+  private final AtomicInteger baseRows = new AtomicInteger(0);
   private final String featureListName;
   private final MZTolerance mzTolerance;
   private final RTTolerance rtTolerance;
@@ -89,6 +95,7 @@ public class JoinAlignerTask extends AbstractTask {
   private final Double minIsotopeScore;
   private final Double isotopeNoiseLevel;
   private final MZTolerance isotopeMZTolerance;
+  private final boolean alignMzSlices;
   /**
    * All feature lists except the base list
    */
@@ -96,8 +103,6 @@ public class JoinAlignerTask extends AbstractTask {
   private ModularFeatureList alignedFeatureList;
   // Processed rows counter
   private int totalRows;
-  // ID counter for the new peaklist
-  private int iteration = 1;
   // fields for spectra similarity
   private MZmineProcessingStep<SpectralSimilarityFunction> simFunction;
   private int msLevel;
@@ -156,6 +161,8 @@ public class JoinAlignerTask extends AbstractTask {
           .getEmbeddedParameters().getParameter(JoinAlignerSpectraSimilarityScoreParameters.msLevel)
           .getValue();
     }
+
+    alignMzSlices = parameters.getValue(JoinAlignerParameters.mzSlices);
   }
 
   @Override
@@ -169,8 +176,7 @@ public class JoinAlignerTask extends AbstractTask {
     if (totalRows == 0) {
       return 0f;
     }
-    return alignedFeatureList != null ? (alignedFeatureList.getNumberOfRows() + alignedRows.get())
-        / (double) totalRows : 0d;
+    return (baseRows.get() + alignedRows.get()) / (double) totalRows;
   }
 
   @Override
@@ -205,47 +211,25 @@ public class JoinAlignerTask extends AbstractTask {
     FeatureListUtils.transferSelectedScans(alignedFeatureList, featureLists);
     final AtomicInteger newRowID = new AtomicInteger(1);
 
-    // list all rows for each feature list
-    final List<List<FeatureListRow>> allRows = new ArrayList<>(featureLists.size());
-
-    for (var flist : featureLists) {
-      allRows.add(new ArrayList<>(flist.getRows()));
-    }
-
-    // still contains rows from unaligned feature lists
-    while (!allRows.isEmpty()) {
-      // sort remaining unaligned rows by size
-      // feature list with the highest number of unaligned rows first
-      allRows.sort(comparingInt(value -> ((List<?>) value).size()).reversed());
-
-      // remove next feature list's rows
-      // select the next base feature list with max number of rows
-      final List<FeatureListRow> nextUnalignedFeatureList = allRows.remove(0);
-      if (nextUnalignedFeatureList.isEmpty()) {
-        logger.finer(() -> String.format(
-            "End of join aligner reached. %d feature lists had no unaligned rows left",
-            allRows.size()));
-        break; // end loop
-      }
-
-      // create new rows, used as base for next alignment iteration, and later added to feature list
-      List<FeatureListRow> nextBaseRows = new ArrayList<>(nextUnalignedFeatureList.size());
-      for (var unalignedRow : nextUnalignedFeatureList) {
-        nextBaseRows.add(new ModularFeatureListRow(alignedFeatureList, newRowID.getAndIncrement(),
-            (ModularFeatureListRow) unalignedRow, true));
-      }
-      nextBaseRows.sort(MZ_ASCENDING);
-
-      // align all remaining feature lists onto the feature list with max(row number) = nextBaseRows
-      if (!allRows.isEmpty()) {
-        alignRowsOnBaseRows(allRows, nextBaseRows);
+    final List<List<List<FeatureListRow>>> slices;
+    if (alignMzSlices && mzWeight > 0) {
+      // slices cannot share candidates, so they are aligned in parallel
+      slices = partitionByMz();
+      logger.info(() -> "Aligning " + slices.size() + " m/z slices in parallel");
+    } else {
+      // list all rows for each feature list
+      final List<List<FeatureListRow>> allRows = new ArrayList<>(featureLists.size());
+      for (var flist : featureLists) {
+        allRows.add(new ArrayList<>(flist.getRows()));
       }
+      slices = List.of(allRows);
+    }
 
-      // add all new base rows
-      for (var row : nextBaseRows) {
-        alignedFeatureList.addRow(row);
-      }
-      iteration++;
+    for (var row : alignIteratively(slices, newRowID)) {
+      alignedFeatureList.addRow(row);
+    }
+    if (isCanceled()) {
+      return;
     }
 
     // sort by RT and reset IDs
@@ -282,14 +266,167 @@ public class JoinAlignerTask extends AbstractTask {
 
   }
 
+  /**
+   * Aligns the rows iteratively. Each iteration uses the remaining rows of the feature list with
+   * the most unaligned rows as new base rows and aligns the rows of all other lists onto them. The
+   * base list is chosen from the remaining rows of all slices, therefore aligning m/z slices in
+   * parallel gives the same result as aligning all rows at once.
+   *
+   * @param slices   the unaligned rows of each feature list (same index as {@link #featureLists})
+   *                 per m/z slice. Modified by this method
+   * @param newRowID provides the IDs of new rows
+   * @return the new aligned rows
+   */
+  private List<FeatureListRow> alignIteratively(List<List<List<FeatureListRow>>> slices,
+      AtomicInteger newRowID) {
+    final List<FeatureListRow> newRows = new ArrayList<>();
+    // indices of the feature lists with unaligned rows
+    final List<Integer> remainingLists = new ArrayList<>();
+    int[] remainingRows = countRemainingRows(slices);
+    for (int l = 0; l < remainingRows.length; l++) {
+      if (remainingRows[l] > 0) {
+        remainingLists.add(l);
+      }
+    }
+
+    int iteration = 1;
+    while (!remainingLists.isEmpty()) {
+      if (isCanceled()) {
+        return newRows;
+      }
+      // sort remaining unaligned rows by size
+      // feature list with the highest number of unaligned rows first
+      final int[] rowsPerList = remainingRows;
+      remainingLists.sort(comparingInt((Integer l) -> rowsPerList[l]).reversed());
+
+      // select the next base feature list with max number of rows
+      final int baseList = remainingLists.remove(0);
+      final int logIteration = slices.size() == 1 ? iteration : -1;
+      final List<List<FeatureListRow>> alignedSlices = slices.parallelStream()
+          .map(slice -> alignSlice(slice, baseList, remainingLists, newRowID, logIteration))
+          .toList();
+      alignedSlices.forEach(newRows::addAll);
+
+      // remove lists without unaligned rows
+      remainingRows = countRemainingRows(slices);
+      final int[] rowsAfterIteration = remainingRows;
+      remainingLists.removeIf(l -> rowsAfterIteration[l] == 0);
+      if (slices.size() > 1) {
+        final int finishedIteration = iteration;
+        logger.finest(() -> String.format("Iteration %d/%d (max): %d lists with unaligned rows",
+            finishedIteration, featureLists.size(), remainingLists.size()));
+      }
+      iteration++;
+    }
+    return newRows;
+  }
+
+  /**
+   * Creates new base rows from the rows of the base list in this slice and aligns the rows of the
+   * other lists onto them.
+   *
+   * @param slice      the unaligned rows of each feature list in one m/z slice. Modified
+   * @param baseList   index of the base feature list
+   * @param otherLists indices of the feature lists that are aligned onto the base rows
+   * @param iteration  the iteration to log or -1 to skip logging
+   * @return the new base rows
+   */
+  private List<FeatureListRow> alignSlice(List<List<FeatureListRow>> slice, int baseList,
+      List<Integer> otherLists, AtomicInteger newRowID, int iteration) {
+    final List<FeatureListRow> nextUnalignedFeatureList = slice.get(baseList);
+    // create new rows, used as base for next alignment iteration, and later added to feature list
+    final List<FeatureListRow> nextBaseRows = new ArrayList<>(nextUnalignedFeatureList.size());
+    for (var unalignedRow : nextUnalignedFeatureList) {
+      nextBaseRows.add(new ModularFeatureListRow(alignedFeatureList, newRowID.getAndIncrement(),
+          (ModularFeatureListRow) unalignedRow, true));
+    }
+    nextUnalignedFeatureList.clear();
+    nextBaseRows.sort(MZ_ASCENDING);
+    baseRows.addAndGet(nextBaseRows.size());
+
+    // align all remaining feature lists onto the feature list with max(row number) = nextBaseRows
+    final List<List<FeatureListRow>> unalignedRows = new ArrayList<>(otherLists.size());
+    for (int l : otherLists) {
+      if (!slice.get(l).isEmpty()) {
+        unalignedRows.add(slice.get(l));
+      }
+    }
+    if (!nextBaseRows.isEmpty() && !unalignedRows.isEmpty()) {
+      alignRowsOnBaseRows(unalignedRows, nextBaseRows, iteration);
+    }
+    return nextBaseRows;
+  }
+
+  /**
+   * @return the number of unaligned rows of each feature list in all slices
+   */
+  private int[] countRemainingRows(List<List<List<FeatureListRow>>> slices) {
+    final int[] rows = new int[featureLists.size()];
+    for (List<List<FeatureListRow>> slice : slices) {
+      for (int l = 0; l < rows.length; l++) {
+        rows[l] += slice.get(l).size();
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Splits the rows of all feature lists into m/z slices. Slices are only cut between two rows
+   * (sorted by m/z) that are outside of each other's m/z tolerance. Rows of different slices can
+   * therefore never be candidates of each other. Neighboring groups are merged to slices of a
+   * minimum size, so that the number of slices stays reasonable.
+   *
+   * @return slices, each with the rows per feature list (same index as {@link #featureLists})
+   */
+  private List<List<List<FeatureListRow>>> partitionByMz() {
+    final Object2IntOpenHashMap<FeatureList> listIndex = new Object2IntOpenHashMap<>();
+    for (int i = 0; i < featureLists.size(); i++) {
+      listIndex.put(featureLists.get(i), i);
+    }
+
+    final FeatureListRow[] rows = featureLists.stream().flatMap(flist -> flist.getRows().stream())
+        .toArray(FeatureListRow[]::new);
+    Arrays.parallelSort(rows, MZ_ASCENDING);
+
+    final int minSliceRows = Math.max(MIN_SLICE_ROWS,
+        rows.length / (Runtime.getRuntime().availableProcessors() * 4));
+
+    final List<List<List<FeatureListRow>>> slices = new ArrayList<>();
+    List<List<FeatureListRow>> slice = null;
+    int sliceSize = 0;
+    for (int i = 0; i < rows.length; i++) {
+      final boolean isGap = i == 0 || isMzGap(rows[i - 1].getAverageMZ(), rows[i].getAverageMZ());
+      if (slice == null || (isGap && sliceSize >= minSliceRows)) {
+        slice = new ArrayList<>(featureLists.size());
+        for (int l = 0; l < featureLists.size(); l++) {
+          slice.add(new ArrayList<>());
+        }
+        slices.add(slice);
+        sliceSize = 0;
+      }
+      slice.get(listIndex.getInt(rows[i].getFeatureList())).add(rows[i]);
+      sliceSize++;
+    }
+    return slices;
+  }
+
+  /**
+   * @return true if both m/z are outside of each other's tolerance range
+   */
+  private boolean isMzGap(double lowerMz, double upperMz) {
+    return !mzTolerance.getToleranceRange(lowerMz).contains(upperMz)
+        && !mzTolerance.getToleranceRange(upperMz).contains(lowerMz);
+  }
+
   /**
    * all unaligned rows are checked against the list of base rows
    *
    * @param unalignedRows FeatureList<Rows>
    * @param baseRowsByMz  list of base rows sorted by acsending mz
+   * @param iteration     the iteration to log or -1 to skip logging
    */
   private void alignRowsOnBaseRows(List<List<FeatureListRow>> unalignedRows,
-      List<FeatureListRow> baseRowsByMz) {
+      List<FeatureListRow> baseRowsByMz, int iteration) {
 
     // key = a row to be aligned, value = all possible matches in the aligned fl and it's scores
     final ConcurrentLinkedDeque<RowVsRowScore> scoresList = new ConcurrentLinkedDeque<>();
@@ -334,7 +471,7 @@ public class JoinAlignerTask extends AbstractTask {
     final var alignedRowsMap = addFeaturesBasedOnScores(scoresList);
 
     // keep track of unaligned rows for the next interation.
-    removeAlignedRows(unalignedRows, alignedRowsMap);
+    removeAlignedRows(unalignedRows, alignedRowsMap, iteration);
   }
 
   private boolean additionalChecks(final FeatureListRow row,
@@ -380,9 +517,10 @@ public class JoinAlignerTask extends AbstractTask {
    *
    * @param allRows        FeatureList<List<Rows>>
    * @param alignedRowsMap marks all aligned rows
+   * @param iteration      the iteration to log or -1 to skip logging
    */
   private void removeAlignedRows(List<List<FeatureListRow>> allRows,
-      Object2BooleanOpenHashMap<FeatureListRow> alignedRowsMap) {
+      Object2BooleanOpenHashMap<FeatureListRow> alignedRowsMap, int iteration) {
     AtomicInteger alignedCounter = new AtomicInteger(0);
     AtomicInteger remainingCounter = new AtomicInteger(0);
     final ListIterator<List<FeatureListRow>> iterator = allRows.listIterator();
@@ -402,8 +540,10 @@ public class JoinAlignerTask extends AbstractTask {
         iterator.remove();
       }
     }
-    logger.finest(() -> String.format("Rows: %d aligned; %d remaining. Iteration %d/%d (max)",
-        alignedCounter.get(), remainingCounter.get(), iteration, featureLists.size()));
+    if (iteration >= 0) {
+      logger.finest(() -> String.format("Rows: %d aligned; %d remaining. Iteration %d/%d (max)",
+          alignedCounter.get(), remainingCounter.get(), iteration, featureLists.size()));
+    }
   }
 
   private boolean checkSpectralSimilarity(FeatureListRow row, FeatureListRow candidate) {
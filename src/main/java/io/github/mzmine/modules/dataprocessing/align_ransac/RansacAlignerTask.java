@@ -25,6 +25,8 @@
 
 package io.github.mzmine.modules.dataprocessing.align_ransac;
 
+import static io.github.mzmine.util.FeatureListRowSorter.MZ_ASCENDING;
+
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.MZmineProject;
@@ -41,13 +43,13 @@ import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.FeatureUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.RangeUtils;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -55,10 +57,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.logging.Logger;
-import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
-import org.apache.commons.math.optimization.fitting.PolynomialFitter;
-import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
-import org.apache.commons.math.stat.regression.SimpleRegression;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -163,10 +162,18 @@ class RansacAlignerTask extends AbstractTask {
       }
     }
 
+    // fit the RT correction models of all lists in parallel
+    final RtCorrectionModel[] models = fitRtCorrectionModels();
+    if (isCanceled()) {
+      return;
+    }
+
     // Iterate source feature lists
-    for (FeatureList featureList : featureLists) {
+    for (int i = 0; i < featureLists.length; i++) {
+      final FeatureList featureList = featureLists[i];
 
-      HashMap<FeatureListRow, FeatureListRow> alignmentMapping = this.getAlignmentMap(featureList);
+      HashMap<FeatureListRow, FeatureListRow> alignmentMapping = this.getAlignmentMap(featureList,
+          models[i]);
 
       List<FeatureListRow> allRows = featureList.getRows();
 
@@ -228,10 +235,46 @@ class RansacAlignerTask extends AbstractTask {
   }
 
   /**
-   * @param peakList
-   * @return
+   * Fits the RT correction model of each feature list onto the RT of the first feature list. The
+   * first list is the base of the aligned feature list, so all models are independent and are
+   * fitted in parallel. Models of the same inputs and parameters are reused from the
+   * {@link RtCorrectionModelCache}.
+   *
+   * @return the model of each feature list, the first list keeps its RT
+   */
+  private RtCorrectionModel[] fitRtCorrectionModels() {
+    final ModularFeatureList reference = featureLists[0];
+    final RtCorrectionModel[] models = new RtCorrectionModel[featureLists.length];
+    models[0] = RtCorrectionModel.IDENTITY;
+
+    IntStream.range(1, featureLists.length).parallel().forEach(i -> {
+      if (isCanceled()) {
+        return;
+      }
+      final ModularFeatureList featureList = featureLists[i];
+      models[i] = RtCorrectionModelCache.getOrFit(reference, featureList, parameters, () -> {
+        // RANSAC algorithm
+        final List<AlignStructMol> list = getVectorAlignment(reference.getRows(),
+            featureList.getRows().stream().sorted(MZ_ASCENDING).toList());
+        if (list == null) {
+          return null;
+        }
+        RANSAC ransac = new RANSAC(parameters);
+        ransac.alignment(list);
+        return RtCorrectionModel.fit(list);
+      });
+      logger.finest(() -> "RT correction of " + featureList.getName() + ": " + models[i]);
+    });
+    return models;
+  }
+
+  /**
+   * @param peakList the feature list to align
+   * @param model    corrects the RT of the feature list
+   * @return mapping of the rows of the feature list to the aligned rows
    */
-  private HashMap<FeatureListRow, FeatureListRow> getAlignmentMap(FeatureList peakList) {
+  private HashMap<FeatureListRow, FeatureListRow> getAlignmentMap(FeatureList peakList,
+      RtCorrectionModel model) {
 
     // Create a table of mappings for best scores
     HashMap<FeatureListRow, FeatureListRow> alignmentMapping = new HashMap<>();
@@ -243,9 +286,9 @@ class RansacAlignerTask extends AbstractTask {
     // Create a sorted set of scores matching
     TreeSet<RowVsRowScore> scoreSet = new TreeSet<RowVsRowScore>();
 
-    // RANSAC algorithm
-    List<AlignStructMol> list = ransacPeakLists(alignedFeatureList, peakList);
-    PolynomialFunction function = this.getPolynomialFunction(list);
+    // candidates are searched in the aligned rows sorted by m/z
+    final List<FeatureListRow> alignedRowsByMz = alignedFeatureList.getRows().stream()
+        .sorted(MZ_ASCENDING).toList();
 
     List<FeatureListRow> allRows = peakList.getRows();
 
@@ -253,22 +296,13 @@ class RansacAlignerTask extends AbstractTask {
       // Calculate limits for a row with which the row can be aligned
       Range<Double> mzRange = mzTolerance.getToleranceRange(row.getAverageMZ());
 
-      float rt;
-      try {
-        rt = (float) function.value(row.getAverageRT());
-      } catch (NullPointerException e) {
-        rt = row.getAverageRT();
-      }
-      if (Double.isNaN(rt) || rt == -1) {
-        rt = row.getAverageRT();
-      }
+      float rt = model.correctRT(row);
 
       Range<Float> rtRange = rtToleranceAfter.getToleranceRange(rt);
 
       // Get all rows of the aligned peaklist within parameter limits
-      List<FeatureListRow> candidateRows = alignedFeatureList.getRowsInsideScanAndMZRange(rtRange,
-          mzRange);
-
+      List<FeatureListRow> candidateRows = FeatureListUtils.getCandidatesWithinRanges(mzRange,
+          rtRange, Range.all(), alignedRowsByMz, true);
       for (FeatureListRow candidate : candidateRows) {
         RowVsRowScore score;
         if (sameChargeRequired && (!FeatureUtils.compareChargeState(row, candidate))) {
@@ -314,94 +348,18 @@ class RansacAlignerTask extends AbstractTask {
     return alignmentMapping;
   }
 
-  /**
-   * RANSAC
-   *
-   * @param alignedPeakList
-   * @param peakList
-   * @return
-   */
-  private List<AlignStructMol> ransacPeakLists(FeatureList alignedPeakList, FeatureList peakList) {
-    List<AlignStructMol> list = this.getVectorAlignment(alignedPeakList, peakList);
-    RANSAC ransac = new RANSAC(parameters);
-    ransac.alignment(list);
-    return list;
-  }
-
-  /**
-   * Return the corrected RT of the row
-   *
-   * @param list
-   * @return
-   */
-  private PolynomialFunction getPolynomialFunction(List<AlignStructMol> list) {
-    List<RTs> data = new ArrayList<RTs>();
-    for (AlignStructMol m : list) {
-      if (m.Aligned) {
-        data.add(new RTs(m.RT2, m.RT));
-      }
-    }
-
-    data = this.smooth(data);
-    Collections.sort(data, new RTs());
-
-    double[] xval = new double[data.size()];
-    double[] yval = new double[data.size()];
-    int i = 0;
-
-    for (RTs rt : data) {
-      xval[i] = rt.RT;
-      yval[i++] = rt.RT2;
-    }
-
-    PolynomialFitter fitter = new PolynomialFitter(3, new GaussNewtonOptimizer(true));
-    for (RTs rt : data) {
-      fitter.addObservedPoint(1, rt.RT, rt.RT2);
-    }
-    try {
-      return fitter.fit();
-
-    } catch (Exception ex) {
-      return null;
-    }
-  }
-
-  private List<RTs> smooth(List<RTs> list) {
-    // Add points to the model in between of the real points to smooth the
-    // regression model
-    Collections.sort(list, new RTs());
-
-    for (int i = 0; i < list.size() - 1; i++) {
-      RTs point1 = list.get(i);
-      RTs point2 = list.get(i + 1);
-      if (point1.RT < point2.RT - 2) {
-        SimpleRegression regression = new SimpleRegression();
-        regression.addData(point1.RT, point1.RT2);
-        regression.addData(point2.RT, point2.RT2);
-        double rt = point1.RT + 1;
-        while (rt < point2.RT) {
-          RTs newPoint = new RTs(rt, regression.predict(rt));
-          list.add(newPoint);
-          rt++;
-        }
-
-      }
-    }
-
-    return list;
-  }
-
   /**
    * Create the vector which contains all the possible aligned peaks.
    *
-   * @param peakListX
-   * @param peakListY
-   * @return vector which contains all the possible aligned peaks.
+   * @param rowsX     rows of the reference feature list
+   * @param rowsYByMz rows of the feature list to align sorted by ascending m/z
+   * @return vector which contains all the possible aligned peaks or null if canceled
    */
-  private List<AlignStructMol> getVectorAlignment(FeatureList peakListX, FeatureList peakListY) {
+  private List<AlignStructMol> getVectorAlignment(List<FeatureListRow> rowsX,
+      List<FeatureListRow> rowsYByMz) {
 
     List<AlignStructMol> alignMol = new ArrayList<AlignStructMol>();
-    for (FeatureListRow row : peakListX.getRows()) {
+    for (FeatureListRow row : rowsX) {
 
       if (isCanceled()) {
         return null;
@@ -411,7 +369,8 @@ class RansacAlignerTask extends AbstractTask {
       Range<Float> rtRange = rtToleranceBefore.getToleranceRange(row.getAverageRT());
 
       // Get all rows of the aligned peaklist within parameter limits
-      List<FeatureListRow> candidateRows = peakListY.getRowsInsideScanAndMZRange(rtRange, mzRange);
+      List<FeatureListRow> candidateRows = FeatureListUtils.getCandidatesWithinRanges(mzRange,
+          rtRange, Range.all(), rowsYByMz, true);
 
       for (FeatureListRow candidateRow : candidateRows) {
         alignMol.add(new AlignStructMol(row, candidateRow));
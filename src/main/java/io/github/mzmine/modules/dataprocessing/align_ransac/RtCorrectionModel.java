@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_ransac;
+
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
+import org.apache.commons.math.optimization.fitting.PolynomialFitter;
+import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
+import org.apache.commons.math.stat.regression.SimpleRegression;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Retention time correction of one feature list onto the RT of a reference feature list. The
+ * polynomial is fitted once on the RANSAC inliers and can then be applied to any number of rows
+ * without refitting. Immutable, so models can be cached and shared between threads.
+ */
+public class RtCorrectionModel {
+
+  /**
+   * Model that keeps all retention times, used if the polynomial could not be fitted
+   */
+  public static final RtCorrectionModel IDENTITY = new RtCorrectionModel(null);
+
+  private final @Nullable PolynomialFunction function;
+
+  private RtCorrectionModel(@Nullable PolynomialFunction function) {
+    this.function = function;
+  }
+
+  /**
+   * Fits a polynomial of degree 3 on all aligned points of the RANSAC result. Points are added in
+   * between real points, which are more than 2 minutes apart, to smooth the regression model.
+   *
+   * @param list the result of {@link RANSAC#alignment(List)}, RT is the reference RT and RT2 the
+   *             RT to be corrected
+   * @return the model or {@link #IDENTITY} if the fit failed
+   */
+  @NotNull
+  public static RtCorrectionModel fit(@NotNull List<AlignStructMol> list) {
+    List<RTs> data = new ArrayList<RTs>();
+    for (AlignStructMol m : list) {
+      if (m.Aligned) {
+        data.add(new RTs(m.RT2, m.RT));
+      }
+    }
+
+    data = smooth(data);
+    Collections.sort(data, new RTs());
+
+    PolynomialFitter fitter = new PolynomialFitter(3, new GaussNewtonOptimizer(true));
+    for (RTs rt : data) {
+      fitter.addObservedPoint(1, rt.RT, rt.RT2);
+    }
+    try {
+      return new RtCorrectionModel(fitter.fit());
+    } catch (Exception ex) {
+      return IDENTITY;
+    }
+  }
+
+  private static List<RTs> smooth(List<RTs> list) {
+    // Add points to the model in between of the real points to smooth the
+    // regression model
+    Collections.sort(list, new RTs());
+
+    for (int i = 0; i < list.size() - 1; i++) {
+      RTs point1 = list.get(i);
+      RTs point2 = list.get(i + 1);
+      if (point1.RT < point2.RT - 2) {
+        SimpleRegression regression = new SimpleRegression();
+        regression.addData(point1.RT, point1.RT2);
+        regression.addData(point2.RT, point2.RT2);
+        double rt = point1.RT + 1;
+        while (rt < point2.RT) {
+          RTs newPoint = new RTs(rt, regression.predict(rt));
+          list.add(newPoint);
+          rt++;
+        }
+
+      }
+    }
+
+    return list;
+  }
+
+  /**
+   * @return the corrected RT or the original RT if the model cannot correct it
+   */
+  public float correctRT(float rt) {
+    if (function == null) {
+      return rt;
+    }
+    final float corrected = (float) function.value(rt);
+    if (Double.isNaN(corrected) || corrected == -1) {
+      return rt;
+    }
+    return corrected;
+  }
+
+  /**
+   * @return the corrected average RT of the row
+   */
+  public float correctRT(@NotNull FeatureListRow row) {
+    return correctRT(row.getAverageRT());
+  }
+
+  public boolean isIdentity() {
+    return function == null;
+  }
+
+  /**
+   * @return the polynomial coefficients, starting with the constant term. Empty for
+   * {@link #IDENTITY}
+   */
+  public double[] getCoefficients() {
+    return function == null ? new double[0] : function.getCoefficients();
+  }
+
+  @Override
+  public String toString() {
+    return "RtCorrectionModel" + Arrays.toString(getCoefficients());
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_ransac;
+
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Bounded LRU cache of fitted {@link RtCorrectionModel}s. Models are keyed by the name, number of
+ * rows, and a hash of the m/z and RT values of the reference and the corrected feature list and by
+ * the RANSAC parameters, so re-running the alignment with the same inputs reuses the models
+ * instead of fitting them again. The name and row count guard against hash collisions of different
+ * lists. Thread safe, models are fitted outside the lock.
+ */
+class RtCorrectionModelCache {
+
+  private static final int MAX_SIZE = 1024;
+
+  private static final Map<Key, RtCorrectionModel> cache = new LinkedHashMap<>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, RtCorrectionModel> eldest) {
+      return size() > MAX_SIZE;
+    }
+  };
+
+  private RtCorrectionModelCache() {
+  }
+
+  /**
+   * @param reference  the feature list that defines the target RT
+   * @param flist      the feature list to be corrected
+   * @param parameters the RANSAC aligner parameters
+   * @param fitter     fits the model if it is not cached, may return null if canceled
+   * @return the cached or newly fitted model. Null if the fitter returned null, which is not
+   * cached
+   */
+  @Nullable
+  static RtCorrectionModel getOrFit(@NotNull FeatureList reference, @NotNull FeatureList flist,
+      @NotNull ParameterSet parameters, @NotNull Supplier<RtCorrectionModel> fitter) {
+    final Key key = new Key(listKey(reference), listKey(flist),
+        parameters.getValue(RansacAlignerParameters.MZTolerance),
+        toleranceKey(parameters.getValue(RansacAlignerParameters.RTToleranceBefore)),
+        parameters.getValue(RansacAlignerParameters.Iterations),
+        parameters.getValue(RansacAlignerParameters.NMinPoints),
+        parameters.getValue(RansacAlignerParameters.Margin),
+        parameters.getValue(RansacAlignerParameters.Linear));
+    synchronized (cache) {
+      final RtCorrectionModel model = cache.get(key);
+      if (model != null) {
+        return model;
+      }
+    }
+
+    final RtCorrectionModel model = fitter.get();
+    if (model != null) {
+      synchronized (cache) {
+        cache.put(key, model);
+      }
+    }
+    return model;
+  }
+
+  private static ListKey listKey(FeatureList flist) {
+    return new ListKey(flist.getName(), flist.getNumberOfRows(), hashRows(flist));
+  }
+
+  /**
+   * @return a hash of the m/z and RT of all rows in their order
+   */
+  private static long hashRows(FeatureList flist) {
+    long hash = flist.getNumberOfRows();
+    for (FeatureListRow row : flist.getRows()) {
+      hash = 31 * hash + Double.doubleToLongBits(row.getAverageMZ());
+      final Float rt = row.getAverageRT();
+      hash = 31 * hash + (rt == null ? 0 : Float.floatToIntBits(rt));
+    }
+    return hash;
+  }
+
+  private static String toleranceKey(RTTolerance tolerance) {
+    return tolerance.getTolerance() + " " + tolerance.getUnit();
+  }
+
+  private record ListKey(String name, int rows, long rowsHash) {
+
+  }
+
+  private record Key(ListKey reference, ListKey flist, MZTolerance mzTolerance,
+                     String rtTolerance, Integer iterations, Double minPoints, Double margin,
+                     Boolean linear) {
+
+  }
+}
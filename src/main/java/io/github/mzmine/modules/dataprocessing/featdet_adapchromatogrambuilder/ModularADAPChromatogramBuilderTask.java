@@ -36,6 +36,7 @@ import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.MassSpectrum;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.DataAccessPrefetcher;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
 import io.github.mzmine.datamodel.data_access.ScanDataAccess;
@@ -236,6 +237,9 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
 
     ScanDataAccess scanData = EfficientDataAccess.of(dataFile, ScanDataType.MASS_LIST,
         scanSelection);
+    if (dataFile.getMemoryMapStorage() != null) {
+      scanData.enablePrefetching(DataAccessPrefetcher.DEFAULT_LOOK_AHEAD);
+    }
 
     progress = 0;
     double progressStep = 0.1 / scanData.getNumberOfScans();
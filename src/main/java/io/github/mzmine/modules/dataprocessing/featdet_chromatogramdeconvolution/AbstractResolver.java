@@ -201,7 +201,8 @@ public abstract class AbstractResolver implements Resolver {
     xBuffer = extractRtValues(series, xBuffer);
 
     if (series instanceof FeatureFullDataAccess featureFullDataAccess) {
-      return resolve(xBuffer, featureFullDataAccess.getIntensityValues());
+      return resolve(xBuffer, featureFullDataAccess.getIntensityValues(),
+          series.getNumberOfValues());
     } else {
       // intensities only need to be extracted if we are not using a FeatureFullDataAccess
       final int numValues = series.getNumberOfValues();
@@ -211,7 +212,7 @@ public abstract class AbstractResolver implements Resolver {
       Arrays.fill(yBuffer, 0d);
       yBuffer = series.getIntensityValues(yBuffer);
 
-      return resolve(xBuffer, yBuffer);
+      return resolve(xBuffer, yBuffer, numValues);
     }
   }
 
@@ -227,7 +228,8 @@ public abstract class AbstractResolver implements Resolver {
     }
 
     if (series instanceof BinningMobilogramDataAccess dataAccess) {
-      return resolve(dataAccess.getMobilityValues(), dataAccess.getIntensityValues());
+      return resolve(dataAccess.getMobilityValues(), dataAccess.getIntensityValues(),
+          dataAccess.getNumberOfValues());
     } else {
 
       final int numValues = series.getNumberOfValues();
@@ -240,7 +242,7 @@ public abstract class AbstractResolver implements Resolver {
       Arrays.fill(yBuffer, 0d);
       IonMobilityUtils.extractMobilities(series, xBuffer);
       yBuffer = series.getIntensityValues(yBuffer);
-      return resolve(xBuffer, yBuffer);
+      return resolve(xBuffer, yBuffer, numValues);
     }
   }
 
@@ -29,6 +29,7 @@ import io.github.mzmine.datamodel.ImagingRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.DataAccessPrefetcher;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.FeatureDataAccess;
 import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
@@ -256,6 +257,9 @@ public class FeatureResolverTask extends AbstractTask {
 
     final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
         EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, dataFile);
+    if (originalFeatureList.getMemoryMapStorage() != null) {
+      access.enablePrefetching(DataAccessPrefetcher.DEFAULT_LOOK_AHEAD);
+    }
 
     processedRows = 0;
     totalRows = originalFeatureList.getNumberOfRows();
@@ -66,6 +66,19 @@ public interface Resolver {
 
    @NotNull List<Range<Double>> resolve(final double[] x, final double[] y);
 
+  /**
+   * Resolves the first values of reused buffers that may be longer than the series.
+   *
+   * @param x         the x values, e.g., retention times or mobilities
+   * @param y         the intensities
+   * @param numValues the number of values of the series in the buffers
+   * @return A list of x ranges.
+   */
+  default @NotNull List<Range<Double>> resolve(final double[] x, final double[] y,
+      final int numValues) {
+    return resolve(x, y);
+  }
+
   /**
    * Resolves a series (EICs) into individual series (features).
    *
@@ -0,0 +1,622 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveResolverParameters.PeakIntegrationMethod;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Java implementation of the centWave algorithm (Tautenhahn et al., BMC Bioinformatics 2008, 9:504)
+ * following xcms findPeaks.centWave for a single EIC. Regions of interest (ROI) are continuous
+ * sections of non-zero intensities. Peaks are ridges of the continuous wavelet transform (Mexican
+ * hat) that pass the signal-to-noise threshold against the local noise around the ROI.
+ * <p>
+ * The detector holds no mutable state and can be shared between threads.
+ */
+public class CentWaveDetector {
+
+  // xcms prefilter default c(3, 100): a ROI needs 3 data points with intensity >= 100
+  private static final int PREFILTER_POINTS = 3;
+  private static final double PREFILTER_INTENSITY = 100d;
+  // MassSpecWavelet defaults for the local maximum and ridge search
+  private static final int MIN_WINDOW_SIZE = 5;
+  private static final int RIDGE_GAP_THRESHOLD = 3;
+  // trimmed fraction on both sides for the chromatographic noise estimate
+  private static final double NOISE_TRIM = 0.05;
+  // the wavelet is evaluated in [-8, 8] * scale, as in MassSpecWavelet
+  private static final double WAVELET_SUPPORT = 8d;
+  private static final double MEXICAN_HAT_NORM = 2d / (Math.sqrt(3d) * Math.pow(Math.PI, 0.25));
+
+  private final Range<Double> peakWidth;
+  private final double snThreshold;
+  private final PeakIntegrationMethod integrationMethod;
+
+  /**
+   * @param peakWidth         range of expected peak widths in the unit of the x values
+   * @param snThreshold       signal to noise threshold
+   * @param integrationMethod defines whether peak boundaries are found on the wavelet coefficients
+   *                          or on the raw data
+   */
+  public CentWaveDetector(@NotNull Range<Double> peakWidth, double snThreshold,
+      @NotNull PeakIntegrationMethod integrationMethod) {
+    this.peakWidth = peakWidth;
+    this.snThreshold = snThreshold;
+    this.integrationMethod = integrationMethod;
+  }
+
+  /**
+   * Detects peaks in a single EIC.
+   *
+   * @param x         strictly increasing x values (retention times)
+   * @param y         intensities, missing data points are represented by 0
+   * @param numValues number of values to use from x and y
+   * @return the detected peaks sorted by their position. Peaks do not overlap, but neighbouring
+   * peaks may share a boundary.
+   */
+  @NotNull
+  public List<Peak> detect(double[] x, double[] y, int numValues) {
+    if (numValues < 2 || x[numValues - 1] <= x[0]) {
+      return List.of();
+    }
+
+    // wavelet scales in number of data points, as in xcms
+    final double meanDiff = (x[numValues - 1] - x[0]) / (numValues - 1);
+    final int minScale = (int) Math.max(1, Math.round(peakWidth.lowerEndpoint() / meanDiff / 2));
+    final int maxScale = (int) Math.max(minScale,
+        Math.round(peakWidth.upperEndpoint() / meanDiff / 2));
+    final int[] scales = new int[(maxScale - minScale) / 2 + 1];
+    for (int i = 0; i < scales.length; i++) {
+      scales[i] = minScale + 2 * i;
+    }
+    final double[][] wavelets = new double[scales.length][];
+    for (int s = 0; s < scales.length; s++) {
+      wavelets[s] = mexicanHat(scales[s]);
+    }
+
+    final Settings settings = new Settings(scales, wavelets, scales[0],
+        3 * scales[scales.length - 1], Math.max(4, scales[0] - 2), scales[0] / 2);
+
+    final List<Peak> peaks = new ArrayList<>();
+    for (int start = 0; start < numValues; start++) {
+      if (y[start] <= 0) {
+        continue;
+      }
+      int end = start;
+      while (end + 1 < numValues && y[end + 1] > 0) {
+        end++;
+      }
+      detectInRoi(y, numValues, start, end, settings, peaks);
+      start = end;
+    }
+
+    return removeOverlapping(peaks);
+  }
+
+  private void detectInRoi(double[] y, int numValues, int roiStart, int roiEnd, Settings settings,
+      List<Peak> peaks) {
+    int prefilterPoints = 0;
+    for (int i = roiStart; i <= roiEnd; i++) {
+      if (y[i] >= PREFILTER_INTENSITY) {
+        prefilterPoints++;
+      }
+    }
+    if (prefilterPoints < PREFILTER_POINTS) {
+      return;
+    }
+
+    // the ROI is extended by the noise range on both sides
+    final int offset = Math.max(0, roiStart - settings.noiseRange());
+    final double[] d = Arrays.copyOfRange(y, offset,
+        Math.min(numValues, roiEnd + settings.noiseRange() + 1));
+    final int roiFrom = roiStart - offset;
+    final int roiTo = roiEnd - offset;
+
+    final double noise = estimateChromNoise(d, 3 * settings.minPeakWidth());
+    if (!hasContinuousPointsAbove(d, roiFrom, roiTo, noise, settings.minPointsAboveBaseline())) {
+      return;
+    }
+
+    final double[] localNoise = estimateLocalNoise(d, numValues, roiFrom, roiTo, noise, settings);
+    final double baseline = Math.max(1, Math.min(localNoise[0], noise));
+    final double sdNoise = Math.max(1, localNoise[1]);
+    final double sdThreshold = sdNoise * snThreshold;
+
+    boolean aboveThreshold = false;
+    for (int i = roiFrom; i <= roiTo && !aboveThreshold; i++) {
+      aboveThreshold = d[i] - baseline >= sdThreshold;
+    }
+    if (!aboveThreshold) {
+      return;
+    }
+
+    final int[] scales = settings.scales();
+    final double[][] coefficients = new double[scales.length][];
+    for (int s = 0; s < scales.length; s++) {
+      coefficients[s] = transform(d, settings.wavelets()[s]);
+    }
+
+    for (final int[] ridge : findRidges(coefficients, scales)) {
+      final Peak peak = evaluateRidge(ridge, d, coefficients, roiFrom, roiTo, baseline, sdNoise,
+          sdThreshold, settings, offset);
+      if (peak != null) {
+        peaks.add(peak);
+      }
+    }
+  }
+
+  /**
+   * Checks a ridge and determines the peak boundaries.
+   *
+   * @param ridge positions of the ridge for each scale, -1 for scales that are not covered.
+   * @return the peak or null if the ridge does not describe a peak in the ROI.
+   */
+  private Peak evaluateRidge(int[] ridge, double[] d, double[][] coefficients, int roiFrom,
+      int roiTo, double baseline, double sdNoise, double sdThreshold, Settings settings,
+      int offset) {
+    boolean coefficientAbove = false;
+    boolean intensityAbove = false;
+    for (int s = 0; s < ridge.length; s++) {
+      final int pos = ridge[s];
+      if (pos < 0) {
+        continue;
+      }
+      coefficientAbove |= coefficients[s][pos] - baseline >= sdThreshold;
+      intensityAbove |= pos >= roiFrom && pos <= roiTo && d[pos] - baseline >= sdThreshold;
+    }
+    if (!coefficientAbove || !intensityAbove) {
+      return null;
+    }
+
+    // the best scale has the highest intensity sum around the ridge position
+    final int[] scales = settings.scales();
+    final int intRange = (int) Math.ceil(scales[0] / 2d);
+    int bestScale = -1;
+    double bestSum = -1;
+    for (int s = 0; s < ridge.length; s++) {
+      final int pos = ridge[s];
+      if (pos < 0) {
+        continue;
+      }
+      double sum = 0;
+      for (int i = Math.max(0, pos - intRange); i <= Math.min(d.length - 1, pos + intRange); i++) {
+        sum += d[i];
+      }
+      if (sum > bestSum || (sum == bestSum
+          && coefficients[s][pos] > coefficients[bestScale][ridge[bestScale]])) {
+        bestSum = sum;
+        bestScale = s;
+      }
+    }
+
+    final int apex = ridge[bestScale];
+    final int scale = scales[bestScale];
+    final int[] bounds;
+    if (integrationMethod == PeakIntegrationMethod.UseSmoothedData) {
+      final int[] descended = descendMin(coefficients[bestScale], apex);
+      bounds = descended[0] == descended[1] || allZero(d, descended[0], descended[1])
+          ? descendMinTol(d, Math.max(0, apex - scale), Math.min(d.length - 1, apex + scale),
+          settings.maxDescOutlier()) : descended;
+    } else {
+      bounds = descendMinTol(d, Math.max(0, apex - scale), Math.min(d.length - 1, apex + scale),
+          settings.maxDescOutlier());
+    }
+
+    // narrow down the boundaries to non-zero data points
+    int left = bounds[0];
+    int right = bounds[1];
+    while (left < right && d[left] <= 0) {
+      left++;
+    }
+    while (right > left && d[right] <= 0) {
+      right--;
+    }
+    if (d[left] <= 0) {
+      return null;
+    }
+
+    double height = 0;
+    double area = 0;
+    int dataPoints = 0;
+    int maxIndex = left;
+    for (int i = left; i <= right; i++) {
+      area += d[i];
+      if (d[i] > 0) {
+        dataPoints++;
+      }
+      if (d[i] > height) {
+        height = d[i];
+        maxIndex = i;
+      }
+    }
+    final double sn = (height - baseline) / sdNoise;
+    return new Peak(left + offset, right + offset, maxIndex + offset, scale, height, area, sn,
+        dataPoints);
+  }
+
+  /**
+   * @return the Mexican hat wavelet sampled at integer positions for the scale, divided by
+   * sqrt(scale) as in MassSpecWavelet. The array is centered at index length / 2.
+   */
+  private static double[] mexicanHat(int scale) {
+    final int half = (int) Math.ceil(WAVELET_SUPPORT * scale);
+    final double[] wavelet = new double[2 * half + 1];
+    final double norm = MEXICAN_HAT_NORM / Math.sqrt(scale);
+    for (int i = -half; i <= half; i++) {
+      final double t = (double) i / scale;
+      wavelet[i + half] = norm * (1 - t * t) * Math.exp(-t * t / 2);
+    }
+    return wavelet;
+  }
+
+  /**
+   * Wavelet transform of the data at a single scale. Values outside the data are mirrored at the
+   * boundaries. Only non-zero data points contribute, EICs are mostly zero.
+   */
+  private static double[] transform(double[] d, double[] wavelet) {
+    final int n = d.length;
+    final double[] coefficients = new double[n];
+    for (int i = 0; i < n; i++) {
+      if (d[i] == 0) {
+        continue;
+      }
+      // the data point and its mirrored positions before the start and after the end
+      addScaled(coefficients, wavelet, d[i], i);
+      addScaled(coefficients, wavelet, d[i], -i - 1);
+      addScaled(coefficients, wavelet, d[i], 2 * n - i - 1);
+    }
+    return coefficients;
+  }
+
+  /**
+   * Adds the contribution of a value at a (virtual) position to all coefficients in reach of the
+   * symmetric wavelet.
+   */
+  private static void addScaled(double[] coefficients, double[] wavelet, double value,
+      int position) {
+    final int half = wavelet.length / 2;
+    final int from = Math.max(0, position - half);
+    final int to = Math.min(coefficients.length - 1, position + half);
+    for (int b = from; b <= to; b++) {
+      coefficients[b] += value * wavelet[position - b + half];
+    }
+  }
+
+  /**
+   * Ridges of local maxima from the largest to the smallest scale, as in MassSpecWavelet
+   * getRidge.
+   *
+   * @return ridges with the position for each scale index, -1 for scales not covered by the ridge
+   */
+  private static List<int[]> findRidges(double[][] coefficients, int[] scales) {
+    final int numScales = scales.length;
+    final List<int[]> ridges = new ArrayList<>();
+    final List<int[]> active = new ArrayList<>();
+    final List<int[]> gaps = new ArrayList<>();
+
+    for (int s = numScales - 1; s >= 0; s--) {
+      final double[] coef = coefficients[s];
+      final boolean[] maxima = localMaxima(coef, windowSize(scales[s]));
+      final int halfWindow = windowSize(scales[s]) / 2;
+
+      for (int r = 0; r < active.size(); r++) {
+        final int[] ridge = active.get(r);
+        final int last = ridge[s + 1];
+        int found = -1;
+        for (int dist = 0; dist <= halfWindow && found < 0; dist++) {
+          if (last - dist >= 0 && maxima[last - dist]) {
+            found = last - dist;
+          }
+          if (last + dist < coef.length && maxima[last + dist] && (found < 0
+              || coef[last + dist] > coef[found])) {
+            found = last + dist;
+          }
+        }
+        if (found >= 0) {
+          ridge[s] = found;
+          gaps.get(r)[0] = 0;
+          maxima[found] = false;
+        } else if (++gaps.get(r)[0] > RIDGE_GAP_THRESHOLD) {
+          // the ridge ends here
+          active.remove(r);
+          gaps.remove(r);
+          r--;
+        } else {
+          ridge[s] = last;
+        }
+      }
+
+      // all maxima not assigned to a ridge start a new ridge
+      for (int i = 0; i < maxima.length; i++) {
+        if (maxima[i]) {
+          final int[] ridge = new int[numScales];
+          Arrays.fill(ridge, -1);
+          ridge[s] = i;
+          ridges.add(ridge);
+          active.add(ridge);
+          gaps.add(new int[1]);
+        }
+      }
+    }
+    return ridges;
+  }
+
+  private static int windowSize(int scale) {
+    return Math.max(MIN_WINDOW_SIZE, 2 * scale + 1);
+  }
+
+  /**
+   * @return true for all positive values that are the maximum within the window around them.
+   */
+  private static boolean[] localMaxima(double[] values, int windowSize) {
+    final int half = windowSize / 2;
+    final boolean[] maxima = new boolean[values.length];
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] <= 0) {
+        continue;
+      }
+      boolean max = true;
+      for (int j = Math.max(0, i - half); j <= Math.min(values.length - 1, i + half) && max; j++) {
+        // ties are resolved to the first position
+        max = values[j] < values[i] || (values[j] == values[i] && j >= i);
+      }
+      maxima[i] = max;
+    }
+    return maxima;
+  }
+
+  /**
+   * Descends from the start position to the next local minimum on both sides.
+   */
+  private static int[] descendMin(double[] values, int start) {
+    int left = start;
+    while (left > 0 && values[left - 1] < values[left]) {
+      left--;
+    }
+    int right = start;
+    while (right < values.length - 1 && values[right + 1] < values[right]) {
+      right++;
+    }
+    return new int[]{left, right};
+  }
+
+  /**
+   * Descends from the start positions to the lowest point on both sides. Up to maxOutliers
+   * consecutive data points above the current minimum are tolerated. The descent stops at zero
+   * intensities.
+   */
+  private static int[] descendMinTol(double[] d, int startLeft, int startRight, int maxOutliers) {
+    int left = startLeft;
+    double min = d[left];
+    int outliers = 0;
+    for (int i = startLeft - 1; i >= 0 && min > 0 && outliers <= maxOutliers; i--) {
+      if (d[i] <= min) {
+        min = d[i];
+        left = i;
+        outliers = 0;
+      } else {
+        outliers++;
+      }
+    }
+
+    int right = startRight;
+    min = d[right];
+    outliers = 0;
+    for (int i = startRight + 1; i < d.length && min > 0 && outliers <= maxOutliers; i++) {
+      if (d[i] <= min) {
+        min = d[i];
+        right = i;
+        outliers = 0;
+      } else {
+        outliers++;
+      }
+    }
+    return new int[]{left, right};
+  }
+
+  private static boolean allZero(double[] d, int from, int to) {
+    for (int i = from; i <= to; i++) {
+      if (d[i] > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Trimmed mean of all non-zero values, as xcms estimateChromNoise.
+   */
+  private static double estimateChromNoise(double[] d, int minPoints) {
+    final double[] nonZero = Arrays.stream(d).filter(v -> v > 0).toArray();
+    if (nonZero.length < minPoints) {
+      return Arrays.stream(d).average().orElse(0);
+    }
+    return trimmedMean(nonZero);
+  }
+
+  private static double trimmedMean(double[] values) {
+    final double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    final int trim = (int) Math.floor(sorted.length * NOISE_TRIM);
+    double sum = 0;
+    for (int i = trim; i < sorted.length - trim; i++) {
+      sum += sorted[i];
+    }
+    return sum / (sorted.length - 2 * trim);
+  }
+
+  /**
+   * Mean and standard deviation of the data points around the ROI that are not part of continuous
+   * sections above the noise level, as xcms getLocalNoiseEstimate.
+   *
+   * @return [baseline, sd]
+   */
+  private static double[] estimateLocalNoise(double[] d, int totalValues, int roiFrom, int roiTo,
+      double noise, Settings settings) {
+    if (d.length >= totalValues) {
+      // the extended ROI covers the whole chromatogram
+      final double[] sorted = d.clone();
+      Arrays.sort(sorted);
+      final double[] trimmed = Arrays.copyOfRange(sorted, (int) Math.floor(sorted.length * 0.05),
+          (int) Math.ceil(sorted.length * 0.95));
+      final double mean = Arrays.stream(trimmed).average().orElse(1);
+      return new double[]{mean, sd(trimmed, mean)};
+    }
+
+    final int minPoints = settings.minPointsAboveBaseline();
+    // all data outside the ROI
+    final double[] outside = new double[d.length - (roiTo - roiFrom + 1)];
+    System.arraycopy(d, 0, outside, 0, roiFrom);
+    System.arraycopy(d, roiTo + 1, outside, roiFrom, d.length - roiTo - 1);
+    final double[] noise1 = withoutContinuousAbove(outside, noise, minPoints);
+
+    // data within the smaller noise range next to the ROI, including the ROI edges
+    final int range = settings.minPeakWidth() * 3;
+    final double[] close = new double[(roiFrom - Math.max(0, roiFrom - range) + 1) + (
+        Math.min(d.length - 1, roiTo + range) - roiTo + 1)];
+    final int leftLength = roiFrom - Math.max(0, roiFrom - range) + 1;
+    System.arraycopy(d, roiFrom - leftLength + 1, close, 0, leftLength);
+    System.arraycopy(d, roiTo, close, leftLength, close.length - leftLength);
+    final double[] noise2 = withoutContinuousAbove(close, noise, minPoints);
+
+    double baseline1 = 1;
+    double sd1 = 1;
+    if (noise1.length > 1) {
+      baseline1 = Arrays.stream(noise1).average().orElse(1);
+      sd1 = sd(noise1, baseline1);
+    }
+    double baseline2 = 1;
+    double sd2 = 1;
+    if (noise2.length > 1) {
+      baseline2 = Arrays.stream(noise2).average().orElse(1);
+      sd2 = sd(noise2, baseline2);
+    }
+    return new double[]{Math.min(baseline1, baseline2), Math.min(sd1, sd2)};
+  }
+
+  private static double sd(double[] values, double mean) {
+    if (values.length < 2) {
+      return 0;
+    }
+    double sum = 0;
+    for (final double v : values) {
+      sum += (v - mean) * (v - mean);
+    }
+    return Math.sqrt(sum / (values.length - 1));
+  }
+
+  /**
+   * @return all values that are not part of at least minPoints consecutive values above the
+   * threshold
+   */
+  private static double[] withoutContinuousAbove(double[] values, double threshold,
+      int minPoints) {
+    final double[] result = new double[values.length];
+    int size = 0;
+    for (int i = 0; i < values.length; i++) {
+      int end = i;
+      while (end < values.length && values[end] > threshold) {
+        end++;
+      }
+      if (end - i >= minPoints) {
+        i = end - 1;
+        continue;
+      }
+      if (end == i) {
+        result[size++] = values[i];
+      } else {
+        System.arraycopy(values, i, result, size, end - i);
+        size += end - i;
+        i = end - 1;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private static boolean hasContinuousPointsAbove(double[] d, int from, int to, double threshold,
+      int minPoints) {
+    int continuous = 0;
+    for (int i = from; i <= to; i++) {
+      continuous = d[i] > threshold ? continuous + 1 : 0;
+      if (continuous >= minPoints) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Keeps the peak with the higher area if peaks overlap, as xcms does for peaks with the same
+   * m/z.
+   */
+  private static List<Peak> removeOverlapping(List<Peak> peaks) {
+    if (peaks.size() < 2) {
+      return peaks;
+    }
+    final List<Peak> byArea = new ArrayList<>(peaks);
+    byArea.sort(Comparator.comparingDouble(Peak::area).reversed());
+    final List<Peak> unique = new ArrayList<>();
+    for (final Peak peak : byArea) {
+      boolean overlaps = false;
+      for (int i = 0; i < unique.size() && !overlaps; i++) {
+        final Peak other = unique.get(i);
+        overlaps = Math.min(peak.right(), other.right()) > Math.max(peak.left(), other.left());
+      }
+      if (!overlaps) {
+        unique.add(peak);
+      }
+    }
+    unique.sort(Comparator.comparingInt(Peak::left));
+    return unique;
+  }
+
+  /**
+   * A detected peak. Indices refer to the data passed to {@link #detect(double[], double[], int)}.
+   *
+   * @param left       first data point
+   * @param right      last data point (inclusive)
+   * @param apex       data point with the highest intensity
+   * @param scale      wavelet scale that describes the peak best, in data points
+   * @param height     maximum intensity
+   * @param area       sum of intensities
+   * @param sn         signal to noise ratio of the height
+   * @param dataPoints number of non-zero data points
+   */
+  public record Peak(int left, int right, int apex, int scale, double height, double area,
+                     double sn, int dataPoints) {
+
+  }
+
+  private record Settings(int[] scales, double[][] wavelets, int minPeakWidth, int noiseRange,
+                          int minPointsAboveBaseline, int maxDescOutlier) {
+
+  }
+}
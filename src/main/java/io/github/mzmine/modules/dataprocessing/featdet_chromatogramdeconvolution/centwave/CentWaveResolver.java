@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2004-2022 The MZmine Development Team
+ * Copyright (c) 2004-2024 The MZmine Development Team
  *
  * Permission is hereby granted, free of charge, to any person
  * obtaining a copy of this software and associated documentation
@@ -26,250 +26,59 @@
 package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave;
 
 import static io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveResolverParameters.INTEGRATION_METHOD;
+import static io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveResolverParameters.MIN_NUMBER_OF_DATAPOINTS;
 import static io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveResolverParameters.PEAK_DURATION;
 import static io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveResolverParameters.PEAK_SCALES;
 import static io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveResolverParameters.SN_THRESHOLD;
 
 import com.google.common.collect.Range;
-import io.github.mzmine.datamodel.DataPoint;
-import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.modules.MZmineProcessingModule;
-import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.FeatureResolver;
-import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.ResolvedPeak;
-import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveResolverParameters.PeakIntegrationMethod;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.AbstractResolver;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveDetector.Peak;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.REngineType;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
-import io.github.mzmine.util.maths.CenterFunction;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 
 /**
- * Use XCMS findPeaks.centWave to identify peaks.
+ * Resolves EICs with the centWave algorithm, see {@link CentWaveDetector}. Replaces the previous
+ * implementation that called xcms findPeaks.centWave in R for every EIC.
  */
-public class CentWaveResolver implements FeatureResolver {
-
-  // Logger.
-  private static final Logger logger = Logger.getLogger(CentWaveResolver.class.getName());
-
-  // Name.
-  private static final String NAME = "Wavelets (XCMS)";
-
-  // Minutes <-> seconds.
-  private static final double SECONDS_PER_MINUTE = 60.0;
-
-  // Required minimum version of XCMS.
-  private static final String XCMS_VERSION = "1.33.2";
-
-  @NotNull
-  @Override
-  public String getName() {
-
-    return NAME;
+public class CentWaveResolver extends AbstractResolver {
+
+  private final CentWaveDetector detector;
+  private final Range<Double> peakDuration;
+  private final int minDataPoints;
+
+  public CentWaveResolver(@NotNull ParameterSet parameters, @NotNull ModularFeatureList flist) {
+    super(parameters, flist);
+    detector = new CentWaveDetector(parameters.getValue(PEAK_SCALES),
+        parameters.getValue(SN_THRESHOLD), parameters.getValue(INTEGRATION_METHOD));
+    peakDuration = parameters.getValue(PEAK_DURATION);
+    minDataPoints = parameters.getValue(MIN_NUMBER_OF_DATAPOINTS);
   }
 
-  @NotNull
   @Override
-  public Class<? extends ParameterSet> getParameterSetClass() {
-
-    return CentWaveResolverParameters.class;
-  }
-
-  @Override
-  public Class<? extends MZmineProcessingModule> getModuleClass() {
+  public @NotNull Class<? extends MZmineProcessingModule> getModuleClass() {
     return CentWaveResolverModule.class;
   }
 
   @Override
-  public boolean getRequiresR() {
-    return true;
-  }
-
-  @Override
-  public String[] getRequiredRPackages() {
-    return new String[] {"xcms"};
-  }
-
-  @Override
-  public String[] getRequiredRPackagesVersions() {
-    return new String[] {XCMS_VERSION};
+  public @NotNull List<Range<Double>> resolve(double[] x, double[] y) {
+    return resolve(x, y, Math.min(x.length, y.length));
   }
 
   @Override
-  public REngineType getREngineType(final ParameterSet parameters) {
-    return parameters.getParameter(CentWaveResolverParameters.RENGINE_TYPE).getValue();
-  }
-
-  @Override
-  public ResolvedPeak[] resolvePeaks(final Feature chromatogram, final ParameterSet parameters,
-      RSessionWrapper rSession, CenterFunction mzCenterFunction, double msmsRange,
-      float rTRangeMSMS) throws RSessionWrapperException {
-
-    List<Scan> scanNumbers = chromatogram.getScanNumbers();
-    final int scanCount = scanNumbers.size();
-    double retentionTimes[] = new double[scanCount];
-    double intensities[] = new double[scanCount];
-    RawDataFile dataFile = chromatogram.getRawDataFile();
-    for (int i = 0; i < scanCount; i++) {
-      final Scan scanNum = scanNumbers.get(i);
-      retentionTimes[i] = scanNum.getRetentionTime();
-      DataPoint dp = chromatogram.getDataPointAtIndex(i);
-      if (dp != null)
-        intensities[i] = dp.getIntensity();
-      else
-        intensities[i] = 0.0;
-    }
-
-    // Call findPeaks.centWave.
-    double[][] peakMatrix = null;
-
-    peakMatrix = centWave(rSession, retentionTimes, intensities, chromatogram.getMZ(),
-        parameters.getParameter(SN_THRESHOLD).getValue(),
-        parameters.getParameter(PEAK_SCALES).getValue(),
-        parameters.getParameter(INTEGRATION_METHOD).getValue());
-
-    final List<ResolvedPeak> resolvedPeaks;
-    if (peakMatrix == null) {
-
-      resolvedPeaks = new ArrayList<ResolvedPeak>(0);
-
-    } else {
-
-      logger.finest("Processing peak matrix...");
-
-      final Range<Double> peakDuration = parameters.getParameter(PEAK_DURATION).getValue();
-
-      // Process peak matrix.
-      resolvedPeaks = new ArrayList<ResolvedPeak>(peakMatrix.length);
-
-      for (final double[] peakRow : peakMatrix) {
-
-        // Get peak start and end.
-        final int peakLeft = findRTIndex(retentionTimes, peakRow[4]);
-        final int peakRight = findRTIndex(retentionTimes, peakRow[5]);
-
-        // Partition into sections bounded by null data points, creating
-        // a peak for each.
-        for (int start = peakLeft; start < peakRight; start++) {
-
-          if (chromatogram.getDataPointAtIndex(start) != null) {
-
-            int end = start;
-
-            while (end < peakRight && chromatogram.getDataPointAtIndex(end + 1) != null) {
-
-              end++;
-            }
-
-            if ((end > start)
-                && (peakDuration.contains(retentionTimes[end] - retentionTimes[start]))) {
-
-              resolvedPeaks.add(new ResolvedPeak(chromatogram, start, end, mzCenterFunction,
-                  msmsRange, rTRangeMSMS));
-            }
-
-            start = end;
-          }
-        }
+  public @NotNull List<Range<Double>> resolve(double[] x, double[] y, int numValues) {
+    final List<Range<Double>> resolved = new ArrayList<>();
+    for (final Peak peak : detector.detect(x, y, numValues)) {
+      final double start = x[peak.left()];
+      final double end = x[peak.right()];
+      if (peak.dataPoints() >= minDataPoints && peakDuration.contains(end - start)) {
+        resolved.add(Range.closed(start, end));
       }
     }
-
-    return resolvedPeaks.toArray(new ResolvedPeak[resolvedPeaks.size()]);
+    return resolved;
   }
-
-  private static int findRTIndex(final double[] rtMinutes, final double rtSec) {
-
-    final int i = Arrays.binarySearch(rtMinutes, rtSec / SECONDS_PER_MINUTE);
-    return i >= 0 ? i : -i - 2;
-  }
-
-  /**
-   * Do peak picking using xcms::findPeaks.centWave.
-   * 
-   * @param scanTime retention times (for each scan).
-   * @param intensity intensity values (for each scan).
-   * @param mz fixed m/z value for EIC.
-   * @param snrThreshold signal:noise ratio threshold.
-   * @param peakWidth peak width range.
-   * @param integrationMethod integration method.
-   * @return a matrix with a row for each detected peak.
-   * @throws RSessionWrapperException
-   */
-  private static double[][] centWave(RSessionWrapper rSession, final double[] scanTime,
-      final double[] intensity, final double mz, final double snrThreshold,
-      final Range<Double> peakWidth, final PeakIntegrationMethod integrationMethod)
-      throws RSessionWrapperException {
-
-    logger.finest("Detecting peaks.");
-
-    final double[][] peaks;
-
-    // Set vectors.
-    rSession.assign("scantime", scanTime);
-    rSession.assign("intensity", intensity);
-
-    // Initialize.
-    rSession.eval("mz <- " + mz);
-    rSession.eval("numPoints <- length(intensity)");
-
-    // Construct xcmsRaw object
-    rSession.eval("xRaw <- new(\"xcmsRaw\")");
-    rSession.eval("xRaw@tic <- intensity");
-    rSession.eval("xRaw@scantime <- scantime * " + SECONDS_PER_MINUTE);
-    rSession.eval("xRaw@scanindex <- 0:(numPoints-1)");
-    rSession.eval("xRaw@env$mz <- rep(mz, numPoints)");
-    rSession.eval("xRaw@env$intensity <- intensity");
-
-    // Construct ROIs.
-    rSession.eval("ROIs <- list()");
-    int roi = 1;
-    for (int start = 0; start < intensity.length; start++) {
-
-      // Found non-zero section.
-      if (intensity[start] > 0.0) {
-
-        // Look for end.
-        int end = start + 1;
-        while (end < intensity.length && intensity[end] > 0.0) {
-
-          end++;
-        }
-
-        // Add ROI to list.
-        rSession.eval("ROIs[[" + roi + "]] <- list('scmin'=" + (start + 1) + ", 'scmax'=" + end
-            + ", 'mzmin'=mz, 'mzmax'=mz)");
-
-        // Next ROI.
-        start = end;
-        roi++;
-
-      }
-    }
-
-    // Do peak picking.
-    rSession.eval("mtx <- findPeaks.centWave(xRaw, ppm=0, mzdiff=0, verbose=TRUE" + ", peakwidth=c("
-        + peakWidth.lowerEndpoint() * SECONDS_PER_MINUTE + ", "
-        + peakWidth.upperEndpoint() * SECONDS_PER_MINUTE + ')' + ", snthresh=" + snrThreshold
-        + ", integrate=" + integrationMethod.getIndex() + ", ROI.list=ROIs)");
-
-    // Get rid of 'NA' values potentially found in the resulting matrix
-    rSession.eval("mtx[is.na(mtx)] <- " + RSessionWrapper.NA_DOUBLE); // +
-                                                                      // "0");//
-
-    final Object centWave = roi <= 1 ? null : (double[][]) rSession.collect("mtx", false);
-
-    // Done: Refresh R code stack
-    rSession.clearCode();
-
-    peaks = (centWave == null) ? null : (double[][]) centWave;
-
-    return peaks;
-  }
-
 }
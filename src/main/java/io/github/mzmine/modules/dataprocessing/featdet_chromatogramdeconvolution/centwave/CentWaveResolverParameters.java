@@ -26,16 +26,20 @@
 package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave;
 
 import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.FeatureResolver;
 import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.FeatureResolverSetupDialog;
 import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.GeneralResolverParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.Resolver;
 import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.DoubleParameter;
 import io.github.mzmine.parameters.parametertypes.ranges.DoubleRangeParameter;
 import io.github.mzmine.util.ExitCode;
 import java.text.NumberFormat;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Parameters used by CentWaveDetector.
@@ -56,7 +60,7 @@ public class CentWaveResolverParameters extends GeneralResolverParameters {
      * Create the method.
      *
      * @param aName   name
-     * @param anIndex index (as used by findPeaks.centWave)
+     * @param anIndex index (as used by xcms findPeaks.centWave)
      */
     PeakIntegrationMethod(final String aName, final int anIndex) {
 
@@ -81,7 +85,8 @@ public class CentWaveResolverParameters extends GeneralResolverParameters {
           MZmineCore.getConfiguration().getRTFormat(), Range.closed(0.0, 10.0));
 
   public static final DoubleRangeParameter PEAK_SCALES = new DoubleRangeParameter("Wavelet scales",
-      "Range wavelet widths (smallest, largest) in minutes",
+      "Range of wavelet widths (smallest, largest) in the resolved dimension: minutes for "
+          + "retention time, the mobility unit of the data file (e.g., ms or Vs/cm²) for mobility",
       MZmineCore.getConfiguration().getRTFormat(), Range.closed(0.25, 5.0));
 
   public static final DoubleParameter SN_THRESHOLD = new DoubleParameter("S/N threshold",
@@ -94,8 +99,8 @@ public class CentWaveResolverParameters extends GeneralResolverParameters {
 
   public CentWaveResolverParameters() {
 
-    super(new Parameter[]{PEAK_LISTS, SUFFIX, handleOriginal, groupMS2Parameters, SN_THRESHOLD,
-        PEAK_SCALES, PEAK_DURATION, INTEGRATION_METHOD, RENGINE_TYPE, MIN_NUMBER_OF_DATAPOINTS},
+    super(new Parameter[]{PEAK_LISTS, SUFFIX, handleOriginal, groupMS2Parameters, dimension,
+        SN_THRESHOLD, PEAK_SCALES, PEAK_DURATION, INTEGRATION_METHOD, MIN_NUMBER_OF_DATAPOINTS},
         "https://mzmine.github.io/mzmine_documentation/module_docs/featdet_resolver_centwave/centwave-resolver.html");
   }
 
@@ -110,6 +115,18 @@ public class CentWaveResolverParameters extends GeneralResolverParameters {
 
   @Override
   public FeatureResolver getResolver() {
-    return new CentWaveResolver();
+    throw new UnsupportedOperationException(
+        "Legacy resolving is not supported by CentWaveResolver.");
+  }
+
+  @Override
+  public @Nullable Resolver getResolver(ParameterSet parameterSet, ModularFeatureList flist) {
+    return new CentWaveResolver(parameterSet, flist);
+  }
+
+  @Override
+  public int getVersion() {
+    // R engine was removed and the resolving dimension was added
+    return 3;
   }
 }
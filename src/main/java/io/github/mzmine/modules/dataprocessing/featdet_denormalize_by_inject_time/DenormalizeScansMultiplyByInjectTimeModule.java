@@ -66,6 +66,10 @@ public class DenormalizeScansMultiplyByInjectTimeModule implements MZmineProcess
         .getMatchingRawDataFiles();
     final MemoryMapStorage storage = MemoryMapStorage.forMassList();
     for (RawDataFile dataFile : dataFiles) {
+      // the budget of the mass lists is released once all files were closed
+      if (storage != null) {
+        storage.addOwner(dataFile);
+      }
       Task newTask = new DenormalizeScansMultiplyByInjectTimeTask(project, dataFile, parameters,
           storage, moduleCallDate);
       tasks.add(newTask);
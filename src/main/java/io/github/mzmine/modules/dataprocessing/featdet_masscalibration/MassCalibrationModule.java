@@ -65,6 +65,10 @@ public class MassCalibrationModule implements MZmineProcessingModule {
     RawDataFile[] dataFiles = parameters.getParameter(MassCalibrationParameters.dataFiles)
         .getValue().getMatchingRawDataFiles();
     for (RawDataFile dataFile : dataFiles) {
+      // the budget of the mass lists is released once all files were closed
+      if (storageMemoryMap != null) {
+        storageMemoryMap.addOwner(dataFile);
+      }
       Task newTask = new MassCalibrationTask(dataFile, parameters, storageMemoryMap, moduleCallDate);
       tasks.add(newTask);
     }
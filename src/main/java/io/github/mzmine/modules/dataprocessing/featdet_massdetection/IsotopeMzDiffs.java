@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
+
+import io.github.mzmine.util.IsotopesUtils;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openscience.cdk.Element;
+
+/**
+ * Possible m/z differences between isotopes of the given elements and charges. Immutable, so
+ * detectors can cache the last instance and share it between threads that detect masses in
+ * parallel.
+ *
+ * @param elements  chemical elements of the isotopes
+ * @param maxCharge maximum charge of the isotope m/z
+ * @param mzDiffs   possible m/z differences between isotopes
+ * @param maxMzDiff maximum of mzDiffs, used to skip isotope checks early
+ */
+public record IsotopeMzDiffs(@NotNull List<Element> elements, int maxCharge,
+                             @NotNull List<Double> mzDiffs, double maxMzDiff) {
+
+  /**
+   * @param last the last calculated m/z differences or null
+   * @return last if it was calculated for the same elements and charge, otherwise new m/z
+   * differences
+   */
+  @NotNull
+  public static IsotopeMzDiffs reuseOrCreate(@Nullable IsotopeMzDiffs last,
+      @NotNull List<Element> elements, int maxCharge) {
+    if (last != null && last.maxCharge == maxCharge && Objects.equals(last.elements, elements)) {
+      return last;
+    }
+    final List<Double> mzDiffs = IsotopesUtils.getIsotopesMzDiffs(elements, maxCharge);
+    return new IsotopeMzDiffs(elements, maxCharge, mzDiffs, Collections.max(mzDiffs));
+  }
+}
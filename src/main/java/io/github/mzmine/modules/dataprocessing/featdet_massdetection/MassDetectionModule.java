@@ -66,6 +66,10 @@ public class MassDetectionModule implements MZmineProcessingModule {
     final MemoryMapStorage storageMemoryMap = MemoryMapStorage.forMassList();
 
     for (RawDataFile dataFile : dataFiles) {
+      // the budget of the mass lists is released once all files were closed
+      if (storageMemoryMap != null) {
+        storageMemoryMap.addOwner(dataFile);
+      }
       Task newTask = new MassDetectionTask(dataFile, parameters, storageMemoryMap, moduleCallDate);
       tasks.add(newTask);
     }
@@ -25,11 +25,12 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
 
+import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.ScanDataAccess;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.MobilityScanStorage;
 import io.github.mzmine.datamodel.impl.SimpleFrame;
 import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
 import io.github.mzmine.modules.MZmineProcessingStep;
@@ -40,9 +41,11 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.time.Instant;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class MassDetectionTask extends AbstractTask {
 
@@ -92,50 +95,25 @@ public class MassDetectionTask extends AbstractTask {
 
       logger.info("Started mass detector on " + dataFile);
 
-      // uses only a single array for each (mz and intensity) to loop over all scans
-      ScanDataAccess data = EfficientDataAccess.of(dataFile, EfficientDataAccess.ScanDataType.RAW,
-          scanSelection);
-      totalScans = data.getNumberOfScans();
-
-      MassDetector detector = massDetector.getModule();
-      ParameterSet parameterSet = massDetector.getParameterSet();
-
-      // all scans
-      while (data.hasNextScan()) {
-        if (isCanceled()) {
-          return;
-        }
-
-        Scan scan = data.nextScan();
-        assert scan != null;
-
-        double[][] mzPeaks;
-        if (scanTypes.applyTo(scan)) {
-          // run mass detection on data object
-          // [mzs, intensities]
-          mzPeaks = detector.getMassValues(data, parameterSet);
-
-          // denormalize scan intensities if injection time of trapped instrument was used.
-          // this is only done for MS2 because absolute intensities do not matter there
-          // MS1 needs to be normalized by injection time, which is already done during data acquisition
-          if (denormalizeMSnScans && scan.getMSLevel() > 1) {
-            ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1],
-                scan.getInjectionTime());
-          }
-
-          // add mass list to scans and frames
-          scan.addMassList(new SimpleMassList(getMemoryMapStorage(), mzPeaks[0], mzPeaks[1]));
-        }
-
-        if (scan instanceof SimpleFrame frame && (scanTypes == SelectedScanTypes.MOBLITY_SCANS
-            || scanTypes == SelectedScanTypes.SCANS)) {
-          // for ion mobility, detect subscans, too
-          frame.getMobilityScanStorage()
-              .generateAndAddMobilityScanMassLists(getMemoryMapStorage(), detector, parameterSet,
-                  denormalizeMSnScans);
-        }
-
-        processedScans++;
+      final List<Scan> scans = List.of(scanSelection.getMatchingScans(dataFile));
+      totalScans = scans.size();
+
+      final MassDetector detector = massDetector.getModule();
+      final ParameterSet parameterSet = massDetector.getParameterSet();
+      final boolean detectMobilityScans = dataFile instanceof IMSRawDataFile && (
+          scanTypes == SelectedScanTypes.MOBLITY_SCANS || scanTypes == SelectedScanTypes.SCANS);
+      final boolean rawDataAsMobilityScanMassLists =
+          detectMobilityScans && MobilityScanStorage.canUseRawDataAsMassLists(detector,
+              parameterSet);
+      final int blockSize = detectMobilityScans ? ParallelMassDetection.FRAMES_PER_BLOCK
+          : ParallelMassDetection.SCANS_PER_BLOCK;
+
+      // detect blocks of scans in parallel and add the mass lists in scan order
+      final boolean finished = ParallelMassDetection.detectInOrder(dataFile, scans, blockSize,
+          (scan, data) -> detectMasses(scan, data, detector, parameterSet, detectMobilityScans,
+              rawDataAsMobilityScanMassLists), this::addMassLists, this::isCanceled);
+      if (!finished) {
+        return;
       }
 
       dataFile.getAppliedMethods().add(
@@ -152,4 +130,72 @@ public class MassDetectionTask extends AbstractTask {
 
     logger.info("Finished mass detector on " + dataFile);
   }
+
+  /**
+   * Detects the masses of a scan and the mobility scans of a frame. Called by worker threads, only
+   * reads the scan data.
+   *
+   * @param data data access positioned on the scan
+   */
+  private DetectedMasses detectMasses(Scan scan, ScanDataAccess data, MassDetector detector,
+      ParameterSet parameterSet, boolean detectMobilityScans,
+      boolean rawDataAsMobilityScanMassLists) {
+    double[][] mzPeaks = null;
+    if (scanTypes.applyTo(scan)) {
+      // run mass detection on data object
+      // [mzs, intensities]
+      mzPeaks = detector.getMassValues(data, parameterSet);
+
+      // denormalize scan intensities if injection time of trapped instrument was used.
+      // this is only done for MS2 because absolute intensities do not matter there
+      // MS1 needs to be normalized by injection time, which is already done during data acquisition
+      if (denormalizeMSnScans && scan.getMSLevel() > 1) {
+        ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1], scan.getInjectionTime());
+      }
+    }
+
+    List<double[][]> mobilityScanMzPeaks = null;
+    if (detectMobilityScans && !rawDataAsMobilityScanMassLists
+        && scan instanceof SimpleFrame frame) {
+      // for ion mobility, detect subscans, too
+      mobilityScanMzPeaks = frame.getMobilityScanStorage()
+          .detectMobilityScanMasses(detector, parameterSet, denormalizeMSnScans);
+    }
+    return new DetectedMasses(mzPeaks, mobilityScanMzPeaks, rawDataAsMobilityScanMassLists);
+  }
+
+  /**
+   * Adds the detected mass lists to the scan. Called in scan order to keep the storage layout
+   * deterministic.
+   */
+  private void addMassLists(Scan scan, DetectedMasses masses) {
+    if (masses.mzPeaks() != null) {
+      // add mass list to scans and frames
+      scan.addMassList(
+          new SimpleMassList(getMemoryMapStorage(), masses.mzPeaks()[0], masses.mzPeaks()[1]));
+    }
+
+    if (scan instanceof SimpleFrame frame) {
+      if (masses.rawDataAsMobilityScanMassLists()) {
+        frame.getMobilityScanStorage().useRawDataAsMassLists();
+      } else if (masses.mobilityScanMzPeaks() != null) {
+        frame.getMobilityScanStorage()
+            .setMassLists(getMemoryMapStorage(), masses.mobilityScanMzPeaks());
+      }
+    }
+    processedScans++;
+  }
+
+  /**
+   * @param mzPeaks                        [mzs, intensities] of the scan or null if the scan was
+   *                                       not selected
+   * @param mobilityScanMzPeaks            [mzs, intensities] of all mobility scans of a frame or
+   *                                       null
+   * @param rawDataAsMobilityScanMassLists use the raw data of mobility scans as mass lists
+   */
+  private record DetectedMasses(@Nullable double[][] mzPeaks,
+                                @Nullable List<double[][]> mobilityScanMzPeaks,
+                                boolean rawDataAsMobilityScanMassLists) {
+
+  }
 }
@@ -28,6 +28,8 @@ package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
 import io.github.mzmine.datamodel.MassSpectrum;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.util.maths.kernels.Kernels;
+import java.util.Arrays;
 
 /**
  *
@@ -46,4 +48,20 @@ public interface MassDetector extends MZmineModule {
   default double[][] getMassValues(double[] mzs, double[] intensities, ParameterSet parameters) {
     throw new UnsupportedOperationException("Method not implemented. Please implement me.");
   }
+
+  /**
+   * Keeps all data points with intensity >= noiseLevel
+   *
+   * @param length number of data points to filter
+   * @return [mzs, intensities][data]
+   */
+  static double[][] filterAtLeast(double[] mzs, double[] intensities, int length,
+      double noiseLevel) {
+    final double[] pickedMZs = new double[length];
+    final double[] pickedIntensities = new double[length];
+    final int picked = Kernels.get()
+        .compactAtLeast(intensities, mzs, length, noiseLevel, pickedIntensities, pickedMZs);
+    return new double[][]{Arrays.copyOf(pickedMZs, picked),
+        Arrays.copyOf(pickedIntensities, picked)};
+  }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
+import io.github.mzmine.datamodel.data_access.ScanDataAccess;
+import io.github.mzmine.util.OrderedBlockProcessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs the mass detection of a single raw data file in parallel. The scans are split into blocks
+ * of consecutive scans, each block is detected by a worker thread with its own
+ * {@link ScanDataAccess} buffers. The results are committed by the calling thread in scan order,
+ * so mass lists are written to the {@link io.github.mzmine.util.MemoryMapStorage} in the same
+ * order as in a sequential detection. Only a limited number of blocks is detected ahead of the
+ * commits to limit the memory of pending results.
+ */
+public class ParallelMassDetection {
+
+  /**
+   * Blocks of scans are small enough to balance the load and large enough to keep the overhead of
+   * a data access per block low.
+   */
+  public static final int SCANS_PER_BLOCK = 64;
+  /**
+   * Frames carry hundreds of mobility scans, detect them in small blocks.
+   */
+  public static final int FRAMES_PER_BLOCK = 2;
+
+  private ParallelMassDetection() {
+  }
+
+  /**
+   * Detects masses in blocks of scans in parallel and commits the results in scan order.
+   *
+   * @param dataFile   the data file of all scans
+   * @param scans      the scans to process in their commit order
+   * @param blockSize  number of consecutive scans detected by one worker
+   * @param detector   detects the masses of a scan, called by worker threads. The
+   *                   {@link ScanDataAccess} is positioned on the scan and holds its raw data. The
+   *                   detector must not write to the scan or the storage.
+   * @param committer  commits a result, called by the calling thread in scan order. Result may be
+   *                   null if the detector returned null
+   * @param isCanceled checked by workers and the calling thread
+   * @param <T>        the detection result
+   * @return true if all scans were processed, false if canceled
+   */
+  public static <T> boolean detectInOrder(@NotNull RawDataFile dataFile,
+      @NotNull List<? extends Scan> scans, int blockSize,
+      @NotNull BiFunction<Scan, ScanDataAccess, T> detector,
+      @NotNull BiConsumer<Scan, T> committer, @NotNull BooleanSupplier isCanceled) {
+    return OrderedBlockProcessor.processInOrder(scans, blockSize,
+        (from, block) -> detectBlock(dataFile, block, detector, isCanceled),
+        (from, block, results) -> {
+          for (int i = 0; i < results.size(); i++) {
+            committer.accept(block.get(i), results.get(i));
+          }
+        }, isCanceled);
+  }
+
+  private static <T> List<T> detectBlock(@NotNull RawDataFile dataFile,
+      @NotNull List<? extends Scan> block,
+      @NotNull BiFunction<Scan, ScanDataAccess, T> detector,
+      @NotNull BooleanSupplier isCanceled) {
+    // uses only a single array for each (mz and intensity) to loop over all scans of this block
+    final ScanDataAccess data = EfficientDataAccess.of(dataFile, ScanDataType.RAW, block);
+    final List<T> results = new ArrayList<>(block.size());
+    while (data.hasNextScan()) {
+      if (isCanceled.getAsBoolean()) {
+        break;
+      }
+      final Scan scan = data.nextScan();
+      results.add(detector.apply(scan, data));
+    }
+    return results;
+  }
+}
@@ -42,9 +42,6 @@ public class AutoMassDetector implements MassDetector {
   private final CentroidMassDetector centroidDetector = new CentroidMassDetector();
   private final ExactMassDetector exactMassDetector = new ExactMassDetector();
 
-  private ExactMassDetectorParameters exactMassDetectorParameters;
-  private CentroidMassDetectorParameters centroidMassDetectorParameters;
-
   @Override
   public @NotNull String getName() {
     return "Auto";
@@ -70,7 +67,8 @@ public class AutoMassDetector implements MassDetector {
   }
 
   private ParameterSet getExactParam(ParameterSet autoParam) {
-    exactMassDetectorParameters = (ExactMassDetectorParameters) (new ExactMassDetectorParameters())
+    // local parameters, the detector may be called from multiple threads
+    final ExactMassDetectorParameters exactMassDetectorParameters = (ExactMassDetectorParameters) (new ExactMassDetectorParameters())
         .cloneParameterSet();
     exactMassDetectorParameters.getParameter(ExactMassDetectorParameters.noiseLevel)
         .setValue(autoParam.getParameter(AutoMassDetectorParameters.noiseLevel).getValue());
@@ -95,7 +93,9 @@ public class AutoMassDetector implements MassDetector {
   }
 
   private ParameterSet getCentroidParam(ParameterSet autoParam) {
-    centroidMassDetectorParameters = new CentroidMassDetectorParameters();
+    // local parameters, the detector may be called from multiple threads
+    final CentroidMassDetectorParameters centroidMassDetectorParameters =
+        new CentroidMassDetectorParameters();
     centroidMassDetectorParameters.getParameter(CentroidMassDetectorParameters.noiseLevel)
         .setValue(autoParam.getParameter(AutoMassDetectorParameters.noiseLevel).getValue());
     centroidMassDetectorParameters
@@ -28,14 +28,13 @@ package io.github.mzmine.modules.dataprocessing.featdet_massdetection.centroid;
 import com.google.common.primitives.Doubles;
 import io.github.mzmine.datamodel.MassSpectrum;
 import io.github.mzmine.modules.dataprocessing.featdet_massdetection.DetectIsotopesParameter;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.IsotopeMzDiffs;
 import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetector;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.IsotopesUtils;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.Element;
 
@@ -44,13 +43,9 @@ import org.openscience.cdk.Element;
  */
 public class CentroidMassDetector implements MassDetector {
 
-  // Variables for the detection of isotopes below the noise level
-  private List<Element> isotopeElements;
-  private int isotopeMaxCharge;
-  // Possible m/z differences between isotopes
-  private List<Double> isotopesMzDiffs;
-  // Used to optimize getMassValues
-  private double maxIsotopeMzDiff;
+  // Possible m/z differences between isotopes of the last call, immutable to allow parallel
+  // mass detection with the same detector instance
+  private volatile IsotopeMzDiffs lastIsotopeMzDiffs;
 
   @Override
   public double[][] getMassValues(MassSpectrum spectrum, ParameterSet parameters) {
@@ -63,6 +58,8 @@ public class CentroidMassDetector implements MassDetector {
 
     // If isotopes are going to be detected get all the required parameters
     MZTolerance isotopesMzTolerance = null;
+    List<Double> isotopesMzDiffs = null;
+    double maxIsotopeMzDiff = 0d;
     if (detectIsotopes) {
       ParameterSet isotopesParameters = parameters.getParameter(
           CentroidMassDetectorParameters.detectIsotopes).getEmbeddedParameters();
@@ -74,17 +71,11 @@ public class CentroidMassDetector implements MassDetector {
           DetectIsotopesParameter.isotopeMzTolerance).getValue();
 
       // Update isotopesMzDiffs only if isotopeElements and isotopeMaxCharge differ from the last call
-      if (!Objects.equals(this.isotopeElements, isotopeElements) || !Objects.equals(
-          this.isotopeMaxCharge, isotopeMaxCharge)) {
-
-        // Update isotopesMzDiffs
-        this.isotopesMzDiffs = IsotopesUtils.getIsotopesMzDiffs(isotopeElements, isotopeMaxCharge);
-        this.maxIsotopeMzDiff = Collections.max(isotopesMzDiffs);
-
-        // Store last called parameters
-        this.isotopeElements = isotopeElements;
-        this.isotopeMaxCharge = isotopeMaxCharge;
-      }
+      final IsotopeMzDiffs mzDiffs = IsotopeMzDiffs.reuseOrCreate(lastIsotopeMzDiffs,
+          isotopeElements, isotopeMaxCharge);
+      lastIsotopeMzDiffs = mzDiffs;
+      isotopesMzDiffs = mzDiffs.mzDiffs();
+      maxIsotopeMzDiff = mzDiffs.maxMzDiff();
     }
     // use number of centroid signals as base array list capacity
     final int points = spectrum.getNumberOfDataPoints();
@@ -123,22 +114,7 @@ public class CentroidMassDetector implements MassDetector {
   public double[][] getMassValues(double[] mzs, double[] intensities, double noiseLevel) {
     assert mzs.length == intensities.length;
 
-    // use number of centroid signals as base array list capacity
-    final int points = mzs.length;
-    // lists of primitive doubles
-    DoubleArrayList pickedMZs = new DoubleArrayList(points);
-    DoubleArrayList pickedIntensities = new DoubleArrayList(points);
-
-    // Find possible mzPeaks
-    for (int i = 0; i < points; i++) {
-      // Is intensity above the noise level?
-      if (intensities[i] >= noiseLevel) {
-        // Yes, then mark this index as mzPeak
-        pickedMZs.add(mzs[i]);
-        pickedIntensities.add(intensities[i]);
-      }
-    }
-    return new double[][]{pickedMZs.toDoubleArray(), pickedIntensities.toDoubleArray()};
+    return MassDetector.filterAtLeast(mzs, intensities, mzs.length, noiseLevel);
   }
 
   @Override
@@ -28,27 +28,22 @@ package io.github.mzmine.modules.dataprocessing.featdet_massdetection.exactmass;
 import com.google.common.primitives.Doubles;
 import io.github.mzmine.datamodel.MassSpectrum;
 import io.github.mzmine.modules.dataprocessing.featdet_massdetection.DetectIsotopesParameter;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.IsotopeMzDiffs;
 import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetector;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.IsotopesUtils;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.Element;
 
 public class ExactMassDetector implements MassDetector {
 
-  // Variables for the detection of isotopes below the noise level
-  private List<Element> isotopeElements;
-  private int isotopeMaxCharge;
-  // Possible m/z differences between isotopes
-  private List<Double> isotopesMzDiffs;
-  // Used to optimize getMassValues
-  private double maxIsotopeMzDiff;
+  // Possible m/z differences between isotopes of the last call, immutable to allow parallel
+  // mass detection with the same detector instance
+  private volatile IsotopeMzDiffs lastIsotopeMzDiffs;
 
   @NotNull
   public static double[][] getMassValues(MassSpectrum spectrum, double noiseLevel) {
@@ -240,6 +235,8 @@ public class ExactMassDetector implements MassDetector {
 
     // If isotopes are going to be detected get all the required parameters
     MZTolerance isotopesMzTolerance = null;
+    List<Double> isotopesMzDiffs = null;
+    double maxIsotopeMzDiff = 0d;
     if (detectIsotopes) {
       ParameterSet isotopesParameters = parameters.getParameter(
           ExactMassDetectorParameters.detectIsotopes).getEmbeddedParameters();
@@ -251,17 +248,11 @@ public class ExactMassDetector implements MassDetector {
           DetectIsotopesParameter.isotopeMzTolerance).getValue();
 
       // Update isotopesMzDiffs only if isotopeElements and isotopeMaxCharge differ from the last call
-      if (!Objects.equals(this.isotopeElements, isotopeElements) || !Objects.equals(
-          this.isotopeMaxCharge, isotopeMaxCharge)) {
-
-        // Update isotopesMzDiffs
-        this.isotopesMzDiffs = IsotopesUtils.getIsotopesMzDiffs(isotopeElements, isotopeMaxCharge);
-        this.maxIsotopeMzDiff = Collections.max(isotopesMzDiffs);
-
-        // Store last called parameters
-        this.isotopeElements = isotopeElements;
-        this.isotopeMaxCharge = isotopeMaxCharge;
-      }
+      final IsotopeMzDiffs mzDiffs = IsotopeMzDiffs.reuseOrCreate(lastIsotopeMzDiffs,
+          isotopeElements, isotopeMaxCharge);
+      lastIsotopeMzDiffs = mzDiffs;
+      isotopesMzDiffs = mzDiffs.mzDiffs();
+      maxIsotopeMzDiff = mzDiffs.maxMzDiff();
     }
 
     return getMassValues(spectrum, noiseLevel, detectIsotopes, isotopesMzTolerance, isotopesMzDiffs,
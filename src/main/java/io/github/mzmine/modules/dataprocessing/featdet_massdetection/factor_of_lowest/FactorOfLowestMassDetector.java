@@ -80,22 +80,7 @@ public class FactorOfLowestMassDetector implements MassDetector {
     // get the minimum intensity and base noise on this
     double noiseLevel = minIntensity(intensities) * noiseFactor;
 
-    // use number of centroid signals as base array list capacity
-    final int points = mzs.length;
-    // lists of primitive doubles
-    TDoubleArrayList pickedMZs = new TDoubleArrayList(points);
-    TDoubleArrayList pickedIntensities = new TDoubleArrayList(points);
-
-    // Find possible mzPeaks
-    for (int i = 0; i < points; i++) {
-      // Is intensity above the noise level?
-      if (intensities[i] >= noiseLevel) {
-        // Yes, then mark this index as mzPeak
-        pickedMZs.add(mzs[i]);
-        pickedIntensities.add(intensities[i]);
-      }
-    }
-    return new double[][]{pickedMZs.toArray(), pickedIntensities.toArray()};
+    return MassDetector.filterAtLeast(mzs, intensities, mzs.length, noiseLevel);
   }
 
   private double minIntensity(double[] rawIntensities) {
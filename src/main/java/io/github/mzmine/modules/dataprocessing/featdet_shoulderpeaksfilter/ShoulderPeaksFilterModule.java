@@ -62,6 +62,10 @@ public class ShoulderPeaksFilterModule implements MZmineProcessingModule {
     RawDataFile[] dataFiles = parameters.getParameter(ShoulderPeaksFilterParameters.dataFiles)
         .getValue().getMatchingRawDataFiles();
     for (RawDataFile dataFile : dataFiles) {
+      // the budget of the mass lists is released once all files were closed
+      if (storage != null) {
+        storage.addOwner(dataFile);
+      }
       Task newTask = new ShoulderPeaksFilterTask(dataFile, parameters.cloneParameterSet(true),
           storage, moduleCallDate);
       tasks.add(newTask);
@@ -25,6 +25,7 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_smoothing.savitzkygolay;
 
+import io.github.mzmine.util.maths.kernels.Kernels;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -113,26 +114,8 @@ public class SavitzkyGolayFilter {
    * @return the convolution results.
    */
   public static double[] convolve(final double[] intensities, final double[] weights) {
-
-    // Initialise.
-    final int fullWidth = weights.length;
-    final int halfWidth = (fullWidth - 1) / 2;
-    final int numPoints = intensities.length;
-
-    // Convolve.
-    final double[] convolved = new double[numPoints];
-    for (int i = 0; i < numPoints; i++) {
-
-      double sum = 0.0;
-      final int k = i - halfWidth;
-      for (int j = Math.max(0, -k); j < Math.min(fullWidth, numPoints - k); j++) {
-        sum += intensities[k + j] * weights[j];
-      }
-
-      // Set the result.
-      convolved[i] = sum;
-    }
-
+    final double[] convolved = new double[intensities.length];
+    Kernels.get().convolve(intensities, intensities.length, weights, convolved);
     return convolved;
   }
 }
@@ -42,7 +42,6 @@ import io.github.mzmine.parameters.parametertypes.StringParameter;
 import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesParameter;
 import io.github.mzmine.parameters.parametertypes.submodules.ModuleComboParameter;
 import io.github.mzmine.util.ExitCode;
-import io.github.mzmine.util.R.REngineType;
 
 /**
  * Holds baseline correction module COMMON parameters. See
@@ -77,17 +76,15 @@ public class BaselineCorrectionParameters extends SimpleParameterSet {
    * List of available baseline correctors
    */
   public static final BaselineCorrector[] baselineCorrectors = {new AsymmetryCorrector(),
-      // (Package
-      // R "ptw"
-      // -
+      // (after R "ptw" -
       // http://cran.r-project.org/web/packages/ptw/ptw.pdf)
-      new RollingBallCorrector(), // (Package R "baseline" -
+      new RollingBallCorrector(), // (after R "baseline" -
       // http://cran.r-project.org/web/packages/baseline/baseline.pdf)
-      new PeakDetectionCorrector(), // (Package R "baseline" -
+      new PeakDetectionCorrector(), // (own method, inspired by R "baseline" -
       // http://cran.r-project.org/web/packages/baseline/baseline.pdf)
-      new RubberBandCorrector(), // (Package R "hyperSpec" -
+      new RubberBandCorrector(), // (hull after R "hyperSpec", own spline -
       // http://cran.r-project.org/web/packages/hyperSpec/vignettes/baseline.pdf)
-      new LocMinLoessCorrector() // (Package R/Bioc. "PROcess" -
+      new LocMinLoessCorrector() // (after R/Bioc. "PROcess" -
       // http://bioconductor.org/packages/release/bioc/manuals/PROcess/man/PROcess.pdf)
   };
 
@@ -122,23 +119,22 @@ public class BaselineCorrectionParameters extends SimpleParameterSet {
       "Remove source file after baseline correction",
       "If checked, original file will be replaced by the corrected version", true);
 
-  /**
-   * R engine type.
-   */
-  public static final ComboParameter<REngineType> RENGINE_TYPE = new ComboParameter<REngineType>(
-      "R engine", "The R engine to be used for communicating with R.", REngineType.values(),
-      REngineType.RCALLER);
-
   /**
    * Create the parameter set.
    */
   public BaselineCorrectionParameters() {
     super(new Parameter[]{dataFiles, SUFFIX, CHROMOTAGRAM_TYPE, MS_LEVEL, USE_MZ_BINS, MZ_BIN_WIDTH,
-            BASELINE_CORRECTORS, RENGINE_TYPE, REMOVE_ORIGINAL},
+            BASELINE_CORRECTORS, REMOVE_ORIGINAL},
         "https://mzmine.github.io/mzmine_documentation/module_docs/filter_raw_data/baseline-corrections.html");
     thisParameters = null;
   }
 
+  @Override
+  public int getVersion() {
+    // R engine was removed, all correctors are implemented in Java
+    return 2;
+  }
+
   /**
    * Use an InstantUpdateSetupDialog setup dialog instead of the regular one.
    */
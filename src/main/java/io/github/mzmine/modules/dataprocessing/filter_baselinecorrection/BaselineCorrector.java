@@ -27,8 +27,10 @@ package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection;
 
 import io.github.mzmine.util.MemoryMapStorage;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
@@ -39,9 +41,6 @@ import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.util.DataPointUtils;
-import io.github.mzmine.util.R.REngineType;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 import io.github.mzmine.util.RangeUtils;
 import io.github.mzmine.util.scans.ScanUtils;
 import org.jetbrains.annotations.Nullable;
@@ -60,13 +59,12 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
   /**
    * String: dataFile being processed. int[]: 3 values array => { progress, progressMax, isAborted }
    */
-  HashMap<RawDataFile, int[]> progressMap;
+  Map<RawDataFile, int[]> progressMap;
 
   // Filename suffix.
   private String suffix;
 
   // General parameters (common to all baseline correction methods).
-  private REngineType rEgineType;
   private ChromatogramType chromatogramType;
   private double binWidth;
   private boolean useBins;
@@ -78,7 +76,7 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
   public BaselineCorrector() {
 
     // Processing info storage
-    progressMap = new HashMap<RawDataFile, int[]>();
+    progressMap = new ConcurrentHashMap<>();
   }
 
   /**
@@ -99,8 +97,6 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       generalParameters = BaselineCorrectionParameters.getBaselineCorrectionParameters();
     }
     // Get common parameters.
-    rEgineType =
-        generalParameters.getParameter(BaselineCorrectionParameters.RENGINE_TYPE).getValue();
     suffix = generalParameters.getParameter(BaselineCorrectionParameters.SUFFIX).getValue();
     chromatogramType =
         generalParameters.getParameter(BaselineCorrectionParameters.CHROMOTAGRAM_TYPE).getValue();
@@ -109,11 +105,11 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     msLevel = generalParameters.getParameter(BaselineCorrectionParameters.MS_LEVEL).getValue();
   }
 
-  public final RawDataFile correctDatafile(final RSessionWrapper rSession,
-      final RawDataFile dataFile, final ParameterSet parameters,
-      final ParameterSet commonParameters, @Nullable MemoryMapStorage storage) throws IOException, RSessionWrapperException {
+  public final RawDataFile correctDatafile(final RawDataFile dataFile,
+      final ParameterSet parameters, final ParameterSet commonParameters,
+      @Nullable MemoryMapStorage storage) throws IOException {
 
-    if (isAborted(dataFile) || !rSession.isSessionRunning())
+    if (isAborted(dataFile))
       return null;
     // Get very last information from root module setup
     // this.setGeneralParameters(MZmineCore.getConfiguration().getModuleParameters(BaselineCorrectionModule.class));
@@ -168,9 +164,9 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
 
           // Correct baseline for this MS-level.
           if (useTIC) {
-            correctTICBaselines(rSession, origDataFile, newFile, level, numBins, parameters);
+            correctTICBaselines(origDataFile, newFile, level, numBins, parameters);
           } else {
-            correctBasePeakBaselines(rSession, origDataFile, newFile, level, numBins, parameters);
+            correctBasePeakBaselines(origDataFile, newFile, level, numBins, parameters);
           }
         } else {
 
@@ -220,7 +216,7 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       double[][] dp = DataPointUtils.getDataPointsAsDoubleArray(newDataPoints);
       final SimpleScan newScan = new SimpleScan(writer, origScan, dp[0], dp[1]);
       writer.addScan(newScan);
-      progressMap.get(origDataFile)[0]++;
+      incrementProgress(origDataFile);
     }
   }
 
@@ -233,12 +229,9 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
    * @param numBins number of m/z bins.
    * @param parameters parameters specific to the actual method for baseline computing.
    * @throws IOException if there are i/o problems.
-   * @throws RSessionWrapperException
-   * @throws InterruptedException
    */
-  private void correctBasePeakBaselines(final RSessionWrapper rSession,
-      final RawDataFile origDataFile, final RawDataFile writer, final int level, final int numBins,
-      final ParameterSet parameters) throws IOException, RSessionWrapperException {
+  private void correctBasePeakBaselines(final RawDataFile origDataFile, final RawDataFile writer,
+      final int level, final int numBins, final ParameterSet parameters) throws IOException {
 
     // Get scan numbers from original file.
     final Scan[] scanNumbers = origDataFile.getScanNumbers(level).toArray(Scan[]::new);
@@ -249,13 +242,14 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     final double[][] baseChrom = buildBasePeakChromatograms(origDataFile, level, numBins);
 
     // Calculate baselines: done in-place, i.e. overwrite chromatograms to
-    // save memory.
+    // save memory. Bins are independent and processed in parallel.
     logger.finest("Calculating baselines.");
-    for (int binIndex = 0; !isAborted(origDataFile) && binIndex < numBins; binIndex++) {
-      baseChrom[binIndex] =
-          computeBaseline(rSession, origDataFile, baseChrom[binIndex], parameters);
-      progressMap.get(origDataFile)[0]++;
-    }
+    IntStream.range(0, numBins).parallel().forEach(binIndex -> {
+      if (!isAborted(origDataFile)) {
+        baseChrom[binIndex] = computeBaseline(baseChrom[binIndex], parameters);
+        incrementProgress(origDataFile);
+      }
+    });
 
     // Subtract baselines.
     logger.finest("Subtracting baselines.");
@@ -272,7 +266,7 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
           subtractBasePeakBaselines(origDataFile, origDataPoints, baseChrom, numBins, scanIndex));
       final SimpleScan newScan = new SimpleScan(writer, origScan, dp[0], dp[1]);
       writer.addScan(newScan);
-      progressMap.get(origDataFile)[0]++;
+      incrementProgress(origDataFile);
     }
   }
 
@@ -285,11 +279,9 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
    * @param numBins number of m/z bins.
    * @param parameters parameters specific to the actual method for baseline computing.
    * @throws IOException if there are i/o problems.
-   * @throws RSessionWrapperException
    */
-  private void correctTICBaselines(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      final RawDataFile writer, final int level, final int numBins, final ParameterSet parameters)
-      throws IOException, RSessionWrapperException {
+  private void correctTICBaselines(final RawDataFile origDataFile, final RawDataFile writer,
+      final int level, final int numBins, final ParameterSet parameters) throws IOException {
 
     // Get scan numbers from original file.
     final Scan[] scanNumbers = origDataFile.getScanNumbers(level).toArray(Scan[]::new);
@@ -300,24 +292,25 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     final double[][] baseChrom = buildTICChromatograms(origDataFile, level, numBins);
 
     // Calculate baselines: done in-place, i.e. overwrite chromatograms to
-    // save memory.
+    // save memory. Bins are independent and processed in parallel.
     logger.finest("Calculating baselines.");
-    for (int binIndex = 0; !isAborted(origDataFile) && binIndex < numBins; binIndex++) {
+    IntStream.range(0, numBins).parallel().forEach(binIndex -> {
+      if (isAborted(origDataFile)) {
+        return;
+      }
 
       // Calculate baseline.
-      // final double[] baseline = asymBaseline(baseChrom[binIndex]);
-      final double[] baseline =
-          computeBaseline(rSession, origDataFile, baseChrom[binIndex], parameters);
+      final double[] baseline = computeBaseline(baseChrom[binIndex], parameters);
 
       // Normalize the baseline w.r.t. chromatogram (TIC).
-      for (int scanIndex = 0; !isAborted(origDataFile) && scanIndex < numScans; scanIndex++) {
+      for (int scanIndex = 0; scanIndex < numScans; scanIndex++) {
         final double bc = baseChrom[binIndex][scanIndex];
         if (bc != 0.0) {
           baseChrom[binIndex][scanIndex] = baseline[scanIndex] / bc;
         }
       }
-      progressMap.get(origDataFile)[0]++;
-    }
+      incrementProgress(origDataFile);
+    });
 
     // Subtract baselines.
     logger.finest("Subtracting baselines.");
@@ -334,7 +327,7 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
           subtractTICBaselines(origDataFile, origDataPoints, baseChrom, numBins, scanIndex));
       final SimpleScan newScan = new SimpleScan(writer, origScan, dp[0], dp[1]);
       writer.addScan(newScan);
-      progressMap.get(origDataFile)[0]++;
+      incrementProgress(origDataFile);
     }
 
   }
@@ -371,7 +364,7 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
         final double value = chromatograms[bin][scanIndex];
         chromatograms[bin][scanIndex] = Math.max(value, dataPoint.getIntensity());
       }
-      progressMap.get(origDataFile)[0]++;
+      incrementProgress(origDataFile);
     }
 
     return chromatograms;
@@ -409,7 +402,7 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
         final int bin = RangeUtils.binNumber(mzRange, numBins, dataPoint.getMZ());
         chromatograms[bin][scanIndex] += dataPoint.getIntensity();
       }
-      progressMap.get(origDataFile)[0]++;
+      incrementProgress(origDataFile);
     }
 
     return chromatograms;
@@ -497,6 +490,20 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     progressMap.put(origDataFile, new int[] {0, 0, 0});
   }
 
+  /**
+   * Counts one processed item. Thread safe, baselines are calculated in parallel.
+   *
+   * @param origDataFile dataFile of concern.
+   */
+  private void incrementProgress(final RawDataFile origDataFile) {
+    final int[] progress = progressMap.get(origDataFile);
+    if (progress != null) {
+      synchronized (progress) {
+        progress[0]++;
+      }
+    }
+  }
+
   /**
    * Getting progress.
    *
@@ -544,10 +551,6 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     progressMap.remove(origDataFile);
   }
 
-  public REngineType getRengineType() {
-    return this.rEgineType;
-  }
-
   // Chromatogram type
   public ChromatogramType getChromatogramType() {
     // return
@@ -38,8 +38,6 @@ import io.github.mzmine.parameters.dialogs.ParameterSetupDialogWithChromatogramP
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.event.KeyEvent;
@@ -302,7 +300,6 @@ public class BaselineCorrectorSetupDialog extends ParameterSetupDialogWithChroma
     private final BaselineCorrectorSetupDialog dialog;
     private ProgressThread progressThread;
 
-    private RSessionWrapper rSession;
     private boolean userCanceled;
 
     public PreviewTask(BaselineCorrectorSetupDialog dialog, TICPlot ticPlot, RawDataFile dataFile,
@@ -345,18 +342,6 @@ public class BaselineCorrectorSetupDialog extends ParameterSetupDialogWithChroma
         // Get parent module parameters
         baselineCorrector.collectCommonParameters(null);
 
-        // Check R availability, by trying to open the connection
-        try {
-          String[] reqPackages = baselineCorrector.getRequiredRPackages();
-          this.rSession = new RSessionWrapper(baselineCorrector.getRengineType(),
-              baselineCorrector.getName(), reqPackages, null);
-          this.rSession.open();
-        } catch (RSessionWrapperException e) {
-          errorMsg = e.getMessage();
-          updateStatus(TaskStatus.ERROR);
-          return;
-        }
-
         // Set VK_ESCAPE KeyEvent listeners
         // set_VK_ESCAPE_KeyListener();
 
@@ -380,7 +365,7 @@ public class BaselineCorrectorSetupDialog extends ParameterSetupDialogWithChroma
           progressThread.start();
 
           // Create a new corrected raw data file
-          RawDataFile newDataFile = baselineCorrector.correctDatafile(this.rSession, dataFile,
+          RawDataFile newDataFile = baselineCorrector.correctDatafile(dataFile,
               correctorParameters, null, null);
 
           // If successful, add the new data file
@@ -394,24 +379,9 @@ public class BaselineCorrectorSetupDialog extends ParameterSetupDialogWithChroma
             XYDataset tlDataset = createBaselineDataset(dataFile, newDataFile, getPlotType());
             ticPlot.addDataSet(tlDataset);
           }
-        } catch (IOException | RSessionWrapperException e) {
-          if (!this.userCanceled) {
-            errorMsg = "'R computing error' during baseline correction. \n" + e.getMessage();
-          }
-        }
-
-        // Turn off R instance.
-        try {
-          if (!this.userCanceled) {
-            this.rSession.close(false);
-          }
-        } catch (RSessionWrapperException e) {
+        } catch (IOException e) {
           if (!this.userCanceled) {
-            if (errorMsg == null) {
-              errorMsg = e.getMessage();
-            }
-          } else {
-            // User canceled: Silent.
+            errorMsg = "'I/O error' during baseline correction. \n" + e.getMessage();
           }
         }
 
@@ -437,15 +407,6 @@ public class BaselineCorrectorSetupDialog extends ParameterSetupDialogWithChroma
 
         this.userCanceled = true;
 
-        // Turn off R instance.
-        try {
-          if (this.rSession != null) {
-            this.rSession.close(true);
-          }
-        } catch (RSessionWrapperException e) {
-          // User canceled: Silent.
-        }
-
         // Cancel task.
         this.cancel();
         // Release "ESC" listener.
@@ -25,10 +25,7 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection;
 
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 
 /**
  * @description Base interface for providing a new way for computing baselines.
@@ -37,16 +34,12 @@ import io.github.mzmine.util.R.RSessionWrapperException;
 public interface BaselineProvider {
 
   /**
-   * Gets R required packages for the corrector's method, if applicable
+   * Returns a baseline for correcting the given chromatogram. Called concurrently for the
+   * chromatograms of different m/z bins, so implementations must not keep state between calls.
+   *
+   * @param chromatogram intensities for each scan (not changed)
+   * @return the baseline intensity for each scan
    */
-  public String[] getRequiredRPackages();
-
-  /**
-   * Returns a baseline for correcting the given chromatogram using R
-   * 
-   * @throws RSessionWrapperException
-   */
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      final double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException;
+  public double[] computeBaseline(final double[] chromatogram, ParameterSet parameters);
 
 }
@@ -25,30 +25,24 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
-import org.jetbrains.annotations.NotNull;
-
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
 
 /**
- * @description Asymmetric baseline corrector. Estimates a trend based on asymmetric least squares.
- *              Uses "asysm" feature from "ptw" R-package
- *              (http://cran.r-project.org/web/packages/ptw/ptw.pdf).
- * 
+ * @description Asymmetric baseline corrector. Estimates a trend based on asymmetric least squares
+ *              (Eilers' Whittaker smoother with asymmetric weights), as the "asysm" feature from
+ *              "ptw" R-package (http://cran.r-project.org/web/packages/ptw/ptw.pdf).
+ *
  */
 public class AsymmetryCorrector extends BaselineCorrector {
 
-  @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"ptw"};
-  }
+  // same defaults as ptw::asysm
+  private static final int MAX_ITERATIONS = 25;
 
   @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(double[] chromatogram, ParameterSet parameters) {
 
     // Smoothing and asymmetry parameters.
     final double smoothing =
@@ -56,29 +50,111 @@ public class AsymmetryCorrector extends BaselineCorrector {
     final double asymmetry =
         parameters.getParameter(AsymmetryCorrectorParameters.ASYMMETRY).getValue();
 
-    // Compute baseline.
-    final double[] baseline;
+    return asymmetricLeastSquares(chromatogram, smoothing, asymmetry);
+  }
+
+  /**
+   * Iteratively fits a smooth trend z that minimizes sum(w * (y - z)^2) + lambda * sum((D2 z)^2),
+   * with weight p for points above the trend and 1 - p below it. Stops when the weights do not
+   * change anymore.
+   *
+   * @param y      the data
+   * @param lambda smoothing factor
+   * @param p      asymmetry
+   * @return the trend
+   */
+  static double[] asymmetricLeastSquares(double[] y, double lambda, double p) {
+    final int n = y.length;
+    final double[] weights = new double[n];
+    Arrays.fill(weights, 1d);
+    double[] z = y.clone();
+    if (n < 3) {
+      return z;
+    }
+
+    for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+      z = whittakerSmooth(y, weights, lambda);
+      boolean changed = false;
+      for (int i = 0; i < n; i++) {
+        final double w = y[i] > z[i] ? p : 1 - p;
+        changed |= w != weights[i];
+        weights[i] = w;
+      }
+      if (!changed) {
+        break;
+      }
+    }
+    return z;
+  }
 
-    // try {
-    // Set chromatogram.
-    // rSession.assignDoubleArray("chromatogram", chromatogram);
-    rSession.assign("chromatogram", chromatogram);
-    // Calculate baseline.
-    rSession.eval("baseline <- asysm(chromatogram," + smoothing + ',' + asymmetry + ')');
-    // baseline = rSession.collectDoubleArray("baseline");
-    baseline = (double[]) rSession.collect("baseline");
-    // Done: Refresh R code stack
-    rSession.clearCode();
+  /**
+   * Solves (W + lambda * D2' D2) z = W y with second order differences D2. The system matrix is
+   * symmetric and pentadiagonal and is solved by a banded LDL' decomposition in O(n).
+   */
+  static double[] whittakerSmooth(double[] y, double[] weights, double lambda) {
+    final int n = y.length;
+    // diagonals of W + lambda * D2' D2
+    final double[] d0 = new double[n];
+    final double[] d1 = new double[n];
+    final double[] d2 = new double[n];
+    for (int r = 0; r + 2 < n; r++) {
+      // difference row (1, -2, 1) at r, r + 1, r + 2
+      d0[r] += lambda;
+      d0[r + 1] += 4 * lambda;
+      d0[r + 2] += lambda;
+      d1[r] += -2 * lambda;
+      d1[r + 1] += -2 * lambda;
+      d2[r] += lambda;
+    }
+    for (int i = 0; i < n; i++) {
+      d0[i] += weights[i];
+    }
 
-    // }
-    // catch (Throwable t) {
-    // //t.printStackTrace();
-    // throw new
-    // IllegalStateException("R error during baseline correction (" +
-    // this.getName() + ").", t);
-    // }
+    // A = L D L' with unit lower triangular L. e: first, f: second subdiagonal of L
+    final double[] diag = new double[n];
+    final double[] e = new double[n];
+    final double[] f = new double[n];
+    for (int i = 0; i < n; i++) {
+      double di = d0[i];
+      if (i >= 2) {
+        f[i] = d2[i - 2] / diag[i - 2];
+        di -= f[i] * f[i] * diag[i - 2];
+      }
+      if (i >= 1) {
+        double a = d1[i - 1];
+        if (i >= 2) {
+          a -= f[i] * e[i - 1] * diag[i - 2];
+        }
+        e[i] = a / diag[i - 1];
+        di -= e[i] * e[i] * diag[i - 1];
+      }
+      diag[i] = di;
+    }
 
-    return baseline;
+    // forward substitution L c = W y, then D and backward substitution L' z = c / D
+    final double[] z = new double[n];
+    for (int i = 0; i < n; i++) {
+      double c = weights[i] * y[i];
+      if (i >= 1) {
+        c -= e[i] * z[i - 1];
+      }
+      if (i >= 2) {
+        c -= f[i] * z[i - 2];
+      }
+      z[i] = c;
+    }
+    for (int i = 0; i < n; i++) {
+      z[i] /= diag[i];
+    }
+    for (int i = n - 1; i >= 0; i--) {
+      if (i + 1 < n) {
+        z[i] -= e[i + 1] * z[i + 1];
+      }
+      if (i + 2 < n) {
+        z[i] -= f[i + 2] * z[i + 2];
+      }
+    }
+    return z;
   }
 
   @Override
@@ -25,32 +25,25 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
-import org.jetbrains.annotations.NotNull;
-
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
+import java.util.Arrays;
+import org.apache.commons.math3.analysis.interpolation.LoessInterpolator;
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.jetbrains.annotations.NotNull;
 
 /**
- * @description Local Minima + LOESS (smoothed low-percentile intensity) baseline corrector. Uses
- *              "bslnoff" feature from "PROcess" R/Bioconductor package
+ * @description Local Minima + LOESS (smoothed low-percentile intensity) baseline corrector.
+ *              Follows "bslnoff" feature from "PROcess" R/Bioconductor package
  *              (http://bioconductor.org/packages/release/ bioc/manuals/PROcess/man/PROcess.pdf).
- * 
+ *
  */
 public class LocMinLoessCorrector extends BaselineCorrector {
 
   private static final double BW_MIN_VAL = 0.001d;
 
   @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"PROcess"};
-  }
-
-  @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(double[] chromatogram, ParameterSet parameters) {
 
     // Local Minima parameters.
     String method = parameters.getParameter(LocMinLoessCorrectorParameters.METHOD).getValue();
@@ -60,32 +53,113 @@ public class LocMinLoessCorrector extends BaselineCorrector {
         parameters.getParameter(LocMinLoessCorrectorParameters.BREAK_WIDTH).getValue();
     double qntl = parameters.getParameter(LocMinLoessCorrectorParameters.QNTL).getValue();
 
-    final double[] baseline;
+    if (breaks_width > 0) {
+      breaks = (int) Math.round((double) (chromatogram.length - 1) / (double) breaks_width);
+    }
+    // Seems like "loess" method doesn't support "bw=0.0"
+    final boolean loess = !method.equals("approx");
+    if (loess && bw < BW_MIN_VAL) {
+      bw = BW_MIN_VAL;
+    }
+    return locMinBaseline(chromatogram, loess, bw, breaks, qntl);
+  }
+
+  /**
+   * Splits the scans (x = 1..n) into log-spaced intervals and collects the minimum (qntl == 0) or
+   * all points below the qntl quantile of each interval. The baseline is a LOESS fit or the linear
+   * interpolation of these points and never exceeds the chromatogram.
+   *
+   * @return the baseline
+   */
+  static double[] locMinBaseline(double[] y, boolean loess, double bw, int breaks, double qntl) {
+    final int n = y.length;
+    if (n < 2) {
+      return y.clone();
+    }
+    breaks = Math.max(1, breaks);
 
-    // Set chromatogram.
-    rSession.assign("chromatogram", chromatogram);
-    // Transform chromatogram.
-    int mini = 1;
-    int maxi = chromatogram.length;
-    rSession.eval("mat <- cbind(matrix(seq(" + ((double) mini) + ", " + ((double) maxi)
-        + ", by = 1.0), ncol=1), " + "matrix(chromatogram[" + mini + ":" + maxi + "], ncol=1))");
-    // Breaks
-    rSession.eval("breaks <- "
-        + ((breaks_width > 0) ? (int) Math.round((double) (maxi - mini) / (double) breaks_width)
-            : breaks));
-    // Calculate baseline.
-    // + Seems like "loess" method doesn't support "bw=0.0"
-    rSession.eval("bseoff <- bslnoff(mat, method=\"" + method + "\", bw="
-        + ((method.equals("approx") || bw >= BW_MIN_VAL) ? bw : BW_MIN_VAL)
-        + ", breaks=breaks, qntl=" + qntl + ")");
-    rSession.eval("baseline <- mat[,2] - bseoff[,2]");
-    baseline = (double[]) rSession.collect("baseline");
-    // Done: Refresh R code stack
-    rSession.clearCode();
+    final double logMin = Math.log(1);
+    final double logMax = Math.log(n);
+    final double[] xs = new double[n];
+    final double[] ys = new double[n];
+    int count = 0;
+    int from = 0;
+    for (int b = 0; b < breaks && from < n; b++) {
+      final double upper = logMin + (logMax - logMin) * (b + 1) / breaks;
+      int to = from;
+      while (to < n && (b == breaks - 1 || Math.log(to + 1) <= upper)) {
+        to++;
+      }
+      if (to == from) {
+        continue;
+      }
+      if (qntl == 0) {
+        int min = from;
+        for (int i = from + 1; i < to; i++) {
+          if (y[i] < y[min]) {
+            min = i;
+          }
+        }
+        xs[count] = min + 1;
+        ys[count++] = y[min];
+      } else {
+        final double[] sorted = Arrays.copyOfRange(y, from, to);
+        Arrays.sort(sorted);
+        final double threshold = quantile(sorted, qntl);
+        for (int i = from; i < to; i++) {
+          if (y[i] <= threshold) {
+            xs[count] = i + 1;
+            ys[count++] = y[i];
+          }
+        }
+      }
+      from = to;
+    }
 
+    final double[] x = Arrays.copyOf(xs, count);
+    final double[] support = Arrays.copyOf(ys, count);
+    double[] fitted = null;
+    if (loess && bw * count >= 2) {
+      try {
+        fitted = new LoessInterpolator(bw, 0).smooth(x, support);
+      } catch (MathIllegalArgumentException e) {
+        // not enough support points for the bandwidth, use linear interpolation
+      }
+    }
+    if (fitted == null || Arrays.stream(fitted).anyMatch(Double::isNaN)) {
+      fitted = support;
+    }
+
+    final double[] baseline = new double[n];
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      final double xi = i + 1;
+      while (k < count - 1 && x[k + 1] <= xi) {
+        k++;
+      }
+      final double value;
+      if (xi <= x[0]) {
+        value = fitted[0];
+      } else if (k >= count - 1) {
+        value = fitted[count - 1];
+      } else {
+        value = fitted[k] + (fitted[k + 1] - fitted[k]) * (xi - x[k]) / (x[k + 1] - x[k]);
+      }
+      baseline[i] = Math.min(y[i], Math.max(0, value));
+    }
     return baseline;
   }
 
+  /**
+   * Linearly interpolated quantile (R type 7) of sorted values
+   */
+  private static double quantile(double[] sorted, double q) {
+    final double h = (sorted.length - 1) * q;
+    final int lo = (int) Math.floor(h);
+    final int hi = Math.min(sorted.length - 1, lo + 1);
+    return sorted[lo] + (h - lo) * (sorted[hi] - sorted[lo]);
+  }
+
   @Override
   public @NotNull String getName() {
     return "Local minima + LOESS baseline corrector";
@@ -25,33 +25,28 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
-import org.jetbrains.annotations.NotNull;
-
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
 
 /**
- * @description Feature Detection baseline corrector. Feature detection is done in several steps
- *              sorting out real peaks through different criteria. Peaks are removed from spectra
- *              and minimums and medians are used to smooth the remaining parts of the spectra. Uses
- *              "peakDetection" feature from "baseline" R-package
- *              (http://cran.r-project.org/web/packages/baseline/baseline.pdf). (A translation from
- *              Kevin R. Coombes et al.'s MATLAB code for detecting peaks and removing baselines).
- * 
+ * @description Peak exclusion baseline corrector. Peaks are detected with growing window sizes and
+ *              a signal to noise criterion, removed from the chromatogram, and minimums and medians
+ *              are used to smooth the remaining parts. The idea and the parameters are taken from
+ *              the "peakDetection" feature of the "baseline" R-package
+ *              (http://cran.r-project.org/web/packages/baseline/baseline.pdf), but this is an own
+ *              method and not a port: peak detection, noise estimation and the interpolation below
+ *              peaks differ, and so do the results.
+ *
  */
 public class PeakDetectionCorrector extends BaselineCorrector {
 
-  @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"baseline"};
-  }
+  // scales the median absolute difference of neighbouring values to a standard deviation
+  private static final double MAD_TO_SD = 1.4826 / Math.sqrt(2);
 
   @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(double[] chromatogram, ParameterSet parameters) {
 
     // Feature Detection parameters.
     int left = parameters.getParameter(PeakDetectionCorrectorParameters.LEFT).getValue();
@@ -64,39 +59,146 @@ public class PeakDetectionCorrector extends BaselineCorrector {
     double multiplier =
         parameters.getParameter(PeakDetectionCorrectorParameters.MULTIPLIER).getValue();
 
-    final double[] baseline;
-
-    // Set chromatogram.
-    rSession.assign("chromatogram", chromatogram);
-    // Transform chromatogram.
-    rSession.eval("mat <- matrix(chromatogram, nrow=1)");
-
-    // Calculate baseline.
-    rSession.eval("bl <- NULL");
-    // This method can fail for some bins when "useBins" is enabled, or more
-    // generally speaking for
-    // abusive parameter set
-    String cmd = "tryCatch({" + "bl <- baseline(mat, left=" + left + ", right=" + right + ", lwin="
-        + lwin + ", rwin=" + rwin + ", snminimum=" + snminimum + ", mono=" + mono + ", multiplier="
-        + multiplier + ", method='peakDetection')" + "}, warning = function(war) {"
-        + "message(\"<R warning>: \", war);" + "}, error = function(err) {"
-        + "message(\"<R error>: \", err);" + "}, finally = {" +
-        // "" +
-        "})";
-    rSession.eval(cmd);
-    // Return a flat baseline (passing by the lowest intensity scan -
-    // "min(chromatogram)") in case of failure
-    // Anyway, this usually happens when "chromatogram" is fully flat and
-    // zeroed.
-    rSession.eval(
-        "if (!is.null(bl)) { baseline <- getBaseline(bl); } else { baseline <- matrix(rep(min(chromatogram), length(chromatogram)), nrow=1); }");
-    baseline = ((double[][]) rSession.collect("baseline"))[0];
-    // Done: Refresh R code stack
-    rSession.clearCode();
+    return peakExclusionBaseline(chromatogram, left, right, lwin, rwin, snminimum, mono,
+        multiplier);
+  }
+
+  /**
+   * Detects peaks as local maxima in windows of +-left to +-right scans (window sizes grow by the
+   * multiplier) with a signal to noise ratio of at least snMinimum. The baseline of the remaining
+   * scans is the median (+-rwin) of the local minima (+-lwin), and it is linearly interpolated
+   * below the peaks.
+   *
+   * @return the baseline. A flat baseline at the minimum intensity if all scans are part of peaks.
+   */
+  static double[] peakExclusionBaseline(double[] y, int left, int right, int lwin, int rwin,
+      double snMinimum, double mono, double multiplier) {
+    final int n = y.length;
+    if (n == 0) {
+      return new double[0];
+    }
+
+    final boolean[] inPeak = findPeaks(y, left, right, snMinimum, multiplier);
 
+    // local minima of the scans outside of peaks
+    final double[] outside = y.clone();
+    for (int i = 0; i < n; i++) {
+      if (inPeak[i]) {
+        outside[i] = Double.POSITIVE_INFINITY;
+      }
+    }
+    final double[] minima = RollingBallCorrector.slidingExtreme(outside, lwin, true);
+
+    final int[] support = new int[n];
+    int numSupport = 0;
+    for (int i = 0; i < n; i++) {
+      if (!inPeak[i]) {
+        support[numSupport++] = i;
+      }
+    }
+    final double[] baseline = new double[n];
+    if (numSupport == 0) {
+      Arrays.fill(baseline, Arrays.stream(y).min().orElse(0));
+      return baseline;
+    }
+
+    // median of the minima at the support scans
+    final double[] window = new double[numSupport];
+    int from = 0;
+    int to = 0;
+    for (int s = 0; s < numSupport; s++) {
+      final int i = support[s];
+      while (support[from] < i - rwin) {
+        from++;
+      }
+      while (to + 1 < numSupport && support[to + 1] <= i + rwin) {
+        to++;
+      }
+      final int size = to - from + 1;
+      for (int k = 0; k < size; k++) {
+        window[k] = minima[support[from + k]];
+      }
+      Arrays.sort(window, 0, size);
+      baseline[i] = size % 2 == 1 ? window[size / 2]
+          : (window[size / 2 - 1] + window[size / 2]) / 2;
+    }
+
+    // interpolate below peaks, constant before the first and after the last support scan
+    for (int s = 0; s <= numSupport; s++) {
+      final int prev = s == 0 ? -1 : support[s - 1];
+      final int next = s == numSupport ? n : support[s];
+      for (int i = prev + 1; i < next; i++) {
+        if (prev < 0) {
+          baseline[i] = baseline[next];
+        } else if (next >= n) {
+          baseline[i] = baseline[prev];
+        } else {
+          baseline[i] = baseline[prev]
+              + (baseline[next] - baseline[prev]) * (i - prev) / (double) (next - prev);
+        }
+      }
+    }
+
+    if (mono > 0) {
+      // monotonically decreasing baseline
+      for (int i = 1; i < n; i++) {
+        baseline[i] = Math.min(baseline[i], baseline[i - 1]);
+      }
+    }
     return baseline;
   }
 
+  /**
+   * @return true for all scans within the window of a detected peak
+   */
+  private static boolean[] findPeaks(double[] y, int left, int right, double snMinimum,
+      double multiplier) {
+    final int n = y.length;
+    final boolean[] inPeak = new boolean[n];
+    final double noise = estimateNoise(y);
+    final int minHalfWidth = Math.max(1, left);
+    final int maxHalfWidth = Math.max(minHalfWidth, right);
+    for (int h = minHalfWidth; h <= maxHalfWidth;
+        h = Math.max(h + 1, (int) Math.ceil(h * multiplier))) {
+      final double[] maxima = RollingBallCorrector.slidingExtreme(y, h, false);
+      // a peak needs to rise above the minima on both sides. Otherwise, the ends of a sloped
+      // chromatogram would be detected as peaks
+      for (int i = 1; i < n - 1; i++) {
+        if (y[i] != maxima[i]) {
+          continue;
+        }
+        double leftMin = y[i];
+        for (int j = Math.max(0, i - h); j < i; j++) {
+          leftMin = Math.min(leftMin, y[j]);
+        }
+        double rightMin = y[i];
+        for (int j = i + 1; j <= Math.min(n - 1, i + h); j++) {
+          rightMin = Math.min(rightMin, y[j]);
+        }
+        final double height = y[i] - Math.max(leftMin, rightMin);
+        if (height > 0 && height >= snMinimum * noise) {
+          Arrays.fill(inPeak, Math.max(0, i - h), Math.min(n, i + h + 1), true);
+        }
+      }
+    }
+    return inPeak;
+  }
+
+  /**
+   * Robust noise estimate from the median absolute difference of neighbouring scans.
+   */
+  private static double estimateNoise(double[] y) {
+    if (y.length < 2) {
+      return 0;
+    }
+    final double[] diffs = new double[y.length - 1];
+    for (int i = 0; i < diffs.length; i++) {
+      diffs[i] = Math.abs(y[i + 1] - y[i]);
+    }
+    Arrays.sort(diffs);
+    return diffs[diffs.length / 2] * MAD_TO_SD;
+  }
+
   @Override
   public @NotNull String getName() {
     return "PeakDetection baseline corrector";
@@ -34,7 +34,7 @@ import io.github.mzmine.parameters.parametertypes.IntegerParameter;
 import io.github.mzmine.util.ExitCode;
 
 /**
- * @description Feature Detection baseline corrector parameters.
+ * @description Peak exclusion baseline corrector parameters.
  *
  */
 public class PeakDetectionCorrectorParameters extends SimpleParameterSet {
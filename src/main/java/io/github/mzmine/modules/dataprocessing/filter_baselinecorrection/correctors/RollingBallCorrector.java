@@ -25,68 +25,84 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
-import org.jetbrains.annotations.NotNull;
-
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
+import org.jetbrains.annotations.NotNull;
 
 /**
- * @description Rolling Ball baseline corrector. Estimates a trend based on Rolling Ball algorithm.
- *              Uses "rollingBall" feature from "baseline" R-package
+ * @description Rolling Ball baseline corrector. Estimates a trend based on Rolling Ball algorithm,
+ *              as the "rollingBall" feature from "baseline" R-package
  *              (http://cran.r-project.org/web/packages/baseline/baseline.pdf). (Ideas from Rolling
  *              Ball algorithm for X-ray spectra by M.A.Kneen and H.J. Annegarn. Variable window
  *              width has been left out).
- * 
+ *
  */
 public class RollingBallCorrector extends BaselineCorrector {
 
   @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"baseline"};
-  }
-
-  @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(double[] chromatogram, ParameterSet parameters) {
 
     // Rolling Ball parameters.
-    double wm = parameters.getParameter(RollingBallCorrectorParameters.MIN_MAX_WIDTH).getValue();
-    double ws = parameters.getParameter(RollingBallCorrectorParameters.SMOOTHING).getValue();
-
-    final double[] baseline;
+    int wm = parameters.getParameter(RollingBallCorrectorParameters.MIN_MAX_WIDTH).getValue();
+    int ws = parameters.getParameter(RollingBallCorrectorParameters.SMOOTHING).getValue();
 
-    // Set chromatogram.
-    rSession.assign("chromatogram", chromatogram);
+    return rollingBall(chromatogram, wm, ws);
+  }
 
-    // Transform chromatogram.
-    rSession.eval("mat <- matrix(chromatogram, nrow=1)");
+  /**
+   * Minimum in a window of +-wm, maximum of these minima in a window of +-wm and finally the mean
+   * in a window of +-ws. Windows are truncated at the borders.
+   */
+  static double[] rollingBall(double[] y, int wm, int ws) {
+    final double[] minima = slidingExtreme(y, wm, true);
+    final double[] maxima = slidingExtreme(minima, wm, false);
+    return slidingMean(maxima, ws);
+  }
 
-    // Calculate baseline.
-    rSession.eval("bl <- NULL");
-    // This method can fail for some bins when "useBins" is enabled, or more
-    // generally speaking for
-    // abusive parameter set
-    String cmd =
-        "tryCatch({" + "bl <- baseline(mat, wm=" + wm + ", ws=" + ws + ", method='rollingBall')"
-            + "}, warning = function(war) {" + "message(\"<R warning>: \", war);"
-            + "}, error = function(err) {" + "message(\"<R error>: \", err);" + "}, finally = {" +
-            // "" +
-            "})";
-    rSession.eval(cmd);
-    // Return a flat baseline (passing by the lowest intensity scan -
-    // "min(chromatogram)") in case of failure
-    // Anyway, this usually happens when "chromatogram" is fully flat and
-    // zeroed.
-    rSession.eval(
-        "if (!is.null(bl)) { baseline <- getBaseline(bl); } else { baseline <- matrix(rep(min(chromatogram), length(chromatogram)), nrow=1); }");
-    baseline = ((double[][]) rSession.collect("baseline"))[0];
-    // Done: Refresh R code stack
-    rSession.clearCode();
+  /**
+   * Minimum or maximum within +-halfWidth around each value in O(n) with a monotonic deque.
+   */
+  static double[] slidingExtreme(double[] values, int halfWidth, boolean minimum) {
+    final int n = values.length;
+    final double[] result = new double[n];
+    // indices of candidates, the extreme at the head
+    final int[] deque = new int[n];
+    int head = 0;
+    int tail = 0;
+    int next = 0;
+    for (int i = 0; i < n; i++) {
+      final int windowEnd = Math.min(n - 1, i + halfWidth);
+      for (; next <= windowEnd; next++) {
+        while (tail > head && (minimum ? values[deque[tail - 1]] >= values[next]
+            : values[deque[tail - 1]] <= values[next])) {
+          tail--;
+        }
+        deque[tail++] = next;
+      }
+      while (deque[head] < i - halfWidth) {
+        head++;
+      }
+      result[i] = values[deque[head]];
+    }
+    return result;
+  }
 
-    return baseline;
+  /**
+   * Mean within +-halfWidth around each value.
+   */
+  static double[] slidingMean(double[] values, int halfWidth) {
+    final int n = values.length;
+    final double[] prefix = new double[n + 1];
+    for (int i = 0; i < n; i++) {
+      prefix[i + 1] = prefix[i] + values[i];
+    }
+    final double[] result = new double[n];
+    for (int i = 0; i < n; i++) {
+      final int from = Math.max(0, i - halfWidth);
+      final int to = Math.min(n - 1, i + halfWidth);
+      result[i] = (prefix[to + 1] - prefix[from]) / (to - from + 1);
+    }
+    return result;
   }
 
   @Override
@@ -25,31 +25,27 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
-import org.jetbrains.annotations.NotNull;
-
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
+import java.util.Arrays;
+import org.apache.commons.math3.analysis.interpolation.SplineInterpolator;
+import org.apache.commons.math3.analysis.polynomials.PolynomialSplineFunction;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * @description Rubber Band baseline corrector. Estimates a trend based on Rubber Band algorithm
- *              (which determines a convex envelope for the spectra - underneath side). Uses
- *              "spc.rubberband" feature from "hyperSpec" R-package
- *              (http://cran.r-project.org/web/packages /hyperSpec/vignettes/baseline.pdf).
- * 
+ *              (which determines a convex envelope for the spectra - underneath side). Without
+ *              spline, the baseline is the same as from "spc.rubberband" of the "hyperSpec"
+ *              R-package (http://cran.r-project.org/web/packages /hyperSpec/vignettes/baseline.pdf).
+ *              The spline option is an own method: instead of R's smoothing spline with df degrees
+ *              of freedom, an interpolating spline runs through support points that are averaged
+ *              down to df groups.
+ *
  */
 public class RubberBandCorrector extends BaselineCorrector {
 
   @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"hyperSpec"};
-  }
-
-  @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(double[] chromatogram, ParameterSet parameters) {
 
     // Rubber Band parameters.
     double noise = parameters.getParameter(RubberBandCorrectorParameters.NOISE).getValue();
@@ -59,32 +55,123 @@ public class RubberBandCorrector extends BaselineCorrector {
     boolean spline = parameters.getParameter(RubberBandCorrectorParameters.SPLINE).getValue();
     double bend = parameters.getParameter(RubberBandCorrectorParameters.BEND_FACTOR).getValue();
 
-    final double[] baseline;
-
-    // Set chromatogram.
-    rSession.assign("chromatogram", chromatogram);
-    // Transform chromatogram.
-    rSession.eval("mat <- matrix(chromatogram, nrow=1)");
-    rSession.eval("spc <- new (\"hyperSpec\", spc = mat, wavelength = as.numeric(seq(" + 1 + ", "
-        + chromatogram.length + ")))");
-    // Auto noise ?
-    rSession.eval("noise <- " + ((autoNoise) ? "min(mat)" : "" + noise));
-    // Bend
-    rSession.eval("bend <- " + bend + " * wl.eval(spc, function(x) x^2, normalize.wl=normalize01)");
-    // Calculate baseline.
-    rSession.eval("baseline <- spc.rubberband(spc + bend, noise = noise, df = " + df + ", spline="
-        + (spline ? "T" : "F") + ") - bend");
-    // 'NA' might appear in 'baseline' array when 'spline' parameter set to
-    // 'FALSE',
-    // So handle them properly if necessary...
-    rSession.eval(
-        "if (is.na(baseline)) { baseline[is.na(baseline)] <- " + RSessionWrapper.NA_DOUBLE + " }");
-    rSession.eval("baseline <- orderwl(baseline)[[1]]");
-    baseline = ((double[][]) rSession.collect("baseline"))[0];
-    // Done: Refresh R code stack
-    rSession.clearCode();
-
-    return baseline;
+    if (autoNoise) {
+      noise = Arrays.stream(chromatogram).min().orElse(0);
+    }
+    return rubberBand(chromatogram, noise, df, spline, bend);
+  }
+
+  /**
+   * Lower convex hull of the chromatogram plus a quadratic bend, linearly interpolated between the
+   * hull points. This is spc.rubberband(spc + bend, spline = FALSE) - bend in hyperSpec. With
+   * spline enabled, the hull is replaced by {@link #averagedSupportSpline(double[], double[],
+   * double, double)}.
+   *
+   * @return the baseline
+   */
+  static double[] rubberBand(double[] y, double noise, double df, boolean spline,
+      double bendFactor) {
+    final int n = y.length;
+    if (n < 3) {
+      return y.clone();
+    }
+
+    // bend = factor * x^2, with x normalized to 0..1
+    final double[] bend = new double[n];
+    final double[] bent = new double[n];
+    for (int i = 0; i < n; i++) {
+      final double x = i / (double) (n - 1);
+      bend[i] = bendFactor * x * x;
+      bent[i] = y[i] + bend[i];
+    }
+
+    // lower convex hull (monotone chain)
+    final int[] hull = new int[n];
+    int size = 0;
+    for (int i = 0; i < n; i++) {
+      while (size >= 2 && cross(hull[size - 2], hull[size - 1], i, bent) <= 0) {
+        size--;
+      }
+      hull[size++] = i;
+    }
+
+    final double[] fit = new double[n];
+    for (int h = 0; h < size - 1; h++) {
+      final int a = hull[h];
+      final int b = hull[h + 1];
+      for (int i = a; i <= b; i++) {
+        fit[i] = bent[a] + (bent[b] - bent[a]) * (i - a) / (double) (b - a);
+      }
+    }
+
+    if (spline) {
+      averagedSupportSpline(bent, fit, noise, df);
+    }
+
+    for (int i = 0; i < n; i++) {
+      fit[i] -= bend[i];
+    }
+    return fit;
+  }
+
+  /**
+   * z component of the cross product of (a -> b) and (a -> c). Positive for a left turn.
+   */
+  private static double cross(int a, int b, int c, double[] y) {
+    return (double) (b - a) * (y[c] - y[a]) - (y[b] - y[a]) * (double) (c - a);
+  }
+
+  /**
+   * Replaces the hull by a cubic interpolating spline. Support points are all points within noise
+   * above the hull, averaged down to df groups of neighbouring points if df >= 2. The hull is kept
+   * if there are less than three support points.
+   *
+   * @param hull the hull on input, the spline on output
+   */
+  static void averagedSupportSpline(double[] y, double[] hull, double noise, double df) {
+    final double[][] support = splineSupport(y, hull, noise, df);
+    if (support[0].length < 3) {
+      return;
+    }
+    final PolynomialSplineFunction function = new SplineInterpolator().interpolate(support[0],
+        support[1]);
+    final double first = support[0][0];
+    final double last = support[0][support[0].length - 1];
+    for (int i = 0; i < y.length; i++) {
+      hull[i] = function.value(Math.min(last, Math.max(first, i)));
+    }
+  }
+
+  /**
+   * @return x and y of the support points: all points within noise above the hull, averaged down
+   * to df groups
+   */
+  private static double[][] splineSupport(double[] y, double[] hull, double noise, double df) {
+    final int n = y.length;
+    final int[] indices = new int[n];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      if (y[i] <= hull[i] + noise) {
+        indices[count++] = i;
+      }
+    }
+
+    final int groups = df >= 2 && count > df ? (int) Math.round(df) : count;
+    final double[] xs = new double[groups];
+    final double[] ys = new double[groups];
+    for (int g = 0; g < groups; g++) {
+      final int from = (int) ((long) g * count / groups);
+      final int to = (int) ((long) (g + 1) * count / groups);
+      double sumX = 0;
+      double sumY = 0;
+      for (int k = from; k < to; k++) {
+        sumX += indices[k];
+        sumY += y[indices[k]];
+      }
+      xs[g] = sumX / (to - from);
+      ys[g] = sumY / (to - from);
+    }
+    return new double[][]{xs, ys};
   }
 
   @Override
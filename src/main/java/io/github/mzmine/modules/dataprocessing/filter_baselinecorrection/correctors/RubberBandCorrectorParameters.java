@@ -55,7 +55,8 @@ public class RubberBandCorrectorParameters extends SimpleParameterSet {
   /**
    * Degree of Freedom.
    */
-  public static final DoubleParameter DF = new DoubleParameter("df", "Degree of freedom.",
+  public static final DoubleParameter DF = new DoubleParameter("df",
+      "Number of support point groups of the spline. Values below 2 use all support points.",
       DecimalFormat.getNumberInstance(), 0.0, 0.0, null);
 
   /**
@@ -54,12 +54,15 @@ import io.github.mzmine.util.FeatureUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -78,7 +81,7 @@ public class DuplicateFilterTask extends AbstractTask {
   private final ParameterSet parameters;
   private FeatureList filteredPeakList;
   // Counters.
-  private int processedRows;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
   private int totalRows;
 
   public DuplicateFilterTask(final MZmineProject project, final FeatureList list,
@@ -92,7 +95,6 @@ public class DuplicateFilterTask extends AbstractTask {
     peakList = list;
     filteredPeakList = null;
     totalRows = 0;
-    processedRows = 0;
   }
 
   @Override
@@ -104,7 +106,7 @@ public class DuplicateFilterTask extends AbstractTask {
   @Override
   public double getFinishedPercentage() {
 
-    return totalRows == 0 ? 0.0 : (double) processedRows / (double) totalRows;
+    return totalRows == 0 ? 0.0 : (double) processedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -185,7 +187,7 @@ public class DuplicateFilterTask extends AbstractTask {
 
     // filter by average mz and rt
     totalRows = rowCount;
-    processedRows = 0;
+    processedRows.set(0);
     // sort rows
     final int removedDuplicates = switch (mode) {
       case OLD_AVERAGE ->
@@ -227,52 +229,110 @@ public class DuplicateFilterTask extends AbstractTask {
     flist.setRows(filteredRows);
   }
 
+  /**
+   * Keeps the row with the highest area and removes all lower rows within the tolerances. Each row
+   * is only compared to the rows in its m/z tolerance window (sorted by m/z, binary search) and
+   * the candidate duplicates are evaluated in parallel. The duplicates are then resolved
+   * sequentially by descending area, which results in the same rows as comparing all pairs.
+   *
+   * @return the number of removed rows or -1 if canceled
+   */
   private int applyOldAverageFilter(MZTolerance mzTolerance, RTTolerance rtTolerance,
       MobilityTolerance mobilityTolerance, boolean requireSameId,
       ModularFeatureListRow[] peakListRows, int rowCount) {
     Arrays.sort(peakListRows,
         new FeatureListRowSorter(SortingProperty.Area, SortingDirection.Descending));
 
-    // Loop through all feature list rows
-    int removedDuplicates = 0;
-    for (int firstRowIndex = 0; firstRowIndex < rowCount; firstRowIndex++) {
+    // index of the rows (in area order) sorted by m/z to sweep over the tolerance windows
+    final double[] averageMZs = new double[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      averageMZs[i] = peakListRows[i].getAverageMZ();
+    }
+    final int[] mzOrder = IntStream.range(0, rowCount).boxed()
+        .sorted((a, b) -> Double.compare(averageMZs[a], averageMZs[b])).mapToInt(Integer::intValue)
+        .toArray();
+    final double[] sortedMZs = new double[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      sortedMZs[i] = averageMZs[mzOrder[i]];
+    }
+
+    // find all lower rows that would be removed by each row - independent, so run in parallel
+    final int[][] duplicates = new int[rowCount][];
+    IntStream.range(0, rowCount).parallel().forEach(firstRowIndex -> {
       if (isCanceled()) {
-        return -1;
+        return;
       }
-
       final ModularFeatureListRow firstRow = peakListRows[firstRowIndex];
+      final Range<Double> mzRange = mzTolerance.getToleranceRange(averageMZs[firstRowIndex]);
+      final double upperMZ = mzRange.upperEndpoint();
+
+      final IntArrayList matches = new IntArrayList();
+      for (int i = lowerBound(sortedMZs, mzRange.lowerEndpoint());
+          i < rowCount && sortedMZs[i] <= upperMZ; i++) {
+        final int secondRowIndex = mzOrder[i];
+        // only rows with lower area can be removed by this row
+        if (secondRowIndex <= firstRowIndex) {
+          continue;
+        }
 
-      if (firstRow != null) {
-        for (int secondRowIndex = firstRowIndex + 1; secondRowIndex < rowCount; secondRowIndex++) {
-          if (isCanceled()) {
-            return -1;
-          }
+        final FeatureListRow secondRow = peakListRows[secondRowIndex];
+        // Compare identifications
+        final boolean sameID =
+            !requireSameId || FeatureUtils.compareIdentities(firstRow, secondRow);
 
-          final FeatureListRow secondRow = peakListRows[secondRowIndex];
-          if (secondRow != null) {
-            // Compare identifications
-            final boolean sameID =
-                !requireSameId || FeatureUtils.compareIdentities(firstRow, secondRow);
+        final boolean sameMZRT = checkSameAverageRTMZ(firstRow, secondRow, mzTolerance,
+            rtTolerance);
 
-            final boolean sameMZRT = checkSameAverageRTMZ(firstRow, secondRow, mzTolerance,
-                rtTolerance);
+        final boolean sameMobility = checkMobility(firstRow, secondRow, mobilityTolerance);
 
-            final boolean sameMobility = checkMobility(firstRow, secondRow, mobilityTolerance);
+        // Duplicate peaks?
+        if (sameID && sameMZRT && sameMobility) {
+          matches.add(secondRowIndex);
+        }
+      }
+      duplicates[firstRowIndex] = matches.toIntArray();
+      processedRows.incrementAndGet();
+    });
 
-            // Duplicate peaks?
-            if (sameID && sameMZRT && sameMobility) {
-              // second row deleted
-              removedDuplicates++;
-              peakListRows[secondRowIndex] = null;
-            }
-          }
+    if (isCanceled()) {
+      return -1;
+    }
+
+    // only rows that were not removed themselves remove their duplicates
+    int removedDuplicates = 0;
+    for (int firstRowIndex = 0; firstRowIndex < rowCount; firstRowIndex++) {
+      if (peakListRows[firstRowIndex] == null) {
+        continue;
+      }
+      for (final int secondRowIndex : duplicates[firstRowIndex]) {
+        if (peakListRows[secondRowIndex] != null) {
+          // second row deleted
+          removedDuplicates++;
+          peakListRows[secondRowIndex] = null;
         }
       }
-      processedRows++;
     }
     return removedDuplicates;
   }
 
+  /**
+   * @param sortedValues ascending values
+   * @return the first index with a value >= lower or the length of the array
+   */
+  private static int lowerBound(double[] sortedValues, double lower) {
+    int low = 0;
+    int high = sortedValues.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (sortedValues[mid] < lower) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
 
   private int applyNewMergingFilter(MZTolerance mzTolerance, RTTolerance rtTolerance,
       MobilityTolerance mobilityTolerance, boolean requireSameId, ModularFeatureList newPeakList,
@@ -336,7 +396,7 @@ public class DuplicateFilterTask extends AbstractTask {
           }
         }
       }
-      processedRows++;
+      processedRows.incrementAndGet();
     }
     return n;
   }
@@ -421,7 +481,7 @@ public class DuplicateFilterTask extends AbstractTask {
           }
         }
       }
-      processedRows++;
+      processedRows.incrementAndGet();
     }
     return n;
   }
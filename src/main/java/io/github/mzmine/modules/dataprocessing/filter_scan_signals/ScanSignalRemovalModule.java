@@ -63,6 +63,10 @@ public class ScanSignalRemovalModule implements MZmineProcessingModule {
         .getMatchingRawDataFiles();
     final MemoryMapStorage storage = MemoryMapStorage.forMassList();
     for (RawDataFile dataFile : dataFiles) {
+      // the budget of the mass lists is released once all files were closed
+      if (storage != null) {
+        storage.addOwner(dataFile);
+      }
       Task newTask = new ScanSignalRemovalTask(dataFile, parameters, storage, moduleCallDate);
       tasks.add(newTask);
     }
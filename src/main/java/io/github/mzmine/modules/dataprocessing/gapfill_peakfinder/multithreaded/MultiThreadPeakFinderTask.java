@@ -31,6 +31,7 @@ import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.data_access.BinningMobilogramDataAccess;
+import io.github.mzmine.datamodel.data_access.DataAccessPrefetcher;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess.MobilityScanDataType;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
@@ -231,6 +232,9 @@ class MultiThreadPeakFinderTask extends AbstractTask {
 
       final ScanDataAccess scanAccess = EfficientDataAccess.of(file, ScanDataType.MASS_LIST,
           peakList.getSeletedScans(file));
+      if (file.getMemoryMapStorage() != null) {
+        scanAccess.enablePrefetching(DataAccessPrefetcher.DEFAULT_LOOK_AHEAD);
+      }
       while (scanAccess.hasNextScan()) {
         if (isCanceled()) {
           return;
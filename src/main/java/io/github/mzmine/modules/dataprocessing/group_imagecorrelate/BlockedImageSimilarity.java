@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.group_imagecorrelate;
+
+import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Computes the similarity of all pairs of images in cache blocked batches (a tiled X * X^T). Each
+ * image is stored once as a sparse vector of the pixels at or above the noise level. A block of
+ * images is scattered into small dense pixel tiles and multiplied with the sparse vectors of all
+ * following images. The sums are only accumulated over pixels that are above the noise level in
+ * both images, so the result is equal to the pairwise calculation on filtered intensity pairs in
+ * {@link ImageCorrelateGroupingTask}, as long as no median, quantile or hotspot filter is applied
+ * (those filters depend on the pair of images).
+ */
+public final class BlockedImageSimilarity {
+
+  /**
+   * number of images that are scattered into one dense tile
+   */
+  static final int IMAGE_BLOCK = 32;
+  /**
+   * number of pixels per tile
+   */
+  static final int PIXEL_TILE = 2048;
+  /**
+   * relative variance below which an image is considered constant on the shared pixels
+   */
+  private static final double CONSTANT_EPSILON = 1E-12;
+
+  private final SimilarityMeasure measure;
+  private final int minPixels;
+  private final int numImages;
+  private final int numPixels;
+  // sparse images: sorted pixel indices and their values
+  private final int[][] pixels;
+  private final double[][] values;
+
+  /**
+   * @param images     intensities per image, all sorted by the same pixel (scan) order. Null or
+   *                   empty images are never similar to other images.
+   * @param noiseLevel only pixels >= noiseLevel in both images are compared
+   * @param minPixels  minimum number of shared pixels, otherwise the similarity is 0
+   * @param measure    one of the {@link #isSupported(SimilarityMeasure) supported} measures
+   */
+  public BlockedImageSimilarity(@NotNull List<double @Nullable []> images, double noiseLevel,
+      int minPixels, @NotNull SimilarityMeasure measure) {
+    if (!isSupported(measure)) {
+      throw new IllegalArgumentException("Similarity measure not supported: " + measure);
+    }
+    this.measure = measure;
+    this.minPixels = minPixels;
+    numImages = images.size();
+    pixels = new int[numImages][];
+    values = new double[numImages][];
+
+    int maxPixels = 0;
+    final IntArrayList indices = new IntArrayList();
+    final DoubleArrayList intensities = new DoubleArrayList();
+    for (int i = 0; i < numImages; i++) {
+      indices.clear();
+      intensities.clear();
+      final double[] image = images.get(i);
+      if (image != null) {
+        maxPixels = Math.max(maxPixels, image.length);
+        for (int p = 0; p < image.length; p++) {
+          if (image[p] >= noiseLevel) {
+            indices.add(p);
+            intensities.add(image[p]);
+          }
+        }
+      }
+      pixels[i] = indices.toIntArray();
+      values[i] = intensities.toDoubleArray();
+
+      // pearson is shift invariant: shifting by one of the values keeps the sums small and
+      // constant images exactly 0
+      if (measure == SimilarityMeasure.PEARSON && values[i].length > 0) {
+        final double shift = values[i][0];
+        for (int v = 0; v < values[i].length; v++) {
+          values[i][v] -= shift;
+        }
+      }
+    }
+    numPixels = maxPixels;
+  }
+
+  /**
+   * @return true if the measure can be calculated from the blocked sums
+   */
+  public static boolean isSupported(@Nullable SimilarityMeasure measure) {
+    return measure == SimilarityMeasure.PEARSON || measure == SimilarityMeasure.COSINE_SIM;
+  }
+
+  public int getNumImages() {
+    return numImages;
+  }
+
+  /**
+   * Calculates the similarity of all unique pairs of images in parallel.
+   *
+   * @param minSimilarity only pairs with a similarity >= minSimilarity are passed to the consumer
+   * @param consumer      receives the pairs (i < j), called concurrently
+   * @param isCanceled    stops the calculation of further blocks
+   * @param progress      receives the number of compared pairs after each block
+   * @return the number of compared pairs
+   */
+  public long forEachSimilarPair(double minSimilarity, @NotNull SimilarPairConsumer consumer,
+      @NotNull BooleanSupplier isCanceled, @NotNull LongConsumer progress) {
+    final int numBlocks = (numImages + IMAGE_BLOCK - 1) / IMAGE_BLOCK;
+    return IntStream.range(0, numBlocks).parallel().mapToLong(block -> {
+      if (isCanceled.getAsBoolean()) {
+        return 0;
+      }
+      final long pairs = processBlock(block * IMAGE_BLOCK,
+          Math.min(numImages, (block + 1) * IMAGE_BLOCK), minSimilarity, consumer);
+      progress.accept(pairs);
+      return pairs;
+    }).sum();
+  }
+
+  /**
+   * Accumulates the sums of images [first, last) with all images >= first.
+   */
+  private long processBlock(final int first, final int last, final double minSimilarity,
+      final SimilarPairConsumer consumer) {
+    final int bi = last - first;
+    final int nj = numImages - first;
+    final boolean pearson = measure == SimilarityMeasure.PEARSON;
+
+    // dense tiles of the block images [pixel][image]
+    final double[] tileA = new double[PIXEL_TILE * bi];
+    final double[] tileA2 = new double[PIXEL_TILE * bi];
+    final double[] tileMask = new double[PIXEL_TILE * bi];
+    // sums over shared pixels [other image][block image]
+    final double[] shared = new double[nj * bi];
+    final double[] sumAB = new double[nj * bi];
+    final double[] sumA2 = new double[nj * bi];
+    final double[] sumB2 = new double[nj * bi];
+    final double[] sumA = pearson ? new double[nj * bi] : null;
+    final double[] sumB = pearson ? new double[nj * bi] : null;
+
+    // position in the sparse vectors of the block and the other images
+    final int[] blockCursor = new int[bi];
+    final int[] cursor = new int[nj];
+
+    for (int tileStart = 0; tileStart < numPixels; tileStart += PIXEL_TILE) {
+      final int tileEnd = tileStart + PIXEL_TILE;
+      if (!scatterTile(first, bi, tileStart, tileEnd, blockCursor, tileA, tileA2, tileMask)) {
+        // no block image has pixels in this tile - only advance the other images
+        for (int jj = 0; jj < nj; jj++) {
+          cursor[jj] = advance(pixels[first + jj], cursor[jj], tileEnd);
+        }
+        continue;
+      }
+
+      for (int jj = 0; jj < nj; jj++) {
+        final int[] pixelsB = pixels[first + jj];
+        final double[] valuesB = values[first + jj];
+        final int acc = jj * bi;
+        int k = cursor[jj];
+        for (; k < pixelsB.length && pixelsB[k] < tileEnd; k++) {
+          final int tile = (pixelsB[k] - tileStart) * bi;
+          final double b = valuesB[k];
+          final double b2 = b * b;
+          for (int li = 0; li < bi; li++) {
+            final double mask = tileMask[tile + li];
+            final double a = tileA[tile + li];
+            shared[acc + li] += mask;
+            sumAB[acc + li] += a * b;
+            sumA2[acc + li] += tileA2[tile + li];
+            sumB2[acc + li] += mask * b2;
+          }
+          if (pearson) {
+            for (int li = 0; li < bi; li++) {
+              sumA[acc + li] += tileA[tile + li];
+              sumB[acc + li] += tileMask[tile + li] * b;
+            }
+          }
+        }
+        cursor[jj] = k;
+      }
+    }
+
+    long pairs = 0;
+    for (int li = 0; li < bi; li++) {
+      final int i = first + li;
+      for (int j = i + 1; j < numImages; j++) {
+        final int acc = (j - first) * bi + li;
+        final double n = shared[acc];
+        final double similarity;
+        if (n < minPixels) {
+          similarity = 0;
+        } else if (pearson) {
+          similarity = pearson(n, sumA[acc], sumB[acc], sumA2[acc], sumB2[acc], sumAB[acc]);
+        } else {
+          similarity = sumAB[acc] / (Math.sqrt(sumA2[acc]) * Math.sqrt(sumB2[acc]));
+        }
+        if (similarity >= minSimilarity) {
+          consumer.accept(i, j, similarity);
+        }
+        pairs++;
+      }
+    }
+    return pairs;
+  }
+
+  /**
+   * Scatter the pixels of the block images in [tileStart, tileEnd) into the dense tiles
+   *
+   * @return true if any image had pixels in this tile
+   */
+  private boolean scatterTile(int first, int bi, int tileStart, int tileEnd, int[] blockCursor,
+      double[] tileA, double[] tileA2, double[] tileMask) {
+    Arrays.fill(tileA, 0);
+    Arrays.fill(tileA2, 0);
+    Arrays.fill(tileMask, 0);
+    boolean any = false;
+    for (int li = 0; li < bi; li++) {
+      final int[] pixelsA = pixels[first + li];
+      final double[] valuesA = values[first + li];
+      int k = blockCursor[li];
+      for (; k < pixelsA.length && pixelsA[k] < tileEnd; k++) {
+        final int index = (pixelsA[k] - tileStart) * bi + li;
+        tileA[index] = valuesA[k];
+        tileA2[index] = valuesA[k] * valuesA[k];
+        tileMask[index] = 1;
+        any = true;
+      }
+      blockCursor[li] = k;
+    }
+    return any;
+  }
+
+  private static int advance(int[] pixels, int k, int end) {
+    while (k < pixels.length && pixels[k] < end) {
+      k++;
+    }
+    return k;
+  }
+
+  /**
+   * Pearson correlation from the sums over n shared pixels. NaN for less than two pixels or
+   * constant intensities, like the pairwise calculation.
+   */
+  private static double pearson(double n, double sumA, double sumB, double sumA2, double sumB2,
+      double sumAB) {
+    if (n < 2) {
+      return Double.NaN;
+    }
+    final double varA = sumA2 - sumA * sumA / n;
+    final double varB = sumB2 - sumB * sumB / n;
+    if (varA <= CONSTANT_EPSILON * sumA2 || varB <= CONSTANT_EPSILON * sumB2) {
+      return Double.NaN;
+    }
+    final double cov = sumAB - sumA * sumB / n;
+    return cov / Math.sqrt(varA * varB);
+  }
+
+  @FunctionalInterface
+  public interface SimilarPairConsumer {
+
+    void accept(int i, int j, double similarity);
+  }
+}
@@ -77,6 +77,12 @@ public class ImageCorrelateGroupingParameters extends SimpleParameterSet {
   public static final PercentParameter MIN_R = new PercentParameter("Minimum similarity",
       "Minimum percentage for image correlation in one raw file.", 0.85, 0d, 1d);
 
+  public static final OptionalParameter<IntegerParameter> TOP_K = new OptionalParameter<>(
+      new IntegerParameter("Keep top k correlations per image",
+          "Only keep the k highest correlations of each image. A correlation is kept if it is in "
+          + "the top k of either image. Reduces the network size of large imaging data sets.", 20,
+          1, null), false);
+
 
   public static final OptionalParameter<StringParameter> SUFFIX = new OptionalParameter<>(
       new StringParameter("Suffix (or auto)", "Select suffix or deselect for auto suffix"), false);
@@ -84,7 +90,7 @@ public class ImageCorrelateGroupingParameters extends SimpleParameterSet {
   // Constructor
   public ImageCorrelateGroupingParameters() {
     super(new Parameter[]{FEATURE_LISTS, NOISE_LEVEL, MIN_NUMBER_OF_PIXELS, MEDIAN_FILTER_WINDOW,
-            QUANTILE_THRESHOLD, HOTSPOT_REMOVAL, MEASURE, MIN_R, SUFFIX},
+            QUANTILE_THRESHOLD, HOTSPOT_REMOVAL, MEASURE, MIN_R, TOP_K, SUFFIX},
         "https://mzmine.github.io/mzmine_documentation/module_docs/group_imagecorrelate/image-colocalization.html");
   }
 
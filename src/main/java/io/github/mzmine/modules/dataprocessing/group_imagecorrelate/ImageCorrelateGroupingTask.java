@@ -44,7 +44,7 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.maths.Combinatorics;
 import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
-import it.unimi.dsi.fastutil.Pair;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -82,6 +82,7 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
 
   private final SimilarityMeasure similarityMeasure;
   private final double minR;
+  private final int topK;
 
   public ImageCorrelateGroupingTask(final ParameterSet parameterSet,
       final ModularFeatureList featureList, @NotNull Instant moduleCallDate) {
@@ -115,6 +116,8 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
     }
     similarityMeasure = parameters.getValue(ImageCorrelateGroupingParameters.MEASURE);
     minR = parameters.getValue(ImageCorrelateGroupingParameters.MIN_R);
+    topK = parameters.getEmbeddedParameterValueIfSelectedOrElse(
+        ImageCorrelateGroupingParameters.TOP_K, 0);
   }
 
   @Override
@@ -177,30 +180,99 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
     logger.log(Level.INFO,
         () -> MessageFormat.format("Checking image similarity on {0} rows", numRows));
 
-    // try map multi for all pairs
-    long comparedPairs = IntStream.range(0, numRows - 1).boxed()
-        .<Pair<FeatureListRow, FeatureListRow>>mapMulti((i, consumer) -> {
-          if (isCanceled()) {
-            return;
-          }
-          FeatureListRow a = filteredRows.get(i);
-          for (int j = i + 1; j < numRows; j++) {
-            FeatureListRow b = filteredRows.get(j);
-            consumer.accept(Pair.of(a, b));
-          }
-        }).parallel().mapToLong(pair -> {
-          // need to map to ensure thread is waiting for completion
-          checkR2RAllFeaturesImageSimilarity(mapFeatureData, pair.left(), pair.right(),
+    final long comparedPairs;
+    if (canUseBlockedSimilarity()) {
+      comparedPairs = checkAllFeaturesBlocked(mapFeatureData, filteredRows, mapSimilarity);
+    } else {
+      comparedPairs = IntStream.range(0, numRows - 1).parallel().mapToLong(i -> {
+        if (isCanceled()) {
+          return 0;
+        }
+        FeatureListRow a = filteredRows.get(i);
+        for (int j = i + 1; j < numRows; j++) {
+          checkR2RAllFeaturesImageSimilarity(mapFeatureData, a, filteredRows.get(j),
               mapSimilarity);
-          // count comparisons
-          processedPairs.incrementAndGet();
-          return 1;
-        }).sum();
+        }
+        // count comparisons
+        final int pairs = numRows - 1 - i;
+        processedPairs.addAndGet(pairs);
+        return pairs;
+      }).sum();
+    }
+
+    if (topK > 0) {
+      retainTopKPerRow(mapSimilarity, topK);
+    }
 
     logger.info(
         "Image correlation: Performed %d pairwise comparisons of rows.".formatted(comparedPairs));
   }
 
+  /**
+   * The blocked calculation is equal to the pairwise calculation if there are no filters that
+   * depend on the pair of images. Only single raw files are supported as the similarities of
+   * multiple raw files are averaged per row pair.
+   */
+  private boolean canUseBlockedSimilarity() {
+    return !useMedianFilter && !useQuantileThreshold && !useHotspotRemoval
+        && BlockedImageSimilarity.isSupported(similarityMeasure)
+        && featureList.getNumberOfRawDataFiles() == 1;
+  }
+
+  /**
+   * Compute all similarities in cache blocked batches of images.
+   *
+   * @return the number of compared pairs
+   */
+  private long checkAllFeaturesBlocked(Map<Feature, FilteredRowData> mapFeatureData,
+      List<FeatureListRow> filteredRows, R2RMap<RowsRelationship> mapSimilarity) {
+    final RawDataFile dataFile = featureList.getRawDataFile(0);
+    final List<double[]> images = new ArrayList<>(filteredRows.size());
+    for (FeatureListRow row : filteredRows) {
+      final Feature feature = row.getFeature(dataFile);
+      final FilteredRowData data = feature == null ? null : mapFeatureData.get(feature);
+      images.add(data == null ? null : data.intensities());
+    }
+
+    final BlockedImageSimilarity similarity = new BlockedImageSimilarity(images, noiseLevel,
+        minimumNumberOfCorrelatedPixels, similarityMeasure);
+    logger.fine("Image correlation: Using blocked similarity calculation");
+
+    return similarity.forEachSimilarPair(minR, (i, j, sim) -> {
+      final FeatureListRow a = filteredRows.get(i);
+      final FeatureListRow b = filteredRows.get(j);
+      R2RSimpleSimilarityList imageSimilarities = new R2RSimpleSimilarityList(a, b,
+          Type.MS1_FEATURE_CORR);
+      imageSimilarities.addSimilarity(sim);
+      mapSimilarity.add(a, b, imageSimilarities);
+    }, this::isCanceled, processedPairs::addAndGet);
+  }
+
+  /**
+   * Only keeps the relationships that are within the top k scores of either row
+   */
+  private void retainTopKPerRow(R2RMap<RowsRelationship> mapSimilarity, int k) {
+    final Map<FeatureListRow, DoubleArrayList> scores = new HashMap<>();
+    for (RowsRelationship rel : mapSimilarity.values()) {
+      scores.computeIfAbsent(rel.getRowA(), r -> new DoubleArrayList()).add(rel.getScore());
+      scores.computeIfAbsent(rel.getRowB(), r -> new DoubleArrayList()).add(rel.getScore());
+    }
+    // score of the kth relationship per row
+    final Map<FeatureListRow, Double> minScores = new HashMap<>();
+    scores.forEach((row, values) -> {
+      final double[] sorted = values.toDoubleArray();
+      Arrays.sort(sorted);
+      minScores.put(row, sorted.length <= k ? Double.NEGATIVE_INFINITY : sorted[sorted.length - k]);
+    });
+
+    final int before = mapSimilarity.size();
+    mapSimilarity.values().removeIf(rel -> rel.getScore() < minScores.get(rel.getRowA())
+        && rel.getScore() < minScores.get(rel.getRowB()));
+    logger.fine(
+        "Image correlation: Kept %d of %d relationships (top %d per row)".formatted(
+            mapSimilarity.size(), before, k));
+  }
+
   private boolean prepareRows(
       @NotNull Map<Feature, ImageCorrelateGroupingTask.FilteredRowData> mapFeatureData,
       @NotNull FeatureListRow row, FeatureDataAccess featureDataAccess)
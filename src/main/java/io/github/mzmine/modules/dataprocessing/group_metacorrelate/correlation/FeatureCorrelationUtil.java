@@ -36,6 +36,7 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.correlation.CorrelationData;
 import io.github.mzmine.datamodel.features.correlation.FullCorrelationData;
 import io.github.mzmine.datamodel.features.correlation.R2RFullCorrelationData;
+import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureShapeCache.FeatureShape;
 import io.github.mzmine.parameters.parametertypes.MinimumFeatureFilter;
 import io.github.mzmine.util.ArrayUtils;
 import io.github.mzmine.util.MathUtils;
@@ -130,6 +131,28 @@ public class FeatureCorrelationUtil {
       int minCorrDPOnFeatureEdge, int minDPFHeightCorr, double minHeight,
       double noiseLevelShapeCorr, boolean useHeightCorrFilter, SimilarityMeasure heightSimilarity,
       double minHeightCorr) {
+    return corrR2R(data, null, raws, testRow, row, doFShapeCorr, minCorrelatedDataPoints,
+        minCorrDPOnFeatureEdge, minDPFHeightCorr, minHeight, noiseLevelShapeCorr,
+        useHeightCorrFilter, heightSimilarity, minHeightCorr);
+  }
+
+  /**
+   * Feature height correlation (used as a filter), feature shape correlation used to group
+   *
+   * @param data   option to preload data or keep data in memory for large scale row 2 row
+   *               correlation (null will access data directly from features)
+   * @param shapes preloaded feature shapes of all rows, used for the feature shape correlation
+   *               instead of data if not null. Needs to be created with the same raws and
+   *               noiseLevelShapeCorr
+   * @return R2R correlation, returns null if it was filtered by height correlation. Check for
+   * validity on result
+   */
+  public static R2RFullCorrelationData corrR2R(CachedFeatureDataAccess data,
+      @Nullable FeatureShapeCache shapes, List<RawDataFile> raws, FeatureListRow testRow,
+      FeatureListRow row, boolean doFShapeCorr, int minCorrelatedDataPoints,
+      int minCorrDPOnFeatureEdge, int minDPFHeightCorr, double minHeight,
+      double noiseLevelShapeCorr, boolean useHeightCorrFilter, SimilarityMeasure heightSimilarity,
+      double minHeightCorr) {
     // check height correlation across all samples
     // only used as exclusion filter - not to group
     CorrelationData heightCorr = null;
@@ -152,7 +175,10 @@ public class FeatureCorrelationUtil {
 
     // feature shape correlation
     Map<RawDataFile, CorrelationData> featureCorrMap = null;
-    if (doFShapeCorr) {
+    if (doFShapeCorr && shapes != null) {
+      featureCorrMap = FeatureCorrelationUtil.corrR2RFeatureShapes(shapes, testRow, row,
+          minCorrelatedDataPoints, minCorrDPOnFeatureEdge);
+    } else if (doFShapeCorr) {
       featureCorrMap = FeatureCorrelationUtil.corrR2RFeatureShapes(data, raws, testRow, row,
           minCorrelatedDataPoints, minCorrDPOnFeatureEdge, noiseLevelShapeCorr);
     }
@@ -199,6 +225,43 @@ public class FeatureCorrelationUtil {
     return corrData;
   }
 
+  /**
+   * Correlation of feature to feature shapes in all RawDataFiles of two rows on preloaded shapes
+   *
+   * @param shapes preloaded shapes of both rows
+   * @return Map of feature shape correlation data (can be empty NON null) or null if one raw file
+   * showed a negative correlation
+   */
+  public static Map<RawDataFile, CorrelationData> corrR2RFeatureShapes(FeatureShapeCache shapes,
+      FeatureListRow row, FeatureListRow g, int minCorrelatedDataPoints,
+      int minCorrDPOnFeatureEdge) {
+    HashMap<RawDataFile, CorrelationData> corrData = new HashMap<>();
+    final FeatureShape[] shapes1 = shapes.getShapes(row);
+    final FeatureShape[] shapes2 = shapes.getShapes(g);
+    if (shapes1 == null || shapes2 == null) {
+      return corrData;
+    }
+    final List<RawDataFile> raws = shapes.getRawDataFiles();
+    // go through all raw files
+    for (int i = 0; i < shapes1.length; i++) {
+      if (shapes1[i] != null && shapes2[i] != null) {
+        // feature shape correlation
+        CorrelationData correlationData = shapes.corrFeatureShape(shapes1[i], shapes2[i],
+            minCorrelatedDataPoints, minCorrDPOnFeatureEdge);
+
+        // if correlation is really bad return null
+        if (isNegativeRegression(correlationData, 5, 0.2, 7, 0.5, SimilarityMeasure.PEARSON)) {
+          return null;
+        }
+        // enough data points
+        if (correlationData != null && correlationData.getDPCount() >= minCorrelatedDataPoints) {
+          corrData.put(raws.get(i), correlationData);
+        }
+      }
+    }
+    return corrData;
+  }
+
   /**
    * feature shape correlation
    *
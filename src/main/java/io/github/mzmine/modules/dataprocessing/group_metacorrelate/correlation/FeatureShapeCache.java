@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.correlation.CorrelationData;
+import io.github.mzmine.datamodel.features.correlation.FullCorrelationData;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Preloads the feature shapes of all rows as primitive arrays for large scale row to row feature
+ * shape correlation. Each shape is resolved once onto the scan grid of its raw data file (the index
+ * of each scan in {@link RawDataFile#getScans()}), together with its apex and the edges of the
+ * continuous region above the noise level around the apex. Correlating two shapes then only
+ * compares int scan indices and double intensities instead of resolving scans and feature data
+ * for every pair.
+ * <p>
+ * The cache is built in parallel (one raw data file per thread) and is read only afterwards. Use
+ * {@link FeatureCorrelationUtil#corrR2RFeatureShapes(FeatureShapeCache, FeatureListRow,
+ * FeatureListRow, int, int)} to correlate two cached rows.
+ */
+public class FeatureShapeCache {
+
+  private final List<RawDataFile> raws;
+  private final double noiseLevel;
+  // shapes of each row in the order of raws, missing features are null
+  private final Map<FeatureListRow, FeatureShape[]> shapes;
+
+  /**
+   * @param rows       all rows that will be correlated
+   * @param raws       the raw data files, defines the order of shapes per row
+   * @param noiseLevel minimum intensity of data points used in the shape correlation
+   */
+  public FeatureShapeCache(@NotNull FeatureListRow[] rows, @NotNull List<RawDataFile> raws,
+      double noiseLevel) {
+    this.raws = List.copyOf(raws);
+    this.noiseLevel = noiseLevel;
+    shapes = new IdentityHashMap<>(rows.length);
+    final FeatureShape[][] rowShapes = new FeatureShape[rows.length][this.raws.size()];
+    for (int i = 0; i < rows.length; i++) {
+      shapes.put(rows[i], rowShapes[i]);
+    }
+
+    // each raw file fills its own column
+    IntStream.range(0, this.raws.size()).parallel().forEach(r -> {
+      final RawDataFile raw = this.raws.get(r);
+      final List<Scan> scans = raw.getScans();
+      final Reference2IntOpenHashMap<Scan> scanIndex = new Reference2IntOpenHashMap<>(
+          scans.size());
+      scanIndex.defaultReturnValue(-1);
+      for (int s = 0; s < scans.size(); s++) {
+        scanIndex.put(scans.get(s), s);
+      }
+
+      for (int i = 0; i < rows.length; i++) {
+        final Feature feature = rows[i].getFeature(raw);
+        if (feature != null) {
+          rowShapes[i][r] = createShape(feature, scanIndex, noiseLevel);
+        }
+      }
+    });
+  }
+
+  private static FeatureShape createShape(Feature feature, Reference2IntOpenHashMap<Scan> scanIndex,
+      double noiseLevel) {
+    final List<Scan> scans = feature.getScanNumbers();
+    final double[] intensities = feature.getFeatureData()
+        .getIntensityValues(new double[feature.getNumberOfDataPoints()]);
+
+    int[] indices = new int[scans.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = scanIndex.getInt(scans.get(i));
+      if (indices[i] < 0) {
+        // scan is not part of the raw file scan list, correlate directly on the feature
+        indices = null;
+        break;
+      }
+    }
+
+    final int apex = FeatureCorrelationUtil.indexOfMax(intensities);
+    if (intensities.length == 0) {
+      return new FeatureShape(feature, feature.getHeight(), indices, intensities, apex, apex + 1,
+          apex);
+    }
+    // continuous region above noise level around the apex (empty if apex is below noise)
+    int left = apex;
+    while (left >= 0 && intensities[left] >= noiseLevel) {
+      left--;
+    }
+    int right = apex;
+    while (right < intensities.length && intensities[right] >= noiseLevel) {
+      right++;
+    }
+    if (right == apex) {
+      // apex below noise level
+      return new FeatureShape(feature, feature.getHeight(), indices, intensities, apex, apex + 1,
+          apex);
+    }
+    return new FeatureShape(feature, feature.getHeight(), indices, intensities, apex, left + 1,
+        right - 1);
+  }
+
+  /**
+   * @return the shapes of all features of this row in the order of {@link #getRawDataFiles()} or
+   * null if this row was not cached
+   */
+  @Nullable
+  public FeatureShape[] getShapes(FeatureListRow row) {
+    return shapes.get(row);
+  }
+
+  public List<RawDataFile> getRawDataFiles() {
+    return raws;
+  }
+
+  public double getNoiseLevel() {
+    return noiseLevel;
+  }
+
+  /**
+   * Feature shape correlation of two features in the same raw data file. Results are the same as
+   * {@link FeatureCorrelationUtil#corrFeatureShape(io.github.mzmine.datamodel.data_access.CachedFeatureDataAccess,
+   * Feature, Feature, boolean, int, int, double)} with the noise level of this cache.
+   *
+   * @return feature shape correlation or null if there are not enough data points for a
+   * correlation
+   */
+  @Nullable
+  public CorrelationData corrFeatureShape(@NotNull FeatureShape a, @NotNull FeatureShape b,
+      int minCorrelatedDataPoints, int minCorrDPOnFeatureEdge) {
+    if (a.scanIndices() == null || b.scanIndices() == null) {
+      return FeatureCorrelationUtil.corrFeatureShape(null, a.feature(), b.feature(), true,
+          minCorrelatedDataPoints, minCorrDPOnFeatureEdge, noiseLevel);
+    }
+    // a should be the higher feature
+    if (a.height() < b.height()) {
+      FeatureShape tmp = a;
+      a = b;
+      b = tmp;
+    }
+    if (a.size() < minCorrelatedDataPoints || b.size() < minCorrelatedDataPoints) {
+      return null;
+    }
+    // the walk from the apex of a is limited by the region above noise in a
+    if (a.apex() - a.leftEdge() < minCorrDPOnFeatureEdge
+        || a.rightEdge() - a.apex() < minCorrDPOnFeatureEdge) {
+      return null;
+    }
+
+    final int[] scansA = a.scanIndices();
+    final int[] scansB = b.scanIndices();
+    final double[] intensities1 = a.intensities();
+    final double[] intensities2 = b.intensities();
+    final int maxIndexOfA = a.apex();
+    // scan indices are sorted
+    final int maxIndexInB = Arrays.binarySearch(scansB, scansA[maxIndexOfA]);
+    if (maxIndexInB < 0) {
+      return null;
+    }
+
+    // count data points <=max
+    int nLeft = 0;
+    for (int i1 = maxIndexOfA, i2 = maxIndexInB; i1 >= 0 && i2 >= 0; i1--, i2--, nLeft++) {
+      if (scansA[i1] != scansB[i2] || intensities1[i1] < noiseLevel
+          || intensities2[i2] < noiseLevel) {
+        break;
+      }
+    }
+    // check min data points left from apex
+    if (nLeft - 1 < minCorrDPOnFeatureEdge) {
+      return null;
+    }
+
+    // count dp>max
+    int nRight = 0;
+    for (int i1 = maxIndexOfA + 1, i2 = maxIndexInB + 1;
+        i1 < scansA.length && i2 < scansB.length; i1++, i2++, nRight++) {
+      if (scansA[i1] != scansB[i2] || intensities1[i1] < noiseLevel
+          || intensities2[i2] < noiseLevel) {
+        break;
+      }
+    }
+    if (nLeft + nRight < minCorrelatedDataPoints || nRight < minCorrDPOnFeatureEdge) {
+      return null;
+    }
+
+    // same order as the scan wise correlation: apex to left edge, then right of apex
+    final double[][] data = new double[nLeft + nRight][];
+    for (int i = 0; i < nLeft; i++) {
+      data[i] = new double[]{intensities1[maxIndexOfA - i], intensities2[maxIndexInB - i]};
+    }
+    for (int i = 0; i < nRight; i++) {
+      data[nLeft + i] = new double[]{intensities1[maxIndexOfA + 1 + i],
+          intensities2[maxIndexInB + 1 + i]};
+    }
+    return new FullCorrelationData(data);
+  }
+
+  /**
+   * A feature shape on the scan grid of its raw data file
+   *
+   * @param feature     the original feature
+   * @param height      feature height
+   * @param scanIndices index of each data point's scan in the raw data file, null if a scan was
+   *                    not found in the raw data file
+   * @param intensities intensity of each data point
+   * @param apex        index of the maximum intensity
+   * @param leftEdge    first index of the region >= noise level around the apex
+   * @param rightEdge   last index of the region >= noise level around the apex
+   */
+  public record FeatureShape(@NotNull Feature feature, double height, int @Nullable [] scanIndices,
+                             double @NotNull [] intensities, int apex, int leftEdge,
+                             int rightEdge) {
+
+    public int size() {
+      return intensities.length;
+    }
+  }
+}
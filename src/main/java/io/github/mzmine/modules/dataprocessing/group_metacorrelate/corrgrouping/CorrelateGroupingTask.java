@@ -42,6 +42,7 @@ import io.github.mzmine.datamodel.features.correlation.R2RSimpleCorrelationData;
 import io.github.mzmine.datamodel.features.correlation.RowGroup;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureCorrelationUtil;
+import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureShapeCache;
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureShapeCorrelationParameters;
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.InterSampleHeightCorrParameters;
 import io.github.mzmine.parameters.ParameterSet;
@@ -289,12 +290,16 @@ public class CorrelateGroupingTask extends AbstractTask {
 
     totalRows = rows.length;
 
-    // preload all intensity values only if feature shape correlation active or if overlap is computed
+    // preload all intensity values only if overlap is computed
     // overlap is not computed for large datasets
     boolean calculateShapeOverlap = raws.size() < simplifyLargeDatasets;
-    boolean preloadIntensities =
-        useTotalShapeCorrFilter || groupByFShapeCorr || calculateShapeOverlap;
-    CachedFeatureDataAccess data = new CachedFeatureDataAccess(rows, false, preloadIntensities);
+    // feature shapes are resolved once onto the scan grid of each raw file as primitive arrays
+    final FeatureShapeCache shapes =
+        groupByFShapeCorr ? new FeatureShapeCache(rows, raws, noiseLevelCorr) : null;
+    CachedFeatureDataAccess data = new CachedFeatureDataAccess(rows, false, calculateShapeOverlap);
+
+    // rows are sorted by RT: all partners of row i are in the RT window i+1 until windowEnd[i]
+    final int[] windowEnd = createRTWindows(rows);
 
     // for all rows - do in parallel
     long correlated = IntStream.range(0, totalRows - 1).parallel().mapToLong(i -> {
@@ -302,27 +307,22 @@ public class CorrelateGroupingTask extends AbstractTask {
       if (!isCanceled()) {
         try {
           FeatureListRow row = rows[i];
-          // compare to the rest of rows
-          for (int x = i + 1; x < totalRows; x++) {
+          // compare to the rest of rows in RT range
+          for (int x = i + 1; x < windowEnd[i]; x++) {
             if (isCanceled()) {
               break;
             }
 
             FeatureListRow row2 = rows[x];
 
-            // average retention time should be in range
-            if (!rtTolerance.checkWithinTolerance(row.getAverageRT(), row2.getAverageRT())) {
-              // end second loop
-              break;
-            }
-
             // has a minimum number/% of overlapping features in all samples / in at least one
             // groups
             OverlapResult overlap = minFFilter.filterMinFeaturesOverlap(data, raws, row, row2,
                 rtTolerance, calculateShapeOverlap);
             if (overlap.equals(OverlapResult.TRUE)) {
               // correlate if in rt range
-              R2RFullCorrelationData corr = FeatureCorrelationUtil.corrR2R(data, raws, row, row2,
+              R2RFullCorrelationData corr = FeatureCorrelationUtil.corrR2R(data, shapes, raws,
+                  row, row2,
                   groupByFShapeCorr, minCorrelatedDataPoints, minCorrDPOnFeatureEdge,
                   minDPHeightCorr, minHeight, noiseLevelCorr, useHeightCorrFilter, heightSimMeasure,
                   minHeightCorr);
@@ -359,4 +359,33 @@ public class CorrelateGroupingTask extends AbstractTask {
     logger.info(MessageFormat.format("Added {0} correlation edges", map.size()));
   }
 
+  /**
+   * Binary search for the end of the RT window of each row. Rows need to be sorted by average RT.
+   *
+   * @return exclusive end index of the RT window for each row
+   */
+  private int[] createRTWindows(FeatureListRow[] rows) {
+    final float[] rts = new float[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      rts[i] = rows[i].getAverageRT();
+    }
+
+    final int[] windowEnd = new int[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      // first row that is not within tolerance
+      int low = i + 1;
+      int high = rows.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (rtTolerance.checkWithinTolerance(rts[i], rts[mid])) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      windowEnd[i] = low;
+    }
+    return windowEnd;
+  }
+
 }
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_formulapredictionfeaturelist;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.util.MemoryMapStorage;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+/**
+ * Mass sorted table of all formulas within the element constraints that match any of the searched
+ * mass ranges. Overlapping mass ranges are merged into windows and the formulas of each window are
+ * enumerated once by the CDK {@link MolecularFormulaGenerator}, instead of once per feature list
+ * row. The formulas are stored as element counts in a {@link MemoryMapStorage}.
+ * <p>
+ * {@link #getFormulas(Range)} returns formulas in the order of the generator, so the results are
+ * the same as running the generator for the mass range. The generator enumerates the formulas of a
+ * narrower range in the same relative order as those of the window. Formula masses are summed in a
+ * different order than in the generator, so if a formula is within rounding noise of a range bound,
+ * the generator is run for this range to decide about the bound exactly.
+ */
+class FormulaMassIndex {
+
+  private static final IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+  /**
+   * masses closer than this to a range bound may be in or out of the range of the generator
+   */
+  private static final double BOUND_TOLERANCE = 1E-9;
+
+  private final MolecularFormulaRange elementCounts;
+  // isotopes sorted by ascending mass, formulas are created with this isotope order
+  private final IIsotope[] isotopes;
+  // merged mass windows, sorted and not overlapping
+  private final double[] windowLower;
+  private final double[] windowUpper;
+  private final Set<MolecularFormulaGenerator> activeGenerators = ConcurrentHashMap.newKeySet();
+  private volatile boolean canceled = false;
+
+  // formula i of window w is at windowOffsets[w] + i
+  private int[] windowOffsets;
+  private DoubleBuffer masses;
+  private IntBuffer generatorOrder;
+  private IntBuffer counts;
+
+  /**
+   * @param elementCounts the element constraints
+   * @param searchRanges  all searched neutral mass ranges
+   */
+  FormulaMassIndex(@NotNull MolecularFormulaRange elementCounts,
+      @NotNull List<Range<Double>> searchRanges) {
+    this.elementCounts = elementCounts;
+
+    final List<IIsotope> isotopeList = new ArrayList<>();
+    elementCounts.isotopes().forEach(isotopeList::add);
+    isotopes = isotopeList.toArray(IIsotope[]::new);
+    Arrays.sort(isotopes, Comparator.comparingDouble(IIsotope::getExactMass));
+
+    final List<Range<Double>> sorted = new ArrayList<>(searchRanges);
+    sorted.sort(Comparator.comparingDouble(Range::lowerEndpoint));
+    final DoubleArrayList lower = new DoubleArrayList();
+    final DoubleArrayList upper = new DoubleArrayList();
+    for (Range<Double> range : sorted) {
+      final int last = upper.size() - 1;
+      if (last >= 0 && range.lowerEndpoint() <= upper.getDouble(last)) {
+        upper.set(last, Math.max(upper.getDouble(last), range.upperEndpoint()));
+      } else {
+        lower.add(range.lowerEndpoint().doubleValue());
+        upper.add(range.upperEndpoint().doubleValue());
+      }
+    }
+    windowLower = lower.toDoubleArray();
+    windowUpper = upper.toDoubleArray();
+  }
+
+  /**
+   * Enumerates the formulas of all windows in parallel and stores them.
+   *
+   * @param storage the storage for the formula table or null to keep it in memory
+   * @return false if canceled
+   */
+  boolean build(@Nullable MemoryMapStorage storage) {
+    final List<WindowFormulas> windows = IntStream.range(0, windowLower.length).parallel()
+        .mapToObj(this::enumerateWindow).toList();
+    if (canceled) {
+      return false;
+    }
+
+    windowOffsets = new int[windows.size() + 1];
+    for (int w = 0; w < windows.size(); w++) {
+      windowOffsets[w + 1] = windowOffsets[w] + windows.get(w).masses().length;
+    }
+    final int numFormulas = windowOffsets[windows.size()];
+    final double[] allMasses = new double[numFormulas];
+    final int[] allOrder = new int[numFormulas];
+    final int[] allCounts = new int[numFormulas * isotopes.length];
+    for (int w = 0; w < windows.size(); w++) {
+      final WindowFormulas window = windows.get(w);
+      final int offset = windowOffsets[w];
+      System.arraycopy(window.masses(), 0, allMasses, offset, window.masses().length);
+      System.arraycopy(window.generatorOrder(), 0, allOrder, offset, window.masses().length);
+      System.arraycopy(window.counts(), 0, allCounts, offset * isotopes.length,
+          window.counts().length);
+    }
+
+    masses = StorageUtils.storeValuesToDoubleBuffer(storage, allMasses);
+    generatorOrder = StorageUtils.storeValuesToIntBuffer(storage, allOrder);
+    counts = StorageUtils.storeValuesToIntBuffer(storage, allCounts);
+    return true;
+  }
+
+  /**
+   * Runs the formula generator for one window and sorts its formulas by mass.
+   */
+  private WindowFormulas enumerateWindow(int w) {
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder,
+        windowLower[w], windowUpper[w], elementCounts);
+    activeGenerators.add(generator);
+
+    final DoubleArrayList windowMasses = new DoubleArrayList();
+    final IntArrayList windowCounts = new IntArrayList();
+    try {
+      IMolecularFormula formula;
+      while (!canceled && (formula = generator.getNextFormula()) != null) {
+        double mass = 0;
+        for (IIsotope isotope : isotopes) {
+          final int count = formula.getIsotopeCount(isotope);
+          windowCounts.add(count);
+          mass += isotope.getExactMass() * count;
+        }
+        windowMasses.add(mass);
+      }
+    } finally {
+      activeGenerators.remove(generator);
+    }
+
+    // sort by mass, stable to keep the generator order of equal masses
+    final int numFormulas = windowMasses.size();
+    final double[] unsortedMasses = windowMasses.elements();
+    final int[] order = IntStream.range(0, numFormulas).toArray();
+    IntArrays.mergeSort(order, (a, b) -> Double.compare(unsortedMasses[a], unsortedMasses[b]));
+
+    final double[] sortedMasses = new double[numFormulas];
+    final int[] sortedCounts = new int[numFormulas * isotopes.length];
+    final int[] unsortedCounts = windowCounts.elements();
+    for (int i = 0; i < numFormulas; i++) {
+      sortedMasses[i] = unsortedMasses[order[i]];
+      System.arraycopy(unsortedCounts, order[i] * isotopes.length, sortedCounts,
+          i * isotopes.length, isotopes.length);
+    }
+    return new WindowFormulas(sortedMasses, order, sortedCounts);
+  }
+
+  /**
+   * @param massRange a searched mass range that was passed to the constructor
+   * @return all formulas within the mass range in the order of the formula generator
+   */
+  @NotNull
+  List<IMolecularFormula> getFormulas(@NotNull Range<Double> massRange) {
+    final double lower = massRange.lowerEndpoint();
+    final double upper = massRange.upperEndpoint();
+    // last window that starts at or below the lower bound
+    int w = Arrays.binarySearch(windowLower, lower);
+    if (w < 0) {
+      w = -w - 2;
+    }
+    if (w < 0 || upper > windowUpper[w]) {
+      throw new IllegalArgumentException("Mass range " + massRange + " was not indexed");
+    }
+
+    int start = windowOffsets[w];
+    int end = windowOffsets[w + 1];
+    // the window was generated for exactly this range, no need to filter by mass
+    if (Double.compare(lower, windowLower[w]) != 0 || Double.compare(upper, windowUpper[w]) != 0) {
+      final int windowEnd = end;
+      start = lowerBound(start, windowEnd, lower - BOUND_TOLERANCE);
+      end = upperBound(start, windowEnd, upper + BOUND_TOLERANCE);
+      if (lowerBound(start, end, lower + BOUND_TOLERANCE) != start
+          || upperBound(start, end, upper - BOUND_TOLERANCE) != end) {
+        // a formula is at a bound, only the generator knows if it is in the range
+        return generateFormulas(lower, upper);
+      }
+    }
+
+    final int[] indices = IntStream.range(start, end).toArray();
+    IntArrays.quickSort(indices,
+        (a, b) -> Integer.compare(generatorOrder.get(a), generatorOrder.get(b)));
+
+    final List<IMolecularFormula> formulas = new ArrayList<>(indices.length);
+    for (int index : indices) {
+      formulas.add(createFormula(index));
+    }
+    return formulas;
+  }
+
+  /**
+   * Runs the formula generator for a single range
+   */
+  @NotNull
+  private List<IMolecularFormula> generateFormulas(double lower, double upper) {
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder, lower,
+        upper, elementCounts);
+    activeGenerators.add(generator);
+    try {
+      final List<IMolecularFormula> formulas = new ArrayList<>();
+      IMolecularFormula formula;
+      while (!canceled && (formula = generator.getNextFormula()) != null) {
+        formulas.add(formula);
+      }
+      return formulas;
+    } finally {
+      activeGenerators.remove(generator);
+    }
+  }
+
+  private IMolecularFormula createFormula(int index) {
+    final IMolecularFormula formula = builder.newInstance(IMolecularFormula.class);
+    final int offset = index * isotopes.length;
+    for (int i = 0; i < isotopes.length; i++) {
+      final int count = counts.get(offset + i);
+      if (count > 0) {
+        formula.addIsotope(isotopes[i], count);
+      }
+    }
+    return formula;
+  }
+
+  /**
+   * @return first index in [start, end) with mass >= value
+   */
+  private int lowerBound(int start, int end, double value) {
+    while (start < end) {
+      final int mid = (start + end) >>> 1;
+      if (masses.get(mid) < value) {
+        start = mid + 1;
+      } else {
+        end = mid;
+      }
+    }
+    return start;
+  }
+
+  /**
+   * @return first index in [start, end) with mass > value
+   */
+  private int upperBound(int start, int end, double value) {
+    while (start < end) {
+      final int mid = (start + end) >>> 1;
+      if (masses.get(mid) <= value) {
+        start = mid + 1;
+      } else {
+        end = mid;
+      }
+    }
+    return start;
+  }
+
+  int getNumberOfFormulas() {
+    return windowOffsets == null ? 0 : windowOffsets[windowOffsets.length - 1];
+  }
+
+  /**
+   * Cancels the formula generators, searching for the next candidate may take a long time
+   */
+  void cancel() {
+    canceled = true;
+    activeGenerators.forEach(MolecularFormulaGenerator::cancel);
+  }
+
+  /**
+   * @param masses         mass sorted formula masses
+   * @param generatorOrder the position of each formula in the generator output
+   * @param counts         isotope counts of each formula
+   */
+  private record WindowFormulas(double[] masses, int[] generatorOrder, int[] counts) {
+
+  }
+}
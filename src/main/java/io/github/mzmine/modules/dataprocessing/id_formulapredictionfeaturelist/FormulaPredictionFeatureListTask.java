@@ -34,7 +34,6 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.DataTypes;
-import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.dataprocessing.id_formula_sort.FormulaSortParameters;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.ResultFormula;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
@@ -43,7 +42,7 @@ import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionParameters;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreCalculator;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreParameters;
-import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCache;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScore;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScoreCalculator;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScoreParameters;
@@ -52,20 +51,22 @@ import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FormulaUtils;
+import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
-import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
 public class FormulaPredictionFeatureListTask extends AbstractTask {
 
+  private static final int ISOTOPE_PATTERN_CACHE_SIZE = 10_000;
+
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final MolecularFormulaRange elementCounts;
   private final Double minIsotopeScore;
@@ -85,10 +86,13 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
   private float sortPPMFactor;
   private float sortMSMSFactor;
   private float sortIsotopeFactor;
-  private MolecularFormulaGenerator generator;
+  // isotope patterns of formulas that are candidates of multiple rows
+  private final IsotopePatternCache isotopePatternCache = new IsotopePatternCache(
+      ISOTOPE_PATTERN_CACHE_SIZE);
+  private final AtomicInteger finishedRows = new AtomicInteger(0);
+  private volatile FormulaMassIndex formulaIndex;
   private String message;
-  private int totalRows, finishedRows;
-  private List<ResultFormula> resultingFormulas;
+  private int totalRows;
   private Range<Double> rdbeRange;
   private Boolean rdbeIsInteger;
   private Boolean checkHCRatio;
@@ -184,7 +188,7 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
     if (totalRows == 0) {
       return 0.0;
     }
-    return (double) finishedRows / (double) totalRows;
+    return (double) finishedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -202,72 +206,91 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
     featureList.addRowType(DataTypes.get(
         io.github.mzmine.datamodel.features.types.annotations.formula.FormulaListType.class));
 
-    for (FeatureListRow row : featureList.getRows()) {
-
-      if (row.getPeakIdentities().size() > 0) {
-        continue;
+    final List<FeatureListRow> rows = featureList.getRows().stream()
+        .filter(row -> row.getPeakIdentities().isEmpty()).toList();
+    // rows with identities are skipped
+    finishedRows.set(totalRows - rows.size());
+
+    final List<Range<Double>> massRanges = rows.stream()
+        .map(row -> mzTolerance.getToleranceRange(getSearchedMass(row))).toList();
+
+    // the formula table is only needed while this task runs
+    final MemoryMapStorage indexStorage = MemoryMapStorage.forFeatureList();
+    try {
+      // enumerate all candidate formulas once, rows share the formulas of overlapping mass ranges
+      message = "Formula prediction: generating formulas for " + rows.size() + " rows";
+      final FormulaMassIndex index = new FormulaMassIndex(elementCounts, massRanges);
+      formulaIndex = index;
+      if (isCanceled() || !index.build(indexStorage)) {
+        return;
       }
-      this.resultingFormulas = new ArrayList<>();
-
-      double searchedMass = (row.getAverageMZ() - ionType.getAddedMass()) * charge;
-
-      message = "Formula prediction for " + MZmineCore.getConfiguration().getMZFormat()
-          .format(searchedMass);
-
-      Range<Double> massRange = mzTolerance.getToleranceRange(searchedMass);
-
-      IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
-      generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-          massRange.upperEndpoint(), elementCounts);
+      logger.finest(() -> "Generated " + index.getNumberOfFormulas() + " formulas for "
+          + rows.size() + " rows");
 
-      IMolecularFormula cdkFormula;
-
-      // create a map to store ResultFormula and relative mass deviation
-      // for sorting
-      while ((cdkFormula = generator.getNextFormula()) != null) {
-        // Mass is ok, so test other constraints
-        ResultFormula molf = checkConstraints(cdkFormula, row, searchedMass);
-
-        if (isCanceled() || getStatus().equals(TaskStatus.ERROR)) {
+      message = "Formula prediction: checking formulas of " + rows.size() + " rows";
+      IntStream.range(0, rows.size()).parallel().forEach(i -> {
+        if (isCanceled() || getStatus() == TaskStatus.ERROR) {
           return;
         }
+        final FeatureListRow row = rows.get(i);
+        predictFormulas(row, getSearchedMass(row), index.getFormulas(massRanges.get(i)));
+        finishedRows.incrementAndGet();
+      });
 
-        if (molf != null) {
-          resultingFormulas.add(molf);
-        }
+      if (getStatus() == TaskStatus.ERROR) {
+        return;
       }
-
       if (isCanceled()) {
         return;
       }
 
+      featureList.getAppliedMethods().add(
+          new SimpleFeatureListAppliedMethod(FormulaPredictionFeatureListModule.class, parameters,
+              getModuleCallDate()));
 
-      // Add the new formula entry top results
-      if (!resultingFormulas.isEmpty()) {
-        FormulaUtils.sortFormulaList(resultingFormulas, sortPPMFactor, sortIsotopeFactor,
-            sortMSMSFactor);
-        row.setFormulas(resultingFormulas.subList(0,
-            Math.min(resultingFormulas.size(), maxBestFormulasPerFeature)));
-      }
+      logger.finest("Finished formula search for all the features");
 
-      if (isCanceled()) {
-        return;
+      setStatus(TaskStatus.FINISHED);
+    } finally {
+      if (indexStorage != null) {
+        indexStorage.discard();
       }
-      finishedRows++;
     }
 
-    if (isCanceled()) {
-      return;
-    }
+  }
 
-    featureList.getAppliedMethods().add(
-        new SimpleFeatureListAppliedMethod(FormulaPredictionFeatureListModule.class, parameters,
-            getModuleCallDate()));
+  private double getSearchedMass(FeatureListRow row) {
+    return (row.getAverageMZ() - ionType.getAddedMass()) * charge;
+  }
 
-    logger.finest("Finished formula search for all the features");
+  /**
+   * Checks all candidate formulas of a row and sets the best formulas
+   *
+   * @param candidates candidate formulas in the order of the formula generator
+   */
+  private void predictFormulas(FeatureListRow row, double searchedMass,
+      List<IMolecularFormula> candidates) {
+    final List<ResultFormula> resultingFormulas = new ArrayList<>();
+    for (IMolecularFormula cdkFormula : candidates) {
+      // Mass is ok, so test other constraints
+      ResultFormula molf = checkConstraints(cdkFormula, row, searchedMass);
+
+      if (isCanceled() || getStatus().equals(TaskStatus.ERROR)) {
+        return;
+      }
 
-    setStatus(TaskStatus.FINISHED);
+      if (molf != null) {
+        resultingFormulas.add(molf);
+      }
+    }
 
+    // Add the new formula entry top results
+    if (!resultingFormulas.isEmpty()) {
+      FormulaUtils.sortFormulaList(resultingFormulas, sortPPMFactor, sortIsotopeFactor,
+          sortMSMSFactor);
+      row.setFormulas(resultingFormulas.subList(0,
+          Math.min(resultingFormulas.size(), maxBestFormulasPerFeature)));
+    }
   }
 
   /**
@@ -303,7 +326,7 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
       final double detectedPatternHeight = detectedPattern.getBasePeakIntensity();
       final double minPredictedAbundance = isotopeNoiseLevel / detectedPatternHeight;
 
-      predictedIsotopePattern = IsotopePatternCalculator.calculateIsotopePattern(clonedFormula,
+      predictedIsotopePattern = isotopePatternCache.getIsotopePattern(clonedFormula,
           minPredictedAbundance, charge, ionType.getPolarity());
 
       isotopeScore = IsotopePatternScoreCalculator.getSimilarityScore(detectedPattern,
@@ -356,10 +379,11 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
   public void cancel() {
     super.cancel();
 
-    // We need to cancel the formula generator, because searching for next
+    // We need to cancel the formula generators, because searching for next
     // candidate formula may take a looong time
-    if (generator != null) {
-      generator.cancel();
+    final FormulaMassIndex index = formulaIndex;
+    if (index != null) {
+      index.cancel();
     }
 
   }
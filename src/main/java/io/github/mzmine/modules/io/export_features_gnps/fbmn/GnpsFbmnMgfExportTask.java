@@ -50,6 +50,7 @@ import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.OrderedBlockWriter;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
@@ -77,6 +78,11 @@ import org.jetbrains.annotations.NotNull;
  */
 public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItemsCounter {
 
+  /**
+   * Rows merged and formatted by one worker thread
+   */
+  static final int ROWS_PER_BLOCK = 32;
+
   // Logger.
   private final Logger logger = Logger.getLogger(getClass().getName());
 
@@ -219,11 +225,41 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
 
   private long export(FeatureList featureList, List<FeatureListRow> rows, BufferedWriter writer)
       throws IOException {
+    final AtomicInteger noMS2Counter = new AtomicInteger(0);
+    // merge spectra and format blocks of rows in parallel, written in row order
+    if (!OrderedBlockWriter.writeInOrder(rows, ROWS_PER_BLOCK,
+        block -> formatRows(block, noMS2Counter), writer, this::isCanceled)) {
+      return exportedRows.get();
+    }
+
+    if (exportedRows.get() == 0) {
+      logger.log(Level.WARNING, "No MS/MS scans exported.");
+    } else {
+      logger.info(
+          MessageFormat.format("Total of {0} feature rows (MS/MS mass lists) were exported ({1})",
+              exportedRows.get(), featureList.getName()));
+    }
+    if (noMS2Counter.get() > 0 && filter.requiresMS2()) {
+      logger.warning(noMS2Counter + " features had no MS/MS scan after already filtering for MS2");
+    }
+
+    return exportedRows.get();
+  }
+
+  /**
+   * Merges the MS/MS spectra and formats the MGF entries of a block of rows. Called by worker
+   * threads, uses its own copies of the number formats.
+   *
+   * @return the MGF entries of all exported rows
+   */
+  private String formatRows(List<FeatureListRow> block, AtomicInteger noMS2Counter) {
     final String newLine = System.lineSeparator();
+    final NumberFormat mzForm = (NumberFormat) this.mzForm.clone();
+    final NumberFormat intensityForm = (NumberFormat) this.intensityForm.clone();
+    final NumberFormat rtsForm = (NumberFormat) this.rtsForm.clone();
+    final StringBuilder writer = new StringBuilder();
 
-    int noMS2Counter = 0;
-    // count exported
-    for (FeatureListRow row : rows) {
+    for (FeatureListRow row : block) {
       // do not export if no MSMS
       if (!filter.accept(row)) {
         continue;
@@ -232,7 +268,7 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
       // Get the MS/MS scan number
       Scan msmsScan = row.getMostIntenseFragmentScan();
       if (msmsScan == null) {
-        noMS2Counter++;
+        noMS2Counter.incrementAndGet();
         // with IIMN, filter also accepts feature without MS2
         continue;
       }
@@ -251,15 +287,15 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
       double retTimeInSeconds = averageRT == null ? 0d : ((averageRT * 60 * 100.0) / 100.);
 
       writer.append("BEGIN IONS").append(newLine);
-      writer.append("FEATURE_ID=").append(rowID).write(newLine);
+      writer.append("FEATURE_ID=").append(rowID).append(newLine);
 
       final Double mz = row.getAverageMZ();
       if (mz != null) {
-        writer.append("PEPMASS=").append(mzForm.format(mz)).write(newLine);
+        writer.append("PEPMASS=").append(mzForm.format(mz)).append(newLine);
       }
 
-      writer.append("SCANS=").append(rowID).write(newLine);
-      writer.append("RTINSECONDS=").append(rtsForm.format(retTimeInSeconds)).write(newLine);
+      writer.append("SCANS=").append(rowID).append(newLine);
+      writer.append("RTINSECONDS=").append(rtsForm.format(retTimeInSeconds)).append(newLine);
 
       int msmsCharge = Objects.requireNonNullElse(msmsScan.getPrecursorCharge(), 1);
       String msmsPolarity = msmsScan.getPolarity().asSingleChar();
@@ -267,8 +303,8 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
         msmsPolarity = "";
       }
 
-      writer.write("CHARGE=" + msmsCharge + msmsPolarity + newLine);
-      writer.append("MSLEVEL=2").write(newLine);
+      writer.append("CHARGE=").append(msmsCharge).append(msmsPolarity).append(newLine);
+      writer.append("MSLEVEL=2").append(newLine);
 
       DataPoint[] dataPoints = null;
       // merge MS/MS spectra
@@ -277,9 +313,9 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
           MergedSpectrum spectrum = merger.getBestMergedSpectrum(mergeParameters, row);
           if (spectrum != null) {
             dataPoints = spectrum.data;
-            writer.write("MERGED_STATS=");
-            writer.write(spectrum.getMergeStatsDescription());
-            writer.write(newLine);
+            writer.append("MERGED_STATS=");
+            writer.append(spectrum.getMergeStatsDescription());
+            writer.append(newLine);
           }
         } catch (Exception ex) {
           logger.log(Level.WARNING, "Error during MS2 merge in mgf export: " + ex.getMessage(), ex);
@@ -292,25 +328,13 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
 
       for (DataPoint feature : dataPoints) {
         writer.append(mzForm.format(feature.getMZ())).append(" ")
-            .append(intensityForm.format(feature.getIntensity())).write(newLine);
+            .append(intensityForm.format(feature.getIntensity())).append(newLine);
       }
       //
-      writer.append("END IONS").append(newLine).write(newLine);
+      writer.append("END IONS").append(newLine).append(newLine);
       exportedRows.incrementAndGet();
     }
-
-    if (exportedRows.get() == 0) {
-      logger.log(Level.WARNING, "No MS/MS scans exported.");
-    } else {
-      logger.info(
-          MessageFormat.format("Total of {0} feature rows (MS/MS mass lists) were exported ({1})",
-              exportedRows.get(), featureList.getName()));
-    }
-    if (noMS2Counter > 0 && filter.requiresMS2()) {
-      logger.warning(noMS2Counter + " features had no MS/MS scan after already filtering for MS2");
-    }
-
-    return exportedRows.get();
+    return writer.toString();
   }
 
   @Override
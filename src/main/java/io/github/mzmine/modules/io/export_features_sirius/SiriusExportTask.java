@@ -60,6 +60,7 @@ import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.OrderedBlockWriter;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.spectraldb.entry.DBEntryField;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
@@ -85,6 +86,10 @@ public class SiriusExportTask extends AbstractTask {
 
   public static final String MULTI_NAME_PATTERN = "{}";
   private static final Logger logger = Logger.getLogger(SiriusExportTask.class.getName());
+  /**
+   * Rows merged and formatted by one worker thread
+   */
+  static final int ROWS_PER_BLOCK = 32;
   private final ParameterSet parameters;
   private final ModularFeatureList[] featureLists;
   private final File fileName;
@@ -190,7 +195,9 @@ public class SiriusExportTask extends AbstractTask {
           StandardCharsets.UTF_8)) {
         logger.fine(() -> String.format("Exporting SIRIUS mgf for feature list: %s to file %s",
             featureList.getName(), curFile.getAbsolutePath()));
-        exportFeatureList(featureList, writer);
+        if (!exportFeatureList(featureList, writer)) {
+          return;
+        }
       } catch (IOException e) {
         setStatus(TaskStatus.ERROR);
         setErrorMessage("Could not open file " + curFile + " for writing.");
@@ -218,29 +225,62 @@ public class SiriusExportTask extends AbstractTask {
     return substitute;
   }
 
-  private void exportFeatureList(FeatureList featureList, BufferedWriter writer)
+  /**
+   * @return false if canceled
+   */
+  private boolean exportFeatureList(FeatureList featureList, BufferedWriter writer)
       throws IOException {
+    final List<FeatureListRow> rows = new ArrayList<>(featureList.getRows());
+    // merge spectra and format blocks of rows in parallel, written in row order
+    return OrderedBlockWriter.writeInOrder(rows, ROWS_PER_BLOCK, this::formatRows, writer,
+        this::isCanceled);
+  }
 
-    for (FeatureListRow row : featureList.getRows()) {
+  /**
+   * Formats the MGF entries of a block of rows. Called by worker threads.
+   *
+   * @return the MGF entries of all exported rows
+   */
+  private String formatRows(List<FeatureListRow> block) {
+    final StringBuilder b = new StringBuilder();
+    for (FeatureListRow row : block) {
       if (isCanceled()) {
-        return;
+        break;
       }
 
-      if (exportRow(writer, row)) {
+      final String mgf = formatRow(row);
+      if (mgf != null) {
+        b.append(mgf);
         exportedRows.getAndIncrement();
       }
 
       processedRows.getAndIncrement();
     }
+    return b.toString();
   }
 
   /**
    * @return True if the row was exported.
    */
   public boolean exportRow(BufferedWriter writer, FeatureListRow row) throws IOException {
+    final String mgf = formatRow(row);
+    if (mgf == null) {
+      return false;
+    }
+    writer.write(mgf);
+    return true;
+  }
+
+  /**
+   * Creates the MGF entries of a row. Thread safe.
+   *
+   * @return the MGF entries, each followed by a line separator, or null if the row is not exported
+   */
+  @Nullable
+  private String formatRow(FeatureListRow row) {
 
     if (!checkFeatureCriteria(row)) {
-      return false;
+      return null;
     }
 
     // Use SpectralLibraryEntry to easily generate MGF files
@@ -270,15 +310,15 @@ public class SiriusExportTask extends AbstractTask {
 
     if (entries.size() < 2) {
       // only MS1
-      return false;
+      return null;
     }
 
+    final String newLine = System.lineSeparator();
+    final StringBuilder b = new StringBuilder();
     for (SpectralLibraryEntry entry : entries) {
-      final String mgfEntry = MGFEntryGenerator.createMGFEntry(entry);
-      writer.write(mgfEntry);
-      writer.newLine();
+      b.append(MGFEntryGenerator.createMGFEntry(entry)).append(newLine);
     }
-    return true;
+    return b.toString();
   }
 
   public SpectralLibraryEntry spectrumToEntry(MsType spectrumType, MassSpectrum spectrum,
@@ -70,10 +70,11 @@ public class MzMLExportModule implements MZmineProcessingModule {
 
     RawDataFile[] dataFile = parameters.getParameter(MzMLExportParameters.dataFiles).getValue()
         .getMatchingRawDataFiles();
+    boolean useNumpress = parameters.getValue(MzMLExportParameters.numpress);
 
     for (RawDataFile r : dataFile) {
       File fullName = FileAndPathUtil.getRealFilePath(folder, r.getName(), extension);
-      Task newTask = new MzMLExportTask(r, fullName, moduleCallDate);
+      Task newTask = new MzMLExportTask(r, fullName, useNumpress, moduleCallDate);
       tasks.add(newTask);
     }
     return ExitCode.OK;
@@ -27,6 +27,7 @@ package io.github.mzmine.modules.io.export_rawdata_mzml;
 
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.DirectoryParameter;
 import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesParameter;
 
@@ -37,8 +38,13 @@ public class MzMLExportParameters extends SimpleParameterSet {
   public static final DirectoryParameter fileName =
       new DirectoryParameter("Folder", "Select a folder");
 
+  public static final BooleanParameter numpress = new BooleanParameter("MS-Numpress compression",
+      "Store m/z and intensity arrays with MS-Numpress compression followed by zlib. Results in "
+          + "considerably smaller files with a small relative error (lossy). Only applies to mzML.",
+      false);
+
   public MzMLExportParameters() {
-    super(new Parameter[] {dataFiles, fileName});
+    super(new Parameter[] {dataFiles, fileName, numpress});
   }
 
 }
@@ -31,8 +31,6 @@ import java.util.Date;
 import java.util.logging.Logger;
 
 import io.github.msdk.MSDKMethod;
-import io.github.msdk.io.mzml.MzMLFileExportMethod;
-import io.github.msdk.io.mzml.data.MzMLCompressionType;
 import io.github.msdk.io.netcdf.NetCDFFileExportMethod;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.impl.MZmineToMSDKRawDataFile;
@@ -47,17 +45,21 @@ public class MzMLExportTask extends AbstractTask {
 
   // User parameters
   private File outFilename;
+  private final boolean useNumpress;
 
   private MSDKMethod<?> msdkMethod = null;
 
   /**
    * @param dataFile
-   * @param parameters
+   * @param outFilename
+   * @param useNumpress MS-Numpress compression of the mzML data arrays
    */
-  public MzMLExportTask(RawDataFile dataFile, File outFilename, @NotNull Instant moduleCallDate) {
+  public MzMLExportTask(RawDataFile dataFile, File outFilename, boolean useNumpress,
+      @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
     this.dataFile = dataFile;
     this.outFilename = outFilename;
+    this.useNumpress = useNumpress;
   }
 
   /**
@@ -90,8 +92,7 @@ public class MzMLExportTask extends AbstractTask {
       MZmineToMSDKRawDataFile msdkDataFile = new MZmineToMSDKRawDataFile(dataFile);
 
       if (outFilename.getName().toLowerCase().endsWith("mzml")) {
-        msdkMethod = new MzMLFileExportMethod(msdkDataFile, outFilename, MzMLCompressionType.ZLIB,
-            MzMLCompressionType.ZLIB);
+        msdkMethod = new ParallelMzMLExportMethod(msdkDataFile, outFilename, useNumpress);
       }
 
       if (outFilename.getName().toLowerCase().endsWith("cdf")) {
@@ -0,0 +1,641 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_rawdata_mzml;
+
+import com.google.common.collect.Range;
+import io.github.msdk.MSDKException;
+import io.github.msdk.MSDKMethod;
+import io.github.msdk.datamodel.ActivationInfo;
+import io.github.msdk.datamodel.Chromatogram;
+import io.github.msdk.datamodel.IsolationInfo;
+import io.github.msdk.datamodel.MsScan;
+import io.github.msdk.datamodel.MsSpectrumType;
+import io.github.msdk.datamodel.PolarityType;
+import io.github.msdk.datamodel.RawDataFile;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLArrayType;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBitLength;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLCV;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLCVParam;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLCompressionType;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLPeaksEncoder;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLTags;
+import io.github.mzmine.util.OrderedBlockProcessor;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Logger;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes a {@link RawDataFile} to an indexed mzML file. Worker threads of the common pool encode
+ * and compress batches of consecutive spectra into complete <code>&lt;spectrum&gt;</code> elements,
+ * while the calling thread streams the finished batches to disk in scan order. Only a limited
+ * number of batches is encoded ahead of the writer to limit the memory of pending results.
+ * <p>
+ * The offsets of the index are the byte positions of the elements in the written file and the
+ * checksum is the SHA-1 of all bytes up to the <code>&lt;fileChecksum&gt;</code> start tag.
+ * Optionally, m/z values are stored with MS-Numpress linear prediction and intensities with
+ * MS-Numpress short logged float compression, both followed by zlib.
+ */
+public class ParallelMzMLExportMethod implements MSDKMethod<Void> {
+
+  /**
+   * Spectra encoded by one worker. Large enough to keep the scheduling overhead low, small enough
+   * to balance the load and to keep the pending batches small.
+   */
+  public static final int SPECTRA_PER_BATCH = 32;
+
+  private static final String dataProcessingId = "MSDK_mzml_export";
+  private static final String softwareId = "MSDK";
+  private static final String MZML_NAMESPACE = "http://psi.hupo.org/ms/mzml";
+  private static final String XML_SCHEMA_INSTANCE = "http://www.w3.org/2001/XMLSchema-instance";
+  private static final String XML_SCHEMA_LOCATION =
+      "http://psi.hupo.org/ms/mzml http://psidev.info/files/ms/mzML/xsd/mzML1.1.0.xsd";
+  private static final String DEFAULT_VERSION = "1.1.0";
+  private static final String CV_REF_MS = "MS";
+  private static final String PREFIX_XSI = "xsi";
+
+  private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+  private final @NotNull RawDataFile rawDataFile;
+  private final @NotNull File target;
+  private final @NotNull MzMLCompressionType mzCompression;
+  private final @NotNull MzMLCompressionType intensityCompression;
+
+  private volatile boolean canceled = false;
+
+  private long totalScans = 0, totalChromatograms = 0;
+  private volatile long writtenScans, writtenChromatograms;
+
+  // number of bytes written to the target, equals the offset of the next element
+  private long offset = 0;
+
+  /**
+   * @param rawDataFile the data file to export
+   * @param target      the mzML file
+   * @param useNumpress true to store m/z and intensity arrays with MS-Numpress compression
+   *                    followed by zlib. MS-Numpress is lossy with a small relative error. False to
+   *                    store m/z as 64-bit and intensities as 32-bit floats compressed by zlib.
+   */
+  public ParallelMzMLExportMethod(@NotNull RawDataFile rawDataFile, @NotNull File target,
+      boolean useNumpress) {
+    this.rawDataFile = rawDataFile;
+    this.target = target;
+    this.mzCompression =
+        useNumpress ? MzMLCompressionType.NUMPRESS_LINPRED_ZLIB : MzMLCompressionType.ZLIB;
+    this.intensityCompression =
+        useNumpress ? MzMLCompressionType.NUMPRESS_SHLOGF_ZLIB : MzMLCompressionType.ZLIB;
+  }
+
+  @Override
+  public Void execute() throws MSDKException {
+    logger.info("Started export of " + rawDataFile.getName() + " to " + target);
+
+    final List<MsScan> scans = rawDataFile.getScans();
+    final List<Chromatogram> chromatograms = rawDataFile.getChromatograms();
+    totalScans = scans.size();
+    totalChromatograms = chromatograms.size();
+
+    final long[] spectrumOffsets = new long[scans.size()];
+    final long[] chromatogramOffsets = new long[chromatograms.size()];
+
+    final MessageDigest sha1;
+    try {
+      sha1 = MessageDigest.getInstance("SHA-1");
+    } catch (Exception e) {
+      throw new MSDKException(e);
+    }
+
+    boolean finished = false;
+    try (DigestOutputStream out = new DigestOutputStream(
+        new BufferedOutputStream(new FileOutputStream(target), 1 << 20), sha1)) {
+      out.on(true);
+
+      writeHeader(out, scans.size());
+      if (!writeSpectra(out, scans, spectrumOffsets)) {
+        return null;
+      }
+      write(out, "</" + MzMLTags.TAG_SPECTRUM_LIST + ">");
+
+      StringBuilder b = new StringBuilder();
+      b.append('<').append(MzMLTags.TAG_CHROMATOGRAM_LIST);
+      attribute(b, MzMLTags.ATTR_COUNT, String.valueOf(chromatograms.size()));
+      attribute(b, MzMLTags.ATTR_DEFAULT_DATA_PROCESSING_REF, "unknown");
+      b.append('>');
+      write(out, b.toString());
+
+      // usually none or only a few, not worth the parallelization
+      for (int i = 0; i < chromatograms.size(); i++) {
+        if (canceled) {
+          return null;
+        }
+        chromatogramOffsets[i] = offset;
+        write(out, encodeChromatogram(chromatograms.get(i), i));
+        writtenChromatograms++;
+      }
+
+      write(out, "</" + MzMLTags.TAG_CHROMATOGRAM_LIST + "></" + MzMLTags.TAG_RUN + "></"
+          + MzMLTags.TAG_MZML + ">");
+
+      writeIndex(out, scans, spectrumOffsets, chromatograms, chromatogramOffsets);
+
+      // the checksum covers everything up to and including the <fileChecksum> tag
+      write(out, "<" + MzMLTags.TAG_FILE_CHECKSUM + ">");
+      out.on(false);
+      write(out, DigestUtils.shaHex(sha1.digest()));
+      write(out, "</" + MzMLTags.TAG_FILE_CHECKSUM + "></" + MzMLTags.TAG_INDEXED_MZML + ">\n");
+      finished = true;
+    } catch (CompletionException e) {
+      throw new MSDKException(e.getCause() != null ? e.getCause() : e);
+    } catch (IOException e) {
+      throw new MSDKException(e);
+    } finally {
+      if (!finished) {
+        // canceled or failed, do not leave a truncated file
+        target.delete();
+      }
+    }
+
+    logger.info("Finished export of " + rawDataFile.getName() + " to " + target);
+    return null;
+  }
+
+  /**
+   * Encodes batches of spectra in parallel and writes them in scan order.
+   *
+   * @return false if canceled
+   */
+  private boolean writeSpectra(@NotNull OutputStream out, @NotNull List<MsScan> scans,
+      long[] spectrumOffsets) throws IOException {
+    return OrderedBlockProcessor.processInOrder(scans, SPECTRA_PER_BATCH,
+        (from, batch) -> encodeSpectra(batch, from), (from, batch, spectra) -> {
+          int index = from;
+          for (byte[] spectrum : spectra) {
+            spectrumOffsets[index++] = offset;
+            write(out, spectrum);
+          }
+          writtenScans = index;
+        }, () -> canceled);
+  }
+
+  /**
+   * Called by worker threads.
+   *
+   * @param batch consecutive scans
+   * @param from  the index of the first scan of the batch
+   * @return the UTF-8 encoded spectrum elements of the scans
+   */
+  private List<byte[]> encodeSpectra(@NotNull List<MsScan> batch, int from) {
+    final List<byte[]> spectra = new ArrayList<>(batch.size());
+    final StringBuilder b = new StringBuilder(4096);
+    for (int i = 0; i < batch.size() && !canceled; i++) {
+      b.setLength(0);
+      try {
+        appendSpectrum(b, batch.get(i), from + i);
+      } catch (MSDKException e) {
+        throw new CompletionException(e);
+      }
+      spectra.add(b.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    return spectra;
+  }
+
+  private void appendSpectrum(@NotNull StringBuilder b, @NotNull MsScan scan, int index)
+      throws MSDKException {
+    // <spectrum>
+    b.append('<').append(MzMLTags.TAG_SPECTRUM);
+    attribute(b, MzMLTags.ATTR_INDEX, String.valueOf(index));
+    attribute(b, MzMLTags.ATTR_ID, "scan=" + scan.getScanNumber());
+    attribute(b, MzMLTags.ATTR_DEFAULT_ARRAY_LENGTH, String.valueOf(scan.getNumberOfDataPoints()));
+    b.append('>');
+
+    appendCVParam(b,
+        scan.getSpectrumType() == MsSpectrumType.CENTROIDED ? MzMLCV.centroidCvParam
+            : MzMLCV.profileCvParam);
+    if (scan.getMsLevel() != null) {
+      appendCVParam(b,
+          new MzMLCVParam(MzMLCV.cvMSLevel, String.valueOf(scan.getMsLevel()), "ms level", null));
+    }
+    if (scan.getTIC() != null) {
+      appendCVParam(b,
+          new MzMLCVParam(MzMLCV.cvTIC, String.valueOf(scan.getTIC()), "total ion current", null));
+    }
+    if (scan.getMzRange() != null) {
+      appendCVParam(b,
+          new MzMLCVParam(MzMLCV.cvLowestMz, String.valueOf(scan.getMzRange().lowerEndpoint()),
+              "lowest observed m/z", MzMLCV.cvMz));
+      appendCVParam(b,
+          new MzMLCVParam(MzMLCV.cvHighestMz, String.valueOf(scan.getMzRange().upperEndpoint()),
+              "highest observed m/z", MzMLCV.cvMz));
+    }
+
+    // <scanList><scan>
+    b.append('<').append(MzMLTags.TAG_SCAN_LIST);
+    attribute(b, MzMLTags.ATTR_COUNT, "1");
+    b.append("><").append(MzMLTags.TAG_SCAN).append('>');
+    if (scan.getScanDefinition() != null) {
+      appendCVParam(b, new MzMLCVParam(MzMLCV.cvScanFilterString, scan.getScanDefinition(),
+          "filter string", null));
+    }
+    if (scan.getRetentionTime() != null) {
+      appendCVParam(b,
+          new MzMLCVParam(MzMLCV.MS_RT_SCAN_START, String.valueOf(scan.getRetentionTime()),
+              "scan time", MzMLCV.cvUnitsSec));
+    }
+    if (scan.getPolarity() == PolarityType.POSITIVE) {
+      appendCVParam(b, MzMLCV.polarityPositiveCvParam);
+    } else if (scan.getPolarity() == PolarityType.NEGATIVE) {
+      appendCVParam(b, MzMLCV.polarityNegativeCvParam);
+    }
+
+    // <scanWindowList><scanWindow>
+    b.append('<').append(MzMLTags.TAG_SCAN_WINDOW_LIST);
+    attribute(b, MzMLTags.ATTR_COUNT, "1");
+    b.append("><").append(MzMLTags.TAG_SCAN_WINDOW).append('>');
+    if (scan.getScanningRange() != null) {
+      appendCVParam(b, new MzMLCVParam(MzMLCV.cvScanWindowLowerLimit,
+          String.valueOf(scan.getScanningRange().lowerEndpoint()), "scan window lower limit",
+          MzMLCV.cvMz));
+      appendCVParam(b, new MzMLCVParam(MzMLCV.cvScanWindowUpperLimit,
+          String.valueOf(scan.getScanningRange().upperEndpoint()), "scan window upper limit",
+          MzMLCV.cvMz));
+    }
+    endElement(b, MzMLTags.TAG_SCAN_WINDOW);
+    endElement(b, MzMLTags.TAG_SCAN_WINDOW_LIST);
+    endElement(b, MzMLTags.TAG_SCAN);
+    endElement(b, MzMLTags.TAG_SCAN_LIST);
+
+    final List<IsolationInfo> isolations = scan.getIsolations();
+    if (!isolations.isEmpty()) {
+      // <precursorList>
+      b.append('<').append(MzMLTags.TAG_PRECURSOR_LIST);
+      attribute(b, MzMLTags.ATTR_COUNT, String.valueOf(isolations.size()));
+      b.append('>');
+      for (IsolationInfo isolationInfo : isolations) {
+        appendPrecursor(b, isolationInfo);
+      }
+      endElement(b, MzMLTags.TAG_PRECURSOR_LIST);
+    }
+
+    // <binaryDataArrayList>
+    b.append('<').append(MzMLTags.TAG_BINARY_DATA_ARRAY_LIST);
+    attribute(b, MzMLTags.ATTR_COUNT, "2");
+    b.append('>');
+    appendDoubleArray(b, scan.getMzValues(null), mzCompression,
+        new MzMLCVParam(MzMLArrayType.MZ.getAccession(), "", "m/z array", MzMLCV.cvMz));
+    appendFloatArray(b, scan.getIntensityValues(null), intensityCompression,
+        new MzMLCVParam(MzMLArrayType.INTENSITY.getAccession(), "", "intensity array",
+            MzMLCV.cvUnitsIntensity1));
+    endElement(b, MzMLTags.TAG_BINARY_DATA_ARRAY_LIST);
+
+    endElement(b, MzMLTags.TAG_SPECTRUM);
+  }
+
+  private void appendPrecursor(@NotNull StringBuilder b, @NotNull IsolationInfo isolationInfo) {
+    // <precursor>
+    b.append('<').append(MzMLTags.TAG_PRECURSOR);
+    if (isolationInfo.getPrecursorScanNumber() != null) {
+      attribute(b, MzMLTags.ATTR_SPECTRUM_REF, "scan=" + isolationInfo.getPrecursorScanNumber());
+    }
+    b.append('>');
+
+    final Double precursorMz = isolationInfo.getPrecursorMz();
+    final Range<Double> isolationRange = isolationInfo.getIsolationMzRange();
+    if (precursorMz != null) {
+      // <isolationWindow>
+      b.append('<').append(MzMLTags.TAG_ISOLATION_WINDOW).append('>');
+      appendCVParam(b, new MzMLCVParam(MzMLCV.cvIsolationWindowTarget,
+          String.valueOf(precursorMz), "isolation window target m/z", MzMLCV.cvMz));
+      if (isolationRange != null && isolationRange.hasLowerBound()
+          && isolationRange.hasUpperBound()) {
+        appendCVParam(b, new MzMLCVParam(MzMLCV.cvIsolationWindowLowerOffset,
+            String.valueOf(precursorMz - isolationRange.lowerEndpoint()),
+            "isolation window lower offset", MzMLCV.cvMz));
+        appendCVParam(b, new MzMLCVParam(MzMLCV.cvIsolationWindowUpperOffset,
+            String.valueOf(isolationRange.upperEndpoint() - precursorMz),
+            "isolation window upper offset", MzMLCV.cvMz));
+      }
+      endElement(b, MzMLTags.TAG_ISOLATION_WINDOW);
+
+      // <selectedIonList><selectedIon>
+      b.append('<').append(MzMLTags.TAG_SELECTED_ION_LIST);
+      attribute(b, MzMLTags.ATTR_COUNT, "1");
+      b.append("><").append(MzMLTags.TAG_SELECTED_ION).append('>');
+      appendCVParam(b, new MzMLCVParam(MzMLCV.cvPrecursorMz, String.valueOf(precursorMz),
+          "selected ion m/z", MzMLCV.cvMz));
+      final Integer charge = isolationInfo.getPrecursorCharge();
+      if (charge != null && charge > 0) {
+        appendCVParam(b,
+            new MzMLCVParam(MzMLCV.cvChargeState, String.valueOf(charge), "charge state", null));
+      }
+      endElement(b, MzMLTags.TAG_SELECTED_ION);
+      endElement(b, MzMLTags.TAG_SELECTED_ION_LIST);
+    }
+
+    // <activation> is required by the schema, even if empty
+    b.append('<').append(MzMLTags.TAG_ACTIVATION).append('>');
+    final ActivationInfo activationInfo = isolationInfo.getActivationInfo();
+    if (activationInfo != null) {
+      switch (activationInfo.getActivationType()) {
+        case CID -> appendCVParam(b, new MzMLCVParam(MzMLCV.cvActivationCID, "",
+            "collision-induced dissociation", null));
+        default -> {
+        }
+      }
+      if (activationInfo.getActivationEnergy() != null) {
+        appendCVParam(b, new MzMLCVParam(MzMLCV.cvActivationEnergy,
+            String.valueOf(activationInfo.getActivationEnergy()), "collision energy", null));
+      }
+    }
+    endElement(b, MzMLTags.TAG_ACTIVATION);
+
+    endElement(b, MzMLTags.TAG_PRECURSOR);
+  }
+
+  private @NotNull String encodeChromatogram(@NotNull Chromatogram chromatogram, int index)
+      throws MSDKException {
+    final StringBuilder b = new StringBuilder(4096);
+    b.append('<').append(MzMLTags.TAG_CHROMATOGRAM);
+    attribute(b, MzMLTags.ATTR_INDEX, String.valueOf(index));
+    attribute(b, MzMLTags.ATTR_ID, chromatogram.getChromatogramType().name());
+    attribute(b, MzMLTags.ATTR_DEFAULT_ARRAY_LENGTH,
+        String.valueOf(chromatogram.getNumberOfDataPoints()));
+    b.append('>');
+
+    switch (chromatogram.getChromatogramType()) {
+      case BPC -> appendCVParam(b,
+          new MzMLCVParam(MzMLCV.cvChromatogramBPC, "", "basepeak chromatogram", null));
+      case MRM_SRM -> appendCVParam(b, new MzMLCVParam(MzMLCV.cvChromatogramMRM_SRM, "",
+          "selected reaction monitoring chromatogram", null));
+      case SIC -> appendCVParam(b, new MzMLCVParam(MzMLCV.cvChromatogramSIC, "",
+          "selected ion current chromatogram", null));
+      case TIC -> appendCVParam(b,
+          new MzMLCVParam(MzMLCV.cvChromatogramTIC, "", "total ion current chromatogram", null));
+      default -> {
+      }
+    }
+
+    if (!chromatogram.getIsolations().isEmpty()) {
+      final IsolationInfo isolationInfo = chromatogram.getIsolations().get(0);
+      b.append('<').append(MzMLTags.TAG_PRECURSOR).append('>');
+      if (isolationInfo.getPrecursorMz() != null) {
+        b.append('<').append(MzMLTags.TAG_ISOLATION_WINDOW).append('>');
+        appendCVParam(b, new MzMLCVParam(MzMLCV.cvIsolationWindowTarget,
+            String.valueOf(isolationInfo.getPrecursorMz()), "isolation window target m/z",
+            MzMLCV.cvMz));
+        endElement(b, MzMLTags.TAG_ISOLATION_WINDOW);
+      }
+      final ActivationInfo activationInfo = isolationInfo.getActivationInfo();
+      if (activationInfo != null) {
+        b.append('<').append(MzMLTags.TAG_ACTIVATION).append('>');
+        switch (activationInfo.getActivationType()) {
+          case CID -> appendCVParam(b, new MzMLCVParam(MzMLCV.cvActivationCID, "",
+              "collision-induced dissociation", null));
+          default -> {
+          }
+        }
+        if (activationInfo.getActivationEnergy() != null) {
+          appendCVParam(b, new MzMLCVParam(MzMLCV.cvActivationEnergy,
+              String.valueOf(activationInfo.getActivationEnergy()), "collision energy", null));
+        }
+        endElement(b, MzMLTags.TAG_ACTIVATION);
+      }
+      endElement(b, MzMLTags.TAG_PRECURSOR);
+    }
+
+    if (chromatogram.getMz() != null) {
+      b.append('<').append(MzMLTags.TAG_PRODUCT).append("><")
+          .append(MzMLTags.TAG_ISOLATION_WINDOW).append('>');
+      appendCVParam(b,
+          new MzMLCVParam(MzMLCV.cvIsolationWindowTarget, String.valueOf(chromatogram.getMz()),
+              "isolation window target m/z", MzMLCV.cvMz));
+      endElement(b, MzMLTags.TAG_ISOLATION_WINDOW);
+      endElement(b, MzMLTags.TAG_PRODUCT);
+    }
+
+    b.append('<').append(MzMLTags.TAG_BINARY_DATA_ARRAY_LIST);
+    attribute(b, MzMLTags.ATTR_COUNT, "2");
+    b.append('>');
+    appendFloatArray(b, chromatogram.getRetentionTimes(null), MzMLCompressionType.ZLIB,
+        new MzMLCVParam(MzMLArrayType.TIME.getAccession(), "", "time array", MzMLCV.cvUnitsMin2));
+    appendFloatArray(b, chromatogram.getIntensityValues(), intensityCompression,
+        new MzMLCVParam(MzMLArrayType.INTENSITY.getAccession(), "", "intensity array",
+            MzMLCV.cvUnitsIntensity1));
+    endElement(b, MzMLTags.TAG_BINARY_DATA_ARRAY_LIST);
+
+    endElement(b, MzMLTags.TAG_CHROMATOGRAM);
+    return b.toString();
+  }
+
+  private void writeHeader(@NotNull OutputStream out, int numScans) throws IOException {
+    final StringBuilder b = new StringBuilder();
+    b.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+
+    // <indexedmzML><mzML>
+    for (String tag : new String[]{MzMLTags.TAG_INDEXED_MZML, MzMLTags.TAG_MZML}) {
+      b.append('<').append(tag);
+      attribute(b, "xmlns", MZML_NAMESPACE);
+      attribute(b, "xmlns:" + PREFIX_XSI, XML_SCHEMA_INSTANCE);
+      attribute(b, PREFIX_XSI + ":" + MzMLTags.ATTR_SCHEME_LOCATION, XML_SCHEMA_LOCATION);
+      if (tag.equals(MzMLTags.TAG_MZML)) {
+        attribute(b, MzMLTags.ATTR_ID, rawDataFile.getName());
+        attribute(b, MzMLTags.ATTR_VERSION, DEFAULT_VERSION);
+      }
+      b.append('>');
+    }
+
+    b.append('<').append(MzMLTags.TAG_CV_LIST).append("/>");
+
+    // <dataProcessingList><dataProcessing><processingMethod/>
+    b.append('<').append(MzMLTags.TAG_DATA_PROCESSING_LIST);
+    attribute(b, MzMLTags.ATTR_COUNT, "1");
+    b.append("><").append(MzMLTags.TAG_DATA_PROCESSING);
+    attribute(b, MzMLTags.ATTR_ID, dataProcessingId);
+    b.append("><").append(MzMLTags.TAG_PROCESSING_METHOD);
+    attribute(b, MzMLTags.ATTR_SOFTWARE_REF, softwareId);
+    attribute(b, MzMLTags.ATTR_ORDER, "0");
+    b.append("/>");
+    endElement(b, MzMLTags.TAG_DATA_PROCESSING);
+    endElement(b, MzMLTags.TAG_DATA_PROCESSING_LIST);
+
+    // <run><spectrumList>
+    b.append('<').append(MzMLTags.TAG_RUN);
+    attribute(b, MzMLTags.ATTR_ID, rawDataFile.getName());
+    attribute(b, MzMLTags.ATTR_DEFAULT_INSTRUMENT_CONFIGURATION_REF, "unknown");
+    b.append("><").append(MzMLTags.TAG_SPECTRUM_LIST);
+    attribute(b, MzMLTags.ATTR_COUNT, String.valueOf(numScans));
+    attribute(b, MzMLTags.ATTR_DEFAULT_DATA_PROCESSING_REF, "unknown");
+    b.append('>');
+    write(out, b.toString());
+  }
+
+  private void writeIndex(@NotNull OutputStream out, @NotNull List<MsScan> scans,
+      long[] spectrumOffsets, @NotNull List<Chromatogram> chromatograms,
+      long[] chromatogramOffsets) throws IOException {
+    final long indexListOffset = offset;
+    final StringBuilder b = new StringBuilder();
+    b.append('<').append(MzMLTags.TAG_INDEX_LIST);
+    attribute(b, MzMLTags.ATTR_COUNT, "2");
+    b.append('>');
+
+    b.append('<').append(MzMLTags.TAG_INDEX);
+    attribute(b, MzMLTags.ATTR_NAME, MzMLTags.TAG_SPECTRUM);
+    b.append('>');
+    for (int i = 0; i < scans.size(); i++) {
+      b.append('<').append(MzMLTags.TAG_OFFSET);
+      attribute(b, MzMLTags.ATTR_ID_REF, "scan=" + scans.get(i).getScanNumber());
+      b.append('>').append(spectrumOffsets[i]);
+      endElement(b, MzMLTags.TAG_OFFSET);
+      if (b.length() > 1 << 16) {
+        write(out, b.toString());
+        b.setLength(0);
+      }
+    }
+    endElement(b, MzMLTags.TAG_INDEX);
+
+    b.append('<').append(MzMLTags.TAG_INDEX);
+    attribute(b, MzMLTags.ATTR_NAME, MzMLTags.TAG_CHROMATOGRAM);
+    b.append('>');
+    for (int i = 0; i < chromatograms.size(); i++) {
+      b.append('<').append(MzMLTags.TAG_OFFSET);
+      attribute(b, MzMLTags.ATTR_ID_REF, chromatograms.get(i).getChromatogramType().name());
+      b.append('>').append(chromatogramOffsets[i]);
+      endElement(b, MzMLTags.TAG_OFFSET);
+    }
+    endElement(b, MzMLTags.TAG_INDEX);
+    endElement(b, MzMLTags.TAG_INDEX_LIST);
+
+    b.append('<').append(MzMLTags.TAG_INDEX_LIST_OFFSET).append('>').append(indexListOffset);
+    endElement(b, MzMLTags.TAG_INDEX_LIST_OFFSET);
+    write(out, b.toString());
+  }
+
+  private void appendDoubleArray(@NotNull StringBuilder b, double[] data,
+      @NotNull MzMLCompressionType compression, @NotNull MzMLCVParam arrayType)
+      throws MSDKException {
+    appendBinaryDataArray(b, MzMLPeaksEncoder.encodeDouble(data, compression),
+        MzMLBitLength.SIXTY_FOUR_BIT_FLOAT, compression, arrayType);
+  }
+
+  private void appendFloatArray(@NotNull StringBuilder b, float[] data,
+      @NotNull MzMLCompressionType compression, @NotNull MzMLCVParam arrayType)
+      throws MSDKException {
+    if (compression == MzMLCompressionType.ZLIB
+        || compression == MzMLCompressionType.NO_COMPRESSION) {
+      appendBinaryDataArray(b, MzMLPeaksEncoder.encodeFloat(data, compression),
+          MzMLBitLength.THIRTY_TWO_BIT_FLOAT, compression, arrayType);
+      return;
+    }
+    // MS-Numpress is only implemented for double values
+    final double[] values = new double[data.length];
+    for (int i = 0; i < data.length; i++) {
+      values[i] = data[i];
+    }
+    appendDoubleArray(b, values, compression, arrayType);
+  }
+
+  private void appendBinaryDataArray(@NotNull StringBuilder b, byte[] encoded,
+      @NotNull MzMLBitLength bitLength, @NotNull MzMLCompressionType compression,
+      @NotNull MzMLCVParam arrayType) {
+    b.append('<').append(MzMLTags.TAG_BINARY_DATA_ARRAY);
+    attribute(b, MzMLTags.ATTR_ENCODED_LENGTH, String.valueOf(encoded.length));
+    b.append('>');
+    appendCVParam(b, new MzMLCVParam(bitLength.getValue(), "",
+        bitLength == MzMLBitLength.SIXTY_FOUR_BIT_FLOAT ? "64-bit float" : "32-bit float", null));
+    appendCVParam(b,
+        new MzMLCVParam(compression.getAccession(), "", compression.getName(), null));
+    appendCVParam(b, arrayType);
+    b.append('<').append(MzMLTags.TAG_BINARY).append('>');
+    // base64 is plain ASCII, no escaping needed
+    b.append(new String(encoded, StandardCharsets.US_ASCII));
+    endElement(b, MzMLTags.TAG_BINARY);
+    endElement(b, MzMLTags.TAG_BINARY_DATA_ARRAY);
+  }
+
+  private static void appendCVParam(@NotNull StringBuilder b, @NotNull MzMLCVParam cvParam) {
+    b.append('<').append(MzMLTags.TAG_CV_PARAM);
+    attribute(b, MzMLTags.ATTR_CV_REF, CV_REF_MS);
+    attribute(b, MzMLTags.ATTR_ACCESSION, cvParam.getAccession());
+    cvParam.getName().ifPresent(name -> attribute(b, MzMLTags.ATTR_NAME, name));
+    attribute(b, MzMLTags.ATTR_VALUE, cvParam.getValue().orElse(""));
+    cvParam.getUnitAccession()
+        .ifPresent(unit -> attribute(b, MzMLTags.ATTR_UNIT_ACCESSION, unit));
+    b.append("/>");
+  }
+
+  private static void endElement(@NotNull StringBuilder b, @NotNull String tag) {
+    b.append("</").append(tag).append('>');
+  }
+
+  private static void attribute(@NotNull StringBuilder b, @NotNull String name, String value) {
+    b.append(' ').append(name).append("=\"");
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '&' -> b.append("&amp;");
+        case '<' -> b.append("&lt;");
+        case '>' -> b.append("&gt;");
+        case '"' -> b.append("&quot;");
+        default -> b.append(c);
+      }
+    }
+    b.append('"');
+  }
+
+  private void write(@NotNull OutputStream out, @NotNull String text) throws IOException {
+    write(out, text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void write(@NotNull OutputStream out, byte[] bytes) throws IOException {
+    out.write(bytes);
+    offset += bytes.length;
+  }
+
+  @Override
+  public Float getFinishedPercentage() {
+    return (totalScans + totalChromatograms) == 0 ? null
+        : (float) (writtenScans + writtenChromatograms) / (totalScans + totalChromatograms);
+  }
+
+  @Override
+  public Void getResult() {
+    return null;
+  }
+
+  @Override
+  public void cancel() {
+    this.canceled = true;
+  }
+}
@@ -27,19 +27,21 @@ package io.github.mzmine.modules.io.import_rawdata_all;
 
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.ScanDataAccess;
 import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.ParallelMassDetection;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * This import task wraps other data import tasks that do not support application of mass detection
@@ -54,7 +56,7 @@ public class MsDataImportAndMassDetectWrapperTask extends AbstractTask {
   private MZmineProcessingStep<MassDetector> ms2Detector = null;
 
   private int totalScans = 1;
-  private final int parsedScans = 0;
+  private int parsedScans = 0;
 
   /**
    * This import task wraps other data import tasks that do not support application of mass
@@ -138,40 +140,42 @@ public class MsDataImportAndMassDetectWrapperTask extends AbstractTask {
    * @return true if succeed and false if cancelled
    */
   public boolean applyMassDetection() {
-    // uses only a single array for each (mz and intensity) to loop over all scans
-    ScanDataAccess data = EfficientDataAccess.of(newMZmineFile,
-        EfficientDataAccess.ScanDataType.RAW);
-    totalScans = data.getNumberOfScans();
-
-    // all scans
-    while (data.hasNextScan()) {
-      if (isCanceled() || (importTask != null && importTask.isCanceled())) {
-        return false;
-      }
-
-      Scan scan = data.nextScan();
-
-      int msLevel = Objects.requireNonNullElse(scan.getMSLevel(), 1);
-      double[][] mzIntensities = null;
-      if (ms1Detector != null && msLevel <= 1) {
-        mzIntensities = ms1Detector.getModule().getMassValues(data, ms1Detector.getParameterSet());
-      } else if (ms2Detector != null && msLevel >= 2) {
-        mzIntensities = ms2Detector.getModule().getMassValues(data, ms2Detector.getParameterSet());
-        if (denormalizeMSnScans) {
-          ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzIntensities[1],
-              scan.getInjectionTime());
-        }
-      }
+    final List<Scan> scans = List.copyOf(newMZmineFile.getScans());
+    totalScans = scans.size();
+
+    // detect blocks of scans in parallel and add the mass lists in scan order
+    return ParallelMassDetection.detectInOrder(newMZmineFile, scans,
+        ParallelMassDetection.SCANS_PER_BLOCK, this::detectMasses, (scan, mzIntensities) -> {
+          if (mzIntensities != null) {
+            // uses a different storage for mass lists then the one defined for the MS data import
+            SimpleMassList newMassList = new SimpleMassList(storage, mzIntensities[0],
+                mzIntensities[1]);
+            scan.addMassList(newMassList);
+          }
+          parsedScans++;
+        }, () -> isCanceled() || (importTask != null && importTask.isCanceled()));
+  }
 
-      if (mzIntensities != null) {
-        // uses a different storage for mass lists then the one defined for the MS data import
-        SimpleMassList newMassList = new SimpleMassList(storage, mzIntensities[0],
-            mzIntensities[1]);
-        scan.addMassList(newMassList);
+  /**
+   * Detects the masses of a scan. Called by worker threads.
+   *
+   * @param data data access positioned on the scan
+   * @return [mzs, intensities] or null if there is no detector for the MS level
+   */
+  @Nullable
+  private double[][] detectMasses(Scan scan, ScanDataAccess data) {
+    int msLevel = Objects.requireNonNullElse(scan.getMSLevel(), 1);
+    double[][] mzIntensities = null;
+    if (ms1Detector != null && msLevel <= 1) {
+      mzIntensities = ms1Detector.getModule().getMassValues(data, ms1Detector.getParameterSet());
+    } else if (ms2Detector != null && msLevel >= 2) {
+      mzIntensities = ms2Detector.getModule().getMassValues(data, ms2Detector.getParameterSet());
+      if (denormalizeMSnScans) {
+        ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzIntensities[1],
+            scan.getInjectionTime());
       }
     }
-    return true;
+    return mzIntensities;
   }
 
-
 }
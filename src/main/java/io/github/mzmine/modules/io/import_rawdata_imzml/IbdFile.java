@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Read only, memory mapped access to the uncompressed binary data of an imzML file (.ibd). The
+ * file is mapped in segments of 1 GB. All reads are absolute and can be called by multiple threads
+ * in parallel.
+ */
+class IbdFile implements AutoCloseable {
+
+  private static final long SEGMENT_SIZE = 1L << 30;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer[] segments;
+  private final long segmentSize;
+  private final long size;
+
+  IbdFile(@NotNull File file) throws IOException {
+    this(file, SEGMENT_SIZE);
+  }
+
+  /**
+   * @param segmentSize size of the mapped segments in bytes, smaller segments are used in tests to
+   *                    cross segment borders
+   */
+  IbdFile(@NotNull File file, long segmentSize) throws IOException {
+    this.segmentSize = segmentSize;
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    size = channel.size();
+    final int numSegments = (int) ((size + segmentSize - 1) / segmentSize);
+    segments = new MappedByteBuffer[numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      final long start = i * segmentSize;
+      segments[i] = channel.map(MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+    }
+  }
+
+  /**
+   * @param imzML the imzML file
+   * @return the .ibd file next to the imzML file or null if there is none
+   */
+  @Nullable
+  static File findIbdFile(@NotNull File imzML) {
+    final String name = imzML.getName();
+    final int dot = name.lastIndexOf('.');
+    final String base = dot > 0 ? name.substring(0, dot) : name;
+    for (String extension : new String[]{".ibd", ".IBD", ".Ibd"}) {
+      final File ibd = new File(imzML.getParentFile(), base + extension);
+      if (ibd.isFile()) {
+        return ibd;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads and converts a binary data array.
+   *
+   * @param location the location of the array in this file
+   * @return the values
+   * @throws IOException if the array exceeds the file
+   */
+  double[] readValues(@NotNull ArrayLocation location) throws IOException {
+    final int numBytes = location.length() * location.type().bytes;
+    if (location.offset() < 0 || location.offset() + numBytes > size) {
+      throw new IOException(
+          "Binary data array at offset " + location.offset() + " exceeds the .ibd file size "
+              + size);
+    }
+
+    final int segment = (int) (location.offset() / segmentSize);
+    final int start = (int) (location.offset() % segmentSize);
+    final ByteBuffer data;
+    if (start + numBytes <= segments[segment].capacity()) {
+      data = segments[segment].slice(start, numBytes);
+    } else {
+      // crosses the segment border, read this one directly
+      data = ByteBuffer.allocate(numBytes);
+      while (data.hasRemaining()) {
+        if (channel.read(data, location.offset() + data.position()) < 0) {
+          throw new IOException("Unexpected end of the .ibd file");
+        }
+      }
+      data.flip();
+    }
+    data.order(ByteOrder.LITTLE_ENDIAN);
+
+    final double[] values = new double[location.length()];
+    switch (location.type()) {
+      case FLOAT_32 -> {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = data.getFloat(i * 4);
+        }
+      }
+      case FLOAT_64 -> data.asDoubleBuffer().get(values);
+      case INT_32 -> {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = data.getInt(i * 4);
+        }
+      }
+      case INT_64 -> {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = data.getLong(i * 8);
+        }
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void close() throws IOException {
+    // mapped segments are released by the garbage collector
+    channel.close();
+  }
+
+  /**
+   * The binary value types of the imzML specification
+   */
+  enum ValueType {
+    FLOAT_32("MS:1000521", 4), FLOAT_64("MS:1000523", 8), INT_32("MS:1000519", 4), INT_64(
+        "MS:1000522", 8);
+
+    private final String accession;
+    private final int bytes;
+
+    ValueType(String accession, int bytes) {
+      this.accession = accession;
+      this.bytes = bytes;
+    }
+
+    String getAccession() {
+      return accession;
+    }
+  }
+
+  /**
+   * @param offset external offset in bytes
+   * @param length number of values
+   * @param type   value type
+   */
+  record ArrayLocation(long offset, int length, @NotNull ValueType type) {
+
+  }
+}
@@ -43,25 +43,38 @@ import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.MassSpectrumType;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
 import io.github.mzmine.datamodel.impl.SimpleImagingScan;
-import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.SimpleMassSpectrum;
+import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
 import io.github.mzmine.modules.MZmineModule;
+import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetector;
+import io.github.mzmine.modules.io.import_rawdata_all.AdvancedSpectraImportParameters;
+import io.github.mzmine.modules.io.import_rawdata_imzml.IbdFile.ArrayLocation;
+import io.github.mzmine.modules.io.import_rawdata_imzml.IbdFile.ValueType;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.ExceptionUtils;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.OrderedBlockProcessor;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.DoubleBuffer;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Hashtable;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * This class reads mzML 1.0 and 1.1.0 files (http://www.psidev.info/index.php?q=node/257) using the
@@ -69,6 +82,15 @@ import org.jetbrains.annotations.NotNull;
  */
 public class ImzMLImportTask extends AbstractTask {
 
+  /**
+   * Spectra decoded by one worker in the memory mapped import. Imaging spectra are small, use large
+   * blocks to keep the scheduling overhead low.
+   */
+  private static final int SPECTRA_PER_BLOCK = 256;
+  private static final String CV_NO_COMPRESSION = "MS:1000576";
+  private static final String CV_EXTERNAL_OFFSET = "IMS:1000102";
+  private static final String CV_EXTERNAL_ARRAY_LENGTH = "IMS:1000103";
+
   private Logger logger = Logger.getLogger(this.getClass().getName());
 
   private File file;
@@ -76,31 +98,52 @@ public class ImzMLImportTask extends AbstractTask {
   private ImagingRawDataFile newMZmineFile;
   private final ParameterSet parameters;
   private final Class<? extends MZmineModule> module;
-  private int totalScans = 0, parsedScans;
+  private volatile int totalScans = 0, parsedScans;
 
   private int lastScanNumber = 0;
 
   private Map<String, Integer> scanIdTable = new Hashtable<>();
 
-  /*
-   * This stack stores at most 20 consecutive scans. This window serves to find possible fragments
-   * (current scan) that belongs to any of the stored scans in the stack. The reason of the size
-   * follows the concept of neighborhood of scans and all his fragments. These solution is
-   * implemented because exists the possibility to find fragments of one scan after one or more full
-   * scans.
-   */
-  private static final int PARENT_STACK_SIZE = 20;
-  private LinkedList<SimpleScan> parentStack = new LinkedList<>();
+  // advanced processing adds mass lists while the scans are created
+  private MZmineProcessingStep<MassDetector> ms1Detector = null;
+  private MZmineProcessingStep<MassDetector> ms2Detector = null;
+
+  // continuous mode: all spectra share the same m/z array
+  private double[] sharedMzValues;
+  private DoubleBuffer sharedMzBuffer;
 
   public ImzMLImportTask(MZmineProject project, File fileToOpen, ImagingRawDataFile newMZmineFile,
       @NotNull final Class<? extends MZmineModule> module, @NotNull final ParameterSet parameters,
       @NotNull Instant moduleCallDate) {
-    super(null, moduleCallDate); // storage in raw data file
+    this(project, fileToOpen, newMZmineFile, null, module, parameters, moduleCallDate, null);
+  }
+
+  /**
+   * @param advancedParam    applies mass detection while the spectra are decoded, may be null
+   * @param storageMassLists data storage for mass lists (usually different to that of the data
+   *                         file)
+   */
+  public ImzMLImportTask(MZmineProject project, File fileToOpen, ImagingRawDataFile newMZmineFile,
+      @Nullable AdvancedSpectraImportParameters advancedParam,
+      @NotNull final Class<? extends MZmineModule> module, @NotNull final ParameterSet parameters,
+      @NotNull Instant moduleCallDate, @Nullable MemoryMapStorage storageMassLists) {
+    super(storageMassLists, moduleCallDate); // scans are stored in the raw data file
     this.project = project;
     this.file = fileToOpen;
     this.newMZmineFile = newMZmineFile;
     this.parameters = parameters;
     this.module = module;
+
+    if (advancedParam != null) {
+      if (advancedParam.getParameter(AdvancedSpectraImportParameters.msMassDetection).getValue()) {
+        this.ms1Detector = advancedParam.getParameter(
+            AdvancedSpectraImportParameters.msMassDetection).getEmbeddedParameter().getValue();
+      }
+      if (advancedParam.getParameter(AdvancedSpectraImportParameters.ms2MassDetection).getValue()) {
+        this.ms2Detector = advancedParam.getParameter(
+            AdvancedSpectraImportParameters.ms2MassDetection).getEmbeddedParameter().getValue();
+      }
+    }
   }
 
   @Override
@@ -123,63 +166,31 @@ public class ImzMLImportTask extends AbstractTask {
 
       SpectrumList spectra = imzml.getRun().getSpectrumList();
       totalScans = spectra.size();
-      for (int i = 0; i < totalScans; i++) {
 
+      // the metadata is read once in spectrum order, the scan numbers depend on this order
+      final List<SpectrumMetadata> metadata = new ArrayList<>(totalScans);
+      for (int i = 0; i < totalScans; i++) {
         if (isCanceled()) {
           return;
         }
-
         Spectrum spectrum = spectra.get(i);
-
         // Ignore scans that are not MS, e.g. UV
         if (!isMsSpectrum(spectrum)) {
           parsedScans++;
           continue;
         }
-
-        String scanId = spectrum.getID();
-        int scanNumber = convertScanIdToScanNumber(scanId);
-
-        // Extract scan data
-        int msLevel = extractMSLevel(spectrum);
-        float retentionTime = extractRetentionTime(spectrum);
-        PolarityType polarity = extractPolarity(spectrum);
-        int parentScan = extractParentScanNumber(spectrum);
-        double precursorMz = extractPrecursorMz(spectrum);
-        int precursorCharge = extractPrecursorCharge(spectrum);
-        String scanDefinition = extractScanDefinition(spectrum);
-        double mzValues[] = extractMzValues(spectrum);
-        double intensityValues[] = extractIntensityValues(spectrum);
-
-        // imaging
-        Coordinates coord = extractCoordinates(spectrum);
-
-        // Auto-detect whether this scan is centroided
-        MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
-
-        SimpleImagingScan scan = new SimpleImagingScan(newMZmineFile, scanNumber, msLevel,
-            retentionTime, precursorMz, precursorCharge, mzValues, intensityValues, spectrumType,
-            polarity, scanDefinition, null, coord);
-
-
-        /*
-         * Verify the size of parentStack. The actual size of the window to cover possible
-         * candidates is defined by limitSize.
-         */
-        if (parentStack.size() > PARENT_STACK_SIZE) {
-          io.github.mzmine.datamodel.Scan firstScan = parentStack.removeLast();
-          newMZmineFile.addScan(firstScan);
-        }
-
-        parentStack.addFirst(scan);
-
-        parsedScans++;
-
+        metadata.add(extractMetadata(spectrum));
       }
 
-      while (!parentStack.isEmpty()) {
-        io.github.mzmine.datamodel.Scan scan = parentStack.removeLast();
-        newMZmineFile.addScan(scan);
+      // decode the binary data from the memory mapped .ibd file in parallel if all arrays are
+      // uncompressed and their locations are known. Otherwise, read through the imzML parser
+      final File ibdFile = IbdFile.findIbdFile(file);
+      final boolean mapped = ibdFile != null && metadata.stream()
+          .allMatch(m -> m.mzLocation() != null && m.intensityLocation() != null);
+      final boolean completed =
+          mapped ? importMapped(ibdFile, metadata) : importSequential(metadata);
+      if (!completed) {
+        return;
       }
 
       // set settings of image
@@ -205,6 +216,207 @@ public class ImzMLImportTask extends AbstractTask {
 
   }
 
+  /**
+   * Reads the binary data of each spectrum through the imzML parser, one after another.
+   *
+   * @return false if canceled
+   */
+  private boolean importSequential(List<SpectrumMetadata> metadata) throws IOException {
+    for (SpectrumMetadata meta : metadata) {
+      if (isCanceled()) {
+        return false;
+      }
+      double mzValues[] = extractMzValues(meta.spectrum());
+      double intensityValues[] = extractIntensityValues(meta.spectrum());
+      newMZmineFile.addScan(createScan(meta, mzValues, intensityValues));
+      parsedScans++;
+    }
+    return true;
+  }
+
+  /**
+   * Decodes blocks of spectra from the memory mapped .ibd file in parallel. The scans are stored
+   * to the memory map storage of the data file by the workers and added to the data file in
+   * spectrum order. Only a limited number of blocks is decoded ahead to limit the memory of
+   * pending scans.
+   *
+   * @return false if canceled
+   */
+  private boolean importMapped(File ibdFile, List<SpectrumMetadata> metadata) throws IOException {
+    logger.finest(() -> "Decoding spectra of " + file + " from memory mapped " + ibdFile);
+    try (IbdFile ibd = new IbdFile(ibdFile)) {
+      readSharedMzValues(ibd, metadata);
+
+      return OrderedBlockProcessor.processInOrder(metadata, SPECTRA_PER_BLOCK,
+          (from, block) -> decodeBlock(ibd, block), (from, block, scans) -> {
+            for (SimpleImagingScan scan : scans) {
+              newMZmineFile.addScan(scan);
+              parsedScans++;
+            }
+          }, this::isCanceled);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Called by worker threads.
+   */
+  private List<SimpleImagingScan> decodeBlock(IbdFile ibd, List<SpectrumMetadata> block) {
+    final List<SimpleImagingScan> scans = new ArrayList<>(block.size());
+    try {
+      for (SpectrumMetadata meta : block) {
+        if (isCanceled()) {
+          break;
+        }
+        final double[] mzValues =
+            sharedMzBuffer != null ? sharedMzValues : ibd.readValues(meta.mzLocation());
+        scans.add(createScan(meta, mzValues, ibd.readValues(meta.intensityLocation())));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return scans;
+  }
+
+  /**
+   * Continuous mode imzML files point all spectra to the same m/z array. Reads and stores this
+   * array once to share it between all scans.
+   */
+  private void readSharedMzValues(IbdFile ibd, List<SpectrumMetadata> metadata)
+      throws IOException {
+    final double[] mzValues = readSharedMzValues(ibd,
+        metadata.stream().map(SpectrumMetadata::mzLocation).toList(),
+        metadata.stream().map(SpectrumMetadata::intensityLocation).toList());
+    if (mzValues == null) {
+      return;
+    }
+    sharedMzValues = mzValues;
+    sharedMzBuffer = StorageUtils.storeValuesToDoubleBuffer(newMZmineFile.getMemoryMapStorage(),
+        mzValues);
+    logger.finest(
+        () -> "Continuous mode imzML, all spectra share " + mzValues.length + " m/z values");
+  }
+
+  /**
+   * @param mzLocations        the m/z array of each spectrum
+   * @param intensityLocations the intensity array of each spectrum
+   * @return the m/z values if all spectra point to the same sorted m/z array, otherwise null
+   */
+  @Nullable
+  static double[] readSharedMzValues(@NotNull IbdFile ibd, @NotNull List<ArrayLocation> mzLocations,
+      @NotNull List<ArrayLocation> intensityLocations) throws IOException {
+    if (mzLocations.isEmpty()) {
+      return null;
+    }
+    final ArrayLocation mzLocation = mzLocations.get(0);
+    for (int i = 0; i < mzLocations.size(); i++) {
+      if (!mzLocation.equals(mzLocations.get(i))
+          || mzLocation.length() != intensityLocations.get(i).length()) {
+        return null;
+      }
+    }
+
+    final double[] mzValues = ibd.readValues(mzLocation);
+    for (int i = 1; i < mzValues.length; i++) {
+      if (mzValues[i] < mzValues[i - 1]) {
+        // unsorted, sorting would change the order of the intensities of each spectrum
+        return null;
+      }
+    }
+    return mzValues;
+  }
+
+  /**
+   * Creates the scan and applies mass detection if selected. The scan keeps the original data
+   * points, the detected masses are added as a mass list. Called by worker threads.
+   *
+   * @param mzValues the shared m/z values of continuous mode files or the values of this scan
+   */
+  private SimpleImagingScan createScan(SpectrumMetadata meta, double[] mzValues,
+      double[] intensityValues) {
+    final int msLevel = meta.msLevel();
+    // Auto-detect whether this scan is centroided
+    MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
+    final SimpleImagingScan scan;
+    if (sharedMzBuffer != null && mzValues == sharedMzValues) {
+      scan = new SimpleImagingScan(newMZmineFile, meta.scanNumber(), msLevel,
+          meta.retentionTime(), meta.precursorMz(), meta.precursorCharge(), sharedMzBuffer,
+          intensityValues, spectrumType, meta.polarity(), meta.scanDefinition(), null,
+          meta.coordinates());
+    } else {
+      scan = new SimpleImagingScan(newMZmineFile, meta.scanNumber(), msLevel,
+          meta.retentionTime(), meta.precursorMz(), meta.precursorCharge(), mzValues,
+          intensityValues, spectrumType, meta.polarity(), meta.scanDefinition(), null,
+          meta.coordinates());
+    }
+
+    MZmineProcessingStep<MassDetector> detector = msLevel <= 1 ? ms1Detector : ms2Detector;
+    if (detector != null) {
+      double[][] mzIntensities = detector.getModule()
+          .getMassValues(new SimpleMassSpectrum(mzValues, intensityValues),
+              detector.getParameterSet());
+      if (mzIntensities != null) {
+        // uses a different storage for mass lists then the one defined for the MS data import
+        scan.addMassList(new SimpleMassList(storage, mzIntensities[0], mzIntensities[1]));
+      }
+    }
+    return scan;
+  }
+
+  private SpectrumMetadata extractMetadata(Spectrum spectrum) {
+    String scanId = spectrum.getID();
+    int scanNumber = convertScanIdToScanNumber(scanId);
+
+    // Extract scan data
+    int msLevel = extractMSLevel(spectrum);
+    float retentionTime = extractRetentionTime(spectrum);
+    PolarityType polarity = extractPolarity(spectrum);
+    // assigns scan numbers to precursor ids
+    extractParentScanNumber(spectrum);
+    double precursorMz = extractPrecursorMz(spectrum);
+    int precursorCharge = extractPrecursorCharge(spectrum);
+    String scanDefinition = extractScanDefinition(spectrum);
+
+    // imaging
+    Coordinates coord = extractCoordinates(spectrum);
+
+    BinaryDataArrayList dataList = spectrum.getBinaryDataArrayList();
+    ArrayLocation mzLocation = dataList == null ? null : extractLocation(dataList.getmzArray());
+    ArrayLocation intensityLocation =
+        dataList == null ? null : extractLocation(dataList.getIntensityArray());
+
+    return new SpectrumMetadata(spectrum, scanNumber, msLevel, retentionTime, polarity,
+        precursorMz, precursorCharge, scanDefinition, coord, mzLocation, intensityLocation);
+  }
+
+  /**
+   * @return the location of an uncompressed array in the .ibd file or null if it is unknown or
+   * compressed
+   */
+  @Nullable
+  static ArrayLocation extractLocation(@Nullable BinaryDataArray array) {
+    if (array == null || array.getCVParam(CV_NO_COMPRESSION) == null) {
+      return null;
+    }
+    CVParam offset = array.getCVParam(CV_EXTERNAL_OFFSET);
+    CVParam length = array.getCVParam(CV_EXTERNAL_ARRAY_LENGTH);
+    if (offset == null || length == null) {
+      return null;
+    }
+    for (ValueType type : ValueType.values()) {
+      if (array.getCVParam(type.getAccession()) != null) {
+        try {
+          return new ArrayLocation(Long.parseLong(offset.getValueAsString().trim()),
+              Integer.parseInt(length.getValueAsString().trim()), type);
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+
   private int convertScanIdToScanNumber(String scanId) {
 
     if (scanIdTable.containsKey(scanId)) {
@@ -432,6 +644,14 @@ public class ImzMLImportTask extends AbstractTask {
     return "Opening file " + file;
   }
 
+  private record SpectrumMetadata(Spectrum spectrum, int scanNumber, int msLevel,
+                                  float retentionTime, PolarityType polarity, double precursorMz,
+                                  int precursorCharge, String scanDefinition,
+                                  Coordinates coordinates, @Nullable ArrayLocation mzLocation,
+                                  @Nullable ArrayLocation intensityLocation) {
+
+  }
+
   boolean isMsSpectrum(Spectrum spectrum) {
     // one thats not MS (code for UV?)
     CVParam cvParams = spectrum.getCVParam("MS:1000804");
@@ -36,15 +36,47 @@ import io.github.mzmine.util.spectraldb.parser.UnsupportedFormatException;
 import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class SpectralLibraryImportTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(SpectralLibraryImportTask.class.getName());
 
+  /**
+   * Maximum number of parsed libraries that are kept between batch jobs. The least recently used
+   * library is released first.
+   */
+  private static final int MAX_KEPT_LIBRARIES = 16;
+  /**
+   * Parsed libraries by absolute path that are kept between batch jobs, e.g., in the headless job
+   * server. Access ordered, guarded by itself.
+   */
+  private static final Map<String, KeptLibrary> keptLibraries = new LinkedHashMap<>(16, 0.75f,
+      true) {
+    @Override
+    protected boolean removeEldestEntry(Entry<String, KeptLibrary> eldest) {
+      if (size() > MAX_KEPT_LIBRARIES) {
+        releasedLibraries.add(eldest.getValue().library());
+        return true;
+      }
+      return false;
+    }
+  };
+  /**
+   * Libraries that were replaced or evicted from {@link #keptLibraries}, guarded by
+   * {@link #keptLibraries}
+   */
+  private static final List<SpectralLibrary> releasedLibraries = new ArrayList<>();
+  private static volatile boolean keepLibrariesLoaded = false;
+
   private final MZmineProject project;
   private final File dataBaseFile;
   private AutoLibraryParser parser;
@@ -75,11 +107,20 @@ public class SpectralLibraryImportTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
 
     try {
-      // will block until all library spectra are added to entries list
-      SpectralLibrary library = parseFile(dataBaseFile);
+      final boolean keep = keepLibrariesLoaded;
+      SpectralLibrary library = keep ? getKeptLibrary(dataBaseFile) : null;
+      if (library != null) {
+        logger.info(() -> "Using already loaded library " + dataBaseFile);
+      } else {
+        // will block until all library spectra are added to entries list
+        library = parseFile(dataBaseFile);
+      }
       final List<SpectralLibraryEntry> entries = library.getEntries();
       if (entries.size() > 0) {
         project.addSpectralLibrary(library);
+        if (keep) {
+          keepLibrary(dataBaseFile, library);
+        }
 
         logger.log(Level.INFO,
             () -> String.format("Library %s successfully added with %d entries", dataBaseFile,
@@ -96,6 +137,78 @@ public class SpectralLibraryImportTask extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
+  /**
+   * Keep parsed libraries loaded and reuse them when the same unchanged file is imported again.
+   * Used by long running headless instances that process many batches.
+   *
+   * @param keep true to keep libraries, false to release all kept libraries
+   */
+  public static void setKeepLibrariesLoaded(boolean keep) {
+    keepLibrariesLoaded = keep;
+    if (!keep) {
+      synchronized (keptLibraries) {
+        keptLibraries.values().forEach(kept -> releasedLibraries.add(kept.library()));
+        keptLibraries.clear();
+      }
+    }
+  }
+
+  /**
+   * @return number of libraries that are kept loaded
+   */
+  public static int getNumberOfKeptLibraries() {
+    synchronized (keptLibraries) {
+      return keptLibraries.size();
+    }
+  }
+
+  /**
+   * @return true if the library is kept loaded for the next batch jobs
+   */
+  public static boolean isKeptLibrary(@NotNull SpectralLibrary library) {
+    synchronized (keptLibraries) {
+      return keptLibraries.values().stream().anyMatch(kept -> kept.library() == library);
+    }
+  }
+
+  /**
+   * Libraries that are no longer kept, because the file changed or more than
+   * {@link #MAX_KEPT_LIBRARIES} libraries were loaded. Their storage can be discarded once no
+   * project uses them.
+   *
+   * @return the released libraries since the last call
+   */
+  @NotNull
+  public static List<SpectralLibrary> drainReleasedLibraries() {
+    synchronized (keptLibraries) {
+      final List<SpectralLibrary> released = List.copyOf(releasedLibraries);
+      releasedLibraries.clear();
+      return released;
+    }
+  }
+
+  @Nullable
+  private static SpectralLibrary getKeptLibrary(@NotNull File file) {
+    synchronized (keptLibraries) {
+      final KeptLibrary kept = keptLibraries.get(file.getAbsolutePath());
+      return kept != null && kept.version().equals(createVersion(file)) ? kept.library() : null;
+    }
+  }
+
+  private static void keepLibrary(@NotNull File file, @NotNull SpectralLibrary library) {
+    synchronized (keptLibraries) {
+      final KeptLibrary old = keptLibraries.put(file.getAbsolutePath(),
+          new KeptLibrary(createVersion(file), library));
+      if (old != null && old.library() != library) {
+        releasedLibraries.add(old.library());
+      }
+    }
+  }
+
+  private static String createVersion(File file) {
+    return file.length() + "|" + file.lastModified();
+  }
+
   /**
    * Load all library entries from data base file
    *
@@ -104,11 +217,22 @@ public class SpectralLibraryImportTask extends AbstractTask {
   private SpectralLibrary parseFile(File dataBaseFile)
       throws UnsupportedFormatException, IOException {
     //
-    SpectralLibrary library = new SpectralLibrary(MemoryMapStorage.forMassList(), dataBaseFile);
+    final MemoryMapStorage storage = MemoryMapStorage.forMassList();
+    SpectralLibrary library = new SpectralLibrary(storage, dataBaseFile);
+    if (storage != null) {
+      storage.addOwner(library);
+    }
     parser = new AutoLibraryParser(1000, (list, alreadyProcessed) -> library.addEntries(list));
     // return tasks
     parser.parse(this, dataBaseFile, library);
     return library;
   }
 
+  /**
+   * @param version file size and last modification to detect changed files
+   */
+  private record KeptLibrary(String version, SpectralLibrary library) {
+
+  }
+
 }
@@ -34,6 +34,7 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.ProjectManager;
 import io.github.mzmine.project.impl.MZmineProjectImpl;
 import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.AllTasksFinishedListener;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.ExceptionUtils;
@@ -42,6 +43,7 @@ import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.StreamCopy;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -49,7 +51,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.time.Instant;
 import java.util.Enumeration;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -159,57 +162,44 @@ public class ProjectOpeningTask extends AbstractTask {
         totalBytes += entry.getSize();
       }
 
-      final Pattern peakListPattern = Pattern.compile("Peak list #([\\d]+) (.*)\\.xml$");
-      boolean versionInformationLoaded = false;
-
-      // Iterate over the entries and read them
-      entries = zipFile.entries();
-
-      while (entries.hasMoreElements()) {
-
-        if (isCanceled()) {
-          zipFile.close();
-          return;
-        }
-
-        ZipEntry entry = entries.nextElement();
-        String entryName = entry.getName();
-        cis = new CountingInputStream(zipFile.getInputStream(entry));
-
-        if (entryName.equals(ProjectSavingTask.VERSION_FILENAME)) {
-          loadVersion(cis);
-          versionInformationLoaded = true;
-        } else if (entryName.equals(ProjectSavingTask.CONFIG_FILENAME)) {
-          loadConfiguration(cis);
-        } else if (entryName.equals(ProjectSavingTask.PARAMETERS_FILENAME)) {
-          loadUserParameters(cis);
-        } else if (entryName.equals(RawDataFileSaveHandler.RAW_DATA_IMPORT_BATCH_FILENAME)) {
-          loadRawDataFiles(cis, zipFile);
-        } else if (entryName.equals(ProjectSavingTask.STANDALONE_FILENAME)) {
-          newProject.setStandalone(true);
-        }
-
-        // Close the ZIP entry
-        cis.close();
-
-        // Add the uncompressed entry size finishedBytes
-        synchronized (this) {
-          finishedBytes += entry.getSize();
-          cis = null;
-        }
+      // The version defines the raw data file handler and needs to be loaded first
+      if (zipFile.getEntry(ProjectSavingTask.VERSION_FILENAME) == null) {
+        zipFile.close();
+        throw new IOException(
+            "This file is not valid MZmine project. It does not contain version information.");
+      }
+      readEntry(zipFile, ProjectSavingTask.VERSION_FILENAME, this::loadVersion);
+      if (getStatus() != TaskStatus.PROCESSING) {
+        // the project version cannot be opened
+        zipFile.close();
+        return;
+      }
+      // the configuration and user parameters may change how data files are imported
+      readEntry(zipFile, ProjectSavingTask.CONFIG_FILENAME, this::loadConfiguration);
+      readEntry(zipFile, ProjectSavingTask.PARAMETERS_FILENAME, this::loadUserParameters);
+      if (zipFile.getEntry(ProjectSavingTask.STANDALONE_FILENAME) != null) {
+        newProject.setStandalone(true);
+      }
 
+      // raw data files are imported by their own tasks in parallel. Meanwhile, the feature lists
+      // are extracted, but they are only parsed after all raw data files are loaded
+      final CompletableFuture<TaskStatus> rawDataFilesLoaded = startLoadingRawDataFiles(zipFile);
+      currentLoadedObjectName = "Feature lists";
+      final File[] featureListFiles = FeatureListLoadTask.unzipFeatureLists(zipFile);
+      if (isCanceled() || !awaitRawDataFiles(rawDataFilesLoaded)) {
+        zipFile.close();
+        return;
+      }
+      // all entries except for the feature lists are read
+      synchronized (this) {
+        finishedBytes = totalBytes;
       }
 
-      loadFeatureList(zipFile);
+      loadFeatureLists(featureListFiles);
 
       // Finish and close the project ZIP file
       zipFile.close();
 
-      if (!versionInformationLoaded) {
-        throw new IOException(
-            "This file is not valid MZmine project. It does not contain version information.");
-      }
-
       // Final check for cancel
       if (isCanceled()) {
         return;
@@ -352,18 +342,40 @@ public class ProjectOpeningTask extends AbstractTask {
     tempConfigFile.delete();
   }
 
-  private void loadFeatureList(ZipFile zipFile) {
+  /**
+   * Reads a zip entry if it exists and adds its size to the finished bytes
+   */
+  private void readEntry(ZipFile zipFile, String entryName, EntryLoader loader) throws Exception {
+    final ZipEntry entry = zipFile.getEntry(entryName);
+    if (entry == null || isCanceled()) {
+      return;
+    }
+    synchronized (this) {
+      cis = new CountingInputStream(zipFile.getInputStream(entry));
+    }
+    try {
+      loader.load(cis);
+    } finally {
+      // Close the ZIP entry
+      cis.close();
+
+      // Add the uncompressed entry size finishedBytes
+      synchronized (this) {
+        finishedBytes += entry.getSize();
+        cis = null;
+      }
+    }
+  }
 
+  private void loadFeatureLists(File[] featureListFiles) throws InterruptedException {
     FeatureListLoadTask task = new FeatureListLoadTask(MemoryMapStorage.forFeatureList(),
-        newProject, zipFile);
+        newProject, featureListFiles);
+    final CompletableFuture<TaskStatus> completion = AllTasksFinishedListener.completionFuture(
+        List.of(task));
     MZmineCore.getTaskController().addTask(task);
     currentLoadedObjectName = "Feature lists";
-    while (task.getStatus() != TaskStatus.FINISHED && !task.isCanceled() && !isCanceled()) {
-      try {
-        Thread.sleep(50);
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      }
+    if (AllTasksFinishedListener.awaitCompletion(completion, this) == TaskStatus.CANCELED) {
+      task.cancel();
     }
   }
 
@@ -383,42 +395,59 @@ public class ProjectOpeningTask extends AbstractTask {
 
   }
 
-  private boolean loadRawDataFiles(InputStream is, ZipFile zipFile) {
+  /**
+   * Starts the raw data file import task
+   *
+   * @return the future status of the import. FINISHED if there are no raw data files
+   */
+  private CompletableFuture<TaskStatus> startLoadingRawDataFiles(ZipFile zipFile)
+      throws IOException {
+    final ZipEntry entry = zipFile.getEntry(RawDataFileSaveHandler.RAW_DATA_IMPORT_BATCH_FILENAME);
+    if (entry == null || rawDataFileOpenHandler == null) {
+      return CompletableFuture.completedFuture(TaskStatus.FINISHED);
+    }
     currentLoadedObjectName = ("MS data files");
-    rawDataFileOpenHandler.setBatchFileStream(is);
+
+    // the batch file is small, read it completely so the zip entry is not shared with the import
+    final byte[] batchFile;
+    try (InputStream is = zipFile.getInputStream(entry)) {
+      batchFile = is.readAllBytes();
+    }
+    synchronized (this) {
+      finishedBytes += entry.getSize();
+    }
+    rawDataFileOpenHandler.setBatchFileStream(new ByteArrayInputStream(batchFile));
     rawDataFileOpenHandler.setProject(newProject);
     rawDataFileOpenHandler.setZipFile(zipFile);
 
-    AtomicBoolean finished = new AtomicBoolean(false);
-    ((AbstractTask) rawDataFileOpenHandler).addTaskStatusListener((task, newStatus, oldStatus) -> {
-      switch (newStatus) {
-        case WAITING, PROCESSING -> {
-        }
-        case FINISHED -> {
-          finished.set(true);
-        }
-        case CANCELED -> {
-          finished.set(true);
-          setStatus(TaskStatus.CANCELED);
-        }
-        case ERROR -> {
-          finished.set(true);
-          setErrorMessage("Error while opening raw data files.");
-          setStatus(TaskStatus.ERROR);
-        }
-      }
-    });
+    final CompletableFuture<TaskStatus> completion = AllTasksFinishedListener.completionFuture(
+        List.of((AbstractTask) rawDataFileOpenHandler));
     MZmineCore.getTaskController().addTask(rawDataFileOpenHandler);
+    return completion;
+  }
 
-    while (!finished.get() && !isCanceled()) {
-      try {
-        Thread.sleep(100);
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+  /**
+   * @return true if all raw data files were loaded
+   */
+  private boolean awaitRawDataFiles(CompletableFuture<TaskStatus> rawDataFilesLoaded)
+      throws InterruptedException {
+    switch (AllTasksFinishedListener.awaitCompletion(rawDataFilesLoaded, this)) {
+      case FINISHED -> {
+        return true;
       }
+      case ERROR -> {
+        setErrorMessage("Error while opening raw data files.");
+        setStatus(TaskStatus.ERROR);
+      }
+      default -> setStatus(TaskStatus.CANCELED);
     }
+    return false;
+  }
+
+  @FunctionalInterface
+  private interface EntryLoader {
 
-    return rawDataFileOpenHandler.getStatus() == TaskStatus.FINISHED;
+    void load(InputStream is) throws Exception;
   }
 
   @Override
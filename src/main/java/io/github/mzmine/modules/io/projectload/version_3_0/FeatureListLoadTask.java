@@ -56,6 +56,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -87,20 +88,54 @@ public class FeatureListLoadTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(FeatureListLoadTask.class.getName());
   final String idTypeUniqueID = new IDType().getUniqueID();
+  @Nullable
   private final ZipFile zip;
+  @Nullable
+  private final File[] unzippedFiles;
   private final MZmineProject project;
-  private final AtomicInteger rowCounter = new AtomicInteger(0);
-  private int totalRows = 1;
-  private int processedRows = 0;
-  private String currentFlist = "";
+  // feature lists are loaded in parallel, progress is summed over all feature lists
+  private final AtomicInteger totalRows = new AtomicInteger(0);
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+  private final AtomicInteger processedFlists = new AtomicInteger(0);
   private int numFlists = 1;
-  private int processedFlists;
 
   public FeatureListLoadTask(@Nullable MemoryMapStorage storage, @NotNull MZmineProject project,
       ZipFile zip) {
     super(storage, Instant.now());
     this.project = project;
     this.zip = zip;
+    this.unzippedFiles = null;
+  }
+
+  /**
+   * @param unzippedFiles the feature list data files that were already extracted from the project
+   *                      by {@link #unzipFeatureLists(ZipFile)}
+   */
+  public FeatureListLoadTask(@Nullable MemoryMapStorage storage, @NotNull MZmineProject project,
+      @Nullable File[] unzippedFiles) {
+    super(storage, Instant.now());
+    this.project = project;
+    this.zip = null;
+    this.unzippedFiles = unzippedFiles;
+  }
+
+  /**
+   * Extracts the feature lists of a project to a temp directory. Does not depend on the raw data
+   * files, so this can run while they are imported.
+   *
+   * @return the feature list data files or null if the project does not contain feature lists
+   */
+  @Nullable
+  public static File[] unzipFeatureLists(@NotNull ZipFile zip) throws IOException {
+    Path tempDirectory = FileAndPathUtil.createTempDirectory(TEMP_FLIST_DATA_FOLDER);
+
+    logger.info(() -> "Unzipping feature lists of project to " + tempDirectory.toString());
+    ZipUtils.unzipDirectories(List.of(FeatureListSaveTask.FLIST_FOLDER), zip,
+        tempDirectory.toFile());
+    logger.info(() -> "Unzipping feature lists done.");
+
+    return new File(tempDirectory.toFile(), FeatureListSaveTask.FLIST_FOLDER).listFiles(
+        (dir, name) -> fileNamePattern.matcher(name).matches());
   }
 
   /**
@@ -132,28 +167,24 @@ public class FeatureListLoadTask extends AbstractTask {
 
   @Override
   public String getTaskDescription() {
-    return "Importing feature list " + currentFlist + (processedFlists + 1) + "/" + numFlists
-           + ". Parsing row " + processedRows + "/" + totalRows;
+    return "Importing feature lists " + processedFlists.get() + "/" + numFlists
+           + ". Parsing row " + processedRows.get() + "/" + totalRows.get();
   }
 
   @Override
   public double getFinishedPercentage() {
-    return (double) processedFlists / numFlists // overall progress finished flists
-           + (double) processedRows / totalRows / numFlists; // current flist progress
+    final int total = totalRows.get();
+    // rows are only known after the feature lists were created
+    return total == 0 ? (double) processedFlists.get() / numFlists
+        : (double) processedRows.get() / total;
   }
 
   @Override
   public void run() {
     setStatus(TaskStatus.PROCESSING);
     try {
-      Path tempDirectory = FileAndPathUtil.createTempDirectory(TEMP_FLIST_DATA_FOLDER);
-
-      logger.info(() -> "Unzipping feature lists of project to " + tempDirectory.toString());
-      ZipUtils.unzipDirectory(FeatureListSaveTask.FLIST_FOLDER, zip, tempDirectory.toFile());
-      logger.info(() -> "Unzipping feature lists done.");
-
-      File[] files = new File(tempDirectory.toFile(), FeatureListSaveTask.FLIST_FOLDER)
-          .listFiles((dir, name) -> fileNamePattern.matcher(name).matches());
+      final File[] files =
+          unzippedFiles != null || zip == null ? unzippedFiles : unzipFeatureLists(zip);
       if (files == null) {
         logger.info("Did not find feature lists to load.");
         setStatus(TaskStatus.FINISHED);
@@ -167,12 +198,13 @@ public class FeatureListLoadTask extends AbstractTask {
       // enable caching of mobility scans during project import.
       project.setProjectLoadImsImportCaching(true);
 
-      for (File flistFile : files) {
+      // feature lists are independent, parse them in parallel and add them in the original order
+      final ModularFeatureList[] flists = new ModularFeatureList[files.length];
+      IntStream.range(0, files.length).parallel().forEach(i -> {
         if (isCanceled()) {
           return;
         }
-        rowCounter.set(0);
-
+        final File flistFile = files[i];
         final File metadataFile = new File(flistFile.toString()
             .replace(FeatureListSaveTask.DATA_FILE_SUFFIX,
                 FeatureListSaveTask.METADATA_FILE_SUFFIX));
@@ -182,15 +214,24 @@ public class FeatureListLoadTask extends AbstractTask {
           logger.severe(
               () -> "Cannot load feature list from files " + flistFile.getAbsolutePath() + " and "
                     + metadataFile.getAbsolutePath());
-          continue;
+          return;
         }
         parseFeatureList(storage, project, flist, flistFile);
 
         // disable buffering after the import (replace references to CachedIMSRawDataFiles with IMSRawDataFiles
         flist.replaceCachedFilesAndScans();
 
-        project.addFeatureList(flist);
-        processedFlists++;
+        flists[i] = flist;
+        processedFlists.incrementAndGet();
+      });
+
+      if (isCanceled()) {
+        return;
+      }
+      for (ModularFeatureList flist : flists) {
+        if (flist != null) {
+          project.addFeatureList(flist);
+        }
       }
     } catch (Exception e) {
       e.printStackTrace();
@@ -208,9 +249,8 @@ public class FeatureListLoadTask extends AbstractTask {
 
   private void parseFeatureList(MemoryMapStorage storage, MZmineProject project,
       ModularFeatureList flist, File flistFile) {
-    currentFlist = flist.getName();
-    processedRows = 0;
-    totalRows = flist.getNumberOfRows();
+    // the index of the current row in the feature list
+    int rowIndex = 0;
 
     try (InputStream fis = new FileInputStream(flistFile)) {
       final XMLInputFactory xif = XMLInputFactory.newInstance();
@@ -233,8 +273,9 @@ public class FeatureListLoadTask extends AbstractTask {
                       .getAttributeValue(null, CONST.XML_FLIST_NAME_ATTR));
             }
           } else if (CONST.XML_ROW_ELEMENT.equals(localName)) {
-            parseRow(reader, storage, project, flist);
-            processedRows++;
+            parseRow(reader, storage, project, flist, rowIndex);
+            rowIndex++;
+            processedRows.incrementAndGet();
           }
         }
       }
@@ -286,6 +327,7 @@ public class FeatureListLoadTask extends AbstractTask {
 
     logger.finest(
         () -> "Created " + flist.getNumberOfRows() + " rows in feature list " + flist.getName());
+    totalRows.addAndGet(flist.getNumberOfRows());
     return flist;
   }
 
@@ -381,13 +423,13 @@ public class FeatureListLoadTask extends AbstractTask {
   }
 
   private void parseRow(XMLStreamReader reader, MemoryMapStorage storage, MZmineProject project,
-      ModularFeatureList flist) throws XMLStreamException {
+      ModularFeatureList flist, int rowIndex) throws XMLStreamException {
     if (!reader.getLocalName().equals(CONST.XML_ROW_ELEMENT)) {
       throw new IllegalStateException("Cannot parse row if current element is not a row element");
     }
 
     int id = Integer.parseInt(reader.getAttributeValue(null, idTypeUniqueID));
-    final ModularFeatureListRow row = (ModularFeatureListRow) flist.getRow(rowCounter.get());
+    final ModularFeatureListRow row = (ModularFeatureListRow) flist.getRow(rowIndex);
     if (id != row.getID()) {
       throw new IllegalStateException("Row ids do not match.");
     }
@@ -423,7 +465,6 @@ public class FeatureListLoadTask extends AbstractTask {
         }
       }
     }
-    rowCounter.getAndIncrement();
   }
 
   private void parseFeature(@NotNull XMLStreamReader reader, @Nullable MemoryMapStorage storage,
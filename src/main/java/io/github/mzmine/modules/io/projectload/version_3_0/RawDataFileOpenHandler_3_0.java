@@ -55,8 +55,10 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -215,12 +217,19 @@ public class RawDataFileOpenHandler_3_0 extends AbstractTask implements RawDataF
 
       Path tempDir = FileAndPathUtil.createTempDirectory(TEMP_RAW_DATA_FOLDER);
 
+      // unpack the raw data files of all queues in one parallel pass over the zip file
+      final Set<String> zippedPaths = new LinkedHashSet<>();
+      for (BatchQueue batchQueue : batchQueues) {
+        resolvePaths(batchQueue, tempDir, zippedPaths);
+      }
+      ZipUtils.unzipDirectories(zippedPaths, zipFile, tempDir.toFile());
+
+      // queues are replayed in order as later queues may process files of earlier queues. The
+      // batch runs the tasks of each step in parallel
       for (BatchQueue batchQueue : batchQueues) {
         final ParameterSet param = MZmineCore.getConfiguration()
             .getModuleParameters(BatchModeModule.class).cloneParameterSet();
 
-        resolvePathsUnpackFiles(batchQueue, tempDir);
-
         param.setParameter(BatchModeParameters.batchQueue, batchQueue);
         final BatchModeModule batchModule = MZmineCore.getModuleInstance(BatchModeModule.class);
         final List<Task> tasks = new ArrayList<>();
@@ -230,21 +239,12 @@ public class RawDataFileOpenHandler_3_0 extends AbstractTask implements RawDataF
             .map(t -> (AbstractTask) t).toList();
         currentTask = abstractTasks.get(0);
 
-        AtomicBoolean finished = new AtomicBoolean(false);
-        AtomicBoolean success = new AtomicBoolean(true);
-        AllTasksFinishedListener listener = new AllTasksFinishedListener(abstractTasks, true,
-            c -> finished.set(true), c -> success.set(false), c -> success.set(false));
-
+        final CompletableFuture<TaskStatus> completion = AllTasksFinishedListener.completionFuture(
+            abstractTasks);
         MZmineCore.getTaskController().addTasks(tasks.toArray(Task[]::new));
 
-        while (!finished.get()) {
-          Thread.sleep(100);
-          if (isCanceled()) {
-            return false;
-          }
-        }
-
-        if (!success.get()) {
+        if (AllTasksFinishedListener.awaitCompletion(completion, this) != TaskStatus.FINISHED
+            || isCanceled()) {
           return false;
         }
 
@@ -266,13 +266,16 @@ public class RawDataFileOpenHandler_3_0 extends AbstractTask implements RawDataF
   }
 
   /**
-   * Unpacks all raw data files of the given batch queue into the tempDir.
+   * Resolves the paths of all raw data files of the given batch queue that were saved to the
+   * project to the tempDir.
    *
-   * @param batchQueue the batch queue.
-   * @param tempDir    The temp dir.
+   * @param batchQueue  the batch queue.
+   * @param tempDir     The temp dir.
+   * @param zippedPaths the paths of the files in the zip file are added to this set, so they can be
+   *                    unpacked to the tempDir.
    */
-  private void resolvePathsUnpackFiles(BatchQueue batchQueue, @NotNull final Path tempDir)
-      throws IOException {
+  private void resolvePaths(BatchQueue batchQueue, @NotNull final Path tempDir,
+      @NotNull final Set<String> zippedPaths) {
     final String separator = System.getProperty("file.separator");
     for (MZmineProcessingStep<MZmineProcessingModule> step : batchQueue) {
       for (Parameter<?> parameter : step.getParameterSet().getParameters()) {
@@ -285,8 +288,7 @@ public class RawDataFileOpenHandler_3_0 extends AbstractTask implements RawDataF
             Matcher matcher = RawDataFileSaveHandler.DATA_FILE_PATTERN.matcher(path);
             if (matcher.matches()) {
               path = matcher.group(2);
-              ZipUtils.unzipDirectory(path.replaceAll("\\\\", "/"), zipFile,
-                  tempDir.toFile()); // always "/" in zips
+              zippedPaths.add(path.replaceAll("\\\\", "/")); // always "/" in zips
               path = path.replace("\\", separator); // appropriate separator afterwards
               newFiles[i] = new File(tempDir.toFile(), path);
             } else {
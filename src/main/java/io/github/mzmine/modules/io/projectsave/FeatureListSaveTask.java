@@ -273,7 +273,7 @@ public class FeatureListSaveTask extends AbstractTask {
     writer.writeStartElement(CONST.XML_ROW_ELEMENT);
     writer.writeAttribute(idType.getUniqueID(), String.valueOf(row.getID()));
 
-    for (Entry<DataType, Object> entry : row.getMap().entrySet()) {
+    for (Entry<DataType, Object> entry : row.stream().toList()) {
       DataType dataType = entry.getKey();
       Object value = entry.getValue();
       if (dataType instanceof FeaturesType) {
@@ -317,7 +317,7 @@ public class FeatureListSaveTask extends AbstractTask {
     writer.writeStartElement(CONST.XML_FEATURE_ELEMENT);
     writer.writeAttribute(CONST.XML_RAW_FILE_ELEMENT, rawDataFile.getName());
 
-    for (Entry<DataType, Object> entry : feature.getMap().entrySet()) {
+    for (Entry<DataType, Object> entry : feature.stream().toList()) {
       writeDataType(writer, entry.getKey(), entry.getValue(), flist, row, feature, rawDataFile);
     }
 
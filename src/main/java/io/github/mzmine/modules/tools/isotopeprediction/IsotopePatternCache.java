@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.tools.isotopeprediction;
+
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.PolarityType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+
+/**
+ * Bounded LRU cache of isotope patterns calculated by
+ * {@link IsotopePatternCalculator#calculateIsotopePattern(IMolecularFormula, double, int,
+ * PolarityType)}. Patterns are keyed by the ionized formula, charge, polarity and minimum
+ * abundance, so a cached pattern is the same as a newly calculated one. Thread safe, patterns are
+ * calculated outside the lock.
+ */
+public class IsotopePatternCache {
+
+  private final Map<Key, IsotopePattern> cache;
+
+  /**
+   * @param maxSize maximum number of cached patterns, the least recently used pattern is removed
+   *                first
+   */
+  public IsotopePatternCache(int maxSize) {
+    cache = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, IsotopePattern> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @param ionizedFormula the ionized formula, must not be changed afterwards
+   * @return the cached or newly calculated isotope pattern
+   */
+  @NotNull
+  public IsotopePattern getIsotopePattern(@NotNull IMolecularFormula ionizedFormula,
+      double minAbundance, int charge, @NotNull PolarityType polarity) {
+    final Key key = new Key(formulaKey(ionizedFormula), minAbundance, charge, polarity);
+    synchronized (cache) {
+      final IsotopePattern pattern = cache.get(key);
+      if (pattern != null) {
+        return pattern;
+      }
+    }
+
+    final IsotopePattern pattern = IsotopePatternCalculator.calculateIsotopePattern(ionizedFormula,
+        minAbundance, charge, polarity);
+    synchronized (cache) {
+      cache.put(key, pattern);
+    }
+    return pattern;
+  }
+
+  /**
+   * @return the isotopes, counts and charge independent of the isotope order in the formula
+   */
+  private static String formulaKey(IMolecularFormula formula) {
+    final List<String> isotopes = new ArrayList<>(formula.getIsotopeCount());
+    for (IIsotope isotope : formula.isotopes()) {
+      isotopes.add(
+          isotope.getSymbol() + "[" + isotope.getMassNumber() + "]" + formula.getIsotopeCount(
+              isotope));
+    }
+    isotopes.sort(null);
+    return String.join("", isotopes) + "q" + formula.getCharge();
+  }
+
+  private record Key(String formula, double minAbundance, int charge, PolarityType polarity) {
+
+  }
+}
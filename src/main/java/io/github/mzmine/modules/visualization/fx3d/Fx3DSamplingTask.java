@@ -37,6 +37,8 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.ExceptionUtils;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.scans.ScanUtils.BinningType;
+import io.github.mzmine.util.scans.raster.IntensityPyramid;
+import io.github.mzmine.util.scans.raster.IntensityPyramids;
 import java.time.Instant;
 import java.util.Random;
 import java.util.logging.Logger;
@@ -125,8 +127,31 @@ class Fx3DSamplingTask extends AbstractTask {
       float[][] intensityValues = new float[1][mzResolution * rtResolution];
       boolean rtDataSet[] = new boolean[rtResolution];
 
+      // sample from the intensity pyramid if it was built before, otherwise read all scans once
+      // and build the pyramid for later samplings in the background
+      final IntensityPyramid pyramid = IntensityPyramids.request(dataFile, scans).getNow(null);
+      final Range<Double> pyramidRtRange = Range.closed(rtRange.lowerEndpoint().doubleValue(),
+          rtRange.upperEndpoint().doubleValue());
+      final double[][] pyramidValues = pyramid == null ? null
+          : pyramid.sampleMax(pyramidRtRange, mzRange, rtResolution, mzResolution);
+      if (pyramidValues != null) {
+        final boolean[] columnsWithScans = pyramid.sampleColumnsWithScans(pyramidRtRange, mzRange,
+            rtResolution, mzResolution);
+        for (int rtIndex = 0; rtIndex < rtResolution; rtIndex++) {
+          rtDataSet[rtIndex] = columnsWithScans[rtIndex];
+          for (int mzIndex = 0; mzIndex < mzResolution; mzIndex++) {
+            final float value = (float) pyramidValues[rtIndex][mzIndex];
+            intensityValues[0][(rtResolution * mzIndex) + rtIndex] = value;
+            if (value > maxBinnedIntensity) {
+              maxBinnedIntensity = value;
+            }
+          }
+        }
+        retrievedScans = scans.length;
+      }
+
       // load scans
-      for (int scanIndex = 0; scanIndex < scans.length; scanIndex++) {
+      for (int scanIndex = 0; pyramidValues == null && scanIndex < scans.length; scanIndex++) {
 
         if (isCanceled())
           return;
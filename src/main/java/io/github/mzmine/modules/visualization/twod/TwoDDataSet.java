@@ -32,9 +32,13 @@ import io.github.mzmine.gui.chartbasics.simplechart.datasets.AbstractTaskXYDatas
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import io.github.mzmine.util.scans.raster.IntensityPyramid;
+import io.github.mzmine.util.scans.raster.IntensityPyramids;
 import java.util.ArrayList;
 import java.util.Arrays;
 import javafx.application.Platform;
+import org.jetbrains.annotations.Nullable;
 
 class TwoDDataSet extends AbstractTaskXYDataset {
 
@@ -42,14 +46,13 @@ class TwoDDataSet extends AbstractTaskXYDataset {
 
   private final float[] retentionTimes;
   private final double[] basePeaks;
-  private final double[][] mzValues;
-  private final double[][] intensityValues;
 
   private final Range<Double> totalMZRange;
   private final Range<Float> totalRTRange;
   private final int totalScans;
   private final Scan[] scans;
   private int processedScans;
+  private volatile IntensityPyramid pyramid;
 
   public double curMaxIntensity;
   private ArrayList<Float> rtValuesInUserRange;
@@ -66,8 +69,6 @@ class TwoDDataSet extends AbstractTaskXYDataset {
 
     totalScans = scans.length;
 
-    mzValues = new double[totalScans][];
-    intensityValues = new double[totalScans][];
     retentionTimes = new float[totalScans];
     basePeaks = new double[totalScans];
 
@@ -91,13 +92,17 @@ class TwoDDataSet extends AbstractTaskXYDataset {
       Double scanBasePeakInt = scan.getBasePeakIntensity();
       retentionTimes[index] = scan.getRetentionTime();
       basePeaks[index] = (scanBasePeakInt == null ? 0 : scanBasePeakInt);
-      mzValues[index] = new double[scan.getNumberOfDataPoints()];
-      scan.getMzValues(mzValues[index]);
-      intensityValues[index] = new double[scan.getNumberOfDataPoints()];
-      scan.getIntensityValues(intensityValues[index]);
       processedScans++;
     }
 
+    // zoomed out views are drawn from the intensity pyramid once it is built
+    IntensityPyramids.request(rawDataFile, scans).thenAccept(built -> {
+      if (built != null) {
+        pyramid = built;
+        Platform.runLater(() -> fireDatasetChanged());
+      }
+    });
+
     Platform.runLater(() -> fireDatasetChanged());
 
     setStatus(TaskStatus.FINISHED);
@@ -151,131 +156,192 @@ class TwoDDataSet extends AbstractTaskXYDataset {
     }
   }
 
-  double upperEndpointIntensity(Range<Float> rtRange, Range<Double> mzRange, PlotMode plotMode) {
-
-    double maxIntensity = 0;
-
-    float[] searchRetentionTimes = retentionTimes;
-    if (processedScans < totalScans) {
-      searchRetentionTimes = new float[processedScans];
-      System.arraycopy(retentionTimes, 0, searchRetentionTimes, 0, searchRetentionTimes.length);
-    }
-
-    int startScanIndex = Arrays.binarySearch(searchRetentionTimes, rtRange.lowerEndpoint());
-
-    if (startScanIndex < 0) {
-      startScanIndex = (startScanIndex * -1) - 1;
-    }
-
-    if (startScanIndex >= searchRetentionTimes.length) {
-      return 0;
-    }
-
-    if (searchRetentionTimes[startScanIndex] > rtRange.upperEndpoint()) {
-      if (startScanIndex == 0) {
-        return 0;
+  /**
+   * Maximum intensity of each pixel read from the scans. Pixels without a scan or data point use
+   * the closest scan and, for continuous data, the closest data point. The visible m/z range of
+   * each scan is read once into a reused buffer.
+   *
+   * @param width  number of pixels on the RT axis
+   * @param height number of pixels on the m/z axis
+   * @return values[rtPixel][mzPixel]
+   */
+  double[][] sampleScans(Range<Double> rtRange, Range<Double> mzRange, int width, int height,
+      PlotMode plotMode) {
+    final double[][] values = new double[width][height];
+    final int numScans = processedScans;
+    final double rtStep = (rtRange.upperEndpoint() - rtRange.lowerEndpoint()) / width;
+    final ScanPixels pixels = new ScanPixels(mzRange, height, plotMode);
+
+    for (int i = 0; i < width; i++) {
+      final double pointRTMin = rtRange.lowerEndpoint() + (i * rtStep);
+      final float rtMin = (float) pointRTMin;
+      final float rtMax = (float) (pointRTMin + rtStep);
+
+      int first = Arrays.binarySearch(retentionTimes, 0, numScans, rtMin);
+      if (first < 0) {
+        first = (first * -1) - 1;
       }
-
-      if (startScanIndex == searchRetentionTimes.length - 1) {
-        return upperEndpointIntensity(startScanIndex - 1, mzRange, plotMode);
+      if (first >= numScans) {
+        continue;
       }
 
-      // find which scan point is closer
-      double diffNext = searchRetentionTimes[startScanIndex] - rtRange.upperEndpoint();
-      double diffPrev = rtRange.lowerEndpoint() - searchRetentionTimes[startScanIndex - 1];
-
-      if (diffPrev < diffNext) {
-        return upperEndpointIntensity(startScanIndex - 1, mzRange, plotMode);
+      int last = first;
+      if (retentionTimes[first] > rtMax) {
+        if (first == 0) {
+          continue;
+        }
+        // no scan in this pixel, find which scan is closer
+        double diffNext = retentionTimes[first] - rtMax;
+        double diffPrev = rtMin - retentionTimes[first - 1];
+        if (first == numScans - 1 || diffPrev < diffNext) {
+          first--;
+        }
+        last = first + 1;
       } else {
-        return upperEndpointIntensity(startScanIndex, mzRange, plotMode);
-      }
-    }
-
-    for (int scanIndex = startScanIndex;
-        ((scanIndex < searchRetentionTimes.length) && (searchRetentionTimes[scanIndex]
-            <= rtRange.upperEndpoint())); scanIndex++) {
-
-      // ignore scans where all peaks are smaller than current max
-      if (basePeaks[scanIndex] < maxIntensity) {
-        continue;
+        while (last < numScans && retentionTimes[last] <= rtMax) {
+          last++;
+        }
       }
 
-      double scanMax = upperEndpointIntensity(scanIndex, mzRange, plotMode);
-
-      if (scanMax > maxIntensity) {
-        maxIntensity = scanMax;
+      for (int scanIndex = first; scanIndex < last; scanIndex++) {
+        // ignore scans without data points
+        if (basePeaks[scanIndex] <= 0) {
+          continue;
+        }
+        final double[] scanValues = pixels.read(scanIndex);
+        for (int j = 0; j < height; j++) {
+          if (scanValues[j] > values[i][j]) {
+            values[i][j] = scanValues[j];
+          }
+        }
       }
-
     }
+    return values;
+  }
 
-    return maxIntensity;
-
+  /**
+   * @return the intensity pyramid of the scans or null if it is not built yet or cannot represent
+   * the scans
+   */
+  @Nullable
+  IntensityPyramid getPyramid() {
+    return pyramid;
   }
 
   public ArrayList getrtValuesInUserRange() {
     return rtValuesInUserRange;
   }
 
-  private double upperEndpointIntensity(int index, Range<Double> mzRange, PlotMode plotMode) {
+  @Override
+  public double getFinishedPercentage() {
+    if (totalScans == 0) {
+      return 0;
+    }
+    return (double) processedScans / totalScans;
+  }
 
-    double maxIntensity = 0;
+  @Override
+  public String getTaskDescription() {
+    return "Updating 2D visualizer of " + rawDataFile;
+  }
 
-    int startMZIndex = Arrays.binarySearch(mzValues[index], mzRange.lowerEndpoint());
-    if (startMZIndex < 0) {
-      startMZIndex = (startMZIndex * -1) - 1;
+  /**
+   * Reads the visible data points of a scan into reused buffers and computes the maximum intensity
+   * of each m/z pixel. The last read scan is kept, as neighbouring pixels often use the same scan.
+   */
+  private final class ScanPixels {
+
+    private final double mzMin;
+    private final double mzMax;
+    private final double mzStep;
+    private final PlotMode plotMode;
+    private final double[] values;
+    private double[] mzs = new double[256];
+    private double[] intensities = new double[256];
+    private int scanIndex = -1;
+
+    private ScanPixels(Range<Double> mzRange, int height, PlotMode plotMode) {
+      mzMin = mzRange.lowerEndpoint();
+      mzMax = mzRange.upperEndpoint();
+      mzStep = (mzMax - mzMin) / height;
+      this.plotMode = plotMode;
+      values = new double[height];
     }
 
-    if (startMZIndex >= mzValues[index].length) {
-      return 0;
-    }
+    /**
+     * @return the maximum intensity of each m/z pixel, only valid until the next call
+     */
+    private double[] read(int index) {
+      if (index == scanIndex) {
+        return values;
+      }
+      scanIndex = index;
 
-    if (mzValues[index][startMZIndex] > mzRange.upperEndpoint()) {
-      if (plotMode != PlotMode.CENTROID) {
-        if (startMZIndex == 0) {
-          return 0;
+      final Scan scan = scans[index];
+      final int numDp = scan.getNumberOfDataPoints();
+      int offset = scan.binarySearch(mzMin, DefaultTo.MINUS_INSERTION_POINT);
+      if (offset < 0) {
+        offset = (offset * -1) - 1;
+      }
+      // keep one data point before and after the visible range for the closest data point
+      offset = Math.max(0, offset - 1);
+      int size = 0;
+      for (int k = offset; k < numDp; k++) {
+        if (size == mzs.length) {
+          mzs = Arrays.copyOf(mzs, size * 2);
+          intensities = Arrays.copyOf(intensities, size * 2);
         }
-        if (startMZIndex == mzValues[index].length - 1) {
-          return intensityValues[index][startMZIndex - 1];
+        mzs[size] = scan.getMzValue(k);
+        intensities[size] = scan.getIntensityValue(k);
+        size++;
+        if (mzs[size - 1] > mzMax) {
+          break;
         }
+      }
 
-        // find which data point is closer
-        double diffNext = mzValues[index][startMZIndex] - mzRange.upperEndpoint();
-        double diffPrev = mzRange.lowerEndpoint() - mzValues[index][startMZIndex - 1];
-
-        if (diffPrev < diffNext) {
-          return intensityValues[index][startMZIndex - 1];
-        } else {
-          return intensityValues[index][startMZIndex];
+      int p = 0;
+      for (int j = 0; j < values.length; j++) {
+        final double pointMZMin = mzMin + (j * mzStep);
+        final double pointMZMax = pointMZMin + mzStep;
+        while (p < size && mzs[p] < pointMZMin) {
+          p++;
         }
-      } else {
-        return 0;
+        values[j] = pixelIntensity(p, size, offset + p == numDp - 1, pointMZMin, pointMZMax);
       }
-
+      return values;
     }
 
-    for (int mzIndex = startMZIndex;
-        ((mzIndex < mzValues[index].length) && (mzValues[index][mzIndex]
-            <= mzRange.upperEndpoint())); mzIndex++) {
-      if (intensityValues[index][mzIndex] > maxIntensity) {
-        maxIntensity = intensityValues[index][mzIndex];
+    /**
+     * @param p      the first data point within or after the pixel
+     * @param isLast true if p is the last data point of the scan
+     */
+    private double pixelIntensity(int p, int size, boolean isLast, double pointMZMin,
+        double pointMZMax) {
+      if (p >= size) {
+        return 0;
       }
-    }
 
-    return maxIntensity;
+      if (mzs[p] > pointMZMax) {
+        if (plotMode == PlotMode.CENTROID || p == 0) {
+          return 0;
+        }
+        if (isLast) {
+          return intensities[p - 1];
+        }
 
-  }
+        // find which data point is closer
+        double diffNext = mzs[p] - pointMZMax;
+        double diffPrev = pointMZMin - mzs[p - 1];
+        return diffPrev < diffNext ? intensities[p - 1] : intensities[p];
+      }
 
-  @Override
-  public double getFinishedPercentage() {
-    if (totalScans == 0) {
-      return 0;
+      double maxIntensity = 0;
+      for (int k = p; k < size && mzs[k] <= pointMZMax; k++) {
+        if (intensities[k] > maxIntensity) {
+          maxIntensity = intensities[k];
+        }
+      }
+      return maxIntensity;
     }
-    return (double) processedScans / totalScans;
   }
-
-  @Override
-  public String getTaskDescription() {
-    return "Updating 2D visualizer of " + rawDataFile;
-  }
-
 }
@@ -25,7 +25,7 @@
 
 package io.github.mzmine.modules.visualization.twod;
 
-import io.github.mzmine.util.RangeUtils;
+import io.github.mzmine.util.scans.raster.IntensityPyramid;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
@@ -71,10 +71,8 @@ class TwoDXYPlot extends BaseXYPlot {
 
     final double imageRTMin = (double) getDomainAxis().getRange().getLowerBound();
     final double imageRTMax = (double) getDomainAxis().getRange().getUpperBound();
-    final double imageRTStep = (imageRTMax - imageRTMin) / width;
     final double imageMZMin = (double) getRangeAxis().getRange().getLowerBound();
     final double imageMZMax = (double) getRangeAxis().getRange().getUpperBound();
-    final double imageMZStep = (imageMZMax - imageMZMin) / height;
 
     if ((zoomOutBitmap != null) && (imageRTMin == totalRTRange.lowerEndpoint())
         && (imageRTMax == totalRTRange.upperEndpoint())
@@ -89,20 +87,28 @@ class TwoDXYPlot extends BaseXYPlot {
     // Save current time
     Date renderStartTime = new Date();
 
-    // prepare a double array of summed intensities
+    // prepare a double array of intensities
+    // the pyramid only reads the tiles on screen, it is null when zoomed in beyond its base level
+    final Range<Double> imageRTRange = Range.closed(imageRTMin, imageRTMax);
+    final Range<Double> imageMZRange = Range.closed(imageMZMin, imageMZMax);
+    final IntensityPyramid pyramid = dataset.getPyramid();
+    double[][] sampledValues = null;
+    if (pyramid != null) {
+      // centroids in one pixel are separate ions, profile data points of one peak are not summed
+      sampledValues = plotMode == PlotMode.CENTROID
+          ? pyramid.sampleSum(imageRTRange, imageMZRange, width, height)
+          : pyramid.sampleMax(imageRTRange, imageMZRange, width, height);
+    }
+    if (sampledValues == null) {
+      sampledValues = dataset.sampleScans(imageRTRange, imageMZRange, width, height, plotMode);
+    }
     double values[][] = new double[width][height];
     maxValue = 0; // now this is an instance variable
 
     for (int i = 0; i < width; i++)
       for (int j = 0; j < height; j++) {
 
-        double pointRTMin = imageRTMin + (i * imageRTStep);
-        double pointRTMax = pointRTMin + imageRTStep;
-        double pointMZMin = imageMZMin + (j * imageMZStep);
-        double pointMZMax = pointMZMin + imageMZStep;
-
-        double lv = dataset.upperEndpointIntensity(RangeUtils.toFloatRange(Range.closed(pointRTMin, pointRTMax)),
-            Range.closed(pointMZMin, pointMZMax), plotMode);
+        double lv = sampledValues[i][j];
 
         if (logScale) {
           lv = Math.log10(lv);
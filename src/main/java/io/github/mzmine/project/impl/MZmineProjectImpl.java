@@ -35,6 +35,7 @@ import io.github.mzmine.modules.io.projectload.CachedIMSRawDataFile;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.project.impl.ProjectChangeEvent.Type;
+import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import java.io.File;
@@ -278,6 +279,10 @@ public class MZmineProjectImpl implements MZmineProject {
 
       featureLists.removeAll(featureList);
       fireFeatureListsChangeEvent(List.of(featureList), Type.REMOVED);
+      // release the memory budget of the feature list storages
+      for (FeatureList flist : featureList) {
+        MemoryMapStorage.removeOwnerFromAll(flist);
+      }
     } finally {
       featureLock.writeLock().unlock();
     }
@@ -329,6 +334,8 @@ public class MZmineProjectImpl implements MZmineProject {
 
       this.featureLists.removeAll(featureLists);
       fireFeatureListsChangeEvent(List.copyOf(featureLists), Type.REMOVED);
+      // release the memory budget of the feature list storages
+      featureLists.forEach(MemoryMapStorage::removeOwnerFromAll);
     } finally {
       featureLock.writeLock().unlock();
     }
@@ -33,6 +33,7 @@ import io.github.mzmine.modules.io.projectload.ProjectLoadModule;
 import io.github.mzmine.modules.io.projectload.ProjectLoaderParameters;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.ProjectManager;
+import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import java.io.File;
 import java.util.logging.Logger;
@@ -74,6 +75,8 @@ public class ProjectManagerImpl implements ProjectManager {
       for (RawDataFile prevDataFile : prevDataFiles) {
         prevDataFile.close();
       }
+      // release the memory budget of the previous feature lists
+      currentProject.getCurrentFeatureLists().forEach(MemoryMapStorage::removeOwnerFromAll);
     }
 
     this.currentProject = project;
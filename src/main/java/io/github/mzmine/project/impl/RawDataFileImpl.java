@@ -103,6 +103,9 @@ public class RawDataFileImpl implements RawDataFile {
       @Nullable final MemoryMapStorage storage, @NotNull Color color) {
     this.name = dataFileName;
     this.storageMemoryMap = storage;
+    if (storage != null) {
+      storage.addOwner(this);
+    }
     this.absolutePath = absolutePath;
 
     scans = FXCollections.observableArrayList();
@@ -361,7 +364,8 @@ public class RawDataFileImpl implements RawDataFile {
 
   @Override
   public synchronized void close() {
-
+    // the data stays valid, only the memory budget of the scan and mass list storages is released
+    MemoryMapStorage.removeOwnerFromAll(this);
   }
 
   @Override
@@ -26,6 +26,10 @@
 package io.github.mzmine.taskcontrol;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import org.jetbrains.annotations.Nullable;
 
@@ -117,6 +121,48 @@ public class AllTasksFinishedListener implements TaskStatusListener {
     });
   }
 
+  /**
+   * Future that completes once all tasks are done: with {@link TaskStatus#FINISHED} if all tasks
+   * finished, {@link TaskStatus#ERROR} on the first error, or {@link TaskStatus#CANCELED} if a
+   * task was canceled (all other tasks are canceled, too). Register before the tasks are started.
+   *
+   * @param tasks the list of tasks
+   * @return the future status of all tasks
+   */
+  public static CompletableFuture<TaskStatus> completionFuture(List<? extends Task> tasks) {
+    final CompletableFuture<TaskStatus> future = new CompletableFuture<>();
+    if (tasks.isEmpty()) {
+      future.complete(TaskStatus.FINISHED);
+      return future;
+    }
+    new AllTasksFinishedListener(tasks, true, t -> future.complete(TaskStatus.FINISHED),
+        t -> future.complete(TaskStatus.ERROR), t -> future.complete(TaskStatus.CANCELED));
+    return future;
+  }
+
+  /**
+   * Waits for a {@link #completionFuture(List)} without polling the task status. Wakes up
+   * regularly to check if the waiting task was canceled.
+   *
+   * @param future      the future status
+   * @param waitingTask the task that waits
+   * @return the status of the tasks or {@link TaskStatus#CANCELED} if the waiting task was
+   * canceled
+   */
+  public static TaskStatus awaitCompletion(CompletableFuture<TaskStatus> future, Task waitingTask)
+      throws InterruptedException {
+    while (!waitingTask.isCanceled()) {
+      try {
+        return future.get(500, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        // check for cancel
+      } catch (ExecutionException e) {
+        return TaskStatus.ERROR;
+      }
+    }
+    return TaskStatus.CANCELED;
+  }
+
   @Override
   public void taskStatusChanged(Task task, TaskStatus newStatus, TaskStatus oldStatus) {
     if (done) {
@@ -28,6 +28,8 @@ package io.github.mzmine.taskcontrol.impl;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsRecorder;
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsRecorder.Measurement;
 import io.github.mzmine.util.ExceptionUtils;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -60,8 +62,13 @@ class WorkerThread extends Thread {
       // Log the start (INFO level events go to the Status bar, too)
       logger.info("Starting processing of task " + actualTask.getTaskDescription());
 
-      // Process the actual task
-      actualTask.run();
+      // Process the actual task, resource usage is recorded for every task
+      final Measurement measurement = TaskMetricsRecorder.start(actualTask);
+      try {
+        actualTask.run();
+      } finally {
+        TaskMetricsRecorder.finish(measurement);
+      }
 
       // Check if task finished with an error
       if (actualTask.getStatus() == TaskStatus.ERROR) {
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.taskcontrol.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for each task that is run by the task controller. Enable with
+ * -XX:StartFlightRecording or in JDK Mission Control.
+ */
+@Name("io.github.mzmine.Task")
+@Label("MZmine Task")
+@Category({"MZmine", "Tasks"})
+@Description("Execution of an MZmine task on a worker thread")
+@StackTrace(false)
+class TaskEvent extends jdk.jfr.Event {
+
+  @Label("Task Class")
+  String taskClass;
+
+  @Label("Description")
+  String description;
+
+  @Label("Status")
+  String status;
+
+  @Label("CPU Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long cpuTime;
+
+  @Label("Allocated")
+  @DataAmount
+  long allocated;
+
+  @Label("Storage Written")
+  @DataAmount
+  long storageWritten;
+
+  @Label("Processed Items")
+  int processedItems;
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.taskcontrol.metrics;
+
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Resource usage of one finished task. Values that are not supported by the JVM are -1.
+ * <p>
+ * CPU time and allocations only cover the worker thread that ran the task. Work that the task
+ * hands to other threads, e.g., parallel streams in the common fork join pool or executors of the
+ * task, is not included, so both values are lower bounds for parallel tasks.
+ *
+ * @param taskClass      the class of the task
+ * @param description    the task description at the end of the task
+ * @param status         the final status
+ * @param thread         the worker thread
+ * @param start          start of the task
+ * @param wallNanos      wall clock time
+ * @param cpuNanos       CPU time of the worker thread
+ * @param allocatedBytes bytes allocated by the worker thread
+ * @param heapUsedBytes  used heap at the end of the task (all threads)
+ * @param storageBytes   bytes written to the {@link io.github.mzmine.util.MemoryMapStorage} of the
+ *                       task (ram or memory mapped). The storage may be shared with other tasks of
+ *                       the same module call.
+ * @param processedItems processed items of a
+ *                       {@link io.github.mzmine.taskcontrol.ProcessedItemsCounter} or -1
+ */
+public record TaskMetrics(@NotNull String taskClass, @NotNull String description,
+                          @NotNull TaskStatus status, @NotNull String thread,
+                          @NotNull Instant start, long wallNanos, long cpuNanos,
+                          long allocatedBytes, long heapUsedBytes, long storageBytes,
+                          int processedItems) {
+
+  /**
+   * @return the metrics for JSON reports
+   */
+  public Map<String, Object> toMap() {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("task", taskClass);
+    map.put("description", description);
+    map.put("status", status.name());
+    map.put("thread", thread);
+    map.put("start", start.toString());
+    map.put("wallMillis", wallNanos / 1_000_000);
+    map.put("cpuMillis", cpuNanos < 0 ? -1 : cpuNanos / 1_000_000);
+    map.put("allocatedBytes", allocatedBytes);
+    map.put("heapUsedBytes", heapUsedBytes);
+    map.put("storageBytes", storageBytes);
+    map.put("processedItems", processedItems);
+    return map;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.taskcontrol.metrics;
+
+import io.github.mzmine.taskcontrol.Task;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects the {@link TaskMetrics} of a group of tasks, e.g., all tasks of a batch step. Needs to
+ * be created before the tasks are submitted to the task controller.
+ */
+public class TaskMetricsCollector implements TaskMetricsListener, AutoCloseable {
+
+  private final Set<Task> tasks = Collections.newSetFromMap(new IdentityHashMap<>());
+  // guarded by this
+  private final List<TaskMetrics> metrics = new ArrayList<>();
+
+  public TaskMetricsCollector(@NotNull Collection<? extends Task> tasks) {
+    this.tasks.addAll(tasks);
+    TaskMetricsRecorder.addListener(this);
+  }
+
+  @Override
+  public void taskMetricsRecorded(@NotNull Task task, @NotNull TaskMetrics metrics) {
+    if (!tasks.contains(task)) {
+      return;
+    }
+    synchronized (this) {
+      this.metrics.add(metrics);
+      notifyAll();
+    }
+  }
+
+  /**
+   * The status of a task changes to finished before its worker thread records the metrics. Waits
+   * for the metrics of all tasks up to the timeout.
+   *
+   * @return the metrics of all tasks that finished so far
+   */
+  public synchronized List<TaskMetrics> awaitMetrics(long timeoutMillis) {
+    final long end = System.currentTimeMillis() + timeoutMillis;
+    long remaining = timeoutMillis;
+    while (metrics.size() < tasks.size() && remaining > 0) {
+      try {
+        wait(remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      remaining = end - System.currentTimeMillis();
+    }
+    return new ArrayList<>(metrics);
+  }
+
+  @Override
+  public void close() {
+    TaskMetricsRecorder.removeListener(this);
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.taskcontrol.metrics;
+
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Records wall time, CPU time, allocated bytes, heap and storage usage of every task that is run
+ * by the task controller. The worker thread calls {@link #start(Task)} before and
+ * {@link #finish(Measurement)} after running a task on the same thread. Each finished task is
+ * committed as a JFR {@link TaskEvent}, added to the totals per task class and passed to all
+ * {@link TaskMetricsListener}s.
+ * <p>
+ * The thread based CPU time and allocation counters cannot attribute work in shared pools to a
+ * task, therefore only the worker thread is measured (see {@link TaskMetrics}).
+ */
+public final class TaskMetricsRecorder {
+
+  private static final Logger logger = Logger.getLogger(TaskMetricsRecorder.class.getName());
+
+  /**
+   * number of recent metrics that are kept for status requests
+   */
+  private static final int MAX_RECENT_METRICS = 1000;
+
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private static final boolean cpuTimeSupported = isCpuTimeSupported();
+  @Nullable
+  private static final com.sun.management.ThreadMXBean allocationBean = getAllocationBean();
+
+  private static final List<TaskMetricsListener> listeners = new CopyOnWriteArrayList<>();
+  private static final Map<String, Totals> totals = new ConcurrentHashMap<>();
+  // guarded by itself
+  private static final Deque<TaskMetrics> recentMetrics = new ArrayDeque<>();
+
+  private TaskMetricsRecorder() {
+  }
+
+  private static boolean isCpuTimeSupported() {
+    try {
+      return threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+    } catch (UnsupportedOperationException e) {
+      return false;
+    }
+  }
+
+  @Nullable
+  private static com.sun.management.ThreadMXBean getAllocationBean() {
+    if (threadBean instanceof com.sun.management.ThreadMXBean bean
+        && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+      return bean;
+    }
+    return null;
+  }
+
+  public static void addListener(@NotNull TaskMetricsListener listener) {
+    listeners.add(listener);
+  }
+
+  public static void removeListener(@NotNull TaskMetricsListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Start measuring a task. Needs to be called on the thread that runs the task.
+   */
+  @NotNull
+  public static Measurement start(@NotNull Task task) {
+    return new Measurement(task);
+  }
+
+  /**
+   * Finish the measurement on the same thread that called {@link #start(Task)}
+   *
+   * @return the metrics of the task
+   */
+  @NotNull
+  public static TaskMetrics finish(@NotNull Measurement measurement) {
+    final TaskMetrics metrics = measurement.finish();
+
+    totals.computeIfAbsent(metrics.taskClass(), k -> new Totals()).add(metrics);
+    synchronized (recentMetrics) {
+      if (recentMetrics.size() >= MAX_RECENT_METRICS) {
+        recentMetrics.removeFirst();
+      }
+      recentMetrics.addLast(metrics);
+    }
+
+    for (TaskMetricsListener listener : listeners) {
+      try {
+        listener.taskMetricsRecorded(measurement.task, metrics);
+      } catch (Exception e) {
+        logger.log(Level.WARNING, "Error in task metrics listener", e);
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * @return the metrics of the most recently finished tasks, oldest first
+   */
+  public static List<TaskMetrics> getRecentMetrics() {
+    synchronized (recentMetrics) {
+      return new ArrayList<>(recentMetrics);
+    }
+  }
+
+  /**
+   * @return the accumulated metrics of all finished tasks, sorted by task class
+   */
+  public static Map<String, TaskTotals> getTotals() {
+    final Map<String, TaskTotals> snapshot = new TreeMap<>();
+    totals.forEach((taskClass, total) -> snapshot.put(taskClass, total.snapshot()));
+    return snapshot;
+  }
+
+  /**
+   * Resets the peak usage of all heap memory pools to the current usage. The peak is global for
+   * the JVM, so concurrent measurements interfere.
+   */
+  public static void resetPeakHeap() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /**
+   * @return the sum of the peak usage of all heap memory pools since the last
+   * {@link #resetPeakHeap()}
+   */
+  public static long getPeakHeapBytes() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  public static long getUsedHeapBytes() {
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   * @return the CPU time of the current thread or -1 if not supported
+   */
+  public static long getCurrentThreadCpuNanos() {
+    return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : -1;
+  }
+
+  /**
+   * @return the bytes allocated by the current thread or -1 if not supported
+   */
+  public static long getCurrentThreadAllocatedBytes() {
+    return allocationBean != null ? allocationBean.getCurrentThreadAllocatedBytes() : -1;
+  }
+
+  private static long storageBytes(@NotNull Task task) {
+    if (task instanceof AbstractTask abstractTask) {
+      final MemoryMapStorage storage = abstractTask.getMemoryMapStorage();
+      if (storage != null) {
+        return storage.getBytesInRam() + storage.getBytesMapped();
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Start values of a running task
+   */
+  public static final class Measurement {
+
+    private final Task task;
+    private final TaskEvent event = new TaskEvent();
+    private final Instant start = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final long startCpuNanos = getCurrentThreadCpuNanos();
+    private final long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+    private final long startStorageBytes;
+
+    private Measurement(@NotNull Task task) {
+      this.task = task;
+      startStorageBytes = storageBytes(task);
+      event.begin();
+    }
+
+    private TaskMetrics finish() {
+      final long wallNanos = System.nanoTime() - startNanos;
+      final long cpuNanos = startCpuNanos < 0 ? -1 : getCurrentThreadCpuNanos() - startCpuNanos;
+      final long allocated =
+          startAllocatedBytes < 0 ? -1 : getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+      final long storage = storageBytes(task) - startStorageBytes;
+      final int processedItems =
+          task instanceof ProcessedItemsCounter counter ? counter.getProcessedItems() : -1;
+      final String description = String.valueOf(task.getTaskDescription());
+
+      final TaskMetrics metrics = new TaskMetrics(task.getClass().getName(), description,
+          task.getStatus(), Thread.currentThread().getName(), start, wallNanos, cpuNanos,
+          allocated, getUsedHeapBytes(), storage, processedItems);
+
+      event.end();
+      if (event.shouldCommit()) {
+        event.taskClass = metrics.taskClass();
+        event.description = description;
+        event.status = metrics.status().name();
+        event.cpuTime = cpuNanos;
+        event.allocated = allocated;
+        event.storageWritten = storage;
+        event.processedItems = processedItems;
+        event.commit();
+      }
+      return metrics;
+    }
+  }
+
+  /**
+   * Accumulated metrics of one task class
+   *
+   * @param tasks          number of finished tasks
+   * @param wallNanos      total wall clock time
+   * @param cpuNanos       total CPU time (of tasks that support CPU time)
+   * @param allocatedBytes total allocated bytes (of tasks that support allocation tracking)
+   * @param storageBytes   total bytes written to memory map storages. Tasks that share a storage
+   *                       may count the same bytes more than once.
+   */
+  public record TaskTotals(long tasks, long wallNanos, long cpuNanos, long allocatedBytes,
+                           long storageBytes) {
+
+  }
+
+  private static final class Totals {
+
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder storageBytes = new LongAdder();
+
+    private void add(TaskMetrics metrics) {
+      tasks.increment();
+      wallNanos.add(metrics.wallNanos());
+      cpuNanos.add(Math.max(0, metrics.cpuNanos()));
+      allocatedBytes.add(Math.max(0, metrics.allocatedBytes()));
+      storageBytes.add(Math.max(0, metrics.storageBytes()));
+    }
+
+    private TaskTotals snapshot() {
+      return new TaskTotals(tasks.sum(), wallNanos.sum(), cpuNanos.sum(), allocatedBytes.sum(),
+          storageBytes.sum());
+    }
+  }
+}
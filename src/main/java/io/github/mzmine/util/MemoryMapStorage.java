@@ -30,6 +30,9 @@ import io.github.mzmine.util.files.FileAndPathUtil;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.ref.Cleaner;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
@@ -37,10 +40,15 @@ import java.nio.IntBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import sun.misc.Unsafe;
@@ -68,6 +76,9 @@ import sun.misc.Unsafe;
  * The total amount of storage space is also limited by the amount of addressable virtual memory
  * (e.g., 128TB on Linux). For this reason, this approach requires a 64-bit system - the limit would
  * be only 2GB on a 32-bit system.
+ * <p>
+ * If a {@link StorageMemoryBudget} is set, data is kept in RAM until the global budget is reached
+ * and only spills to the memory-mapped files afterwards.
  */
 public class MemoryMapStorage {
 
@@ -76,6 +87,10 @@ public class MemoryMapStorage {
    * single MappedByteBuffer. 1 GB per file seems like a good start.
    */
   private static final long STORAGE_FILE_CAPACITY = 1_000_000_000L;
+  /**
+   * Ends the ownership of owners that were garbage collected without {@link #removeOwner(Object)}
+   */
+  private static final Cleaner OWNER_CLEANER = Cleaner.create();
   private static boolean storeFeaturesInRam = false;
   private static boolean storeRawFilesInRam = false;
   private static boolean storeMassListsInRam = false;
@@ -86,6 +101,18 @@ public class MemoryMapStorage {
    * The file that we are currently writing into.
    */
   private MappedByteBuffer currentMappedFile = null;
+  /**
+   * Bytes kept in RAM within the {@link StorageMemoryBudget} and bytes written to the mapped files
+   */
+  private long bytesInRam = 0;
+  private long bytesMapped = 0;
+  /**
+   * Raw data files and feature lists that use this storage. Owners are only weakly referenced, so
+   * that owners that were never removed explicitly are not kept alive by this storage. Their
+   * ownership is ended by {@link #OWNER_CLEANER} once they are garbage collected.
+   */
+  private final List<Ownership> owners = new ArrayList<>();
+  private boolean budgetReleased = false;
 
   private MemoryMapStorage() {
     // register this storage to MZmineCore, so we can delete all temp files later.
@@ -156,6 +183,182 @@ public class MemoryMapStorage {
     storeRawFilesInRam = state;
   }
 
+  /**
+   * @return names of the raw data files and feature lists that use this storage or "Other" if there
+   * is no owner. Used to report the memory usage by {@link StorageMemoryBudget#getSummary()}
+   */
+  public synchronized String getOwnerName() {
+    final String names = owners.stream().map(Ownership::getOwner).filter(Objects::nonNull)
+        .map(String::valueOf).collect(Collectors.joining(", "));
+    return names.isEmpty() ? "Other" : names;
+  }
+
+  /**
+   * @param owner a raw data file or feature list that keeps data in this storage. The memory budget
+   *              of this storage is released once all owners were removed by
+   *              {@link #removeOwner(Object)} or were garbage collected
+   */
+  public synchronized void addOwner(@NotNull Object owner) {
+    if (findOwnership(owner) != null) {
+      return;
+    }
+    final Ownership ownership = new Ownership(owner);
+    owners.add(ownership);
+    ownership.cleanable = OWNER_CLEANER.register(owner, new OwnershipCleanup(this, ownership));
+  }
+
+  /**
+   * Called when an owner is removed from the project or closed. Releases the memory budget of this
+   * storage once no owner is left, so that new data of other storages can be kept in RAM again.
+   *
+   * @param owner the raw data file or feature list
+   */
+  public void removeOwner(@NotNull Object owner) {
+    final Ownership ownership;
+    synchronized (this) {
+      ownership = findOwnership(owner);
+    }
+    if (ownership != null) {
+      // runs endOwnership at most once, also if the cleaner already ran it
+      ownership.cleanable.clean();
+    }
+  }
+
+  private synchronized void endOwnership(@NotNull Ownership ownership) {
+    if (owners.remove(ownership) && owners.isEmpty()) {
+      releaseMemoryBudget();
+    }
+  }
+
+  @Nullable
+  private Ownership findOwnership(@NotNull Object owner) {
+    for (Ownership ownership : owners) {
+      if (ownership.getOwner() == owner) {
+        return ownership;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Removes the owner from all storages, e.g., the storage of a raw data file and the storages of
+   * its mass lists. See {@link #removeOwner(Object)}
+   *
+   * @param owner the raw data file or feature list that was removed or closed
+   */
+  public static void removeOwnerFromAll(@NotNull Object owner) {
+    final List<MemoryMapStorage> storages;
+    synchronized (MZmineCore.getStorageList()) {
+      storages = new ArrayList<>(MZmineCore.getStorageList());
+    }
+    for (MemoryMapStorage storage : storages) {
+      storage.removeOwner(owner);
+    }
+  }
+
+  /**
+   * Discards all storages that are used by one of the owners and removes them from
+   * {@link MZmineCore#getStorageList()}, e.g., for all raw data files and feature lists of a
+   * finished batch job. Deletes the temporary files and unmaps the buffers, so the data of the
+   * owners must not be accessed afterwards.
+   *
+   * @param owners raw data files, feature lists, or spectral libraries that are no longer used
+   */
+  public static void discardStoragesOf(@NotNull Collection<?> owners) {
+    if (owners.isEmpty()) {
+      return;
+    }
+    final List<MemoryMapStorage> storages;
+    synchronized (MZmineCore.getStorageList()) {
+      storages = MZmineCore.getStorageList().stream().filter(s -> s.isOwnedByAny(owners))
+          .toList();
+      MZmineCore.getStorageList().removeAll(storages);
+    }
+    final Unsafe theUnsafe = getUnsafe();
+    for (MemoryMapStorage storage : storages) {
+      try {
+        storage.discard(theUnsafe);
+      } catch (IOException e) {
+        storage.logger.log(Level.WARNING, "Cannot discard storage of " + storage.getOwnerName(),
+            e);
+      }
+    }
+  }
+
+  /**
+   * Discards a storage that was only used for temporary data of one task and removes it from
+   * {@link MZmineCore#getStorageList()}. The stored data must not be accessed afterwards.
+   */
+  public void discard() {
+    MZmineCore.getStorageList().remove(this);
+    try {
+      discard(getUnsafe());
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot discard storage of " + getOwnerName(), e);
+    }
+  }
+
+  private synchronized boolean isOwnedByAny(@NotNull Collection<?> candidates) {
+    for (Object candidate : candidates) {
+      if (findOwnership(candidate) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return Instance {@link Unsafe} to unmap buffers or null
+   */
+  @Nullable
+  private static Unsafe getUnsafe() {
+    try {
+      final Field theUnsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+      theUnsafeField.setAccessible(true);
+      return (Unsafe) theUnsafeField.get(null);
+    } catch (NoSuchFieldException | IllegalAccessException | ClassCastException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the RAM bytes of this storage to the {@link StorageMemoryBudget}. The stored data stays
+   * valid, heap arrays are freed by the garbage collector once they are no longer referenced. Data
+   * that is stored afterwards is memory mapped.
+   */
+  public synchronized void releaseMemoryBudget() {
+    StorageMemoryBudget.release(bytesInRam);
+    bytesInRam = 0;
+    budgetReleased = true;
+  }
+
+  /**
+   * @return number of bytes stored in RAM within the {@link StorageMemoryBudget}
+   */
+  public synchronized long getBytesInRam() {
+    return bytesInRam;
+  }
+
+  /**
+   * @return number of bytes stored in memory-mapped files
+   */
+  public synchronized long getBytesMapped() {
+    return bytesMapped;
+  }
+
+  /**
+   * @param bytes size of the data to store
+   * @return true if the data is kept in RAM within the global {@link StorageMemoryBudget}
+   */
+  private boolean keepInRam(long bytes) {
+    if (!budgetReleased && StorageMemoryBudget.tryAcquire(bytes)) {
+      bytesInRam += bytes;
+      return true;
+    }
+    bytesMapped += bytes;
+    return false;
+  }
+
   /**
    * Creates a new temporary file, maps it into memory, and returns the corresponding
    * MappedByteBuffer. The capacity of the buffer is STORAGE_FILE_CAPACITY bytes.
@@ -218,6 +421,10 @@ public class MemoryMapStorage {
   public synchronized DoubleBuffer storeData(@NotNull final double data[], int offset,
       int length) throws IOException {
 
+    if (keepInRam((long) length * Double.BYTES)) {
+      return DoubleBuffer.wrap(Arrays.copyOfRange(data, offset, offset + length)).asReadOnlyBuffer();
+    }
+
     // If we have no storage file or if the current file is full, create a new one
     if ((currentMappedFile == null)
         || (currentMappedFile.position() + (length * Double.BYTES) > STORAGE_FILE_CAPACITY)) {
@@ -275,6 +482,10 @@ public class MemoryMapStorage {
   public synchronized FloatBuffer storeData(@NotNull final float data[], int offset,
       int length) throws IOException {
 
+    if (keepInRam((long) length * Float.BYTES)) {
+      return FloatBuffer.wrap(Arrays.copyOfRange(data, offset, offset + length)).asReadOnlyBuffer();
+    }
+
     // If we have no storage file or if the current file is full, create a new one
     if ((currentMappedFile == null)
         || (currentMappedFile.position() + (length * Float.BYTES) > STORAGE_FILE_CAPACITY)) {
@@ -331,6 +542,10 @@ public class MemoryMapStorage {
   public synchronized IntBuffer storeData(@NotNull final int data[], int offset,
       int length) throws IOException {
 
+    if (keepInRam((long) length * Integer.BYTES)) {
+      return IntBuffer.wrap(Arrays.copyOfRange(data, offset, offset + length)).asReadOnlyBuffer();
+    }
+
     // If we have no storage file or if the current file is full, create a new one
     if ((currentMappedFile == null)
         || (currentMappedFile.position() + (length * Integer.BYTES) > STORAGE_FILE_CAPACITY)) {
@@ -379,5 +594,38 @@ public class MemoryMapStorage {
 
     temporaryFiles.clear();
     currentMappedFile = null;
+
+    releaseMemoryBudget();
+    bytesMapped = 0;
+  }
+
+  /**
+   * A raw data file or feature list that uses this storage
+   */
+  private static final class Ownership {
+
+    private final WeakReference<Object> owner;
+    private Cleaner.Cleanable cleanable;
+
+    private Ownership(@NotNull Object owner) {
+      this.owner = new WeakReference<>(owner);
+    }
+
+    @Nullable
+    private Object getOwner() {
+      return owner.get();
+    }
+  }
+
+  /**
+   * Ends an ownership. Must not reference the owner, otherwise the owner is never collected.
+   */
+  private record OwnershipCleanup(MemoryMapStorage storage, Ownership ownership) implements
+      Runnable {
+
+    @Override
+    public void run() {
+      storage.endOwnership(ownership);
+    }
   }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Processes blocks of consecutive items in parallel on the common pool and consumes the results on
+ * the calling thread in item order. Only a limited number of blocks is processed ahead of the
+ * consumer to limit the memory of pending results.
+ */
+public class OrderedBlockProcessor {
+
+  private OrderedBlockProcessor() {
+  }
+
+  /**
+   * @param items      the items in their consumption order
+   * @param blockSize  number of consecutive items processed by one worker
+   * @param processor  processes a block of items, called by worker threads. Should check the
+   *                   cancel state to stop early. Blocks that did not start yet are skipped once
+   *                   the processing is aborted
+   * @param consumer   consumes the result of each block, called by the calling thread in item
+   *                   order
+   * @param isCanceled checked by the calling thread between blocks
+   * @param <T>        the item type
+   * @param <R>        the result of a block
+   * @param <E>        the exception thrown by the consumer
+   * @return true if all blocks were consumed, false if canceled. No processor is running anymore
+   * when this method returns or throws
+   * @throws E from the consumer. Runtime exceptions of the processor are rethrown, other
+   *           exceptions of the processor are rethrown as {@link CompletionException}
+   */
+  public static <T, R, E extends Exception> boolean processInOrder(@NotNull List<T> items,
+      int blockSize, @NotNull BlockProcessor<T, R> processor,
+      @NotNull BlockConsumer<T, R, E> consumer, @NotNull BooleanSupplier isCanceled) throws E {
+    final int numItems = items.size();
+    final int numBlocks = (numItems + blockSize - 1) / blockSize;
+    final int maxPendingBlocks = Math.max(2, 2 * ForkJoinPool.getCommonPoolParallelism());
+    final ArrayDeque<CompletableFuture<R>> pending = new ArrayDeque<>(maxPendingBlocks);
+    final AtomicBoolean aborted = new AtomicBoolean(false);
+
+    int nextBlock = 0;
+    int consumedBlocks = 0;
+    try {
+      while (consumedBlocks < numBlocks) {
+        while (nextBlock < numBlocks && pending.size() < maxPendingBlocks) {
+          final int from = nextBlock * blockSize;
+          final List<T> block = items.subList(from, Math.min(numItems, from + blockSize));
+          pending.add(CompletableFuture.supplyAsync(
+              () -> aborted.get() ? null : processor.process(from, block)));
+          nextBlock++;
+        }
+
+        final R result = pending.poll().join();
+        if (isCanceled.getAsBoolean()) {
+          return false;
+        }
+        final int from = consumedBlocks * blockSize;
+        consumer.accept(from, items.subList(from, Math.min(numItems, from + blockSize)), result);
+        consumedBlocks++;
+      }
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw e;
+    } finally {
+      if (consumedBlocks < numBlocks) {
+        // canceled or failed: skip blocks that did not start and wait for running blocks, so that
+        // no worker uses the items or resources of the caller after returning
+        aborted.set(true);
+        for (CompletableFuture<R> future : pending) {
+          try {
+            future.join();
+          } catch (CompletionException | CancellationException ignored) {
+            // only the first exception is rethrown
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  @FunctionalInterface
+  public interface BlockProcessor<T, R> {
+
+    /**
+     * @param from  index of the first item of the block
+     * @param block the items of the block
+     * @return the result of the block
+     */
+    R process(int from, @NotNull List<T> block);
+  }
+
+  @FunctionalInterface
+  public interface BlockConsumer<T, R, E extends Exception> {
+
+    /**
+     * @param from   index of the first item of the block
+     * @param block  the items of the block
+     * @param result the result of the block
+     */
+    void accept(int from, @NotNull List<T> block, R result) throws E;
+  }
+}
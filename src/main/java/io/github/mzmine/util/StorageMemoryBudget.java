@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util;
+
+import io.github.mzmine.main.MZmineCore;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Global memory budget for the data of all {@link MemoryMapStorage}s. Data is kept in RAM while the
+ * budget allows it and spills to memory-mapped temp files afterwards. A budget of 0 disables the
+ * RAM tier, so that all data of a storage is memory mapped (the default).
+ * <p>
+ * Storages never remove single arrays (see {@link MemoryMapStorage}). The used budget of a storage
+ * is released when all its owners (raw data files and feature lists) were removed from the project,
+ * closed or garbage collected, or when the storage is discarded.
+ */
+public final class StorageMemoryBudget {
+
+  private static final Logger logger = Logger.getLogger(StorageMemoryBudget.class.getName());
+  private static final double GB = 1024d * 1024d * 1024d;
+
+  private static final AtomicLong usedBytes = new AtomicLong();
+  private static volatile long budgetBytes = 0;
+  private static volatile boolean spillLogged = false;
+
+  private StorageMemoryBudget() {
+  }
+
+  /**
+   * @param gigabytes the total budget in GB for data that is kept in RAM. 0 to memory map all
+   *                  data.
+   */
+  public static void setBudgetGB(double gigabytes) {
+    budgetBytes = (long) (Math.max(0d, gigabytes) * GB);
+    spillLogged = false;
+    if (budgetBytes > 0) {
+      logger.info("Memory budget for data in RAM set to %.2f GB".formatted(gigabytes));
+    }
+  }
+
+  public static long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  public static long getUsedBytes() {
+    return usedBytes.get();
+  }
+
+  public static boolean isEnabled() {
+    return budgetBytes > 0;
+  }
+
+  /**
+   * @return used fraction of the budget or 0 if the budget is disabled
+   */
+  public static double getUsedFraction() {
+    final long budget = budgetBytes;
+    return budget <= 0 ? 0d : Math.min(1d, usedBytes.get() / (double) budget);
+  }
+
+  /**
+   * Reserves budget for data that is kept in RAM
+   *
+   * @param bytes number of bytes to reserve
+   * @return true if the data fits into the budget, false if the data shall be memory mapped
+   */
+  static boolean tryAcquire(long bytes) {
+    final long budget = budgetBytes;
+    if (budget <= 0) {
+      return false;
+    }
+    long used;
+    do {
+      used = usedBytes.get();
+      if (used + bytes > budget) {
+        if (!spillLogged) {
+          spillLogged = true;
+          logger.info("Memory budget reached, new data is memory mapped. " + getSummary());
+        }
+        return false;
+      }
+    } while (!usedBytes.compareAndSet(used, used + bytes));
+    return true;
+  }
+
+  static void release(long bytes) {
+    usedBytes.addAndGet(-bytes);
+  }
+
+  /**
+   * @return short description of the used budget, e.g., for the status bar
+   */
+  @NotNull
+  public static String getStatus() {
+    if (!isEnabled()) {
+      return "Memory budget disabled";
+    }
+    return "Data in RAM: %.2f/%.2f GB (%.0f%%)".formatted(usedBytes.get() / GB, budgetBytes / GB,
+        getUsedFraction() * 100);
+  }
+
+  /**
+   * @return the status and the RAM and memory mapped data per owner (raw data file or feature
+   * list) sorted by total size
+   */
+  @NotNull
+  public static String getSummary() {
+    final Map<String, long[]> byOwner = new LinkedHashMap<>();
+    final List<MemoryMapStorage> storages;
+    synchronized (MZmineCore.getStorageList()) {
+      storages = new ArrayList<>(MZmineCore.getStorageList());
+    }
+    for (MemoryMapStorage storage : storages) {
+      final long[] bytes = byOwner.computeIfAbsent(storage.getOwnerName(), k -> new long[2]);
+      bytes[0] += storage.getBytesInRam();
+      bytes[1] += storage.getBytesMapped();
+    }
+
+    final StringBuilder b = new StringBuilder(getStatus());
+    byOwner.entrySet().stream().filter(e -> e.getValue()[0] + e.getValue()[1] > 0)
+        .sorted(Comparator.comparingLong(e -> -(e.getValue()[0] + e.getValue()[1])))
+        .forEach(e -> b.append("\n  %s: %.3f GB in RAM, %.3f GB memory mapped".formatted(e.getKey(),
+            e.getValue()[0] / GB, e.getValue()[1] / GB)));
+    return b.toString();
+  }
+}
@@ -30,7 +30,11 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
@@ -150,4 +154,48 @@ public class ZipUtils {
       zipStream.close();
     }
   }
+
+  /**
+   * Extracts all entries that start with one of the folders (or file paths) in a single pass over
+   * the zip file. The entries are decompressed and written in parallel.
+   *
+   * @param folders           the folders or file paths in the zip file
+   * @param zipFile           the zip file
+   * @param destinationFolder the folder to extract to
+   */
+  public static void unzipDirectories(Collection<String> folders, ZipFile zipFile,
+      File destinationFolder) throws IOException {
+    if (folders.isEmpty()) {
+      return;
+    }
+
+    final List<? extends ZipEntry> entries = Collections.list(zipFile.entries()).stream()
+        .filter(entry -> folders.stream().anyMatch(entry.getName()::startsWith)).toList();
+
+    // create all directories first
+    for (ZipEntry entry : entries) {
+      final File extractedFile = new File(destinationFolder, entry.getName());
+      if (!extractedFile.toPath().normalize().startsWith(destinationFolder.toPath())) {
+        throw new IllegalArgumentException("Bad zip entry.");
+      }
+      final File dir = entry.isDirectory() ? extractedFile : extractedFile.getParentFile();
+      if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+        throw new IOException("Cannot create directory " + dir.getAbsolutePath());
+      }
+    }
+
+    try {
+      entries.parallelStream().filter(entry -> !entry.isDirectory()).forEach(entry -> {
+        final File extractedFile = new File(destinationFolder, entry.getName());
+        try (InputStream zipStream = zipFile.getInputStream(entry);
+            FileOutputStream outputStream = new FileOutputStream(extractedFile)) {
+          zipStream.transferTo(outputStream);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
 }
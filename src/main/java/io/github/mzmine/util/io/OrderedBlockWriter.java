@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.io;
+
+import io.github.mzmine.util.OrderedBlockProcessor;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Formats blocks of consecutive items to text in parallel and writes the text in item order. The
+ * output is the same as formatting and writing all items sequentially. Only a limited number of
+ * blocks is formatted ahead of the writer to limit the memory of pending text.
+ */
+public class OrderedBlockWriter {
+
+  private OrderedBlockWriter() {
+  }
+
+  /**
+   * @param items      the items in their output order
+   * @param blockSize  number of consecutive items formatted by one worker
+   * @param formatter  formats a block of items, called by worker threads. Must not use shared
+   *                   state that is not thread safe, e.g., a shared {@link java.text.NumberFormat}
+   * @param writer     receives the text of all blocks in item order, only used by the calling
+   *                   thread
+   * @param isCanceled checked by the calling thread between blocks
+   * @param <T>        the item type
+   * @return true if all items were written, false if canceled
+   * @throws IOException from the writer. Runtime exceptions of the formatter are rethrown.
+   */
+  public static <T> boolean writeInOrder(@NotNull List<T> items, int blockSize,
+      @NotNull Function<List<T>, String> formatter, @NotNull Writer writer,
+      @NotNull BooleanSupplier isCanceled) throws IOException {
+    return OrderedBlockProcessor.processInOrder(items, blockSize,
+        (from, block) -> formatter.apply(block), (from, block, text) -> writer.write(text),
+        isCanceled);
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.maths.kernels;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Provides the numeric kernels. The SIMD kernels of the Java Vector API are only compiled with the
+ * gradle flag -PvectorApi, which also adds the incubator module jdk.incubator.vector. Otherwise, or
+ * if the system property mzmine.kernels.scalar is set to true, the scalar kernels are used.
+ */
+public final class Kernels {
+
+  private static final Logger logger = Logger.getLogger(Kernels.class.getName());
+
+  static final String VECTOR_MODULE = "jdk.incubator.vector";
+  static final String VECTOR_KERNELS = "io.github.mzmine.util.maths.kernels.VectorApiKernels";
+
+  private static final NumericKernels kernels = create();
+
+  private Kernels() {
+  }
+
+  /**
+   * @return the fastest available kernels
+   */
+  public static NumericKernels get() {
+    return kernels;
+  }
+
+  /**
+   * @return the scalar kernels, e.g., as reference
+   */
+  public static NumericKernels scalar() {
+    return ScalarKernels.INSTANCE;
+  }
+
+  private static NumericKernels create() {
+    if (!Boolean.getBoolean("mzmine.kernels.scalar") && ModuleLayer.boot()
+        .findModule(VECTOR_MODULE).isPresent()) {
+      try {
+        final NumericKernels vector = (NumericKernels) Class.forName(VECTOR_KERNELS)
+            .getDeclaredConstructor().newInstance();
+        logger.info("Using numeric kernels: " + vector.getName());
+        return vector;
+      } catch (ReflectiveOperationException | LinkageError e) {
+        logger.log(Level.FINE, "Vector API kernels are not available, using scalar kernels", e);
+      }
+    }
+    return ScalarKernels.INSTANCE;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.maths.kernels;
+
+/**
+ * Numeric kernels of hot loops on primitive arrays. All methods only read the first length
+ * values of the input arrays. Use {@link Kernels#get()} to obtain the fastest implementation.
+ */
+public interface NumericKernels {
+
+  /**
+   * @return name of the implementation
+   */
+  String getName();
+
+  /**
+   * @return sum(a[i] * b[i])
+   */
+  double dot(double[] a, double[] b, int length);
+
+  /**
+   * @return sum(a[i]^2), the squared euclidean norm
+   */
+  double sumOfSquares(double[] a, int length);
+
+  /**
+   * @return sum(weights[i] * a[i]^2), the squared weighted euclidean norm
+   */
+  double weightedSumOfSquares(double[] a, double[] weights, int length);
+
+  /**
+   * Convolution with centered weights (odd length). Weights outside the values are skipped, the
+   * result is not normalized at the edges.
+   *
+   * @param dst result with at least length values
+   */
+  void convolve(double[] values, int length, double[] weights, double[] dst);
+
+  /**
+   * Keeps all values >= threshold and the paired values at the same index (e.g., intensities and
+   * m/z) in their original order.
+   *
+   * @param dstValues destination with at least length values
+   * @param dstPaired destination with at least length values
+   * @return the number of values that were kept
+   */
+  int compactAtLeast(double[] values, double[] paired, int length, double threshold,
+      double[] dstValues, double[] dstPaired);
+
+  /**
+   * @return the Pearson correlation of a and b. NaN for less than two values or constant values
+   */
+  double pearson(double[] a, double[] b, int length);
+
+  /**
+   * @return the cosine similarity of a and b. NaN if one of them is all zeros
+   */
+  default double cosine(double[] a, double[] b, int length) {
+    return dot(a, b, length) / (Math.sqrt(sumOfSquares(a, length)) * Math.sqrt(
+        sumOfSquares(b, length)));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.maths.kernels;
+
+/**
+ * Plain Java loops, used if the Java Vector API is not available
+ */
+public class ScalarKernels implements NumericKernels {
+
+  static final ScalarKernels INSTANCE = new ScalarKernels();
+
+  @Override
+  public String getName() {
+    return "scalar";
+  }
+
+  @Override
+  public double dot(double[] a, double[] b, int length) {
+    double sum = 0;
+    for (int i = 0; i < length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public double sumOfSquares(double[] a, int length) {
+    double sum = 0;
+    for (int i = 0; i < length; i++) {
+      sum += a[i] * a[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public double weightedSumOfSquares(double[] a, double[] weights, int length) {
+    double sum = 0;
+    for (int i = 0; i < length; i++) {
+      sum += weights[i] * a[i] * a[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public void convolve(double[] values, int length, double[] weights, double[] dst) {
+    convolveRange(values, length, weights, dst, 0, length);
+  }
+
+  /**
+   * Convolution of the values [from, to), used for the edges by other implementations
+   */
+  static void convolveRange(double[] values, int length, double[] weights, double[] dst, int from,
+      int to) {
+    final int fullWidth = weights.length;
+    final int halfWidth = (fullWidth - 1) / 2;
+    for (int i = from; i < to; i++) {
+      double sum = 0;
+      final int k = i - halfWidth;
+      for (int j = Math.max(0, -k); j < Math.min(fullWidth, length - k); j++) {
+        sum += values[k + j] * weights[j];
+      }
+      dst[i] = sum;
+    }
+  }
+
+  @Override
+  public int compactAtLeast(double[] values, double[] paired, int length, double threshold,
+      double[] dstValues, double[] dstPaired) {
+    return compactAtLeastRange(values, paired, 0, length, threshold, dstValues, dstPaired, 0);
+  }
+
+  /**
+   * Compacts the values [from, to) to the destination starting at count
+   *
+   * @return the new count
+   */
+  static int compactAtLeastRange(double[] values, double[] paired, int from, int to,
+      double threshold, double[] dstValues, double[] dstPaired, int count) {
+    for (int i = from; i < to; i++) {
+      if (values[i] >= threshold) {
+        dstValues[count] = values[i];
+        dstPaired[count] = paired[i];
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public double pearson(double[] a, double[] b, int length) {
+    if (length < 2) {
+      return Double.NaN;
+    }
+    double meanA = 0;
+    double meanB = 0;
+    for (int i = 0; i < length; i++) {
+      meanA += a[i];
+      meanB += b[i];
+    }
+    meanA /= length;
+    meanB /= length;
+
+    double cov = 0;
+    double varA = 0;
+    double varB = 0;
+    for (int i = 0; i < length; i++) {
+      final double da = a[i] - meanA;
+      final double db = b[i] - meanB;
+      cov += da * db;
+      varA += da * da;
+      varB += db * db;
+    }
+    return correlation(cov, varA, varB);
+  }
+
+  static double correlation(double cov, double varA, double varB) {
+    if (varA == 0 || varB == 0) {
+      return Double.NaN;
+    }
+    return cov / Math.sqrt(varA * varB);
+  }
+}
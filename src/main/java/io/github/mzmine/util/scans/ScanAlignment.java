@@ -380,6 +380,29 @@ public class ScanAlignment {
     return data;
   }
 
+  /**
+   * Weighted intensities of the first two aligned data point lists as columns, e.g., for
+   * {@link io.github.mzmine.util.maths.kernels.NumericKernels#cosine(double[], double[], int)}
+   *
+   * @param diffAligned aligned list(DataPoint)[library, query]
+   * @return [library, query][data point] weighted intensities, 0 for missing data points
+   */
+  public static double[][] toIntensityColumnsWeighted(List<DataPoint[]> diffAligned,
+      double weightIntensity, double weightMZ) {
+    final int n = diffAligned.size();
+    double[][] data = new double[2][n];
+    for (int i = 0; i < n; i++) {
+      DataPoint[] dps = diffAligned.get(i);
+      for (int d = 0; d < 2; d++) {
+        DataPoint dp = dps[d];
+        if (dp != null) {
+          data[d][i] = Math.pow(dp.getIntensity(), weightIntensity) * Math.pow(dp.getMZ(), weightMZ);
+        }
+      }
+    }
+    return data;
+  }
+
   /**
    * Converts a list of aligned datapoints back to mass lists
    *
@@ -134,6 +134,36 @@ public class SpectraMerging {
       return new double[][]{new double[0], new double[0]};
     }
 
+    final double[][] merged = SpectraMergingEngine.merge(source, tolerance, intensityMergingType,
+        mzCenterFunction, inputNoiseLevel, outputNoiseLevel, minNumPeaks);
+    if (merged != null) {
+      return merged;
+    }
+    // ranges overlap, only handled by the range map
+    return calculatedMergedMzsAndIntensitiesRangeMap(source, tolerance, intensityMergingType,
+        mzCenterFunction, inputNoiseLevel, outputNoiseLevel, minNumPeaks);
+  }
+
+  /**
+   * Reference implementation of
+   * {@link #calculatedMergedMzsAndIntensities(Collection, MZTolerance, IntensityMergingType,
+   * CenterFunction, Double, Double, Integer)} that clusters {@link IndexedDataPoint}s in a
+   * {@link RangeMap}. Used if the primitive {@link SpectraMergingEngine} cannot create the
+   * clusters.
+   *
+   * @return double[2][] array, [0][] being the mzs, [1] being the intensities. Empty double[2][0]
+   * if the source collection is empty.
+   */
+  static <T extends MassSpectrum> double[][] calculatedMergedMzsAndIntensitiesRangeMap(
+      @NotNull final Collection<T> source, @NotNull final MZTolerance tolerance,
+      @NotNull final SpectraMerging.IntensityMergingType intensityMergingType,
+      @NotNull final CenterFunction mzCenterFunction, @Nullable final Double inputNoiseLevel,
+      @Nullable final Double outputNoiseLevel, @Nullable final Integer minNumPeaks) {
+
+    if (source.isEmpty()) {
+      return new double[][]{new double[0], new double[0]};
+    }
+
     final List<IndexedDataPoint> dataPoints = new ArrayList<>();
     // extract all data points in the mass spectrum
     final int numDp = source.stream().mapToInt(MassSpectrum::getNumberOfDataPoints).max()
@@ -143,12 +173,13 @@ public class SpectraMerging {
 
     int index = 0;
     for (T spectrum : source) {
-      spectrum.getMzValues(rawMzs);
-      spectrum.getIntensityValues(rawIntensities);
+      // some spectra return their own arrays instead of filling the buffer
+      final double[] mzs = spectrum.getMzValues(rawMzs);
+      final double[] intensities = spectrum.getIntensityValues(rawIntensities);
 
       for (int i = 0; i < spectrum.getNumberOfDataPoints(); i++) {
-        if (inputNoiseLevel == null || rawIntensities[i] > inputNoiseLevel) {
-          final IndexedDataPoint dp = new IndexedDataPoint(rawMzs[i], rawIntensities[i], index);
+        if (inputNoiseLevel == null || intensities[i] > inputNoiseLevel) {
+          final IndexedDataPoint dp = new IndexedDataPoint(mzs[i], intensities[i], index);
           dataPoints.add(dp);
         }
       }
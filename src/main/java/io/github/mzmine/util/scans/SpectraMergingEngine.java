@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.maths.CenterFunction;
+import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
+import it.unimi.dsi.fastutil.doubles.DoubleArrays;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
+import java.util.Collection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Primitive implementation of the m/z clustering in
+ * {@link SpectraMerging#calculatedMergedMzsAndIntensities(Collection, MZTolerance,
+ * IntensityMergingType, CenterFunction, Double, Double, Integer)}. Produces the same clusters as the
+ * range map implementation
+ * {@link SpectraMerging#calculatedMergedMzsAndIntensitiesRangeMap(Collection, MZTolerance,
+ * IntensityMergingType, CenterFunction, Double, Double, Integer)} without creating objects per data
+ * point.
+ * <p>
+ * Data points are processed by descending intensity. Each cluster is an m/z range that contains
+ * the data point that created it (the seed). Ranges do not overlap, so they are ordered like their
+ * seeds and the range that contains an m/z is always the closest seed below or above. Seeds are
+ * marked in a two level bit set over all m/z values in ascending order, which replaces the range
+ * map lookups by a binary search and a bit scan. A cluster keeps only the most intense data point
+ * of each source spectrum.
+ * <p>
+ * Rarely, a new range would overlap existing ranges after the adjustment in
+ * {@link SpectraMerging#createNewNonOverlappingRange(com.google.common.collect.RangeMap,
+ * com.google.common.collect.Range)}. The range map then truncates or removes the existing ranges.
+ * In this case {@link #merge(Collection, MZTolerance, IntensityMergingType, CenterFunction,
+ * Double, Double, Integer)} returns null and the range map implementation should be used.
+ */
+final class SpectraMergingEngine {
+
+  // limit for the range adjustment, the range map implementation recurses
+  private static final int MAX_RANGE_ADJUSTMENTS = 1000;
+
+  // comparison results of a proposed range and an existing range
+  private static final int EMPTY = 0;
+  private static final int NON_EMPTY = 1;
+  private static final int DISCONNECTED = 2;
+
+  private static final byte LOWER_OPEN = 1;
+  private static final byte UPPER_OPEN = 2;
+
+  private final int numDps;
+  // data points sorted by descending intensity and m/z (processing order)
+  private final double[] mzs;
+  private final double[] intensities;
+  private final int[] spectrumIndices;
+
+  // all m/z values sorted ascending, ranges are stored at the index of their seed
+  private final double[] sortedMzs;
+  // index of each data point in sortedMzs and the first index with a higher m/z
+  private final int[] mzIndices;
+  private final int[] higherMzIndices;
+  // bit set of seeds and a summary of non-empty words for fast scans in sparse seeds
+  private final long[] seeds;
+  private final long[] seedWords;
+  private int numSeeds;
+  // lower and upper bound of each range, interleaved
+  private final double[] bounds;
+  private final byte[] boundTypes;
+
+  // the proposed range during the range adjustment
+  private double proposedLower;
+  private double proposedUpper;
+  private boolean proposedLowerOpen;
+  private boolean proposedUpperOpen;
+
+  private SpectraMergingEngine(double[] sourceMzs, double[] sourceIntensities,
+      int[] sourceSpectrumIndices, int numDps) {
+    this.numDps = numDps;
+
+    // descending intensity and m/z. The order of equal data points does not change the clusters
+    final double[] negativeIntensities = new double[numDps];
+    final double[] negativeMzs = new double[numDps];
+    final int[] order = new int[numDps];
+    for (int i = 0; i < numDps; i++) {
+      negativeIntensities[i] = -sourceIntensities[i];
+      negativeMzs[i] = -sourceMzs[i];
+      order[i] = i;
+    }
+    DoubleArrays.quickSortIndirect(order, negativeIntensities);
+    // equal intensities by descending m/z
+    for (int from = 0, to = 1; to <= numDps; to++) {
+      if (to == numDps
+          || Double.compare(negativeIntensities[order[from]], negativeIntensities[order[to]]) != 0) {
+        if (to - from > 1) {
+          IntArrays.quickSort(order, from, to,
+              (a, b) -> Double.compare(negativeMzs[a], negativeMzs[b]));
+        }
+        from = to;
+      }
+    }
+
+    mzs = new double[numDps];
+    intensities = new double[numDps];
+    spectrumIndices = new int[numDps];
+    final int[] byMz = new int[numDps];
+    for (int i = 0; i < numDps; i++) {
+      mzs[i] = sourceMzs[order[i]];
+      intensities[i] = sourceIntensities[order[i]];
+      spectrumIndices[i] = sourceSpectrumIndices[order[i]];
+      byMz[i] = i;
+    }
+
+    DoubleArrays.quickSortIndirect(byMz, mzs);
+    sortedMzs = new double[numDps];
+    mzIndices = new int[numDps];
+    for (int i = 0; i < numDps; i++) {
+      sortedMzs[i] = mzs[byMz[i]];
+      mzIndices[byMz[i]] = i;
+    }
+    higherMzIndices = new int[numDps];
+    for (int i = numDps - 1; i >= 0; i--) {
+      final boolean sameAsNext =
+          i + 1 < numDps && Double.compare(sortedMzs[i], sortedMzs[i + 1]) == 0;
+      higherMzIndices[byMz[i]] = sameAsNext ? higherMzIndices[byMz[i + 1]] : i + 1;
+    }
+
+    seeds = new long[(numDps + 63) >>> 6];
+    seedWords = new long[(seeds.length + 63) >>> 6];
+    bounds = new double[numDps * 2];
+    boundTypes = new byte[numDps];
+  }
+
+  /**
+   * See {@link SpectraMerging#calculatedMergedMzsAndIntensities(Collection, MZTolerance,
+   * IntensityMergingType, CenterFunction, Double, Double, Integer)}
+   *
+   * @return double[2][] array, [0][] being the mzs, [1] being the intensities or null if the
+   * clusters cannot be created without overlapping ranges.
+   */
+  @Nullable
+  static <T extends MassSpectrum> double[][] merge(@NotNull final Collection<T> source,
+      @NotNull final MZTolerance tolerance,
+      @NotNull final SpectraMerging.IntensityMergingType intensityMergingType,
+      @NotNull final CenterFunction mzCenterFunction, @Nullable final Double inputNoiseLevel,
+      @Nullable final Double outputNoiseLevel, @Nullable final Integer minNumPeaks) {
+    int totalDps = 0;
+    int maxDps = 0;
+    for (T spectrum : source) {
+      totalDps += spectrum.getNumberOfDataPoints();
+      maxDps = Math.max(maxDps, spectrum.getNumberOfDataPoints());
+    }
+
+    // extract all data points above noise
+    final double[] mzs = new double[totalDps];
+    final double[] intensities = new double[totalDps];
+    final int[] spectrumIndices = new int[totalDps];
+    final double[] rawMzs = new double[maxDps];
+    final double[] rawIntensities = new double[maxDps];
+    int numDps = 0;
+    int index = 0;
+    for (T spectrum : source) {
+      final double[] spectrumMzs = spectrum.getMzValues(rawMzs);
+      final double[] spectrumIntensities = spectrum.getIntensityValues(rawIntensities);
+      for (int i = 0; i < spectrum.getNumberOfDataPoints(); i++) {
+        if (inputNoiseLevel == null || spectrumIntensities[i] > inputNoiseLevel) {
+          mzs[numDps] = spectrumMzs[i];
+          intensities[numDps] = spectrumIntensities[i];
+          spectrumIndices[numDps] = index;
+          numDps++;
+        }
+      }
+      index++;
+    }
+
+    final SpectraMergingEngine engine = new SpectraMergingEngine(mzs, intensities,
+        spectrumIndices, numDps);
+    final int[] clusters = engine.createClusters(tolerance);
+    if (clusters == null) {
+      return null;
+    }
+    return engine.mergeClusters(clusters, intensityMergingType, mzCenterFunction,
+        outputNoiseLevel, minNumPeaks);
+  }
+
+  /**
+   * Assigns each data point to the range that contains its m/z or creates a new range.
+   *
+   * @return the seed index of the cluster for each data point or null if ranges would overlap
+   */
+  @Nullable
+  private int[] createClusters(MZTolerance tolerance) {
+    final int[] clusters = new int[numDps];
+    for (int dp = 0; dp < numDps; dp++) {
+      final double mz = mzs[dp];
+      int cluster = getEntry(higherMzIndices[dp], mz);
+      if (cluster < 0) {
+        final double tol = tolerance.getMzToleranceForMass(mz);
+        proposedLower = mz - tol;
+        proposedUpper = mz + tol;
+        proposedLowerOpen = false;
+        proposedUpperOpen = false;
+        if (!adjustProposedRange()) {
+          return null;
+        }
+        cluster = mzIndices[dp];
+        if (!putProposedRange(cluster)) {
+          return null;
+        }
+      }
+      clusters[dp] = cluster;
+    }
+    return clusters;
+  }
+
+  /**
+   * Same as {@link SpectraMerging#createNewNonOverlappingRange(com.google.common.collect.RangeMap,
+   * com.google.common.collect.Range)} on the proposed range.
+   *
+   * @return false if the range map implementation would fail to create a valid range
+   */
+  private boolean adjustProposedRange() {
+    for (int i = 0; i < MAX_RANGE_ADJUSTMENTS; i++) {
+      final int lowerEntry = getEntry(
+          proposedLowerOpen ? proposedLower + SpectraMerging.EPSILON : proposedLower);
+      final int upperEntry = getEntry(
+          proposedUpperOpen ? proposedUpper - SpectraMerging.EPSILON : proposedUpper);
+
+      if (lowerEntry < 0 && upperEntry < 0) {
+        return true;
+      }
+      final int lowerIntersection = lowerEntry < 0 ? EMPTY : intersectProposed(lowerEntry);
+      final int upperIntersection = upperEntry < 0 ? EMPTY : intersectProposed(upperEntry);
+      if (lowerIntersection == DISCONNECTED || upperIntersection == DISCONNECTED) {
+        return false;
+      }
+      if (lowerIntersection == EMPTY && upperIntersection == EMPTY) {
+        return true;
+      }
+
+      if (lowerIntersection == NON_EMPTY) {
+        proposedLower = bounds[lowerEntry * 2 + 1];
+        proposedLowerOpen = true;
+      }
+      if (upperIntersection == NON_EMPTY) {
+        proposedUpper = bounds[upperEntry * 2];
+        proposedUpperOpen = true;
+      }
+      // invalid range
+      if (compareCuts(proposedLower, proposedLowerOpen, proposedUpper, !proposedUpperOpen) > 0) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Stores the proposed range for the seed if it does not overlap the neighbouring ranges.
+   * Overlaps can only occur with the closest seeds below and above, because the range is connected
+   * and contains its seed.
+   *
+   * @return false if the range is empty or overlaps other ranges
+   */
+  private boolean putProposedRange(int seed) {
+    // empty ranges are not added to the range map
+    if (compareCuts(proposedLower, proposedLowerOpen, proposedUpper, !proposedUpperOpen) >= 0) {
+      return false;
+    }
+    final int below = previousSeed(seed);
+    if (below >= 0 && intersectProposed(below) == NON_EMPTY) {
+      return false;
+    }
+    final int above = nextSeed(seed);
+    if (above >= 0 && intersectProposed(above) == NON_EMPTY) {
+      return false;
+    }
+    bounds[seed * 2] = proposedLower;
+    bounds[seed * 2 + 1] = proposedUpper;
+    boundTypes[seed] = (byte) ((proposedLowerOpen ? LOWER_OPEN : 0) | (proposedUpperOpen
+        ? UPPER_OPEN : 0));
+    seeds[seed >>> 6] |= 1L << seed;
+    seedWords[seed >>> 12] |= 1L << (seed >>> 6);
+    numSeeds++;
+    return true;
+  }
+
+  /**
+   * @return the highest seed index <= index or -1
+   */
+  private int previousSeed(int index) {
+    if (index < 0) {
+      return -1;
+    }
+    int word = index >>> 6;
+    // bits <= index, the shift is masked to 0-63
+    long bits = seeds[word] & (-1L >>> (63 - (index & 63)));
+    if (bits == 0) {
+      word = previousWord(word - 1);
+      if (word < 0) {
+        return -1;
+      }
+      bits = seeds[word];
+    }
+    return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+  }
+
+  /**
+   * @return the lowest seed index >= index or -1
+   */
+  private int nextSeed(int index) {
+    if (index >= numDps) {
+      return -1;
+    }
+    int word = index >>> 6;
+    // bits >= index
+    long bits = seeds[word] & (-1L << index);
+    if (bits == 0) {
+      word = nextWord(word + 1);
+      if (word < 0) {
+        return -1;
+      }
+      bits = seeds[word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  private int previousWord(int word) {
+    if (word < 0) {
+      return -1;
+    }
+    int summary = word >>> 6;
+    long bits = seedWords[summary] & (-1L >>> (63 - (word & 63)));
+    while (bits == 0) {
+      if (--summary < 0) {
+        return -1;
+      }
+      bits = seedWords[summary];
+    }
+    return (summary << 6) + 63 - Long.numberOfLeadingZeros(bits);
+  }
+
+  private int nextWord(int word) {
+    if (word >= seeds.length) {
+      return -1;
+    }
+    int summary = word >>> 6;
+    long bits = seedWords[summary] & (-1L << word);
+    while (bits == 0) {
+      if (++summary >= seedWords.length) {
+        return -1;
+      }
+      bits = seedWords[summary];
+    }
+    return (summary << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * @return the seed index of the range that contains the m/z or -1
+   */
+  private int getEntry(double mz) {
+    // first index with a higher m/z
+    int low = 0;
+    int high = numDps;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (Double.compare(sortedMzs[mid], mz) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return getEntry(low, mz);
+  }
+
+  /**
+   * @param higherMzIndex the first index in the sorted m/z values with a higher m/z
+   * @return the seed index of the range that contains the m/z or -1
+   */
+  private int getEntry(int higherMzIndex, double mz) {
+    final int below = previousSeed(higherMzIndex - 1);
+    if (below >= 0 && contains(below, mz)) {
+      return below;
+    }
+    final int above = nextSeed(higherMzIndex);
+    if (above >= 0 && contains(above, mz)) {
+      return above;
+    }
+    return -1;
+  }
+
+  private boolean contains(int seed, double mz) {
+    final int lowerCompare = Double.compare(bounds[seed * 2], mz);
+    final int upperCompare = Double.compare(mz, bounds[seed * 2 + 1]);
+    final byte types = boundTypes[seed];
+    return ((types & LOWER_OPEN) != 0 ? lowerCompare < 0 : lowerCompare <= 0) && (
+        (types & UPPER_OPEN) != 0 ? upperCompare < 0 : upperCompare <= 0);
+  }
+
+  /**
+   * Same as the intersection of two guava ranges
+   *
+   * @return {@link #EMPTY}, {@link #NON_EMPTY} or {@link #DISCONNECTED} if the intersection is not
+   * defined
+   */
+  private int intersectProposed(int seed) {
+    final double lower = bounds[seed * 2];
+    final double upper = bounds[seed * 2 + 1];
+    final boolean lowerOpen = (boundTypes[seed] & LOWER_OPEN) != 0;
+    final boolean upperOpen = (boundTypes[seed] & UPPER_OPEN) != 0;
+    // lower bounds: closed below the value, open above the value
+    final boolean proposedLowerIsMax =
+        compareCuts(proposedLower, proposedLowerOpen, lower, lowerOpen) >= 0;
+    final double maxLower = proposedLowerIsMax ? proposedLower : lower;
+    final boolean maxLowerAbove = proposedLowerIsMax ? proposedLowerOpen : lowerOpen;
+    // upper bounds: closed above the value, open below the value
+    final boolean proposedUpperIsMin =
+        compareCuts(proposedUpper, !proposedUpperOpen, upper, !upperOpen) <= 0;
+    final double minUpper = proposedUpperIsMin ? proposedUpper : upper;
+    final boolean minUpperAbove = proposedUpperIsMin ? !proposedUpperOpen : !upperOpen;
+
+    final int compare = compareCuts(maxLower, maxLowerAbove, minUpper, minUpperAbove);
+    if (compare > 0) {
+      return DISCONNECTED;
+    }
+    return compare == 0 ? EMPTY : NON_EMPTY;
+  }
+
+  /**
+   * Compares range bounds as cuts between values. A cut above a value is higher than the cut below
+   * the same value.
+   */
+  private static int compareCuts(double value1, boolean above1, double value2, boolean above2) {
+    final int result = Double.compare(value1, value2);
+    return result != 0 ? result : Boolean.compare(above1, above2);
+  }
+
+  /**
+   * Calculates the merged m/z and intensity of all clusters in ascending m/z order
+   */
+  private double[][] mergeClusters(int[] clusters,
+      IntensityMergingType intensityMergingType, CenterFunction mzCenterFunction,
+      @Nullable Double outputNoiseLevel, @Nullable Integer minNumPeaks) {
+    // offsets of each cluster in the members array
+    final int[] offsets = new int[numDps + 1];
+    for (int dp = 0; dp < numDps; dp++) {
+      offsets[clusters[dp] + 1]++;
+    }
+    for (int i = 0; i < numDps; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+
+    // sort key: spectrum index, then processing order to keep the most intense data point of
+    // each spectrum
+    final long[] members = new long[numDps];
+    final int[] next = Arrays.copyOf(offsets, numDps);
+    for (int dp = 0; dp < numDps; dp++) {
+      members[next[clusters[dp]]++] = ((long) spectrumIndices[dp] << 32) | dp;
+    }
+
+    final double[] newMzs = new double[numSeeds];
+    final double[] newIntensities = new double[numSeeds];
+    final double[] clusterMzs = new double[numDps];
+    final double[] clusterIntensities = new double[numDps];
+    int numMerged = 0;
+
+    for (int seed = nextSeed(0); seed >= 0; seed = nextSeed(seed + 1)) {
+      final int from = offsets[seed];
+      final int to = offsets[seed + 1];
+      Arrays.sort(members, from, to);
+
+      int size = 0;
+      int lastSpectrum = -1;
+      for (int m = from; m < to; m++) {
+        final int spectrum = (int) (members[m] >>> 32);
+        if (spectrum == lastSpectrum) {
+          continue;
+        }
+        lastSpectrum = spectrum;
+        final int dp = (int) members[m];
+        clusterMzs[size] = mzs[dp];
+        clusterIntensities[size] = intensities[dp];
+        size++;
+      }
+
+      if (minNumPeaks != null && size < minNumPeaks) {
+        continue;
+      }
+
+      final double[] mergedMzs = Arrays.copyOf(clusterMzs, size);
+      final double[] mergedIntensities = Arrays.copyOf(clusterIntensities, size);
+      final double newMz = mzCenterFunction.calcCenter(mergedMzs, mergedIntensities);
+      final double newIntensity = switch (intensityMergingType) {
+        case SUMMED -> Arrays.stream(mergedIntensities).sum();
+        case MAXIMUM -> Arrays.stream(mergedIntensities).max().orElse(0d);
+        case AVERAGE -> Arrays.stream(mergedIntensities).average().orElse(0d);
+      };
+
+      if (outputNoiseLevel == null || newIntensity > outputNoiseLevel) {
+        newMzs[numMerged] = newMz;
+        newIntensities[numMerged] = newIntensity;
+        numMerged++;
+      }
+    }
+
+    return new double[][]{Arrays.copyOf(newMzs, numMerged),
+        Arrays.copyOf(newIntensities, numMerged)};
+  }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans.raster;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * RT x m/z intensity raster of all scans of one MS level of a raw data file at successive
+ * resolutions. Level 0 bins the data points into at most {@link #BASE_RT_BINS} x
+ * {@link #BASE_MZ_BINS} tiles, each following level halves the number of tiles in both dimensions
+ * and keeps the maximum and the sum of the intensities of the merged tiles. The tiles are stored in
+ * the {@link MemoryMapStorage} of the raw data file, so a pyramid is built once and then queried
+ * by the 2D and 3D visualizers. A query reads the tiles of the coarsest level that is still finer
+ * than the requested pixels, so its cost depends on the tiles on screen and not on the file size.
+ * Views that are zoomed in further than level 0 have to be drawn from the scans.
+ */
+public class IntensityPyramid {
+
+  public static final int BASE_RT_BINS = 1024;
+  public static final int BASE_MZ_BINS = 4096;
+  /**
+   * Dimensions are only halved while they are larger than this
+   */
+  private static final int MIN_LEVEL_BINS = 16;
+
+  private final float[] retentionTimes;
+  private final double rtMin;
+  private final double mzMin;
+  private final Level[] levels;
+
+  private IntensityPyramid(float[] retentionTimes, double rtMin, double mzMin, Level[] levels) {
+    this.retentionTimes = retentionTimes;
+    this.rtMin = rtMin;
+    this.mzMin = mzMin;
+    this.levels = levels;
+  }
+
+  /**
+   * Bins all data points of the scans into the base level and merges the higher levels.
+   *
+   * @param scans      scans of one MS level, sorted by retention time
+   * @param mzRange    m/z range of the scans
+   * @param storage    the storage of the levels or null to keep them in RAM
+   * @param isCanceled stops the build if true, then null is returned
+   * @param progress   receives the finished fraction of the scans
+   * @return the pyramid or null if the build was canceled
+   */
+  @Nullable
+  public static IntensityPyramid build(@NotNull Scan[] scans, @NotNull Range<Double> mzRange,
+      @Nullable MemoryMapStorage storage, @NotNull BooleanSupplier isCanceled,
+      @NotNull DoubleConsumer progress) throws IOException {
+    final float[] retentionTimes = new float[scans.length];
+    for (int i = 0; i < scans.length; i++) {
+      retentionTimes[i] = scans[i].getRetentionTime();
+    }
+
+    final double rtMin = scans.length > 0 ? retentionTimes[0] : 0d;
+    final double rtMax = scans.length > 0 ? retentionTimes[scans.length - 1] : 0d;
+    final int rtBins = Math.max(1, Math.min(scans.length, BASE_RT_BINS));
+    final int mzBins = BASE_MZ_BINS;
+    final double rtBinWidth = binWidth(rtMax - rtMin, rtBins);
+    final double mzBinWidth = binWidth(mzRange.upperEndpoint() - mzRange.lowerEndpoint(), mzBins);
+    final double mzMin = mzRange.lowerEndpoint();
+
+    // tiles are stored per RT column, so the data points of one scan are written close together
+    float[] max = new float[rtBins * mzBins];
+    float[] sum = new float[rtBins * mzBins];
+    BitSet columnsWithScans = new BitSet(rtBins);
+
+    double[] mzs = new double[0];
+    double[] intensities = new double[0];
+    for (int i = 0; i < scans.length; i++) {
+      if (isCanceled.getAsBoolean()) {
+        return null;
+      }
+      final Scan scan = scans[i];
+      final int numDp = scan.getNumberOfDataPoints();
+      if (mzs.length < numDp) {
+        mzs = new double[numDp];
+        intensities = new double[numDp];
+      }
+      scan.getMzValues(mzs);
+      scan.getIntensityValues(intensities);
+
+      final int column = toBin(retentionTimes[i] - rtMin, rtBinWidth, rtBins);
+      columnsWithScans.set(column);
+      final int offset = column * mzBins;
+      for (int dp = 0; dp < numDp; dp++) {
+        final int index = offset + toBin(mzs[dp] - mzMin, mzBinWidth, mzBins);
+        final float intensity = (float) intensities[dp];
+        sum[index] += intensity;
+        if (intensity > max[index]) {
+          max[index] = intensity;
+        }
+      }
+      progress.accept((double) i / scans.length);
+    }
+
+    final Level[] levels = new Level[levelCount(rtBins, mzBins)];
+    Level level = new Level(rtBins, mzBins, rtBinWidth, mzBinWidth, store(storage, max),
+        store(storage, sum), columnsWithScans);
+    levels[0] = level;
+    for (int l = 1; l < levels.length; l++) {
+      if (isCanceled.getAsBoolean()) {
+        return null;
+      }
+      final int rtFactor = level.rtBins > MIN_LEVEL_BINS ? 2 : 1;
+      final int mzFactor = level.mzBins > MIN_LEVEL_BINS ? 2 : 1;
+      final int nextRtBins = (level.rtBins + rtFactor - 1) / rtFactor;
+      final int nextMzBins = (level.mzBins + mzFactor - 1) / mzFactor;
+      final float[] nextMax = new float[nextRtBins * nextMzBins];
+      final float[] nextSum = new float[nextRtBins * nextMzBins];
+      final BitSet nextColumns = new BitSet(nextRtBins);
+
+      for (int rt = 0; rt < level.rtBins; rt++) {
+        final int nextRt = rt / rtFactor;
+        if (level.columnsWithScans.get(rt)) {
+          nextColumns.set(nextRt);
+        }
+        for (int mz = 0; mz < level.mzBins; mz++) {
+          final int index = rt * level.mzBins + mz;
+          final int nextIndex = nextRt * nextMzBins + mz / mzFactor;
+          nextSum[nextIndex] += sum[index];
+          nextMax[nextIndex] = Math.max(nextMax[nextIndex], max[index]);
+        }
+      }
+
+      max = nextMax;
+      sum = nextSum;
+      level = new Level(nextRtBins, nextMzBins, level.rtBinWidth * rtFactor,
+          level.mzBinWidth * mzFactor, store(storage, max), store(storage, sum), nextColumns);
+      levels[l] = level;
+    }
+    progress.accept(1d);
+
+    return new IntensityPyramid(retentionTimes, rtMin, mzMin, levels);
+  }
+
+  private static int levelCount(int rtBins, int mzBins) {
+    int count = 1;
+    while (rtBins > MIN_LEVEL_BINS || mzBins > MIN_LEVEL_BINS) {
+      rtBins = rtBins > MIN_LEVEL_BINS ? (rtBins + 1) / 2 : rtBins;
+      mzBins = mzBins > MIN_LEVEL_BINS ? (mzBins + 1) / 2 : mzBins;
+      count++;
+    }
+    return count;
+  }
+
+  private static double binWidth(double span, int bins) {
+    // a single scan or data point still needs a positive bin width
+    return span > 0 ? span / bins : 1d;
+  }
+
+  private static int toBin(double value, double binWidth, int bins) {
+    return Math.max(0, Math.min(bins - 1, (int) (value / binWidth)));
+  }
+
+  @NotNull
+  private static FloatBuffer store(@Nullable MemoryMapStorage storage, float[] data)
+      throws IOException {
+    return storage != null ? storage.storeData(data) : FloatBuffer.wrap(data).asReadOnlyBuffer();
+  }
+
+  /**
+   * @param scans scans sorted by retention time
+   * @return true if the scans are all scans of this pyramid within their retention time range.
+   * Otherwise, the pyramid contains other scans and cannot represent the scan selection.
+   */
+  public boolean covers(@NotNull Scan[] scans) {
+    if (scans.length == 0) {
+      return false;
+    }
+    int first = Arrays.binarySearch(retentionTimes, scans[0].getRetentionTime());
+    if (first < 0) {
+      return false;
+    }
+    // equal retention times of different scans are not expected, but step back to the first
+    while (first > 0 && retentionTimes[first - 1] == retentionTimes[first]) {
+      first--;
+    }
+    if (first + scans.length > retentionTimes.length) {
+      return false;
+    }
+    for (int i = 0; i < scans.length; i++) {
+      if (retentionTimes[first + i] != scans[i].getRetentionTime()) {
+        return false;
+      }
+    }
+    // the next scan of the pyramid must be outside the range of the selection
+    return first + scans.length == retentionTimes.length
+        || retentionTimes[first + scans.length] > scans[scans.length - 1].getRetentionTime();
+  }
+
+  /**
+   * Maximum intensity of each pixel. Each tile of the selected level is added to the pixel that
+   * contains the tile center.
+   *
+   * @param width  number of pixels on the RT axis
+   * @param height number of pixels on the m/z axis
+   * @return values[rtPixel][mzPixel] or null if the pixels are finer than the base level
+   */
+  @Nullable
+  public double[][] sampleMax(@NotNull Range<Double> rtRange,
+      @NotNull Range<Double> mzRange, int width, int height) {
+    return sample(rtRange, mzRange, width, height, false);
+  }
+
+  /**
+   * Summed intensity of each pixel. Each tile of the selected level is added to the pixel that
+   * contains the tile center.
+   *
+   * @param width  number of pixels on the RT axis
+   * @param height number of pixels on the m/z axis
+   * @return values[rtPixel][mzPixel] or null if the pixels are finer than the base level
+   */
+  @Nullable
+  public double[][] sampleSum(@NotNull Range<Double> rtRange,
+      @NotNull Range<Double> mzRange, int width, int height) {
+    return sample(rtRange, mzRange, width, height, true);
+  }
+
+  /**
+   * @param width number of pixels on the RT axis
+   * @return true for each RT pixel that contains at least one scan. Use the same level as
+   * {@link #sampleMax(Range, Range, int, int)}, or null if the pixels are finer than the base
+   * level.
+   */
+  @Nullable
+  public boolean[] sampleColumnsWithScans(@NotNull Range<Double> rtRange,
+      @NotNull Range<Double> mzRange, int width, int height) {
+    final Level level = selectLevel(rtRange, mzRange, width, height);
+    if (level == null) {
+      return null;
+    }
+    final double rtPixel = (rtRange.upperEndpoint() - rtRange.lowerEndpoint()) / width;
+    final boolean[] columns = new boolean[width];
+    for (int rt = level.columnsWithScans.nextSetBit(0); rt >= 0;
+        rt = level.columnsWithScans.nextSetBit(rt + 1)) {
+      final int x = toPixel(rtMin + (rt + 0.5) * level.rtBinWidth, rtRange, rtPixel, width);
+      if (x >= 0) {
+        columns[x] = true;
+      }
+    }
+    return columns;
+  }
+
+  @Nullable
+  private double[][] sample(Range<Double> rtRange, Range<Double> mzRange, int width,
+      int height, boolean summed) {
+    final Level level = selectLevel(rtRange, mzRange, width, height);
+    if (level == null) {
+      return null;
+    }
+    final double rtPixel = (rtRange.upperEndpoint() - rtRange.lowerEndpoint()) / width;
+    final double mzPixel = (mzRange.upperEndpoint() - mzRange.lowerEndpoint()) / height;
+    final FloatBuffer tiles = summed ? level.sum : level.max;
+
+    // only read the tiles within the view
+    final int firstRt = toBin(rtRange.lowerEndpoint() - rtMin, level.rtBinWidth, level.rtBins);
+    final int lastRt = toBin(rtRange.upperEndpoint() - rtMin, level.rtBinWidth, level.rtBins);
+    final int firstMz = toBin(mzRange.lowerEndpoint() - mzMin, level.mzBinWidth, level.mzBins);
+    final int lastMz = toBin(mzRange.upperEndpoint() - mzMin, level.mzBinWidth, level.mzBins);
+
+    // map the tiles to pixels once per axis
+    final int[] mzToPixel = new int[lastMz - firstMz + 1];
+    for (int mz = firstMz; mz <= lastMz; mz++) {
+      mzToPixel[mz - firstMz] = toPixel(mzMin + (mz + 0.5) * level.mzBinWidth, mzRange, mzPixel,
+          height);
+    }
+
+    final double[][] values = new double[width][height];
+    for (int rt = firstRt; rt <= lastRt; rt++) {
+      final int x = toPixel(rtMin + (rt + 0.5) * level.rtBinWidth, rtRange, rtPixel, width);
+      if (x < 0) {
+        continue;
+      }
+      final double[] column = values[x];
+      final int offset = rt * level.mzBins;
+      for (int mz = firstMz; mz <= lastMz; mz++) {
+        final int y = mzToPixel[mz - firstMz];
+        if (y < 0) {
+          continue;
+        }
+        final float value = tiles.get(offset + mz);
+        if (summed) {
+          column[y] += value;
+        } else if (value > column[y]) {
+          column[y] = value;
+        }
+      }
+    }
+    return values;
+  }
+
+  /**
+   * @return the coarsest level with tiles that are not larger than the pixels or null if the
+   * pixels are finer than the base level
+   */
+  @Nullable
+  private Level selectLevel(Range<Double> rtRange, Range<Double> mzRange, int width, int height) {
+    if (width <= 0 || height <= 0) {
+      return null;
+    }
+    final double rtPixel = (rtRange.upperEndpoint() - rtRange.lowerEndpoint()) / width;
+    final double mzPixel = (mzRange.upperEndpoint() - mzRange.lowerEndpoint()) / height;
+    Level selected = null;
+    for (Level level : levels) {
+      if (level.rtBinWidth > rtPixel && level.rtBins > 1
+          || level.mzBinWidth > mzPixel && level.mzBins > 1) {
+        break;
+      }
+      selected = level;
+    }
+    return selected;
+  }
+
+  /**
+   * @return the pixel that contains the value or -1 if the value is outside the range
+   */
+  private static int toPixel(double value, Range<Double> range, double pixelSize, int pixels) {
+    if (value < range.lowerEndpoint() || value > range.upperEndpoint()) {
+      return -1;
+    }
+    return Math.min(pixels - 1, (int) ((value - range.lowerEndpoint()) / pixelSize));
+  }
+
+  public int getNumberOfScans() {
+    return retentionTimes.length;
+  }
+
+  public int getNumberOfLevels() {
+    return levels.length;
+  }
+
+  /**
+   * One resolution of the pyramid
+   *
+   * @param max              maximum intensity per tile, index = rtBin * mzBins + mzBin
+   * @param sum              summed intensity per tile, same index as max
+   * @param columnsWithScans RT bins that contain at least one scan
+   */
+  private record Level(int rtBins, int mzBins, double rtBinWidth, double mzBinWidth,
+                       @NotNull FloatBuffer max, @NotNull FloatBuffer sum,
+                       @NotNull BitSet columnsWithScans) {
+
+  }
+}
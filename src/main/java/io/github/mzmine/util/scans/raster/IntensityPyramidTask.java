@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans.raster;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.ExceptionUtils;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Builds the {@link IntensityPyramid} of one MS level of a raw data file in its memory map
+ * storage. Started by {@link IntensityPyramids}.
+ */
+class IntensityPyramidTask extends AbstractTask {
+
+  private static final Logger logger = Logger.getLogger(IntensityPyramidTask.class.getName());
+
+  private final RawDataFile dataFile;
+  private final int msLevel;
+  private final CompletableFuture<IntensityPyramid> result;
+  private double progress = 0d;
+
+  IntensityPyramidTask(@NotNull RawDataFile dataFile, int msLevel,
+      @NotNull CompletableFuture<IntensityPyramid> result) {
+    super(dataFile.getMemoryMapStorage(), Instant.now()); // date is irrelevant
+    this.dataFile = dataFile;
+    this.msLevel = msLevel;
+    this.result = result;
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Building intensity overview of MS" + msLevel + " scans of " + dataFile.getName();
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return progress;
+  }
+
+  @Override
+  public void run() {
+    setStatus(TaskStatus.PROCESSING);
+    try {
+      final Scan[] scans = dataFile.getScanNumbers(msLevel).toArray(Scan[]::new);
+      final IntensityPyramid pyramid = IntensityPyramid.build(scans,
+          dataFile.getDataMZRange(msLevel), storage, this::isCanceled, p -> progress = p);
+      result.complete(pyramid);
+      if (pyramid == null) {
+        return;
+      }
+      logger.finest(
+          () -> "Built intensity pyramid with " + pyramid.getNumberOfLevels() + " levels for "
+              + scans.length + " MS" + msLevel + " scans of " + dataFile.getName());
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Cannot build intensity pyramid of " + dataFile.getName(), e);
+      result.complete(null);
+      setErrorMessage(ExceptionUtils.exceptionToString(e));
+      setStatus(TaskStatus.ERROR);
+      return;
+    }
+    setStatus(TaskStatus.FINISHED);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans.raster;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.taskcontrol.TaskPriority;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Keeps one {@link IntensityPyramid} per raw data file and MS level. Pyramids are built once by an
+ * {@link IntensityPyramidTask} in the background and are released with the raw data file.
+ */
+public class IntensityPyramids {
+
+  private static final Map<RawDataFile, Map<Integer, CompletableFuture<IntensityPyramid>>> pyramids = new WeakHashMap<>();
+
+  private IntensityPyramids() {
+  }
+
+  /**
+   * Starts building the pyramid if it was not requested before.
+   *
+   * @return completes with the pyramid or with null if the build was canceled or failed
+   */
+  @NotNull
+  public static synchronized CompletableFuture<IntensityPyramid> request(
+      @NotNull RawDataFile file, int msLevel) {
+    final Map<Integer, CompletableFuture<IntensityPyramid>> fileLevels = pyramids.computeIfAbsent(
+        file, f -> new HashMap<>());
+    CompletableFuture<IntensityPyramid> future = fileLevels.get(msLevel);
+    if (future == null) {
+      final CompletableFuture<IntensityPyramid> newFuture = new CompletableFuture<>();
+      // remove failed builds so that the next request starts a new one
+      newFuture.thenAccept(pyramid -> {
+        if (pyramid == null) {
+          remove(file, msLevel, newFuture);
+        }
+      });
+      fileLevels.put(msLevel, newFuture);
+      MZmineCore.getTaskController()
+          .addTask(new IntensityPyramidTask(file, msLevel, newFuture), TaskPriority.NORMAL);
+      future = newFuture;
+    }
+    return future;
+  }
+
+  /**
+   * Starts building the pyramid if the scans are all scans of one MS level within their retention
+   * time range.
+   *
+   * @param scans scans sorted by retention time
+   * @return completes with the pyramid or null if the scans cannot be represented by a pyramid
+   */
+  @NotNull
+  public static CompletableFuture<IntensityPyramid> request(@NotNull RawDataFile file,
+      @NotNull Scan[] scans) {
+    if (scans.length == 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final int msLevel = scans[0].getMSLevel();
+    return request(file, msLevel).thenApply(
+        pyramid -> pyramid != null && pyramid.covers(scans) ? pyramid : null);
+  }
+
+  /**
+   * @return the pyramid if it was already built, otherwise null without starting a build
+   */
+  @Nullable
+  public static synchronized IntensityPyramid getIfBuilt(@NotNull RawDataFile file, int msLevel) {
+    final Map<Integer, CompletableFuture<IntensityPyramid>> fileLevels = pyramids.get(file);
+    final CompletableFuture<IntensityPyramid> future =
+        fileLevels != null ? fileLevels.get(msLevel) : null;
+    return future != null && future.isDone() ? future.getNow(null) : null;
+  }
+
+  private static synchronized void remove(RawDataFile file, int msLevel,
+      CompletableFuture<IntensityPyramid> future) {
+    final Map<Integer, CompletableFuture<IntensityPyramid>> fileLevels = pyramids.get(file);
+    if (fileLevels != null) {
+      fileLevels.remove(msLevel, future);
+    }
+  }
+}
@@ -28,7 +28,7 @@ package io.github.mzmine.util.scans.similarity.impl.cosine;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
-import io.github.mzmine.util.maths.similarity.Similarity;
+import io.github.mzmine.util.maths.kernels.Kernels;
 import io.github.mzmine.util.scans.ScanAlignment;
 import io.github.mzmine.util.scans.similarity.HandleUnmatchedSignalOptions;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
@@ -69,9 +69,9 @@ public class WeightedCosineSpectralSimilarity extends SpectralSimilarityFunction
 
     if (overlap >= minMatch) {
       // weighted cosine
-      double[][] diffArray =
-          ScanAlignment.toIntensityMatrixWeighted(aligned, weights.getIntensity(), weights.getMz());
-      double diffCosine = Similarity.COSINE.calc(diffArray);
+      double[][] diffColumns =
+          ScanAlignment.toIntensityColumnsWeighted(aligned, weights.getIntensity(), weights.getMz());
+      double diffCosine = Kernels.get().cosine(diffColumns[0], diffColumns[1], aligned.size());
       if (diffCosine >= minCos)
         return new SpectralSimilarity(getName(), diffCosine, overlap, library, query, aligned);
       else
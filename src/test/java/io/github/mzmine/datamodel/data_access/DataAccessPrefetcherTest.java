@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.data_access;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class DataAccessPrefetcherTest {
+
+  private static final int NUM_ITEMS = 100;
+  private static final int LOOK_AHEAD = 4;
+  private static final long TIMEOUT_MILLIS = 10_000;
+
+  // number of touches per item
+  private final Map<Integer, AtomicInteger> touches = new ConcurrentHashMap<>();
+  private final DataAccessPrefetcher<Integer> prefetcher = new DataAccessPrefetcher<>(NUM_ITEMS,
+      LOOK_AHEAD, i -> i, i -> {
+    touches.computeIfAbsent(i, k -> new AtomicInteger()).incrementAndGet();
+    return i;
+  });
+
+  @Test
+  void sequentialPassTouchesEachItemOnce() throws InterruptedException {
+    for (int i = 0; i < NUM_ITEMS; i++) {
+      if (i > 0) {
+        awaitTouches(i, 1);
+      }
+      prefetcher.next(i);
+    }
+
+    // the consumer loads the first item itself
+    assertEquals(0, touches(0));
+    for (int i = 1; i < NUM_ITEMS; i++) {
+      assertEquals(1, touches(i), "touches of item " + i);
+    }
+    final DataAccessPrefetcher.PrefetchStatistics statistics = prefetcher.getStatistics();
+    assertEquals(NUM_ITEMS - 1, statistics.prefetched());
+    // the future of a touched item may complete just after the consumer checked it
+    assertEquals(NUM_ITEMS - 1, statistics.ready() + statistics.notReady());
+    assertTrue(statistics.ready() > 0);
+  }
+
+  @Test
+  void skippedItemsAreNotCounted() throws InterruptedException {
+    prefetcher.next(0);
+    prefetcher.next(10);
+    for (int i = 11; i <= 10 + LOOK_AHEAD; i++) {
+      awaitTouches(i, 1);
+    }
+
+    // items between the look ahead windows are never touched
+    for (int i = LOOK_AHEAD + 1; i <= 10; i++) {
+      assertEquals(0, touches(i), "touches of item " + i);
+    }
+    final DataAccessPrefetcher.PrefetchStatistics statistics = prefetcher.getStatistics();
+    assertEquals(2 * LOOK_AHEAD, statistics.prefetched());
+    assertEquals(0, statistics.ready() + statistics.notReady());
+  }
+
+  /**
+   * Aligned feature lists restart at row 0 for each raw data file
+   */
+  @Test
+  void backwardJumpSchedulesItemsAgain() throws InterruptedException {
+    for (int i = 0; i <= 5; i++) {
+      if (i > 0) {
+        awaitTouches(i, 1);
+      }
+      prefetcher.next(i);
+    }
+    prefetcher.next(0);
+    for (int i = 1; i <= LOOK_AHEAD; i++) {
+      awaitTouches(i, 2);
+    }
+
+    final DataAccessPrefetcher.PrefetchStatistics statistics = prefetcher.getStatistics();
+    assertEquals(5 + LOOK_AHEAD + LOOK_AHEAD, statistics.prefetched());
+    assertEquals(5, statistics.ready() + statistics.notReady());
+
+    // continues after the jump
+    prefetcher.next(1);
+    final DataAccessPrefetcher.PrefetchStatistics continued = prefetcher.getStatistics();
+    assertEquals(6, continued.ready() + continued.notReady());
+  }
+
+  @Test
+  void repeatedIndexSchedulesNothing() throws InterruptedException {
+    prefetcher.next(0);
+    awaitTouches(1, 1);
+    prefetcher.next(0);
+    prefetcher.next(0);
+
+    DataAccessPrefetcher.PrefetchStatistics statistics = prefetcher.getStatistics();
+    assertEquals(LOOK_AHEAD, statistics.prefetched());
+    assertEquals(0, statistics.ready() + statistics.notReady());
+
+    prefetcher.next(1);
+    statistics = prefetcher.getStatistics();
+    assertEquals(LOOK_AHEAD + 1, statistics.prefetched());
+    assertEquals(1, statistics.ready() + statistics.notReady());
+    assertEquals(1, touches(1));
+  }
+
+  /**
+   * A reset of the data access cancels the prefetcher and starts over
+   */
+  @Test
+  void cancelAndRestart() throws InterruptedException {
+    prefetcher.next(0);
+    awaitTouches(LOOK_AHEAD, 1);
+    prefetcher.cancel();
+    prefetcher.next(0);
+    for (int i = 1; i <= LOOK_AHEAD; i++) {
+      awaitTouches(i, 2);
+    }
+
+    final DataAccessPrefetcher.PrefetchStatistics statistics = prefetcher.getStatistics();
+    assertEquals(2 * LOOK_AHEAD, statistics.prefetched());
+    assertEquals(0, statistics.ready() + statistics.notReady());
+    assertEquals(0, touches(LOOK_AHEAD + 1));
+  }
+
+  @Test
+  void lookAheadStopsAtTheEnd() throws InterruptedException {
+    prefetcher.next(NUM_ITEMS - 2);
+    awaitTouches(NUM_ITEMS - 1, 1);
+    prefetcher.next(NUM_ITEMS - 1);
+
+    final DataAccessPrefetcher.PrefetchStatistics statistics = prefetcher.getStatistics();
+    assertEquals(1, statistics.prefetched());
+    assertEquals(1, statistics.ready() + statistics.notReady());
+    assertTrue(touches.keySet().stream().allMatch(i -> i == NUM_ITEMS - 1));
+  }
+
+  private int touches(int item) {
+    final AtomicInteger count = touches.get(item);
+    return count == null ? 0 : count.get();
+  }
+
+  /**
+   * Waits until the item was touched at least the number of times
+   */
+  private void awaitTouches(int item, int minTouches) throws InterruptedException {
+    final long end = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (touches(item) < minTouches) {
+      if (System.currentTimeMillis() > end) {
+        fail("item " + item + " was not touched " + minTouches + " times");
+      }
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import java.nio.DoubleBuffer;
+import java.util.Random;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Footprint and access speed of {@link CompactDataPoints} compared to the double buffers. Uses heap
+ * buffers (no memory mapping). Scans and data points per scan can be set by system properties,
+ * e.g., -Dbenchmark.scans=20000 -Dbenchmark.points=2000
+ */
+@Disabled("Benchmark - run manually")
+class CompactDataPointsBenchmark {
+
+  private static final Logger logger = Logger.getLogger(CompactDataPointsBenchmark.class.getName());
+
+  private static final int SCANS = Integer.getInteger("benchmark.scans", 5_000);
+  private static final int POINTS = Integer.getInteger("benchmark.points", 1_000);
+  private static final int ROUNDS = 5;
+
+  @Test
+  void footprintAndAccess() {
+    final Random random = new Random(1);
+    final DoubleBuffer[][] doubles = new DoubleBuffer[SCANS][];
+    final CompactDataPoints[] compact = new CompactDataPoints[SCANS];
+    for (int s = 0; s < SCANS; s++) {
+      final double[] mzs = new double[POINTS];
+      final double[] intensities = new double[POINTS];
+      double mz = 100d;
+      for (int i = 0; i < POINTS; i++) {
+        mz += random.nextDouble();
+        mzs[i] = mz;
+        intensities[i] = random.nextDouble() * 1E6;
+      }
+      doubles[s] = new DoubleBuffer[]{StorageUtils.storeValuesToDoubleBuffer(null, mzs),
+          StorageUtils.storeValuesToDoubleBuffer(null, intensities)};
+      compact[s] = CompactDataPoints.store(null, mzs, intensities);
+      Assertions.assertNotNull(compact[s]);
+    }
+
+    final long doubleBytes = (long) SCANS * POINTS * 2 * Double.BYTES;
+    long compactBytes = 0;
+    for (CompactDataPoints c : compact) {
+      compactBytes += c.getStorageBytes();
+    }
+    logger.info("Footprint: doubles %.1f MB, compact %.1f MB".formatted(doubleBytes / 1E6,
+        compactBytes / 1E6));
+
+    final double[] mzs = new double[POINTS];
+    final double[] intensities = new double[POINTS];
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      double sumDouble = 0;
+      for (DoubleBuffer[] scan : doubles) {
+        scan[0].get(0, mzs, 0, POINTS);
+        scan[1].get(0, intensities, 0, POINTS);
+        sumDouble += sum(mzs, intensities);
+      }
+      final long doubleBulk = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      double sumCompact = 0;
+      for (CompactDataPoints scan : compact) {
+        scan.getMzValues(mzs);
+        scan.getIntensityValues(intensities);
+        sumCompact += sum(mzs, intensities);
+      }
+      final long compactBulk = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      double sumRandom = 0;
+      for (int s = 0; s < SCANS; s++) {
+        for (int i = 0; i < POINTS; i += 7) {
+          sumRandom += doubles[s][0].get(i) * doubles[s][1].get(i);
+        }
+      }
+      final long doubleRandom = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int s = 0; s < SCANS; s++) {
+        for (int i = 0; i < POINTS; i += 7) {
+          sumRandom -= compact[s].getMz(i) * compact[s].getIntensity(i);
+        }
+      }
+      final long compactRandom = System.nanoTime() - start;
+
+      Assertions.assertEquals(sumDouble, sumCompact, Math.abs(sumDouble) * 1E-5);
+      logger.info(
+          "Round %d: bulk access doubles %d ms, compact %d ms; random access doubles %d ms, compact %d ms (%.3f)".formatted(
+              round, doubleBulk / 1_000_000, compactBulk / 1_000_000, doubleRandom / 1_000_000,
+              compactRandom / 1_000_000, sumRandom));
+    }
+  }
+
+  private static double sum(double[] mzs, double[] intensities) {
+    double sum = 0;
+    for (int i = 0; i < POINTS; i++) {
+      sum += mzs[i] * intensities[i];
+    }
+    return sum;
+  }
+}
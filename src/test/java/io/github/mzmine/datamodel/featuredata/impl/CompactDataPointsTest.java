@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CompactDataPointsTest {
+
+  private static double[] sortedMzs(int n, Random random) {
+    final double[] mzs = new double[n];
+    double mz = 50d;
+    for (int i = 0; i < n; i++) {
+      mz += random.nextDouble() * 0.5d;
+      mzs[i] = mz;
+    }
+    return mzs;
+  }
+
+  private static double[] intensities(int n, Random random) {
+    final double[] intensities = new double[n];
+    for (int i = 0; i < n; i++) {
+      intensities[i] = random.nextDouble() * 1E8;
+    }
+    return intensities;
+  }
+
+  @Test
+  void roundTrip() {
+    final Random random = new Random(42);
+    // more than one decoding block
+    final int n = 2500;
+    final double[] mzs = sortedMzs(n, random);
+    final double[] intensities = intensities(n, random);
+
+    final CompactDataPoints data = CompactDataPoints.store(null, mzs, intensities);
+    assertNotNull(data);
+    assertEquals(n, data.getNumberOfValues());
+    assertEquals(n * 8L, data.getStorageBytes());
+
+    final double[] decodedMzs = data.getMzValues(new double[n]);
+    final double[] decodedIntensities = data.getIntensityValues(new double[n]);
+    for (int i = 0; i < n; i++) {
+      assertEquals(mzs[i], decodedMzs[i], CompactDataPoints.MZ_RESOLUTION / 2 + 1E-12);
+      assertEquals(intensities[i], decodedIntensities[i], intensities[i] * 1E-7);
+      assertEquals(decodedMzs[i], data.getMz(i));
+      assertEquals(decodedIntensities[i], data.getIntensity(i));
+      if (i > 0) {
+        // order is retained
+        assertTrue(decodedMzs[i] >= decodedMzs[i - 1]);
+      }
+    }
+    assertArrayEquals(decodedMzs, data.getMzValueBuffer().array());
+  }
+
+  @Test
+  void reusesDestination() {
+    final double[] mzs = {100d, 200d, 300d};
+    final double[] intensities = {1d, 2d, 3d};
+    final CompactDataPoints data = CompactDataPoints.store(null, mzs, intensities);
+    assertNotNull(data);
+
+    final double[] dst = new double[10];
+    assertSame(dst, data.getMzValues(dst));
+    assertSame(dst, data.getIntensityValues(dst));
+    assertEquals(3, data.getMzValues(new double[0]).length);
+  }
+
+  @Test
+  void notEncodable() {
+    // range too wide for the fixed-point m/z
+    assertNull(CompactDataPoints.store(null, new double[]{100d, 5000d}, new double[]{1d, 1d}));
+    assertNull(CompactDataPoints.store(null, new double[]{100d, Double.NaN}, new double[]{1d, 1d}));
+    assertNull(CompactDataPoints.store(null, new double[]{100d, 101d}, new double[]{1d, 1E300}));
+  }
+
+  @Test
+  void empty() {
+    final CompactDataPoints data = CompactDataPoints.store(null, new double[0], new double[0]);
+    assertNotNull(data);
+    assertEquals(0, data.getNumberOfValues());
+  }
+
+  @Test
+  void disabledByDefault() {
+    assertNull(CompactDataPoints.storeIfEnabled(null, new double[]{1d}, new double[]{1d}));
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SimpleIonTimeSeriesTest {
+
+  @AfterEach
+  void disableCompactEncoding() {
+    CompactDataPoints.setUseCompactEncoding(false);
+  }
+
+  @Test
+  void compactAndDoubleSeriesHashEqual() {
+    final RawDataFile file = new RawDataFileImpl("test", null, null, Color.BLACK);
+    final List<Scan> scans = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      scans.add(new SimpleScan(file, i, 1, i * 0.1f, null, new double[]{100d},
+          new double[]{1E5}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(50d, 500d)));
+    }
+    final double[] mzs = new double[scans.size()];
+    final double[] intensities = new double[scans.size()];
+    for (int i = 0; i < mzs.length; i++) {
+      mzs[i] = 200.123456d + i * 1E-4;
+      intensities[i] = 1E4 * (i + 1) + 0.3d;
+    }
+
+    CompactDataPoints.setUseCompactEncoding(true);
+    final SimpleIonTimeSeries compact = new SimpleIonTimeSeries(null, mzs, intensities, scans);
+    CompactDataPoints.setUseCompactEncoding(false);
+    // same decoded values stored as doubles
+    final SimpleIonTimeSeries doubles = new SimpleIonTimeSeries(null,
+        compact.getMzValues(new double[0]), compact.getIntensityValues(new double[0]), scans);
+
+    assertEquals(compact, doubles);
+    assertEquals(doubles, compact);
+    assertEquals(compact.hashCode(), doubles.hashCode());
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ColumnarModularDataModelTest {
+
+  private final HeightType heightType = new HeightType();
+  private RawDataFile raw;
+  private ModularFeatureList flist;
+
+  @BeforeEach
+  void setUp() {
+    raw = new RawDataFileImpl("columnar", null, null, Color.BLACK);
+    flist = new ModularFeatureList("columnar", null, List.of(raw));
+  }
+
+  @Test
+  void rowsUseColumnsOnlyWhileInFeatureList() {
+    final ModularFeatureListRow row = createRow(1);
+    // never added rows do not allocate indices in the columns
+    assertTrue(row.isDetached());
+    assertEquals(0, flist.getRowValueStore().getNumberOfIndices());
+    assertEquals(0, flist.getFeatureValueStore().getNumberOfIndices());
+    assertEquals(100d, row.getFeature(raw).getMZ());
+
+    flist.addRow(row);
+    assertFalse(row.isDetached());
+    assertFalse(row.getFeature(raw).isDetached());
+    assertEquals(1, flist.getRowValueStore().getNumberOfIndices());
+    assertEquals(1, flist.getFeatureValueStore().getNumberOfIndices());
+    assertEquals(100d, row.getFeature(raw).getMZ());
+    assertEquals(1E5f, row.get(heightType));
+
+    flist.removeRow(row);
+    assertTrue(row.isDetached());
+    assertTrue(row.getFeature(raw).isDetached());
+    assertEquals(0, flist.getRowValueStore().getNumberOfIndices());
+    assertEquals(0, flist.getFeatureValueStore().getNumberOfIndices());
+    assertEquals(100d, row.getFeature(raw).getMZ());
+    assertEquals(1E5f, row.get(heightType));
+  }
+
+  @Test
+  void featuresFollowTheirRow() {
+    final ModularFeatureListRow row = new ModularFeatureListRow(flist, 1);
+    flist.addRow(row);
+    final ModularFeature feature = createFeature(200d);
+    assertTrue(feature.isDetached());
+
+    row.addFeature(raw, feature, false);
+    assertFalse(feature.isDetached());
+    assertEquals(1, flist.getFeatureValueStore().getNumberOfIndices());
+
+    // the replaced feature releases its index
+    final ModularFeature replacement = createFeature(300d);
+    row.addFeature(raw, replacement, false);
+    assertTrue(feature.isDetached());
+    assertEquals(1, flist.getFeatureValueStore().getNumberOfIndices());
+    assertEquals(200d, feature.getMZ());
+    assertEquals(300d, row.getFeature(raw).getMZ());
+
+    row.removeFeature(raw);
+    assertTrue(replacement.isDetached());
+    assertEquals(0, flist.getFeatureValueStore().getNumberOfIndices());
+  }
+
+  /**
+   * Reads and writes of one thread must always see its own last value while another thread moves
+   * the model between stores. Released indices are reused by other models with a different value,
+   * so a read from a stale index would fail.
+   */
+  @Test
+  void getAndSetDuringMoveToStore() throws Exception {
+    final ModularFeatureListRow row = new ModularFeatureListRow(flist, 1);
+    final DataTypeValueStore[] stores = {new DataTypeValueStore(), new DataTypeValueStore()};
+    row.set(heightType, 0f);
+    row.moveToStore(stores[0]);
+
+    final AtomicBoolean done = new AtomicBoolean(false);
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<?> mover = executor.submit(() -> {
+        int moves = 0;
+        while (!done.get()) {
+          final DataTypeValueStore old = row.getStore();
+          row.moveToStore(stores[++moves % 2]);
+          // another model takes the released index
+          old.set(heightType, old.allocateIndex(), -1f);
+        }
+      });
+      final Future<?> writer = executor.submit(() -> {
+        try {
+          for (int i = 1; i <= 200_000; i++) {
+            row.set(heightType, (float) i);
+            assertEquals((float) i, row.get(heightType));
+            assertEquals((float) i, row.stream().filter(e -> e.getKey().equals(heightType))
+                .findFirst().orElseThrow().getValue());
+          }
+        } finally {
+          done.set(true);
+        }
+      });
+      writer.get(60, TimeUnit.SECONDS);
+      mover.get(60, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(200_000f, row.get(heightType));
+  }
+
+  private ModularFeatureListRow createRow(int id) {
+    final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+    row.set(heightType, 1E5f);
+    row.addFeature(raw, createFeature(100d), false);
+    return row;
+  }
+
+  private ModularFeature createFeature(double mz) {
+    final ModularFeature feature = new ModularFeature(flist, raw, FeatureStatus.DETECTED);
+    feature.set(MZType.class, mz);
+    return feature;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.features.types.FeatureShapeType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import org.junit.jupiter.api.Test;
+
+class DataTypeValueStoreTest {
+
+  private final MZType mzType = new MZType();
+  private final RTType rtType = new RTType();
+  private final HeightType heightType = new HeightType();
+
+  @Test
+  void primitiveColumns() {
+    final DataTypeValueStore store = new DataTypeValueStore();
+    final int a = store.allocateIndex();
+    final int b = store.allocateIndex();
+
+    assertNull(store.set(mzType, a, 200.5d));
+    assertNull(store.set(rtType, b, 1.5f));
+    assertEquals(200.5d, store.get(mzType, a));
+    assertEquals(1.5f, store.get(rtType, b));
+    assertNull(store.get(mzType, b));
+    assertNull(store.get(heightType, a));
+
+    // NaN is a value and not null
+    assertEquals(1.5f, store.set(rtType, b, Float.NaN));
+    assertEquals(Float.NaN, store.get(rtType, b));
+    assertEquals(Float.NaN, store.remove(rtType, b));
+    assertNull(store.get(rtType, b));
+    assertTrue(store.isEmpty(b));
+    assertFalse(store.isEmpty(a));
+  }
+
+  @Test
+  void slotsAndPages() {
+    final DataTypeValueStore store = new DataTypeValueStore();
+    final int n = DataTypeColumn.PAGE_SIZE * 3 + 7;
+    for (int i = 0; i < n; i++) {
+      final int index = store.allocateIndex();
+      store.set(heightType, index, (float) i);
+      if (i % 2 == 0) {
+        store.set(mzType, index, i * 0.5d);
+      }
+    }
+    assertEquals(0, store.getSlot(heightType));
+    assertEquals(1, store.getSlot(mzType));
+    assertEquals(-1, store.getSlot(rtType));
+    assertEquals(n, store.getNumberOfIndices());
+
+    for (int i = 0; i < n; i++) {
+      assertEquals((float) i, store.get(heightType, i));
+      assertEquals(i % 2 == 0 ? i * 0.5d : null, store.get(mzType, i));
+    }
+
+    store.removeColumn(heightType);
+    assertNull(store.get(heightType, 5));
+    assertEquals(1, store.getSlot(mzType));
+    assertEquals(1, store.getNumberOfColumns());
+  }
+
+  @Test
+  void releaseAndReuse() {
+    final DataTypeValueStore store = new DataTypeValueStore();
+    final int a = store.allocateIndex();
+    final Object value = new Object();
+    store.set(new FeatureShapeType(), a, value);
+    store.set(mzType, a, 100d);
+    assertEquals(2, store.getEntries(a).size());
+
+    store.releaseIndex(a);
+    assertEquals(0, store.getNumberOfIndices());
+    final int b = store.allocateIndex();
+    assertEquals(a, b);
+    assertTrue(store.isEmpty(b));
+  }
+
+  @Test
+  void detachedStore() {
+    final DataTypeValueStore store = new DataTypeValueStore();
+    final int a = store.allocateIndex();
+    final Object value = new Object();
+    store.set(new FeatureShapeType(), a, value);
+    store.set(mzType, a, 100d);
+
+    // same as moving a removed model out of the feature list columns
+    final DataTypeValueStore detached = new DetachedDataTypeValueStore();
+    final int d = detached.allocateIndex();
+    store.forEach(a, (type, v) -> detached.set(type, d, v));
+    store.releaseIndex(a);
+
+    assertTrue(store.isEmpty(a));
+    assertEquals(0, store.getNumberOfIndices());
+    assertEquals(100d, detached.get(mzType, d));
+    assertEquals(value, detached.get(new FeatureShapeType(), d));
+    assertEquals(1, detached.getSlot(mzType));
+    assertEquals(2, detached.getEntries(d).size());
+
+    assertEquals(100d, detached.set(mzType, d, null));
+    assertNull(detached.get(mzType, d));
+    assertFalse(detached.isEmpty(d));
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features.columnar;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.numbers.AreaType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Memory benchmark of a synthetic aligned feature list. Compares the {@link DataTypeValueStore} to
+ * one HashMap with boxed values per feature (the previous storage). Rows and samples can be set by
+ * system properties, e.g., -Dbenchmark.rows=100000 -Dbenchmark.samples=300 with enough heap.
+ */
+@Disabled("Benchmark - run manually")
+class ModularFeatureListMemoryBenchmark {
+
+  private static final Logger logger = Logger.getLogger(
+      ModularFeatureListMemoryBenchmark.class.getName());
+
+  private static final int ROWS = Integer.getInteger("benchmark.rows", 10_000);
+  private static final int SAMPLES = Integer.getInteger("benchmark.samples", 100);
+
+  private final DataType<?>[] numberTypes = {new MZType(), new RTType(), new HeightType(),
+      new AreaType()};
+
+  @Test
+  void columnarFeatureList() {
+    final List<RawDataFile> raws = new ArrayList<>();
+    for (int i = 0; i < SAMPLES; i++) {
+      raws.add(new RawDataFileImpl("sample_" + i, null, null, Color.BLACK));
+    }
+
+    final long before = usedMemory();
+    final ModularFeatureList flist = new ModularFeatureList("benchmark", null, raws);
+    for (int r = 0; r < ROWS; r++) {
+      final ModularFeatureListRow row = new ModularFeatureListRow(flist, r + 1);
+      for (RawDataFile raw : raws) {
+        final ModularFeature feature = new ModularFeature(flist, raw, FeatureStatus.DETECTED);
+        feature.set(MZType.class, 100d + r * 0.01d);
+        feature.set(RTType.class, r * 0.001f);
+        feature.set(HeightType.class, 1E5f + r);
+        feature.set(AreaType.class, 1E6f + r);
+        row.addFeature(raw, feature, false);
+      }
+      flist.addRow(row);
+    }
+    final long after = usedMemory();
+
+    final long features = (long) ROWS * SAMPLES;
+    logger.info("Columnar storage: %d rows x %d samples, %.1f MB heap, %.1f bytes per feature"
+        .formatted(ROWS, SAMPLES, (after - before) / 1E6, (after - before) / (double) features));
+    logger.info("Feature value store columns: %.1f MB".formatted(
+        flist.getFeatureValueStore().estimateMemoryBytes() / 1E6));
+
+    Assertions.assertEquals(ROWS, flist.getNumberOfRows());
+    Assertions.assertEquals(1E5f + 10, (float) flist.getRow(10).getFeature(raws.get(5)).getHeight());
+  }
+
+  /**
+   * Baseline: one HashMap per feature with boxed values, like the map-based model
+   */
+  @Test
+  void mapBaseline() {
+    final long before = usedMemory();
+    final List<Map<DataType<?>, Object>> features = new ArrayList<>(ROWS * SAMPLES);
+    for (int r = 0; r < ROWS; r++) {
+      for (int s = 0; s < SAMPLES; s++) {
+        final Map<DataType<?>, Object> map = new HashMap<>();
+        map.put(numberTypes[0], 100d + r * 0.01d);
+        map.put(numberTypes[1], r * 0.001f);
+        map.put(numberTypes[2], 1E5f + r);
+        map.put(numberTypes[3], 1E6f + r);
+        features.add(map);
+      }
+    }
+    final long after = usedMemory();
+    logger.info("HashMap baseline: %d rows x %d samples, %.1f MB heap, %.1f bytes per feature"
+        .formatted(ROWS, SAMPLES, (after - before) / 1E6,
+            (after - before) / (double) features.size()));
+    Assertions.assertEquals(ROWS * SAMPLES, features.size());
+  }
+
+  private static long usedMemory() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
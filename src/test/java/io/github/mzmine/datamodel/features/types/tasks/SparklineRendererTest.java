@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.types.tasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.FeatureShapeMobilogramType;
+import io.github.mzmine.datamodel.features.types.FeatureShapeType;
+import io.github.mzmine.datamodel.features.types.tasks.SparklineRenderer.SparklineKey;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SparklineRendererTest {
+
+  private final FeatureShapeType shapeType = new FeatureShapeType();
+  private ModularFeatureListRow row;
+  private ModularFeature feature;
+  private List<ModularFeature> features;
+
+  @BeforeEach
+  void setUp() {
+    row = mock(ModularFeatureListRow.class);
+    when(row.getID()).thenReturn(7);
+    feature = mock(ModularFeature.class);
+    setFeatureData(feature);
+    features = new ArrayList<>(List.of(feature));
+    when(row.getFeatures()).thenReturn(features);
+  }
+
+  @Test
+  void keyIsStableForUnchangedData() {
+    final SparklineKey key = SparklineRenderer.createKey(row, shapeType, true, null, 300, 100);
+    assertEquals(key, SparklineRenderer.createKey(row, shapeType, true, null, 300, 100));
+  }
+
+  @Test
+  void keyChangesWhenFeatureDataIsReplaced() {
+    final SparklineKey key = SparklineRenderer.createKey(row, shapeType, true, null, 300, 100);
+    // e.g., smoothing sets a new series
+    setFeatureData(feature);
+    assertNotEquals(key, SparklineRenderer.createKey(row, shapeType, true, null, 300, 100));
+  }
+
+  @Test
+  void keyChangesWhenFeaturesAreAddedOrRemoved() {
+    final SparklineKey key = SparklineRenderer.createKey(row, shapeType, true, null, 300, 100);
+    final ModularFeature other = mock(ModularFeature.class);
+    setFeatureData(other);
+    features.add(other);
+    final SparklineKey added = SparklineRenderer.createKey(row, shapeType, true, null, 300, 100);
+    assertNotEquals(key, added);
+
+    features.remove(other);
+    assertEquals(key, SparklineRenderer.createKey(row, shapeType, true, null, 300, 100));
+  }
+
+  @Test
+  void keyChangesWithSizeTypeAndRawDataFile() {
+    final SparklineKey key = SparklineRenderer.createKey(row, shapeType, true, null, 300, 100);
+    assertNotEquals(key, SparklineRenderer.createKey(row, shapeType, true, null, 450, 100));
+    assertNotEquals(key, SparklineRenderer.createKey(row, shapeType, true, null, 300, 120));
+    assertNotEquals(key, SparklineRenderer.createKey(row, shapeType, false, null, 300, 100));
+    assertNotEquals(key,
+        SparklineRenderer.createKey(row, new FeatureShapeMobilogramType(), true, null, 300, 100));
+
+    final RawDataFile raw = mock(RawDataFile.class);
+    when(raw.getName()).thenReturn("raw");
+    assertNotEquals(key, SparklineRenderer.createKey(row, shapeType, true, raw, 300, 100));
+  }
+
+  private static void setFeatureData(ModularFeature feature) {
+    doReturn(mock(IonTimeSeries.class)).when(feature).getFeatureData();
+  }
+}
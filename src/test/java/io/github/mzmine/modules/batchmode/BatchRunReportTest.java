@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.modules.batchmode.BatchRunReport.StepMeasurement;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.taskcontrol.metrics.TaskMetrics;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchRunReportTest {
+
+  private static final int NUM_VALUES = 1000;
+
+  @TempDir
+  Path tempDir;
+
+  /**
+   * Two tasks of a step write to a shared storage and the step creates a new storage. Each storage
+   * is counted once, data stored before the step is not counted.
+   */
+  @Test
+  void stepCountsStorageBytesOnce() throws IOException {
+    final MemoryMapStorage shared = MemoryMapStorage.create();
+    MemoryMapStorage created = null;
+    try {
+      shared.storeData(new double[NUM_VALUES]);
+
+      final BatchRunReport report = new BatchRunReport();
+      final StepMeasurement measurement = report.startStep(0, 2, "Test module",
+          List.of(featureList(10), featureList(5)));
+
+      shared.storeData(new double[2 * NUM_VALUES]);
+      shared.storeData(new double[3 * NUM_VALUES]);
+      created = MemoryMapStorage.create();
+      created.storeData(new double[4 * NUM_VALUES]);
+
+      final List<TaskMetrics> taskMetrics = List.of(
+          taskMetrics(2L * NUM_VALUES * Double.BYTES),
+          taskMetrics(3L * NUM_VALUES * Double.BYTES));
+      report.finishStep(measurement, TaskStatus.FINISHED, taskMetrics,
+          List.of(featureList(7)));
+
+      final File file = tempDir.resolve("report.json").toFile();
+      report.write(file, TaskStatus.FINISHED, 3, 1);
+
+      final JsonNode json = new ObjectMapper().readTree(file);
+      assertEquals("FINISHED", json.get("batch").get("status").asText());
+      assertEquals(3, json.get("batch").get("totalSteps").asInt());
+      assertEquals(1, json.get("batch").get("processedSteps").asInt());
+
+      final JsonNode steps = json.get("steps");
+      assertEquals(1, steps.size());
+      final JsonNode step = steps.get(0);
+      assertEquals(1, step.get("dataset").asInt());
+      assertEquals(3, step.get("step").asInt());
+      assertEquals("Test module", step.get("module").asText());
+      assertEquals(9L * NUM_VALUES * Double.BYTES, step.get("storageBytes").asLong());
+      assertEquals(2, step.get("featureListsIn").asInt());
+      assertEquals(15, step.get("rowsIn").asLong());
+      assertEquals(1, step.get("featureListsOut").asInt());
+      assertEquals(7, step.get("rowsOut").asLong());
+
+      final JsonNode tasks = step.get("tasks");
+      assertEquals(2, tasks.size());
+      assertEquals(2L * NUM_VALUES * Double.BYTES, tasks.get(0).get("storageBytes").asLong());
+      assertEquals(3L * NUM_VALUES * Double.BYTES, tasks.get(1).get("storageBytes").asLong());
+    } finally {
+      shared.discard();
+      if (created != null) {
+        created.discard();
+      }
+    }
+  }
+
+  /**
+   * A storage that is discarded during the step is ignored
+   */
+  @Test
+  void discardedStorageIsIgnored() throws IOException {
+    final MemoryMapStorage storage = MemoryMapStorage.create();
+    storage.storeData(new double[NUM_VALUES]);
+
+    final BatchRunReport report = new BatchRunReport();
+    final StepMeasurement measurement = report.startStep(0, 0, "Test module", List.of());
+    storage.discard();
+    report.finishStep(measurement, TaskStatus.FINISHED, List.of(), List.of());
+
+    final File file = tempDir.resolve("discarded.json").toFile();
+    report.write(file, TaskStatus.FINISHED, 1, 1);
+    final JsonNode step = new ObjectMapper().readTree(file).get("steps").get(0);
+    assertEquals(0, step.get("storageBytes").asLong());
+    assertEquals(0, step.get("tasks").size());
+  }
+
+  private static FeatureList featureList(int rows) {
+    final FeatureList flist = mock(FeatureList.class);
+    when(flist.getNumberOfRows()).thenReturn(rows);
+    return flist;
+  }
+
+  private static TaskMetrics taskMetrics(long storageBytes) {
+    return new TaskMetrics("task", "description", TaskStatus.FINISHED, "worker", Instant.now(),
+        1_000_000, -1, -1, 0, storageBytes, -1);
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import io.github.mzmine.modules.MZmineModule;
+import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileSelectionType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+class BatchStepCacheTest {
+
+  private static final String PREVIOUS_KEY = "previous";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void modifiedFileChangesKey() throws IOException {
+    final File file = createFile("library.mgf");
+    final FileNameParameter parameter = new FileNameParameter("File", "", FileSelectionType.OPEN);
+    parameter.setValue(file);
+    final MZmineProcessingStep<?> step = createStep(parameter);
+
+    final String key = BatchStepCache.computeStepKey(PREVIOUS_KEY, step);
+    assertEquals(key, BatchStepCache.computeStepKey(PREVIOUS_KEY, step));
+
+    modify(file);
+    assertNotEquals(key, BatchStepCache.computeStepKey(PREVIOUS_KEY, step));
+  }
+
+  @Test
+  void modifiedFileOfOptionalParameterChangesKey() throws IOException {
+    final File file = createFile("database.csv");
+    final OptionalParameter<FileNameParameter> parameter = new OptionalParameter<>(
+        new FileNameParameter("File", "", FileSelectionType.OPEN), true);
+    parameter.getEmbeddedParameter().setValue(file);
+    final MZmineProcessingStep<?> step = createStep(parameter);
+
+    final String key = BatchStepCache.computeStepKey(PREVIOUS_KEY, step);
+    modify(file);
+    assertNotEquals(key, BatchStepCache.computeStepKey(PREVIOUS_KEY, step));
+  }
+
+  @Test
+  void unselectedOptionalFileIsIgnored() throws IOException {
+    final File file = createFile("unused.csv");
+    final OptionalParameter<FileNameParameter> parameter = new OptionalParameter<>(
+        new FileNameParameter("File", "", FileSelectionType.OPEN), false);
+    parameter.getEmbeddedParameter().setValue(file);
+    final MZmineProcessingStep<?> step = createStep(parameter);
+
+    final String key = BatchStepCache.computeStepKey(PREVIOUS_KEY, step);
+    modify(file);
+    assertEquals(key, BatchStepCache.computeStepKey(PREVIOUS_KEY, step));
+  }
+
+  private File createFile(String name) throws IOException {
+    final Path path = tempDir.resolve(name);
+    Files.writeString(path, "first version");
+    path.toFile().setLastModified(1_000_000_000L);
+    return path.toFile();
+  }
+
+  /**
+   * Changes size and modification date of the file
+   */
+  private static void modify(File file) throws IOException {
+    Files.writeString(file.toPath(), " and more", StandardOpenOption.APPEND);
+    file.setLastModified(2_000_000_000L);
+  }
+
+  private static MZmineProcessingStep<?> createStep(Parameter<?> parameter) {
+    final MZmineModule module = Mockito.mock(MZmineModule.class);
+    return new MZmineProcessingStepImpl<>(module, new SimpleParameterSet(parameter));
+  }
+}
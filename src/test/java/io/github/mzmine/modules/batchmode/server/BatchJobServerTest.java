@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchJobServerTest {
+
+  @TempDir
+  static Path tempDir;
+  private static BatchJobServer server;
+  private static String token;
+  private static final HttpClient client = HttpClient.newHttpClient();
+
+  @BeforeAll
+  static void startServer() throws IOException {
+    server = BatchJobServer.start(0, tempDir.resolve("token").toFile());
+    token = Files.readString(server.getTokenFile().toPath());
+  }
+
+  @AfterAll
+  static void stopServer() {
+    final File tokenFile = server.getTokenFile();
+    server.stop();
+    assertFalse(tokenFile.exists());
+  }
+
+  @Test
+  void tokenFileIsPrivate() throws IOException {
+    assertFalse(token.isBlank());
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      assertEquals("rw-------", PosixFilePermissions.toString(
+          Files.getPosixFilePermissions(server.getTokenFile().toPath())));
+    }
+  }
+
+  @Test
+  void requestsNeedToken() throws Exception {
+    assertEquals(401, send("GET", "/jobs", null, null, null));
+    assertEquals(401, send("GET", "/status", "wrong", null, null));
+    assertEquals(401, send("POST", "/shutdown", null, null, "application/json"));
+    assertEquals(200, send("GET", "/jobs", token, null, null));
+  }
+
+  @Test
+  void foreignOriginIsRejected() throws Exception {
+    assertEquals(403, send("GET", "/jobs", token, "http://example.com", null));
+    assertEquals(403, send("POST", "/shutdown", token, "http://example.com", "application/json"));
+    assertEquals(200,
+        send("GET", "/jobs", token, "http://localhost:" + server.getPort(), null));
+  }
+
+  @Test
+  void postNeedsJson() throws Exception {
+    assertEquals(415, send("POST", "/jobs", token, null, "text/plain"));
+    assertEquals(415, send("POST", "/jobs", token, null, null));
+    assertEquals(415, send("POST", "/shutdown", token, null, "application/x-www-form-urlencoded"));
+    // accepted content type, but the batch file does not exist
+    assertEquals(400, send("POST", "/jobs", token, null, "application/json; charset=utf-8"));
+  }
+
+  /**
+   * @return the status code
+   */
+  private static int send(String method, String path, @Nullable String token,
+      @Nullable String origin, @Nullable String contentType) throws Exception {
+    final BodyPublisher body = method.equals("POST") ? BodyPublishers.ofString(
+        "{\"batch\": \"" + tempDir.resolve("missing.mzbatch").toString().replace("\\", "\\\\")
+        + "\"}") : BodyPublishers.noBody();
+    final HttpRequest.Builder request = HttpRequest.newBuilder(
+        URI.create("http://localhost:" + server.getPort() + path)).method(method, body);
+    if (token != null) {
+      request.header("Authorization", "Bearer " + token);
+    }
+    if (origin != null) {
+      request.header("Origin", origin);
+    }
+    if (contentType != null) {
+      request.header("Content-Type", contentType);
+    }
+    return client.send(request.build(), BodyHandlers.discarding()).statusCode();
+  }
+}
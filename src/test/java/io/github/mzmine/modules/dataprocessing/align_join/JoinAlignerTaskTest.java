@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_join;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance.Unit;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class JoinAlignerTaskTest {
+
+  /**
+   * enough rows for several m/z slices
+   */
+  private static final int NUM_CLUSTERS = 8000;
+  private static final double[] ROW_PROBABILITIES = {0.9, 0.5, 0.8, 0.6, 0.7};
+  private static ModularFeatureList[] featureLists;
+
+  @BeforeAll
+  static void createFeatureLists() throws IOException {
+    final Random random = new Random(42);
+    featureLists = new ModularFeatureList[ROW_PROBABILITIES.length];
+    for (int l = 0; l < featureLists.length; l++) {
+      final RawDataFile raw = new RawDataFileImpl("sample" + l, null, null, Color.BLACK);
+      featureLists[l] = new ModularFeatureList("list" + l, null, raw);
+    }
+
+    // clusters are far apart in m/z, features of one cluster are within the tolerances
+    for (int c = 0; c < NUM_CLUSTERS; c++) {
+      final double mz = 100 + c * 0.1;
+      final float rt = 1 + random.nextFloat() * 20;
+      for (int l = 0; l < featureLists.length; l++) {
+        // locally, the list with the most rows differs between slices
+        final double probability = ROW_PROBABILITIES[(l + c / 2000) % ROW_PROBABILITIES.length];
+        if (random.nextDouble() < probability) {
+          addRow(featureLists[l], mz + (random.nextDouble() - 0.5) * 0.002,
+              rt + (random.nextFloat() - 0.5f) * 0.15f, 1E5f * (1 + random.nextFloat()));
+        }
+      }
+    }
+  }
+
+  private static void addRow(ModularFeatureList flist, double mz, float rt, float height) {
+    final ModularFeature feature = new ModularFeature(flist);
+    feature.set(RawFileType.class, flist.getRawDataFile(0));
+    feature.set(MZType.class, mz);
+    feature.set(RTType.class, rt);
+    feature.set(HeightType.class, height);
+    feature.set(DetectionType.class, FeatureStatus.DETECTED);
+    flist.addRow(new ModularFeatureListRow(flist, flist.getNumberOfRows() + 1, feature));
+  }
+
+  @Test
+  void mzSlicesGiveSameResult() {
+    final List<String> aligned = align(false);
+    final List<String> alignedSlices = align(true);
+
+    assertEquals(aligned.size(), alignedSlices.size());
+    assertEquals(aligned, alignedSlices);
+  }
+
+  /**
+   * @return the features of each aligned row, sorted
+   */
+  private static List<String> align(boolean mzSlices) {
+    final ParameterSet parameters = new JoinAlignerParameters().cloneParameterSet();
+    parameters.getParameter(JoinAlignerParameters.peakLists)
+        .setValue(new FeatureListsSelection(featureLists));
+    parameters.setParameter(JoinAlignerParameters.peakListName, "aligned");
+    parameters.setParameter(JoinAlignerParameters.MZTolerance, new MZTolerance(0.002, 0));
+    parameters.setParameter(JoinAlignerParameters.MZWeight, 3d);
+    parameters.setParameter(JoinAlignerParameters.RTTolerance,
+        new RTTolerance(0.1f, Unit.MINUTES));
+    parameters.setParameter(JoinAlignerParameters.RTWeight, 1d);
+    parameters.setParameter(JoinAlignerParameters.mobilityTolerance, false);
+    parameters.setParameter(JoinAlignerParameters.mobilityWeight, 0d);
+    parameters.setParameter(JoinAlignerParameters.SameChargeRequired, false);
+    parameters.setParameter(JoinAlignerParameters.SameIDRequired, false);
+    parameters.setParameter(JoinAlignerParameters.compareIsotopePattern, false);
+    parameters.setParameter(JoinAlignerParameters.compareSpectraSimilarity, false);
+    parameters.setParameter(JoinAlignerParameters.mzSlices, mzSlices);
+    parameters.setParameter(JoinAlignerParameters.handleOriginal, OriginalFeatureListOption.KEEP);
+
+    final MZmineProjectImpl project = new MZmineProjectImpl();
+    final JoinAlignerTask task = new JoinAlignerTask(project, parameters, null, Instant.now());
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus());
+
+    final FeatureList result = project.getCurrentFeatureLists().stream()
+        .filter(flist -> flist.getName().equals("aligned")).findFirst().orElse(null);
+    assertNotNull(result);
+
+    final List<String> rows = new ArrayList<>();
+    for (FeatureListRow row : result.getRows()) {
+      rows.add(row.getFeatures().stream()
+          .sorted(Comparator.comparing((Feature f) -> f.getRawDataFile().getName()))
+          .map(JoinAlignerTaskTest::featureKey).toList().toString());
+    }
+    rows.sort(null);
+    return rows;
+  }
+
+  private static String featureKey(Feature feature) {
+    return feature.getRawDataFile().getName() + "@" + feature.getMZ() + "/" + feature.getRT();
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_ransac;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance.Unit;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RtCorrectionModelCacheTest {
+
+  // the cache is static, each test uses new list names
+  private static final AtomicInteger listCounter = new AtomicInteger();
+
+  private ModularFeatureList reference;
+  private ModularFeatureList flist;
+  private ParameterSet parameters;
+  private AtomicInteger fits;
+  private Supplier<RtCorrectionModel> fitter;
+
+  private static ModularFeatureList createList(float rtShift) throws IOException {
+    final String name = "list" + listCounter.incrementAndGet();
+    final RawDataFile raw = new RawDataFileImpl(name, null, null, Color.BLACK);
+    final ModularFeatureList flist = new ModularFeatureList(name, null, raw);
+    for (int i = 0; i < 20; i++) {
+      final ModularFeature feature = new ModularFeature(flist);
+      feature.set(RawFileType.class, raw);
+      feature.set(MZType.class, 200d + i);
+      feature.set(RTType.class, 1f + i + rtShift);
+      feature.set(DetectionType.class, FeatureStatus.DETECTED);
+      flist.addRow(new ModularFeatureListRow(flist, i + 1, feature));
+    }
+    return flist;
+  }
+
+  @BeforeEach
+  void setUp() throws IOException {
+    reference = createList(0);
+    flist = createList(0.2f);
+
+    parameters = new RansacAlignerParameters().cloneParameterSet();
+    parameters.setParameter(RansacAlignerParameters.MZTolerance, new MZTolerance(0.01, 10));
+    parameters.setParameter(RansacAlignerParameters.RTToleranceBefore,
+        new RTTolerance(0.5f, Unit.MINUTES));
+    parameters.setParameter(RansacAlignerParameters.Iterations, 0);
+    parameters.setParameter(RansacAlignerParameters.NMinPoints, 0.2);
+    parameters.setParameter(RansacAlignerParameters.Margin, 0.1);
+    parameters.setParameter(RansacAlignerParameters.Linear, false);
+
+    fits = new AtomicInteger();
+    fitter = () -> {
+      fits.incrementAndGet();
+      return RtCorrectionModel.IDENTITY;
+    };
+  }
+
+  @Test
+  void sameInputsReuseModel() {
+    final RtCorrectionModel model = RtCorrectionModelCache.getOrFit(reference, flist, parameters,
+        fitter);
+    assertSame(model, RtCorrectionModelCache.getOrFit(reference, flist, parameters, fitter));
+    assertEquals(1, fits.get());
+  }
+
+  @Test
+  void listWithSameRowsButOtherNameIsFittedAgain() throws IOException {
+    RtCorrectionModelCache.getOrFit(reference, flist, parameters, fitter);
+    final ModularFeatureList sameRows = createList(0.2f);
+    RtCorrectionModelCache.getOrFit(reference, sameRows, parameters, fitter);
+    assertEquals(2, fits.get());
+  }
+
+  @Test
+  void listWithOtherRowCountIsFittedAgain() {
+    RtCorrectionModelCache.getOrFit(reference, flist, parameters, fitter);
+    flist.removeRow(flist.getRow(0));
+    RtCorrectionModelCache.getOrFit(reference, flist, parameters, fitter);
+    assertEquals(2, fits.get());
+  }
+
+  @Test
+  void otherParametersAreFittedAgain() {
+    RtCorrectionModelCache.getOrFit(reference, flist, parameters, fitter);
+    parameters.setParameter(RansacAlignerParameters.Margin, 0.2);
+    RtCorrectionModelCache.getOrFit(reference, flist, parameters, fitter);
+    assertEquals(2, fits.get());
+  }
+
+  @Test
+  void canceledFitIsNotCached() {
+    final Supplier<RtCorrectionModel> canceled = () -> {
+      fits.incrementAndGet();
+      return null;
+    };
+    assertNull(RtCorrectionModelCache.getOrFit(reference, flist, parameters, canceled));
+    assertNull(RtCorrectionModelCache.getOrFit(reference, flist, parameters, canceled));
+    assertEquals(2, fits.get());
+  }
+}
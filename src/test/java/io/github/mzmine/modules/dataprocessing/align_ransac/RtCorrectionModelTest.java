@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_ransac;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RtCorrectionModelTest {
+
+  /**
+   * @param shift the reference RT is the corrected RT plus shift
+   */
+  private static List<AlignStructMol> createShiftedPoints(double shift, boolean aligned) {
+    final List<AlignStructMol> list = new ArrayList<>();
+    // many points, the fit adds random noise to each point
+    for (double rt = 1; rt < 30; rt += 0.03) {
+      final AlignStructMol mol = new AlignStructMol();
+      mol.RT = rt + shift;
+      mol.RT2 = rt;
+      mol.Aligned = aligned;
+      list.add(mol);
+    }
+    return list;
+  }
+
+  @Test
+  void correctsShift() {
+    final RtCorrectionModel model = RtCorrectionModel.fit(createShiftedPoints(2, true));
+
+    assertFalse(model.isIdentity());
+    assertEquals(12f, model.correctRT(10f), 0.5f);
+    assertEquals(22f, model.correctRT(20f), 0.5f);
+  }
+
+  @Test
+  void identityWithoutAlignedPoints() {
+    final RtCorrectionModel model = RtCorrectionModel.fit(createShiftedPoints(2, false));
+
+    assertTrue(model.isIdentity());
+    assertEquals(0, model.getCoefficients().length);
+    assertEquals(10f, model.correctRT(10f));
+  }
+
+  @Test
+  void identityKeepsRT() {
+    assertEquals(5.5f, RtCorrectionModel.IDENTITY.correctRT(5.5f));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveDetector.Peak;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.centwave.CentWaveResolverParameters.PeakIntegrationMethod;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CentWaveDetectorTest {
+
+  private static final double RT_STEP = 0.01;
+  private static final int NUM_VALUES = 1000;
+  // EICs only contain data points above this intensity, all others are 0
+  private static final double MIN_INTENSITY = 50;
+
+  private static final Range<Double> PEAK_WIDTH = Range.closed(0.1, 0.5);
+
+  private static double[] rts() {
+    final double[] rts = new double[NUM_VALUES];
+    for (int i = 0; i < NUM_VALUES; i++) {
+      rts[i] = i * RT_STEP;
+    }
+    return rts;
+  }
+
+  /**
+   * EIC of gaussian peaks with +-5 % noise
+   *
+   * @param peaks center, sigma and height for each peak
+   */
+  private static double[] eic(double[] rts, double[][] peaks, long seed) {
+    final Random random = new Random(seed);
+    final double[] eic = new double[rts.length];
+    for (int i = 0; i < rts.length; i++) {
+      double intensity = 0;
+      for (final double[] peak : peaks) {
+        final double z = (rts[i] - peak[0]) / peak[1];
+        intensity += peak[2] * Math.exp(-z * z / 2);
+      }
+      intensity *= 0.95 + random.nextDouble() * 0.1;
+      eic[i] = intensity >= MIN_INTENSITY ? intensity : 0;
+    }
+    return eic;
+  }
+
+  private static void assertPeakAround(Peak peak, double[] rts, double center, double sigma) {
+    assertEquals(center, rts[peak.apex()], 2 * RT_STEP);
+    assertTrue(rts[peak.left()] <= center - sigma, "left boundary too close to the apex");
+    assertTrue(rts[peak.right()] >= center + sigma, "right boundary too close to the apex");
+    assertTrue(rts[peak.left()] >= center - 6 * sigma, "left boundary too wide");
+    assertTrue(rts[peak.right()] <= center + 6 * sigma, "right boundary too wide");
+  }
+
+  @Test
+  void detectsSeparatedPeaks() {
+    final double[] rts = rts();
+    final double[] eic = eic(rts, new double[][]{{2, 0.05, 1E5}, {5, 0.08, 2E4}}, 1);
+
+    for (final PeakIntegrationMethod method : PeakIntegrationMethod.values()) {
+      final List<Peak> peaks = new CentWaveDetector(PEAK_WIDTH, 10, method).detect(rts, eic,
+          NUM_VALUES);
+      assertEquals(2, peaks.size(), method.toString());
+      assertPeakAround(peaks.get(0), rts, 2, 0.05);
+      assertPeakAround(peaks.get(1), rts, 5, 0.08);
+      assertTrue(peaks.get(0).height() > peaks.get(1).height());
+      assertTrue(peaks.get(0).sn() >= 10);
+    }
+  }
+
+  @Test
+  void resolvesCoelutingPeaks() {
+    final double[] rts = rts();
+    // both peaks are in the same region of non-zero intensities
+    final double[] eic = eic(rts, new double[][]{{3, 0.05, 1E5}, {3.3, 0.05, 6E4}}, 2);
+
+    final List<Peak> peaks = new CentWaveDetector(PEAK_WIDTH, 10,
+        PeakIntegrationMethod.UseRawData).detect(rts, eic, NUM_VALUES);
+    assertEquals(2, peaks.size());
+    assertEquals(3, rts[peaks.get(0).apex()], 2 * RT_STEP);
+    assertEquals(3.3, rts[peaks.get(1).apex()], 2 * RT_STEP);
+    assertTrue(peaks.get(0).right() <= peaks.get(1).left(), "peaks overlap");
+  }
+
+  @Test
+  void skipsLowIntensities() {
+    final double[] rts = rts();
+    // below the prefilter intensity
+    final double[] eic = eic(rts, new double[][]{{4, 0.05, 90}}, 3);
+    assertFalse(eic[400] == 0);
+
+    final List<Peak> peaks = new CentWaveDetector(PEAK_WIDTH, 10,
+        PeakIntegrationMethod.UseSmoothedData).detect(rts, eic, NUM_VALUES);
+    assertTrue(peaks.isEmpty());
+  }
+
+  @Test
+  void usesOnlyNumValues() {
+    final double[] rts = rts();
+    final double[] eic = eic(rts, new double[][]{{2, 0.05, 1E5}, {8, 0.05, 1E5}}, 4);
+
+    final List<Peak> peaks = new CentWaveDetector(PEAK_WIDTH, 10,
+        PeakIntegrationMethod.UseSmoothedData).detect(rts, eic, 500);
+    assertEquals(1, peaks.size());
+    assertPeakAround(peaks.get(0), rts, 2, 0.05);
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.MobilityScan;
+import io.github.mzmine.datamodel.MobilityType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.BuildingMobilityScan;
+import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.SimpleFrame;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.msms.ActivationMethod;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.centroid.CentroidMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.centroid.CentroidMassDetectorParameters;
+import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.combowithinput.MsLevelFilter;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.project.impl.IMSRawDataFileImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.scans.ScanUtils;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the mass lists of the parallel mass detection to a sequential detection of each scan.
+ */
+class MassDetectionTaskTest {
+
+  /**
+   * more scans than one block, the last block is incomplete
+   */
+  private static final int NUM_SCANS = 3 * ParallelMassDetection.SCANS_PER_BLOCK + 5;
+  private static final int NUM_FRAMES = 3 * ParallelMassDetection.FRAMES_PER_BLOCK + 1;
+  private static final int MOBILITY_SCANS_PER_FRAME = 40;
+  private static final double NOISE_LEVEL = 300;
+
+  @Test
+  void parallelScanMassListsEqualSequential() {
+    final Random random = new Random(42);
+    final RawDataFile raw = new RawDataFileImpl("mass detection", null, null, Color.BLACK);
+    for (int i = 0; i < NUM_SCANS; i++) {
+      final double[][] data = randomData(random, 10 + random.nextInt(300));
+      final boolean ms2 = i % 4 != 0;
+      raw.addScan(new SimpleScan(raw, i + 1, ms2 ? 2 : 1, 0.01f * i,
+          ms2 ? new DDAMsMsInfoImpl(300, 1, 20f, null, null, 2, ActivationMethod.CID, null) : null,
+          data[0], data[1], MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(0d, 1000d), ms2 ? 1f + random.nextFloat() : null));
+    }
+
+    final ParameterSet detectorParameters = centroidParameters(NOISE_LEVEL);
+    runMassDetection(raw, detectorParameters, true);
+
+    final CentroidMassDetector detector = MassDetectionParameters.centroid;
+    for (Scan scan : raw.getScans()) {
+      final double[][] expected = detector.getMassValues(scan, detectorParameters);
+      if (scan.getMSLevel() > 1) {
+        ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(expected[1],
+            scan.getInjectionTime());
+      }
+      assertMassList(expected, scan.getMassList());
+    }
+  }
+
+  @Test
+  void parallelMobilityScanMassListsEqualSequential() {
+    final IMSRawDataFile raw = createImsFile();
+    final ParameterSet detectorParameters = centroidParameters(NOISE_LEVEL);
+    runMassDetection(raw, detectorParameters, false);
+
+    final CentroidMassDetector detector = MassDetectionParameters.centroid;
+    assertEquals(NUM_FRAMES, raw.getFrames().size());
+    for (Frame frame : raw.getFrames()) {
+      assertMassList(detector.getMassValues(frame, detectorParameters), frame.getMassList());
+      for (MobilityScan mobilityScan : frame.getMobilityScans()) {
+        assertMassList(detector.getMassValues(mobilityScan, detectorParameters),
+            mobilityScan.getMassList());
+      }
+    }
+  }
+
+  @Test
+  void rawDataAsMobilityScanMassLists() {
+    final IMSRawDataFile raw = createImsFile();
+    runMassDetection(raw, centroidParameters(0d), false);
+
+    for (Frame frame : raw.getFrames()) {
+      for (MobilityScan mobilityScan : frame.getMobilityScans()) {
+        final int numValues = mobilityScan.getNumberOfDataPoints();
+        assertMassList(new double[][]{mobilityScan.getMzValues(new double[numValues]),
+            mobilityScan.getIntensityValues(new double[numValues])}, mobilityScan.getMassList());
+      }
+    }
+  }
+
+  private static void runMassDetection(RawDataFile raw, ParameterSet detectorParameters,
+      boolean denormalize) {
+    final ParameterSet parameters = new MassDetectionParameters().cloneParameterSet();
+    parameters.setParameter(MassDetectionParameters.massDetector,
+        new MZmineProcessingStepImpl<>(MassDetectionParameters.centroid, detectorParameters));
+    parameters.getParameter(MassDetectionParameters.scanSelection)
+        .setValue(true, new ScanSelection(MsLevelFilter.ALL_LEVELS));
+    parameters.setParameter(MassDetectionParameters.scanTypes, SelectedScanTypes.SCANS);
+    parameters.setParameter(MassDetectionParameters.denormalizeMSnScans, denormalize);
+
+    final MassDetectionTask task = new MassDetectionTask(raw, parameters, null, Instant.now());
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus());
+  }
+
+  private static ParameterSet centroidParameters(double noiseLevel) {
+    final ParameterSet parameters = new CentroidMassDetectorParameters().cloneParameterSet();
+    parameters.setParameter(CentroidMassDetectorParameters.noiseLevel, noiseLevel);
+    parameters.setParameter(CentroidMassDetectorParameters.detectIsotopes, false);
+    return parameters;
+  }
+
+  private static IMSRawDataFile createImsFile() {
+    final Random random = new Random(7);
+    final IMSRawDataFile raw = new IMSRawDataFileImpl("mobility mass detection", null, null,
+        Color.BLACK);
+    final double[] mobilities = new double[MOBILITY_SCANS_PER_FRAME];
+    for (int j = 0; j < mobilities.length; j++) {
+      mobilities[j] = 1.5 - j * 0.01;
+    }
+
+    for (int i = 0; i < NUM_FRAMES; i++) {
+      final double[][] frameData = randomData(random, 50 + random.nextInt(200));
+      final SimpleFrame frame = new SimpleFrame(raw, i + 1, 1, 0.1f * i, frameData[0],
+          frameData[1], MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(0d, 1000d), MobilityType.TIMS, null, null);
+
+      final List<BuildingMobilityScan> mobilityScans = new ArrayList<>();
+      for (int j = 0; j < MOBILITY_SCANS_PER_FRAME; j++) {
+        // some empty mobility scans
+        final double[][] data = randomData(random, j % 9 == 0 ? 0 : random.nextInt(60));
+        mobilityScans.add(new BuildingMobilityScan(j, data[0], data[1]));
+      }
+      frame.setMobilityScans(mobilityScans, false);
+      frame.setMobilities(mobilities);
+      raw.addScan(frame);
+    }
+    return raw;
+  }
+
+  /**
+   * @return sorted m/z values and intensities around the noise level
+   */
+  private static double[][] randomData(Random random, int numValues) {
+    final double[] mzs = new double[numValues];
+    final double[] intensities = new double[numValues];
+    double mz = 50;
+    for (int i = 0; i < numValues; i++) {
+      mz += 0.01 + random.nextDouble() * 3;
+      mzs[i] = mz;
+      intensities[i] = random.nextDouble() * 3 * NOISE_LEVEL;
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  private static void assertMassList(double[][] expected, MassList massList) {
+    assertNotNull(massList);
+    final int numValues = massList.getNumberOfDataPoints();
+    assertArrayEquals(expected[0], massList.getMzValues(new double[numValues]));
+    assertArrayEquals(expected[1], massList.getIntensityValues(new double[numValues]));
+  }
+}
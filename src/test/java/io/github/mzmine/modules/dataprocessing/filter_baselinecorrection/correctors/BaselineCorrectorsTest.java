@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BaselineCorrectorsTest {
+
+  private static final int NUM_VALUES = 600;
+  // peaks: center, sigma, height
+  private static final double[][] PEAKS = {{150, 6, 5000}, {320, 10, 8000}, {480, 4, 3000}};
+
+  private static double trueBaseline(int i) {
+    return 200 + 0.5 * i;
+  }
+
+  /**
+   * Linear baseline with gaussian peaks and +-10 noise
+   */
+  private static double[] chromatogram() {
+    final Random random = new Random(42);
+    final double[] y = new double[NUM_VALUES];
+    for (int i = 0; i < NUM_VALUES; i++) {
+      double intensity = trueBaseline(i) + (random.nextDouble() - 0.5) * 20;
+      for (final double[] peak : PEAKS) {
+        final double z = (i - peak[0]) / peak[1];
+        intensity += peak[2] * Math.exp(-z * z / 2);
+      }
+      y[i] = intensity;
+    }
+    return y;
+  }
+
+  /**
+   * The baseline must follow the true baseline within the tolerance, also below the peak apices.
+   * Minimum filters cut off the slope at the edges, so the first and last scans are skipped.
+   */
+  private static void assertBaseline(double[] baseline, double tolerance, int edge) {
+    assertEquals(NUM_VALUES, baseline.length);
+    for (int i = edge; i < NUM_VALUES - edge; i += 10) {
+      assertEquals(trueBaseline(i), baseline[i], tolerance, "baseline at " + i);
+    }
+    for (final double[] peak : PEAKS) {
+      assertEquals(trueBaseline((int) peak[0]), baseline[(int) peak[0]], tolerance,
+          "baseline below peak at " + peak[0]);
+    }
+  }
+
+  @Test
+  void asymmetricLeastSquares() {
+    final double[] baseline = AsymmetryCorrector.asymmetricLeastSquares(chromatogram(), 1e6,
+        0.001);
+    assertBaseline(baseline, 30, 0);
+  }
+
+  @Test
+  void whittakerSmoothReproducesLines() {
+    final double[] y = new double[50];
+    final double[] w = new double[50];
+    for (int i = 0; i < y.length; i++) {
+      y[i] = 3 * i - 7;
+      w[i] = 1;
+    }
+    final double[] z = AsymmetryCorrector.whittakerSmooth(y, w, 1e5);
+    for (int i = 0; i < y.length; i++) {
+      assertEquals(y[i], z[i], 1e-6);
+    }
+  }
+
+  @Test
+  void rollingBall() {
+    final double[] baseline = RollingBallCorrector.rollingBall(chromatogram(), 60, 10);
+    assertBaseline(baseline, 30, 60);
+  }
+
+  @Test
+  void slidingExtreme() {
+    final double[] values = {3, 1, 4, 1, 5, 9, 2, 6};
+    final double[] min = RollingBallCorrector.slidingExtreme(values, 1, true);
+    final double[] max = RollingBallCorrector.slidingExtreme(values, 1, false);
+    for (int i = 0; i < values.length; i++) {
+      double expMin = Double.POSITIVE_INFINITY;
+      double expMax = Double.NEGATIVE_INFINITY;
+      for (int j = Math.max(0, i - 1); j <= Math.min(values.length - 1, i + 1); j++) {
+        expMin = Math.min(expMin, values[j]);
+        expMax = Math.max(expMax, values[j]);
+      }
+      assertEquals(expMin, min[i]);
+      assertEquals(expMax, max[i]);
+    }
+  }
+
+  @Test
+  void peakExclusion() {
+    final double[] baseline = PeakDetectionCorrector.peakExclusionBaseline(chromatogram(), 5, 40,
+        5, 20, 3, 0, 2);
+    assertBaseline(baseline, 30, 0);
+  }
+
+  @Test
+  void peakExclusionOnFlatChromatogram() {
+    final double[] y = new double[100];
+    for (int i = 0; i < y.length; i++) {
+      final double z = (i - 50) / 3d;
+      y[i] = 100 + 1000 * Math.exp(-z * z / 2);
+    }
+    final double[] baseline = PeakDetectionCorrector.peakExclusionBaseline(y, 2, 20, 3, 10, 3, 0,
+        2);
+    for (int i = 0; i < y.length; i++) {
+      assertEquals(100, baseline[i], 1e-3, "baseline at " + i);
+    }
+  }
+
+  @Test
+  void peakExclusionMonotonic() {
+    final double[] y = {5, 4, 6, 3, 7, 2, 8, 1};
+    final double[] baseline = PeakDetectionCorrector.peakExclusionBaseline(y, 1, 1, 0, 0, 1e9, 1,
+        2);
+    // no peaks pass the signal to noise ratio, the baseline is the running minimum
+    assertArrayEquals(new double[]{5, 4, 4, 3, 3, 2, 2, 1}, baseline);
+  }
+
+  @Test
+  void rubberBand() {
+    final double[] y = chromatogram();
+    final double[] baseline = RubberBandCorrector.rubberBand(y, 0, 0, false, 0);
+    // the hull is a lower bound of the chromatogram
+    for (int i = 0; i < NUM_VALUES; i++) {
+      assertTrue(baseline[i] <= y[i] + 1e-9);
+    }
+    assertBaseline(baseline, 30, 0);
+  }
+
+  /**
+   * Expected values are the lower convex hull through (0, 8), (1, 5), (3, 2), (5, 3) and (6, 9),
+   * which is the definition of hyperSpec's spc.rubberband(spline = FALSE).
+   */
+  @Test
+  void rubberBandHull() {
+    final double[] y = {8, 5, 7, 2, 6, 3, 9};
+    assertArrayEquals(new double[]{8, 5, 3.5, 2, 2.5, 3, 9},
+        RubberBandCorrector.rubberBand(y, 0, 0, false, 0), 1e-9);
+  }
+
+  /**
+   * A bend factor of 36 adds i^2 for 7 values. The hull of the bent values runs through indices 0,
+   * 1, 3, 5 and 6 and the bend is subtracted again, as in spc.rubberband(spc + bend) - bend.
+   */
+  @Test
+  void rubberBandHullWithBend() {
+    final double[] y = {8, 5, 7, 2, 6, 3, 9};
+    assertArrayEquals(new double[]{8, 5, 4.5, 2, 3.5, 3, 9},
+        RubberBandCorrector.rubberBand(y, 0, 0, false, 36), 1e-9);
+  }
+
+  @Test
+  void rubberBandSplineReproducesLines() {
+    final double[] y = new double[50];
+    for (int i = 0; i < y.length; i++) {
+      y[i] = 10 + 2 * i + (i % 7 == 3 ? 100 : 0);
+    }
+    final double[] baseline = RubberBandCorrector.rubberBand(y, 0, 0, true, 0);
+    for (int i = 0; i < y.length; i++) {
+      assertEquals(10 + 2 * i, baseline[i], 1e-9, "baseline at " + i);
+    }
+  }
+
+  @Test
+  void locMinApprox() {
+    final double[] y = chromatogram();
+    final double[] baseline = LocMinLoessCorrector.locMinBaseline(y, false, 0, 100, 0);
+    for (int i = 0; i < NUM_VALUES; i++) {
+      assertTrue(baseline[i] <= y[i]);
+    }
+    // log-spaced intervals are wide at the end of the chromatogram, only check the start
+    for (int i = 0; i < 100; i += 10) {
+      assertEquals(trueBaseline(i), baseline[i], 30, "baseline at " + i);
+    }
+  }
+}
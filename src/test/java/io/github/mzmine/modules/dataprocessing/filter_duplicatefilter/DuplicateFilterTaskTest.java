@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.filter_duplicatefilter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.numbers.AreaType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.modules.dataprocessing.filter_duplicatefilter.DuplicateFilterParameters.FilterMode;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance.Unit;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureListRowSorter;
+import io.github.mzmine.util.SortingDirection;
+import io.github.mzmine.util.SortingProperty;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+class DuplicateFilterTaskTest {
+
+  private static final int NUM_CLUSTERS = 1500;
+  private static final MZTolerance MZ_TOLERANCE = new MZTolerance(0.002, 5);
+  private static final RTTolerance RT_TOLERANCE = new RTTolerance(0.1f, Unit.MINUTES);
+
+  /**
+   * The m/z window sweep must keep the same rows as comparing all pairs of rows. Clusters contain
+   * chains of rows, where a removed row must not remove further rows.
+   */
+  @Test
+  void oldAverageKeepsSameRowsAsAllPairs() {
+    final ModularFeatureList flist = createFeatureList();
+    final Set<Integer> expected = filterAllPairs(flist.getRows());
+    assertTrue(expected.size() < flist.getNumberOfRows());
+
+    final ParameterSet parameters = new DuplicateFilterParameters().cloneParameterSet();
+    parameters.getParameter(DuplicateFilterParameters.peakLists)
+        .setValue(new FeatureListsSelection(flist));
+    parameters.setParameter(DuplicateFilterParameters.suffix, "dup");
+    parameters.setParameter(DuplicateFilterParameters.filterMode, FilterMode.OLD_AVERAGE);
+    parameters.setParameter(DuplicateFilterParameters.mzDifferenceMax, MZ_TOLERANCE);
+    parameters.setParameter(DuplicateFilterParameters.rtDifferenceMax, RT_TOLERANCE);
+    parameters.setParameter(DuplicateFilterParameters.mobilityDifferenceMax, false);
+    parameters.setParameter(DuplicateFilterParameters.requireSameIdentification, false);
+    parameters.setParameter(DuplicateFilterParameters.handleOriginal,
+        OriginalFeatureListOption.KEEP);
+
+    final MZmineProjectImpl project = new MZmineProjectImpl();
+    final DuplicateFilterTask task = new DuplicateFilterTask(project, flist, parameters, null,
+        Instant.now());
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus());
+
+    final FeatureList result = project.getCurrentFeatureLists().stream()
+        .filter(list -> list.getName().endsWith("dup")).findFirst().orElse(null);
+    assertNotNull(result);
+    final Set<Integer> kept = new TreeSet<>();
+    for (FeatureListRow row : result.getRows()) {
+      kept.add(row.getID());
+    }
+    assertEquals(expected, kept);
+  }
+
+  /**
+   * Compares every row to all rows of lower area, only rows that were not removed remove others.
+   *
+   * @return the IDs of the kept rows
+   */
+  private static Set<Integer> filterAllPairs(List<FeatureListRow> rows) {
+    final List<FeatureListRow> sorted = new ArrayList<>(rows);
+    sorted.sort(new FeatureListRowSorter(SortingProperty.Area, SortingDirection.Descending));
+    final boolean[] removed = new boolean[sorted.size()];
+    final Set<Integer> kept = new TreeSet<>();
+    for (int i = 0; i < sorted.size(); i++) {
+      if (removed[i]) {
+        continue;
+      }
+      final FeatureListRow first = sorted.get(i);
+      kept.add(first.getID());
+      for (int j = i + 1; j < sorted.size(); j++) {
+        final FeatureListRow second = sorted.get(j);
+        if (!removed[j] && MZ_TOLERANCE.checkWithinTolerance(first.getAverageMZ(),
+            second.getAverageMZ()) && RT_TOLERANCE.checkWithinTolerance(first.getAverageRT(),
+            second.getAverageRT())) {
+          removed[j] = true;
+        }
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * Clusters of rows close in m/z and RT, the steps between rows are about the tolerances.
+   */
+  private static ModularFeatureList createFeatureList() {
+    final Random random = new Random(42);
+    final RawDataFile raw = new RawDataFileImpl("sample", null, null, Color.BLACK);
+    final ModularFeatureList flist = new ModularFeatureList("list", null, raw);
+    for (int c = 0; c < NUM_CLUSTERS; c++) {
+      double mz = 100 + c * 0.5 + random.nextDouble() * 0.1;
+      float rt = 1 + random.nextFloat() * 20;
+      final int numRows = 1 + random.nextInt(5);
+      for (int r = 0; r < numRows; r++) {
+        addRow(flist, mz, rt, 1E5f * (1 + random.nextFloat()));
+        mz += random.nextDouble() * 0.003;
+        rt += random.nextFloat() * 0.12f;
+      }
+    }
+    return flist;
+  }
+
+  private static void addRow(ModularFeatureList flist, double mz, float rt, float area) {
+    final ModularFeature feature = new ModularFeature(flist);
+    feature.set(RawFileType.class, flist.getRawDataFile(0));
+    feature.set(MZType.class, mz);
+    feature.set(RTType.class, rt);
+    feature.set(HeightType.class, area / 10);
+    feature.set(AreaType.class, area);
+    feature.set(DetectionType.class, FeatureStatus.DETECTED);
+    flist.addRow(new ModularFeatureListRow(flist, flist.getNumberOfRows() + 1, feature));
+  }
+}
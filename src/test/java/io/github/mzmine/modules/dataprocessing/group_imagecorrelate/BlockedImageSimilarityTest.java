@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.group_imagecorrelate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class BlockedImageSimilarityTest {
+
+  private static final double NOISE = 100;
+  private static final int MIN_PIXELS = 5;
+
+  /**
+   * more images than one block and more pixels than one tile. Images are correlated in groups
+   * with noise and pixels below the noise level
+   */
+  private static List<double[]> images(int numImages, int numPixels, Random random) {
+    final double[][] patterns = new double[4][numPixels];
+    for (double[] pattern : patterns) {
+      for (int p = 0; p < numPixels; p++) {
+        pattern[p] = random.nextDouble() < 0.3 ? 0 : random.nextDouble() * 1E5;
+      }
+    }
+    final List<double[]> images = new ArrayList<>();
+    for (int i = 0; i < numImages; i++) {
+      final double[] pattern = patterns[i % patterns.length];
+      final double scale = 1 + random.nextDouble() * 10;
+      final double[] image = new double[numPixels];
+      for (int p = 0; p < numPixels; p++) {
+        image[p] = random.nextDouble() < 0.1 ? 0
+            : pattern[p] * scale * (0.8 + random.nextDouble() * 0.4);
+      }
+      images.add(image);
+    }
+    // constant and empty images
+    final double[] constant = new double[numPixels];
+    Arrays.fill(constant, 500);
+    images.add(constant);
+    images.add(null);
+    return images;
+  }
+
+  /**
+   * Same filtering as the pairwise calculation without median, quantile or hotspot filters
+   */
+  private static double pairwise(double[] a, double[] b, SimilarityMeasure measure) {
+    if (a == null || b == null) {
+      return Double.NaN;
+    }
+    final List<double[]> pairs = new ArrayList<>();
+    for (int p = 0; p < a.length; p++) {
+      if (a[p] >= NOISE && b[p] >= NOISE) {
+        pairs.add(new double[]{a[p], b[p]});
+      }
+    }
+    if (pairs.size() < MIN_PIXELS) {
+      return 0;
+    }
+    return measure.calc(pairs.toArray(double[][]::new));
+  }
+
+  private static void assertSameAsPairwise(SimilarityMeasure measure, double minSimilarity) {
+    final List<double[]> images = images(BlockedImageSimilarity.IMAGE_BLOCK * 2 + 7,
+        BlockedImageSimilarity.PIXEL_TILE * 2 + 100, new Random(7));
+    final BlockedImageSimilarity similarity = new BlockedImageSimilarity(images, NOISE,
+        MIN_PIXELS, measure);
+
+    final ConcurrentHashMap<Long, Double> results = new ConcurrentHashMap<>();
+    final AtomicLong progress = new AtomicLong();
+    final int n = images.size();
+    final long compared = similarity.forEachSimilarPair(minSimilarity,
+        (i, j, sim) -> results.put((long) i * n + j, sim), () -> false, progress::addAndGet);
+
+    assertEquals((long) n * (n - 1) / 2, compared);
+    assertEquals(compared, progress.get());
+
+    int edges = 0;
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        final double expected = pairwise(images.get(i), images.get(j), measure);
+        final Double actual = results.get((long) i * n + j);
+        if (expected >= minSimilarity) {
+          edges++;
+          assertTrue(actual != null, "Missing pair " + i + ", " + j);
+          assertEquals(expected, actual, 1E-9);
+        } else {
+          assertTrue(actual == null, "Unexpected pair " + i + ", " + j);
+        }
+      }
+    }
+    assertEquals(edges, results.size());
+    assertTrue(edges > 0);
+  }
+
+  @Test
+  void pearsonEqualsPairwise() {
+    assertSameAsPairwise(SimilarityMeasure.PEARSON, 0.5);
+  }
+
+  @Test
+  void cosineEqualsPairwise() {
+    assertSameAsPairwise(SimilarityMeasure.COSINE_SIM, 0.8);
+  }
+
+  @Test
+  void supportedMeasures() {
+    assertTrue(BlockedImageSimilarity.isSupported(SimilarityMeasure.PEARSON));
+    assertTrue(BlockedImageSimilarity.isSupported(SimilarityMeasure.COSINE_SIM));
+    assertFalse(BlockedImageSimilarity.isSupported(SimilarityMeasure.SPEARMAN));
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.correlation.CorrelationData;
+import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureShapeCache.FeatureShape;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import javafx.collections.FXCollections;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The cached correlation must give the same results as the scan wise
+ * {@link FeatureCorrelationUtil#corrFeatureShape} on the same feature pairs.
+ */
+class FeatureShapeCacheTest {
+
+  private static final int NUM_SCANS = 40;
+  private static final double[] NOISE_LEVELS = {0, 150};
+  private static final int[] MIN_DATA_POINTS = {3, 5, 8};
+  private static final int[] MIN_DATA_POINTS_ON_EDGE = {0, 1, 2, 4};
+
+  private final Random random = new Random(42);
+  private final List<Scan> scans = IntStream.range(0, NUM_SCANS).mapToObj(i -> mock(Scan.class))
+      .toList();
+  private final RawDataFile raw = mock(RawDataFile.class);
+
+  @Test
+  void cachedCorrelationEqualsScanWiseCorrelation() {
+    when(raw.getScans()).thenReturn(FXCollections.observableArrayList(scans));
+
+    final List<Feature> features = new ArrayList<>();
+    // regular features with different and overlapping scan ranges
+    features.add(createFeature(scanRange(5, 26), 10, 5000));
+    features.add(createFeature(scanRange(8, 31), 16, 3000));
+    features.add(createFeature(scanRange(0, 20), 12, 8000));
+    // same height as the first feature
+    features.add(createFeature(scanRange(5, 26), 14, 5000));
+    // gap in the scans
+    final List<Scan> gapped = new ArrayList<>(scanRange(5, 26));
+    gapped.remove(scans.get(13));
+    features.add(createFeature(gapped, 8, 4000));
+    // drop below the noise level next to the apex
+    features.add(createFeature(scanRange(6, 24), 9, 6000, 7));
+    // fewer data points than required
+    features.add(createFeature(scanRange(10, 13), 1, 2000));
+    features.add(createFeature(scanRange(11, 13), 0, 9000));
+    // the apex scans of most other features are not part of this feature
+    features.add(createFeature(scanRange(28, 40), 4, 7000));
+    // a scan that is not part of the raw data file
+    final List<Scan> foreign = new ArrayList<>(scanRange(5, 20));
+    foreign.add(mock(Scan.class));
+    features.add(createFeature(foreign, 7, 1000));
+    // apex below the noise level
+    features.add(createFeature(scanRange(3, 15), 5, 100));
+
+    final FeatureListRow[] rows = features.stream().map(this::createRow)
+        .toArray(FeatureListRow[]::new);
+
+    int correlated = 0;
+    int uncorrelated = 0;
+    for (double noiseLevel : NOISE_LEVELS) {
+      final FeatureShapeCache cache = new FeatureShapeCache(rows, List.of(raw), noiseLevel);
+      for (int minDP : MIN_DATA_POINTS) {
+        for (int minEdge : MIN_DATA_POINTS_ON_EDGE) {
+          for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < rows.length; j++) {
+              final FeatureShape a = cache.getShapes(rows[i])[0];
+              final FeatureShape b = cache.getShapes(rows[j])[0];
+              final CorrelationData expected = FeatureCorrelationUtil.corrFeatureShape(null,
+                  features.get(i), features.get(j), true, minDP, minEdge, noiseLevel);
+              final CorrelationData actual = cache.corrFeatureShape(a, b, minDP, minEdge);
+
+              final String pair = "pair %d, %d with noise %.0f, min dp %d, min edge %d".formatted(i,
+                  j, noiseLevel, minDP, minEdge);
+              if (expected == null) {
+                assertNull(actual, pair);
+                uncorrelated++;
+              } else {
+                assertNotNull(actual, pair);
+                assertEquals(expected.getDPCount(), actual.getDPCount(), pair);
+                assertArrayEquals(expected.getData(), actual.getData(), pair);
+                assertEquals(expected.getPearsonR(), actual.getPearsonR(), pair);
+                correlated++;
+              }
+            }
+          }
+        }
+      }
+    }
+    // both outcomes are covered
+    assertTrue(correlated > 0);
+    assertTrue(uncorrelated > 0);
+  }
+
+  private List<Scan> scanRange(int from, int to) {
+    return scans.subList(from, to);
+  }
+
+  private Feature createFeature(List<Scan> featureScans, int apex, double height) {
+    return createFeature(featureScans, apex, height, -1);
+  }
+
+  /**
+   * Gaussian shape with noise, the apex is the maximum
+   *
+   * @param lowIndex index of a data point that drops below the higher noise level or -1
+   */
+  private Feature createFeature(List<Scan> featureScans, int apex, double height, int lowIndex) {
+    final double[] intensities = new double[featureScans.size()];
+    for (int i = 0; i < intensities.length; i++) {
+      final double z = (i - apex) / 3d;
+      intensities[i] = height * Math.exp(-z * z / 2) * (0.95 + 0.05 * random.nextDouble());
+    }
+    intensities[apex] = height;
+    if (lowIndex >= 0) {
+      intensities[lowIndex] = 50;
+    }
+
+    final IonTimeSeries<?> series = mock(IonTimeSeries.class);
+    when(series.getIntensityValues(any(double[].class))).thenAnswer(
+        invocation -> intensities.clone());
+    final Feature feature = mock(Feature.class);
+    when(feature.getScanNumbers()).thenReturn(featureScans);
+    when(feature.getNumberOfDataPoints()).thenReturn(intensities.length);
+    when(feature.getHeight()).thenReturn((float) height);
+    doReturn(series).when(feature).getFeatureData();
+    return feature;
+  }
+
+  private FeatureListRow createRow(Feature feature) {
+    final FeatureListRow row = mock(FeatureListRow.class);
+    when(row.getFeature(raw)).thenReturn(feature);
+    return row;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_formulapredictionfeaturelist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * Compares the formulas of the index with the output of the CDK formula generator for each range
+ */
+class FormulaMassIndexTest {
+
+  private static MolecularFormulaRange elements;
+
+  @BeforeAll
+  static void createElements() throws IOException {
+    final IsotopeFactory isotopes = Isotopes.getInstance();
+    elements = new MolecularFormulaRange();
+    elements.addIsotope(isotopes.getMajorIsotope("C"), 0, 40);
+    elements.addIsotope(isotopes.getMajorIsotope("H"), 0, 80);
+    elements.addIsotope(isotopes.getMajorIsotope("N"), 0, 8);
+    elements.addIsotope(isotopes.getMajorIsotope("O"), 0, 10);
+    elements.addIsotope(isotopes.getMajorIsotope("S"), 0, 2);
+  }
+
+  @Test
+  void overlappingRangesGiveGeneratorOutput() {
+    final Random random = new Random(42);
+    final List<Range<Double>> ranges = new ArrayList<>();
+    for (int i = 0; i < 15; i++) {
+      // clusters of overlapping ranges that are merged into one window
+      final double center = 150 + random.nextDouble() * 250;
+      for (int j = 0; j < 3; j++) {
+        final double mass = center + (random.nextDouble() - 0.5) * 0.01;
+        final double tolerance = j == 0 ? 0.005 : mass * 5E-6;
+        ranges.add(Range.closed(mass - tolerance, mass + tolerance));
+      }
+    }
+    // the same range twice and a range that contains another one
+    ranges.add(ranges.get(0));
+    ranges.add(Range.closed(ranges.get(3).lowerEndpoint() - 0.001,
+        ranges.get(3).upperEndpoint() + 0.001));
+
+    assertSameFormulas(ranges);
+  }
+
+  @Test
+  void formulasAtRangeBounds() {
+    // bounds exactly at the mass of formulas, within a larger window
+    final double mass = getMass("C10H12N2O");
+    final double otherMass = getMass("C12H24O2");
+    final List<Range<Double>> ranges = List.of(Range.closed(mass - 0.01, mass + 0.01),
+        Range.closed(mass - 0.005, mass), Range.closed(mass, mass + 0.005),
+        Range.closed(otherMass - 0.02, otherMass + 0.02), Range.closed(otherMass, otherMass),
+        Range.closed(Math.nextUp(otherMass), otherMass + 0.01));
+    assertSameFormulas(ranges);
+  }
+
+  private static void assertSameFormulas(List<Range<Double>> ranges) {
+    final FormulaMassIndex index = new FormulaMassIndex(elements, ranges);
+    assertTrue(index.build(null));
+
+    int numFormulas = 0;
+    for (Range<Double> range : ranges) {
+      final List<String> expected = toStrings(generate(range));
+      assertEquals(expected, toStrings(index.getFormulas(range)), "Formulas of " + range);
+      numFormulas += expected.size();
+    }
+    assertFalse(numFormulas == 0, "No formulas in any range");
+  }
+
+  private static List<IMolecularFormula> generate(Range<Double> range) {
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(
+        SilentChemObjectBuilder.getInstance(), range.lowerEndpoint(), range.upperEndpoint(),
+        elements);
+    final List<IMolecularFormula> formulas = new ArrayList<>();
+    IMolecularFormula formula;
+    while ((formula = generator.getNextFormula()) != null) {
+      formulas.add(formula);
+    }
+    return formulas;
+  }
+
+  private static double getMass(String formula) {
+    return MolecularFormulaManipulator.getMass(
+        MolecularFormulaManipulator.getMajorIsotopeMolecularFormula(formula,
+            SilentChemObjectBuilder.getInstance()), MolecularFormulaManipulator.MonoIsotopic);
+  }
+
+  private static List<String> toStrings(List<IMolecularFormula> formulas) {
+    return formulas.stream().map(MolecularFormulaManipulator::getString).toList();
+  }
+}
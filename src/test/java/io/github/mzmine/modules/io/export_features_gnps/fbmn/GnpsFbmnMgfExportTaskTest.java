@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_gnps.fbmn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import javafx.collections.FXCollections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GnpsFbmnMgfExportTaskTest {
+
+  /**
+   * more rows than one block, the last block is incomplete
+   */
+  private static final int NUM_ROWS = 3 * GnpsFbmnMgfExportTask.ROWS_PER_BLOCK + 7;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void parallelExportEqualsSequentialOutput() throws IOException {
+    final List<FeatureListRow> rows = createRows();
+    final ModularFeatureList flist = mock(ModularFeatureList.class);
+    when(flist.getName()).thenReturn("flist");
+    when(flist.getRows()).thenReturn(FXCollections.observableArrayList(rows));
+    when(flist.getNumberOfRows()).thenReturn(rows.size());
+
+    final File file = tempDir.resolve("gnps.mgf").toFile();
+    final ParameterSet parameters = new GnpsFbmnExportAndSubmitParameters().cloneParameterSet();
+    parameters.getParameter(GnpsFbmnExportAndSubmitParameters.FEATURE_LISTS)
+        .setValue(new FeatureListsSelection(flist));
+    parameters.setParameter(GnpsFbmnExportAndSubmitParameters.FILENAME, file);
+    parameters.setParameter(GnpsFbmnExportAndSubmitParameters.FILTER, FeatureListRowsFilter.ALL);
+    parameters.setParameter(GnpsFbmnExportAndSubmitParameters.MERGE_PARAMETER, false);
+
+    final GnpsFbmnMgfExportTask task = new GnpsFbmnMgfExportTask(parameters, Instant.now());
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus());
+
+    assertEquals(formatSequential(rows), Files.readString(file.toPath(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * The MGF entries as written by the sequential export before the rows were formatted in
+   * parallel.
+   */
+  private static String formatSequential(List<FeatureListRow> rows) {
+    final String newLine = System.lineSeparator();
+    final NumberFormat mzForm = MZmineCore.getConfiguration().getMZFormat();
+    final NumberFormat intensityForm = MZmineCore.getConfiguration().getIntensityFormat();
+    final NumberFormat rtsForm = new DecimalFormat("0.###");
+
+    final StringBuilder b = new StringBuilder();
+    for (FeatureListRow row : rows) {
+      final Scan msmsScan = row.getMostIntenseFragmentScan();
+      if (msmsScan == null) {
+        continue;
+      }
+      final String rowID = Integer.toString(row.getID());
+      final Float averageRT = row.getAverageRT();
+      final double retTimeInSeconds = averageRT == null ? 0d : ((averageRT * 60 * 100.0) / 100.);
+
+      b.append("BEGIN IONS").append(newLine);
+      b.append("FEATURE_ID=").append(rowID).append(newLine);
+      if (row.getAverageMZ() != null) {
+        b.append("PEPMASS=").append(mzForm.format(row.getAverageMZ())).append(newLine);
+      }
+      b.append("SCANS=").append(rowID).append(newLine);
+      b.append("RTINSECONDS=").append(rtsForm.format(retTimeInSeconds)).append(newLine);
+      final int charge = Objects.requireNonNullElse(msmsScan.getPrecursorCharge(), 1);
+      b.append("CHARGE=" + charge + msmsScan.getPolarity().asSingleChar() + newLine);
+      b.append("MSLEVEL=2").append(newLine);
+      for (DataPoint dp : msmsScan.getMassList().getDataPoints()) {
+        b.append(mzForm.format(dp.getMZ())).append(" ")
+            .append(intensityForm.format(dp.getIntensity())).append(newLine);
+      }
+      b.append("END IONS").append(newLine).append(newLine);
+    }
+    return b.toString();
+  }
+
+  /**
+   * Every fifth row has no MS/MS scan and is skipped. Some rows miss the m/z, RT or charge.
+   */
+  private static List<FeatureListRow> createRows() {
+    final List<FeatureListRow> rows = new ArrayList<>();
+    for (int i = 1; i <= NUM_ROWS; i++) {
+      final FeatureListRow row = mock(FeatureListRow.class);
+      when(row.getID()).thenReturn(i);
+      when(row.getAverageMZ()).thenReturn(i % 11 == 0 ? null : 100 + i * 1.234567);
+      when(row.getAverageRT()).thenReturn(i % 7 == 0 ? null : 0.1f * i);
+
+      if (i % 5 != 0) {
+        final DataPoint[] dataPoints = new DataPoint[1 + i % 4];
+        for (int j = 0; j < dataPoints.length; j++) {
+          dataPoints[j] = new SimpleDataPoint(50 + i + j * 10.123456, 1E3 * (i + j) + 0.5);
+        }
+        final MassList massList = mock(MassList.class);
+        when(massList.getDataPoints()).thenReturn(dataPoints);
+
+        final Scan scan = mock(Scan.class);
+        when(scan.getMassList()).thenReturn(massList);
+        when(scan.getPrecursorCharge()).thenReturn(i % 3 == 0 ? null : 1 + i % 2);
+        when(scan.getPolarity()).thenReturn(
+            i % 2 == 0 ? PolarityType.POSITIVE : PolarityType.NEGATIVE);
+        when(row.getMostIntenseFragmentScan()).thenReturn(scan);
+        when(row.hasMs2Fragmentation()).thenReturn(true);
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_sirius;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import javafx.collections.FXCollections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SiriusExportTaskTest {
+
+  /**
+   * more rows than one block, the last block is incomplete
+   */
+  private static final int NUM_ROWS = 3 * SiriusExportTask.ROWS_PER_BLOCK + 7;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void parallelExportEqualsSequentialOutput() throws IOException {
+    final RawDataFile raw = mock(RawDataFile.class);
+    when(raw.getName()).thenReturn("raw");
+    final List<FeatureListRow> rows = createRows(raw);
+    final ModularFeatureList flist = mock(ModularFeatureList.class);
+    when(flist.getName()).thenReturn("flist");
+    when(flist.getRows()).thenReturn(FXCollections.observableArrayList(rows));
+    when(flist.getNumberOfRows()).thenReturn(rows.size());
+
+    final File file = tempDir.resolve("sirius.mgf").toFile();
+    final ParameterSet parameters = new SiriusExportParameters().cloneParameterSet();
+    parameters.getParameter(SiriusExportParameters.FEATURE_LISTS)
+        .setValue(new FeatureListsSelection(flist));
+    parameters.setParameter(SiriusExportParameters.FILENAME, file);
+    parameters.setParameter(SiriusExportParameters.MERGE_PARAMETER, false);
+
+    final SiriusExportTask task = new SiriusExportTask(parameters, Instant.now());
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus());
+
+    // the single row export writes one row after another
+    final SiriusExportTask sequentialTask = new SiriusExportTask(parameters, Instant.now());
+    final StringWriter sequential = new StringWriter();
+    int exported = 0;
+    try (BufferedWriter writer = new BufferedWriter(sequential)) {
+      for (FeatureListRow row : rows) {
+        if (sequentialTask.exportRow(writer, row)) {
+          exported++;
+        }
+      }
+    }
+    assertTrue(exported > 2 * SiriusExportTask.ROWS_PER_BLOCK);
+
+    assertEquals(sequential.toString(),
+        Files.readString(file.toPath(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Every fifth row has no MS/MS and every seventh row has an empty MS/MS list, both are not
+   * exported. Rows with an isotope pattern export a correlated spectrum instead of the MS1 scan.
+   */
+  private static List<FeatureListRow> createRows(RawDataFile raw) {
+    final List<FeatureListRow> rows = new ArrayList<>();
+    for (int i = 1; i <= NUM_ROWS; i++) {
+      final FeatureListRow row = mock(FeatureListRow.class);
+      final ModularFeature feature = mock(ModularFeature.class);
+      when(row.getID()).thenReturn(i);
+      when(row.getRowCharge()).thenReturn(i % 3 == 0 ? null : 1 + i % 2);
+      when(row.hasMs2Fragmentation()).thenReturn(i % 5 != 0);
+      when(row.getBestFeature()).thenReturn(feature);
+      when(row.getFeature(raw)).thenReturn(feature);
+      when(row.getFeatures()).thenReturn(List.of(feature));
+      when(row.streamFeatures()).thenAnswer(invocation -> Stream.of(feature));
+
+      when(feature.getRow()).thenReturn(row);
+      when(feature.getRawDataFile()).thenReturn(raw);
+      when(feature.getMZ()).thenReturn(100 + i * 1.234567);
+      when(feature.getRT()).thenReturn(0.1f * i);
+      when(feature.getRepresentativeScan()).thenReturn(
+          scan(i, 1 + i % 3, i % 2 == 0 ? PolarityType.POSITIVE : PolarityType.NEGATIVE));
+      if (i % 4 == 0) {
+        final IsotopePattern pattern = mock(IsotopePattern.class);
+        when(pattern.getNumberOfDataPoints()).thenReturn(2);
+        when(pattern.getMzValue(0)).thenReturn(100 + i * 1.234567);
+        when(pattern.getMzValue(1)).thenReturn(101.00335 + i * 1.234567);
+        when(pattern.getIntensityValue(0)).thenReturn(1E5 * i);
+        when(pattern.getIntensityValue(1)).thenReturn(2E4 * i);
+        when(feature.getIsotopePattern()).thenReturn(pattern);
+      }
+
+      final List<Scan> ms2Scans = new ArrayList<>();
+      if (i % 7 != 0) {
+        for (int j = 0; j < 1 + i % 2; j++) {
+          ms2Scans.add(scan(i + j, 2 + j, PolarityType.POSITIVE));
+        }
+        when(feature.getMostIntenseFragmentScan()).thenReturn(ms2Scans.get(0));
+      }
+      when(feature.getAllMS2FragmentScans()).thenReturn(ms2Scans);
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private static Scan scan(int seed, int numValues, PolarityType polarity) {
+    final double[] mzs = new double[numValues];
+    final double[] intensities = new double[numValues];
+    for (int i = 0; i < numValues; i++) {
+      mzs[i] = 50 + seed + i * 10.123456;
+      intensities[i] = 1E3 * (seed + i) + 0.5;
+    }
+    final MassList massList = mock(MassList.class);
+    when(massList.getNumberOfDataPoints()).thenReturn(numValues);
+    when(massList.getMzValues(any())).thenReturn(mzs);
+    when(massList.getIntensityValues(any())).thenReturn(intensities);
+
+    final Scan scan = mock(Scan.class);
+    when(scan.getMassList()).thenReturn(massList);
+    when(scan.getPolarity()).thenReturn(polarity);
+    return scan;
+  }
+}
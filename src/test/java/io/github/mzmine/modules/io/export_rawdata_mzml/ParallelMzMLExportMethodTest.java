@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_rawdata_mzml;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.msdk.MSDKException;
+import io.github.msdk.datamodel.IsolationInfo;
+import io.github.msdk.datamodel.MsScan;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.MZmineToMSDKRawDataFile;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.msms.ActivationMethod;
+import io.github.mzmine.datamodel.msms.DDAMsMsInfo;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.MzMLFileImportMethod;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelMzMLExportMethodTest {
+
+  /**
+   * more scans than one batch, the last batch is incomplete
+   */
+  private static final int NUM_SCANS = 3 * ParallelMzMLExportMethod.SPECTRA_PER_BATCH + 5;
+  private static final Pattern OFFSET_PATTERN = Pattern.compile(
+      "<offset idRef=\"scan=(\\d+)\">(\\d+)</offset>");
+  private static final Pattern INDEX_LIST_OFFSET_PATTERN = Pattern.compile(
+      "<indexListOffset>(\\d+)</indexListOffset>");
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void exportAndImportGiveSameScans() throws IOException, MSDKException {
+    final RawDataFile raw = createRawDataFile();
+    final File target = tempDir.resolve("export_\u00e4\u00b5.mzML").toFile();
+    new ParallelMzMLExportMethod(new MZmineToMSDKRawDataFile(raw), target, false).execute();
+
+    final List<MsScan> imported = new MzMLFileImportMethod(target).execute().getScans();
+    assertEquals(raw.getNumOfScans(), imported.size());
+
+    for (int i = 0; i < imported.size(); i++) {
+      final Scan expected = raw.getScan(i);
+      final MsScan actual = imported.get(i);
+      assertEquals(expected.getScanNumber(), actual.getScanNumber());
+      assertEquals(expected.getMSLevel(), actual.getMsLevel());
+      assertEquals(expected.getScanDefinition(), actual.getScanDefinition());
+      assertEquals(expected.getRetentionTime() * 60f, actual.getRetentionTime(), 1E-3f);
+      assertArrayEquals(expected.getMzValues(new double[expected.getNumberOfDataPoints()]),
+          actual.getMzValues(null));
+
+      final double[] intensities = expected.getIntensityValues(
+          new double[expected.getNumberOfDataPoints()]);
+      final float[] actualIntensities = actual.getIntensityValues(null);
+      assertEquals(intensities.length, actualIntensities.length);
+      for (int j = 0; j < intensities.length; j++) {
+        assertEquals((float) intensities[j], actualIntensities[j]);
+      }
+
+      if (expected.getMsMsInfo() instanceof DDAMsMsInfo info) {
+        assertEquals(1, actual.getIsolations().size());
+        final IsolationInfo isolation = actual.getIsolations().get(0);
+        assertEquals(info.getIsolationMz(), isolation.getPrecursorMz());
+        assertEquals(info.getPrecursorCharge(), isolation.getPrecursorCharge());
+      } else {
+        assertTrue(actual.getIsolations().isEmpty());
+      }
+    }
+  }
+
+  @Test
+  void indexOffsetsPointToSpectra() throws IOException, MSDKException {
+    final RawDataFile raw = createRawDataFile();
+    final File target = tempDir.resolve("index_\u00e4\u00b5.mzML").toFile();
+    new ParallelMzMLExportMethod(new MZmineToMSDKRawDataFile(raw), target, true).execute();
+
+    final byte[] bytes = Files.readAllBytes(target.toPath());
+    final String content = new String(bytes, StandardCharsets.UTF_8);
+
+    final Matcher matcher = OFFSET_PATTERN.matcher(content);
+    int numOffsets = 0;
+    while (matcher.find()) {
+      final String scanNumber = matcher.group(1);
+      final int offset = Integer.parseInt(matcher.group(2));
+      final String element = new String(bytes, offset,
+          Math.min(200, bytes.length - offset), StandardCharsets.UTF_8);
+      assertTrue(element.startsWith("<spectrum "), element);
+      assertTrue(element.contains("id=\"scan=" + scanNumber + "\""), element);
+      numOffsets++;
+    }
+    assertEquals(NUM_SCANS, numOffsets);
+
+    final Matcher indexListMatcher = INDEX_LIST_OFFSET_PATTERN.matcher(content);
+    assertTrue(indexListMatcher.find());
+    final int indexListOffset = Integer.parseInt(indexListMatcher.group(1));
+    assertTrue(new String(bytes, indexListOffset, 20, StandardCharsets.UTF_8).startsWith(
+        "<indexList "));
+  }
+
+  /**
+   * MS1 scans followed by two MS2 scans each. The file name and the scan definitions contain
+   * multi-byte UTF-8 characters, so that byte offsets differ from char offsets.
+   */
+  private static RawDataFile createRawDataFile() throws IOException {
+    final Random random = new Random(42);
+    final RawDataFile raw = new RawDataFileImpl("export_\u00c4\u03a9", null, null,
+        Color.BLACK);
+    for (int i = 0; i < NUM_SCANS; i++) {
+      final int numValues = 10 + random.nextInt(200);
+      final double[] mzs = new double[numValues];
+      final double[] intensities = new double[numValues];
+      double mz = 100;
+      for (int j = 0; j < numValues; j++) {
+        mz += random.nextDouble() * 5;
+        mzs[j] = mz;
+        // exactly representable as float
+        intensities[j] = (float) (1E3 + random.nextDouble() * 1E6);
+      }
+
+      final boolean ms2 = i % 3 != 0;
+      final DDAMsMsInfoImpl msMsInfo = ms2 ? new DDAMsMsInfoImpl(200 + random.nextDouble() * 500,
+          1 + random.nextInt(3), 20f, null, null, 2, ActivationMethod.CID, null) : null;
+      raw.addScan(new SimpleScan(raw, i + 1, ms2 ? 2 : 1, 0.01f * i, msMsInfo, mzs, intensities,
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "scan \u00b5 \u03a9 " + i,
+          Range.closed(100d, 1200d)));
+    }
+    return raw;
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.alanmrace.jimzmlparser.imzml.ImzML;
+import com.alanmrace.jimzmlparser.mzml.BinaryDataArrayList;
+import com.alanmrace.jimzmlparser.mzml.Spectrum;
+import com.alanmrace.jimzmlparser.mzml.SpectrumList;
+import com.alanmrace.jimzmlparser.parser.ImzMLHandler;
+import io.github.mzmine.modules.io.import_rawdata_imzml.IbdFile.ArrayLocation;
+import io.github.mzmine.modules.io.import_rawdata_imzml.IbdFile.ValueType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compares the memory mapped decoding of .ibd files to the values of the imzML parser.
+ */
+class IbdFileTest {
+
+  /**
+   * small segments so that the arrays of the example files cross segment borders
+   */
+  private static final long SMALL_SEGMENT_SIZE = 1000;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void readAllValueTypesAcrossSegments() throws IOException {
+    final double[] floats = {1.5, -2.25, 1E6, 0, 3.125, 100.5, 7, -8.5, 9.75};
+    final double[] doubles = {Math.PI, -Math.E, 1E-12, 123456.789, 0.1, 2, -3};
+    final double[] ints = {0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 42, 17, 5};
+    final double[] longs = {0, -1, 1L << 40, -(1L << 40), 42, 123456789012L};
+
+    // odd header size to get unaligned offsets
+    final ByteBuffer buffer = ByteBuffer.allocate(3 + 4 * floats.length + 8 * doubles.length
+        + 4 * ints.length + 8 * longs.length).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(new byte[]{1, 2, 3});
+    final List<ArrayLocation> locations = new ArrayList<>();
+    locations.add(new ArrayLocation(buffer.position(), floats.length, ValueType.FLOAT_32));
+    for (double v : floats) {
+      buffer.putFloat((float) v);
+    }
+    locations.add(new ArrayLocation(buffer.position(), doubles.length, ValueType.FLOAT_64));
+    for (double v : doubles) {
+      buffer.putDouble(v);
+    }
+    locations.add(new ArrayLocation(buffer.position(), ints.length, ValueType.INT_32));
+    for (double v : ints) {
+      buffer.putInt((int) v);
+    }
+    locations.add(new ArrayLocation(buffer.position(), longs.length, ValueType.INT_64));
+    for (double v : longs) {
+      buffer.putLong((long) v);
+    }
+    final Path ibdPath = tempDir.resolve("values.ibd");
+    Files.write(ibdPath, buffer.array());
+
+    final double[][] expected = {floats, doubles, ints, longs};
+    // 16 bytes splits all arrays, the file size keeps all arrays in the first segment
+    for (long segmentSize : new long[]{16, 17, buffer.capacity()}) {
+      try (IbdFile ibd = new IbdFile(ibdPath.toFile(), segmentSize)) {
+        for (int i = 0; i < expected.length; i++) {
+          assertArrayEquals(expected[i], ibd.readValues(locations.get(i)),
+              "segment size " + segmentSize);
+        }
+        assertArrayEquals(new double[0],
+            ibd.readValues(new ArrayLocation(5, 0, ValueType.FLOAT_64)));
+        assertThrows(IOException.class,
+            () -> ibd.readValues(new ArrayLocation(buffer.capacity() - 4, 1, ValueType.INT_64)));
+        assertThrows(IOException.class,
+            () -> ibd.readValues(new ArrayLocation(-1, 1, ValueType.INT_32)));
+      }
+    }
+  }
+
+  @Test
+  void continuousModeMatchesParser() throws Exception {
+    final ImzML imzml = parse("Example_Continuous.imzML");
+    final List<ArrayLocation> mzLocations = new ArrayList<>();
+    final List<ArrayLocation> intensityLocations = new ArrayList<>();
+    final double[] firstMzs = compareToParser(imzml, "Example_Continuous.ibd", mzLocations,
+        intensityLocations);
+
+    try (IbdFile ibd = new IbdFile(resource("Example_Continuous.ibd"), SMALL_SEGMENT_SIZE)) {
+      final double[] shared = ImzMLImportTask.readSharedMzValues(ibd, mzLocations,
+          intensityLocations);
+      assertNotNull(shared);
+      assertArrayEquals(firstMzs, shared);
+    }
+  }
+
+  @Test
+  void processedModeMatchesParser() throws Exception {
+    final ImzML imzml = parse("Example_Processed.imzML");
+    final List<ArrayLocation> mzLocations = new ArrayList<>();
+    final List<ArrayLocation> intensityLocations = new ArrayList<>();
+    compareToParser(imzml, "Example_Processed.ibd", mzLocations, intensityLocations);
+
+    try (IbdFile ibd = new IbdFile(resource("Example_Processed.ibd"), SMALL_SEGMENT_SIZE)) {
+      assertNull(ImzMLImportTask.readSharedMzValues(ibd, mzLocations, intensityLocations));
+    }
+  }
+
+  /**
+   * Reads all spectra with the small segment size and with the default segment size and compares
+   * them to the sequential decoding of the parser.
+   *
+   * @return the m/z values of the first spectrum
+   */
+  private double[] compareToParser(ImzML imzml, String ibdName, List<ArrayLocation> mzLocations,
+      List<ArrayLocation> intensityLocations) throws IOException {
+    final SpectrumList spectra = imzml.getRun().getSpectrumList();
+    double[] firstMzs = null;
+    try (IbdFile small = new IbdFile(resource(ibdName), SMALL_SEGMENT_SIZE);
+        IbdFile ibd = new IbdFile(resource(ibdName))) {
+      for (int i = 0; i < spectra.size(); i++) {
+        final Spectrum spectrum = spectra.get(i);
+        final BinaryDataArrayList dataList = spectrum.getBinaryDataArrayList();
+        final ArrayLocation mzLocation = ImzMLImportTask.extractLocation(dataList.getmzArray());
+        final ArrayLocation intensityLocation = ImzMLImportTask.extractLocation(
+            dataList.getIntensityArray());
+        assertNotNull(mzLocation);
+        assertNotNull(intensityLocation);
+        mzLocations.add(mzLocation);
+        intensityLocations.add(intensityLocation);
+
+        final double[] mzs = dataList.getmzArray().getDataAsDouble();
+        final double[] intensities = dataList.getIntensityArray().getDataAsDouble();
+        assertEquals(mzs.length, intensities.length);
+        assertArrayEquals(mzs, small.readValues(mzLocation), "spectrum " + i);
+        assertArrayEquals(mzs, ibd.readValues(mzLocation), "spectrum " + i);
+        assertArrayEquals(intensities, small.readValues(intensityLocation), "spectrum " + i);
+        assertArrayEquals(intensities, ibd.readValues(intensityLocation), "spectrum " + i);
+        if (i == 0) {
+          firstMzs = mzs;
+        }
+      }
+    }
+    assertNotNull(firstMzs);
+    return firstMzs;
+  }
+
+  private ImzML parse(String name) throws Exception {
+    return ImzMLHandler.parseimzML(resource(name).getAbsolutePath());
+  }
+
+  private File resource(String name) {
+    return new File(
+        getClass().getClassLoader().getResource("rawdatafiles/additional/" + name).getFile());
+  }
+}
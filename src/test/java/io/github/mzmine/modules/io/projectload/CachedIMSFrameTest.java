@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectload;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.MobilityScan;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class CachedIMSFrameTest {
+
+  private static final int THREADS = 8;
+
+  @Test
+  void parallelCallsShareTheSameScans() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      for (int repetition = 0; repetition < 50; repetition++) {
+        final Frame frame = Mockito.mock(Frame.class);
+        // like the mobility scan storage, every call creates new scan instances
+        Mockito.when(frame.getMobilityScans()).thenAnswer(
+            invocation -> List.of(Mockito.mock(MobilityScan.class),
+                Mockito.mock(MobilityScan.class)));
+        final CachedIMSFrame cached = new CachedIMSFrame(frame);
+
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        final List<Future<MobilityScan>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+          final boolean byIndex = t % 2 == 0;
+          results.add(executor.submit((Callable<MobilityScan>) () -> {
+            barrier.await();
+            return byIndex ? cached.getMobilityScan(1) : cached.getMobilityScans().get(1);
+          }));
+        }
+
+        final MobilityScan expected = cached.getMobilityScans().get(1);
+        for (Future<MobilityScan> result : results) {
+          assertSame(expected, result.get());
+        }
+        verify(frame, times(1)).getMobilityScans();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
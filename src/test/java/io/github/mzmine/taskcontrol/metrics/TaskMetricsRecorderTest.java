@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.taskcontrol.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsRecorder.Measurement;
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsRecorder.TaskTotals;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+class TaskMetricsRecorderTest {
+
+  private static final int NUM_VALUES = 1000;
+
+  @Test
+  void storageWrittenDuringTaskIsRecorded() throws IOException {
+    final MemoryMapStorage storage = MemoryMapStorage.create();
+    try {
+      // data stored before the task does not count
+      storage.storeData(new double[NUM_VALUES]);
+
+      final List<TaskMetrics> recorded = new ArrayList<>();
+      final List<Task> recordedTasks = new ArrayList<>();
+      final TaskMetricsListener listener = (task, metrics) -> {
+        recordedTasks.add(task);
+        recorded.add(metrics);
+      };
+      final TaskTotals before = totalsOf(StoringTask.class);
+
+      final StoringTask task = new StoringTask(storage, 2 * NUM_VALUES);
+      TaskMetricsRecorder.addListener(listener);
+      final TaskMetrics metrics;
+      try {
+        final Measurement measurement = TaskMetricsRecorder.start(task);
+        task.run();
+        metrics = TaskMetricsRecorder.finish(measurement);
+      } finally {
+        TaskMetricsRecorder.removeListener(listener);
+      }
+
+      assertEquals(StoringTask.class.getName(), metrics.taskClass());
+      assertEquals("Storing values", metrics.description());
+      assertEquals(TaskStatus.FINISHED, metrics.status());
+      assertEquals(Thread.currentThread().getName(), metrics.thread());
+      assertEquals(2L * NUM_VALUES * Double.BYTES, metrics.storageBytes());
+      assertEquals(2 * NUM_VALUES, metrics.processedItems());
+      assertTrue(metrics.wallNanos() >= 0);
+
+      assertEquals(List.of(metrics), recorded);
+      assertSame(task, recordedTasks.get(0));
+      assertTrue(TaskMetricsRecorder.getRecentMetrics().contains(metrics));
+
+      final TaskTotals after = totalsOf(StoringTask.class);
+      assertEquals(before.tasks() + 1, after.tasks());
+      assertEquals(before.storageBytes() + metrics.storageBytes(), after.storageBytes());
+    } finally {
+      storage.discard();
+    }
+  }
+
+  @Test
+  void taskWithoutStorageRecordsNoStorage() {
+    final StoringTask task = new StoringTask(null, NUM_VALUES);
+    final Measurement measurement = TaskMetricsRecorder.start(task);
+    task.run();
+    final TaskMetrics metrics = TaskMetricsRecorder.finish(measurement);
+
+    assertEquals(0, metrics.storageBytes());
+    assertEquals(TaskStatus.FINISHED, metrics.status());
+  }
+
+  private static TaskTotals totalsOf(Class<?> taskClass) {
+    return TaskMetricsRecorder.getTotals()
+        .getOrDefault(taskClass.getName(), new TaskTotals(0, 0, 0, 0, 0));
+  }
+
+  /**
+   * Stores values to its storage
+   */
+  private static class StoringTask extends AbstractTask implements ProcessedItemsCounter {
+
+    private final int numValues;
+    private int processed;
+
+    private StoringTask(@Nullable MemoryMapStorage storage, int numValues) {
+      super(storage, Instant.now());
+      this.numValues = numValues;
+    }
+
+    @Override
+    public String getTaskDescription() {
+      return "Storing values";
+    }
+
+    @Override
+    public double getFinishedPercentage() {
+      return processed / (double) numValues;
+    }
+
+    @Override
+    public int getProcessedItems() {
+      return processed;
+    }
+
+    @Override
+    public void run() {
+      setStatus(TaskStatus.PROCESSING);
+      if (storage != null) {
+        try {
+          storage.storeData(new double[numValues]);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      processed = numValues;
+      setStatus(TaskStatus.FINISHED);
+    }
+  }
+}
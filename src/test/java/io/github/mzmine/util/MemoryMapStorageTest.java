@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MemoryMapStorageTest {
+
+  private static final int NUM_VALUES = 1000;
+
+  private MemoryMapStorage storage;
+
+  @BeforeEach
+  void setUp() {
+    StorageMemoryBudget.setBudgetGB(1);
+    storage = MemoryMapStorage.create();
+  }
+
+  @AfterEach
+  void tearDown() {
+    storage.discard();
+    StorageMemoryBudget.setBudgetGB(0);
+  }
+
+  @Test
+  void budgetIsReleasedWhenOwnerIsCollected() throws IOException, InterruptedException {
+    addTemporaryOwner(storage);
+    storage.storeData(new double[NUM_VALUES]);
+    assertEquals((long) NUM_VALUES * Double.BYTES, storage.getBytesInRam());
+
+    // the owner was never removed, the cleaner releases the budget after garbage collection
+    for (int i = 0; i < 200 && storage.getBytesInRam() > 0; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    assertEquals(0, storage.getBytesInRam());
+    assertEquals("Other", storage.getOwnerName());
+  }
+
+  @Test
+  void ownerNamesAreKeptPerOwner() throws IOException {
+    final Owner first = new Owner("first list");
+    final Owner second = new Owner("second list");
+    storage.addOwner(first);
+    storage.addOwner(second);
+    storage.storeData(new double[NUM_VALUES]);
+    assertEquals("first list, second list", storage.getOwnerName());
+
+    storage.removeOwner(first);
+    assertEquals("second list", storage.getOwnerName());
+    assertEquals((long) NUM_VALUES * Double.BYTES, storage.getBytesInRam());
+
+    // removing twice has no effect
+    storage.removeOwner(first);
+    assertEquals((long) NUM_VALUES * Double.BYTES, storage.getBytesInRam());
+
+    storage.removeOwner(second);
+    assertEquals("Other", storage.getOwnerName());
+    assertEquals(0, storage.getBytesInRam());
+  }
+
+  /**
+   * Adds an owner that is not referenced anywhere else
+   */
+  private static void addTemporaryOwner(MemoryMapStorage storage) {
+    storage.addOwner(new Owner("temporary"));
+  }
+
+  private record Owner(String name) {
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+}
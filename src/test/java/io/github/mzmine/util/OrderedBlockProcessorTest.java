@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class OrderedBlockProcessorTest {
+
+  private static final int NUM_ITEMS = 1000;
+  private static final int BLOCK_SIZE = 10;
+  private static final int NUM_BLOCKS = NUM_ITEMS / BLOCK_SIZE;
+  private static final List<Integer> ITEMS = IntStream.range(0, NUM_ITEMS).boxed().toList();
+
+  @Test
+  void blocksAreConsumedInOrder() {
+    final List<Integer> consumed = new ArrayList<>();
+    final boolean finished = OrderedBlockProcessor.processInOrder(ITEMS, 7, (from, block) -> {
+      sleep(block.get(0) % 3);
+      return block.stream().map(i -> i * 2).toList();
+    }, (from, block, result) -> {
+      assertEquals(consumed.size(), from);
+      consumed.addAll(result);
+    }, () -> false);
+
+    assertTrue(finished);
+    assertEquals(ITEMS.stream().map(i -> i * 2).toList(), consumed);
+  }
+
+  @Test
+  void consumerExceptionWaitsForRunningBlocks() {
+    final BlockCounter counter = new BlockCounter();
+    assertThrows(IOException.class,
+        () -> OrderedBlockProcessor.processInOrder(ITEMS, BLOCK_SIZE, counter::process,
+            (from, block, result) -> {
+              throw new IOException("consumer failed");
+            }, () -> false));
+
+    assertEquals(0, counter.running.get());
+    assertTrue(counter.started.get() < NUM_BLOCKS);
+  }
+
+  @Test
+  void cancelWaitsForRunningBlocks() {
+    final BlockCounter counter = new BlockCounter();
+    final AtomicInteger consumed = new AtomicInteger();
+    final boolean finished = OrderedBlockProcessor.processInOrder(ITEMS, BLOCK_SIZE,
+        counter::process, (from, block, result) -> consumed.incrementAndGet(),
+        () -> consumed.get() >= 2);
+
+    assertFalse(finished);
+    assertEquals(2, consumed.get());
+    assertEquals(0, counter.running.get());
+    assertTrue(counter.started.get() < NUM_BLOCKS);
+  }
+
+  @Test
+  void processorExceptionIsRethrown() {
+    final BlockCounter counter = new BlockCounter();
+    final IllegalStateException e = assertThrows(IllegalStateException.class,
+        () -> OrderedBlockProcessor.processInOrder(ITEMS, BLOCK_SIZE, (from, block) -> {
+          if (from == 5 * BLOCK_SIZE) {
+            throw new IllegalStateException("processor failed");
+          }
+          return counter.process(from, block);
+        }, (from, block, result) -> {
+        }, () -> false));
+
+    assertEquals("processor failed", e.getMessage());
+    assertEquals(0, counter.running.get());
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Counts started and currently running blocks. The first block is fast, so that the other blocks
+   * are still running when it is consumed.
+   */
+  private static class BlockCounter {
+
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+
+    private Integer process(int from, List<Integer> block) {
+      started.incrementAndGet();
+      running.incrementAndGet();
+      sleep(from == 0 ? 1 : 100);
+      running.decrementAndGet();
+      return block.size();
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+
+class ZipUtilsTest {
+
+  private static final String[] ENTRIES = {"msdatafiles/a.mzML", "msdatafiles/b.d/analysis.tdf",
+      "msdatafiles/b.d/analysis.tdf_bin", "msdatafiles/c.mzML", "featurelists/flist.xml"};
+
+  private static byte[] content(int entry) {
+    final byte[] bytes = new byte[10_000 * (entry + 1)];
+    new Random(entry).nextBytes(bytes);
+    return bytes;
+  }
+
+  @Test
+  void unzipDirectories() throws IOException {
+    final Path dir = Files.createTempDirectory("mzmine_ziputils_test");
+    final File zip = dir.resolve("project.zip").toFile();
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+      for (int i = 0; i < ENTRIES.length; i++) {
+        out.putNextEntry(new ZipEntry(ENTRIES[i]));
+        out.write(content(i));
+        out.closeEntry();
+      }
+    }
+
+    final File destination = dir.resolve("unzipped").toFile();
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      ZipUtils.unzipDirectories(List.of("msdatafiles/a.mzML", "msdatafiles/b.d"), zipFile,
+          destination);
+    }
+
+    for (int i = 0; i < 3; i++) {
+      assertArrayEquals(content(i), Files.readAllBytes(new File(destination, ENTRIES[i]).toPath()));
+    }
+    assertFalse(new File(destination, ENTRIES[3]).exists());
+    assertFalse(new File(destination, ENTRIES[4]).exists());
+  }
+}
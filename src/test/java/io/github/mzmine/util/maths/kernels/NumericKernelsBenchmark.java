@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.maths.kernels;
+
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Throughput of each kernel, scalar compared to {@link Kernels#get()}. Build and run with
+ * -PvectorApi to compare to the Vector API kernels. Array length and iterations can be set by
+ * system properties, e.g., -Dbenchmark.length=4000 -Dbenchmark.iterations=200000
+ */
+@Disabled("Benchmark - run manually")
+class NumericKernelsBenchmark {
+
+  private static final Logger logger = Logger.getLogger(NumericKernelsBenchmark.class.getName());
+
+  private static final int LENGTH = Integer.getInteger("benchmark.length", 2_000);
+  private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 100_000);
+  private static final int ROUNDS = 5;
+
+  @Test
+  void kernels() {
+    final Random random = new Random(1);
+    final double[] a = new double[LENGTH];
+    final double[] b = new double[LENGTH];
+    for (int i = 0; i < LENGTH; i++) {
+      a[i] = random.nextDouble() * 1E5;
+      // profile like: signals in runs of 16 points
+      b[i] = (i / 16) % 4 == 0 ? random.nextDouble() * 1E5 + 1 : 0;
+    }
+    final double[] weights = {-0.086, 0.343, 0.486, 0.343, -0.086};
+    final double[] dstA = new double[LENGTH];
+    final double[] dstB = new double[LENGTH];
+
+    final NumericKernels vector = Kernels.get();
+    logger.info("Benchmark scalar kernels against " + vector.getName());
+    for (int round = 0; round < ROUNDS; round++) {
+      for (NumericKernels kernel : new NumericKernels[]{Kernels.scalar(), vector}) {
+        logger.info("Round %d %s: dot %d ms, weighted norm %d ms, convolve %d ms, compact %d ms, pearson %d ms".formatted(
+            round, kernel.getName(), //
+            time(kernel, k -> k.dot(a, b, LENGTH)), //
+            time(kernel, k -> k.weightedSumOfSquares(a, b, LENGTH)), //
+            time(kernel, k -> {
+              k.convolve(a, LENGTH, weights, dstA);
+              return dstA[LENGTH / 2];
+            }), //
+            time(kernel, k -> k.compactAtLeast(b, a, LENGTH, 1, dstA, dstB)), //
+            time(kernel, k -> k.pearson(a, b, LENGTH))));
+      }
+    }
+  }
+
+  private static long time(NumericKernels kernel, ToDoubleFunction<NumericKernels> function) {
+    final long start = System.nanoTime();
+    double sink = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += function.applyAsDouble(kernel);
+    }
+    if (sink == 42) {
+      logger.info("");
+    }
+    return (System.nanoTime() - start) / 1_000_000;
+  }
+}
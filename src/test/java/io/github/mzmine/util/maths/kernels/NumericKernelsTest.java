@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.maths.kernels;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the scalar kernels and the kernels of {@link Kernels#get()} (Vector API if built with
+ * -PvectorApi) against plain reference implementations. Lengths cover empty arrays, remainders and
+ * multiple vectors.
+ */
+class NumericKernelsTest {
+
+  private static final int[] LENGTHS = {0, 1, 2, 3, 7, 8, 9, 31, 64, 100, 1001};
+
+  private static List<NumericKernels> kernels() {
+    return List.of(Kernels.scalar(), Kernels.get());
+  }
+
+  private static double[] random(int length, Random random) {
+    final double[] values = new double[length + 3];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextDouble() * 1000 - 200;
+    }
+    return values;
+  }
+
+  private static double tolerance(double value) {
+    return Math.max(1E-9, Math.abs(value) * 1E-12);
+  }
+
+  @Test
+  void sums() {
+    final Random random = new Random(1);
+    for (NumericKernels kernel : kernels()) {
+      for (int length : LENGTHS) {
+        final double[] a = random(length, random);
+        final double[] b = random(length, random);
+        double dot = 0;
+        double squares = 0;
+        double weighted = 0;
+        for (int i = 0; i < length; i++) {
+          dot += a[i] * b[i];
+          squares += a[i] * a[i];
+          weighted += b[i] * a[i] * a[i];
+        }
+        assertEquals(dot, kernel.dot(a, b, length), tolerance(dot), kernel.getName());
+        assertEquals(squares, kernel.sumOfSquares(a, length), tolerance(squares));
+        assertEquals(weighted, kernel.weightedSumOfSquares(a, b, length), tolerance(weighted));
+        if (length > 0) {
+          final double cosine = dot / (Math.sqrt(squares) * Math.sqrt(
+              Arrays.stream(b, 0, length).map(v -> v * v).sum()));
+          assertEquals(cosine, kernel.cosine(a, b, length), 1E-12);
+        }
+      }
+    }
+  }
+
+  @Test
+  void convolve() {
+    final Random random = new Random(2);
+    for (NumericKernels kernel : kernels()) {
+      for (int width : new int[]{1, 5, 11}) {
+        final double[] weights = Arrays.copyOf(random(width, random), width);
+        for (int length : LENGTHS) {
+          final double[] values = random(length, random);
+          final double[] result = new double[length];
+          kernel.convolve(values, length, weights, result);
+
+          final int half = (width - 1) / 2;
+          for (int i = 0; i < length; i++) {
+            double expected = 0;
+            for (int j = 0; j < width; j++) {
+              final int index = i - half + j;
+              if (index >= 0 && index < length) {
+                expected += values[index] * weights[j];
+              }
+            }
+            assertEquals(expected, result[i], tolerance(expected), kernel.getName());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void compactAtLeast() {
+    final Random random = new Random(3);
+    for (NumericKernels kernel : kernels()) {
+      for (double threshold : new double[]{-1000, 0, 400, 2000}) {
+        for (int length : LENGTHS) {
+          final double[] values = random(length, random);
+          final double[] paired = random(length, random);
+          final double[] dstValues = new double[length];
+          final double[] dstPaired = new double[length];
+          final int count = kernel.compactAtLeast(values, paired, length, threshold, dstValues,
+              dstPaired);
+
+          int expected = 0;
+          for (int i = 0; i < length; i++) {
+            if (values[i] >= threshold) {
+              assertEquals(values[i], dstValues[expected]);
+              assertEquals(paired[i], dstPaired[expected]);
+              expected++;
+            }
+          }
+          assertEquals(expected, count, kernel.getName());
+        }
+      }
+    }
+  }
+
+  @Test
+  void pearson() {
+    final Random random = new Random(4);
+    for (NumericKernels kernel : kernels()) {
+      for (int length : LENGTHS) {
+        final double[] a = random(length, random);
+        final double[] b = new double[length];
+        for (int i = 0; i < length; i++) {
+          b[i] = a[i] * 3 + random.nextDouble() * 100;
+        }
+        final double r = kernel.pearson(a, b, length);
+        if (length < 2) {
+          assertTrue(Double.isNaN(r));
+          continue;
+        }
+        final double meanA = Arrays.stream(a, 0, length).average().orElseThrow();
+        final double meanB = Arrays.stream(b, 0, length).average().orElseThrow();
+        double cov = 0, varA = 0, varB = 0;
+        for (int i = 0; i < length; i++) {
+          cov += (a[i] - meanA) * (b[i] - meanB);
+          varA += (a[i] - meanA) * (a[i] - meanA);
+          varB += (b[i] - meanB) * (b[i] - meanB);
+        }
+        assertEquals(cov / Math.sqrt(varA * varB), r, 1E-12, kernel.getName());
+      }
+      // constant values
+      final double[] constant = new double[10];
+      Arrays.fill(constant, 5);
+      assertTrue(Double.isNaN(kernel.pearson(constant, random(10, random), 10)));
+    }
+  }
+}
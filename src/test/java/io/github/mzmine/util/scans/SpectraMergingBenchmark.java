@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Throughput of the primitive {@link SpectraMergingEngine} compared to the range map
+ * implementation. Number of spectra, ions and iterations can be set by system properties, e.g.,
+ * -Dbenchmark.spectra=100 -Dbenchmark.ions=1000 -Dbenchmark.iterations=500
+ */
+@Disabled("Benchmark - run manually")
+class SpectraMergingBenchmark {
+
+  private static final Logger logger = Logger.getLogger(SpectraMergingBenchmark.class.getName());
+
+  private static final int SPECTRA = Integer.getInteger("benchmark.spectra", 30);
+  private static final int IONS = Integer.getInteger("benchmark.ions", 500);
+  private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 200);
+  private static final int ROUNDS = 5;
+
+  @Test
+  void merge() {
+    final List<MassSpectrum> spectra = SpectraMergingEngineTest.createSpectra(1, SPECTRA, IONS);
+    final MZTolerance tolerance = SpectraMerging.pasefMS2MergeTol;
+    final IntensityMergingType type = IntensityMergingType.SUMMED;
+
+    for (int round = 0; round < ROUNDS; round++) {
+      logger.info("Round %d: range map %d ms, primitive %d ms".formatted(round, //
+          time(s -> SpectraMerging.calculatedMergedMzsAndIntensitiesRangeMap(s, tolerance, type,
+              SpectraMerging.DEFAULT_CENTER_FUNCTION, null, null, null)[0].length, spectra), //
+          time(s -> SpectraMergingEngine.merge(s, tolerance, type,
+              SpectraMerging.DEFAULT_CENTER_FUNCTION, null, null, null)[0].length, spectra)));
+    }
+  }
+
+  private static long time(ToIntFunction<List<MassSpectrum>> function,
+      List<MassSpectrum> spectra) {
+    final long start = System.nanoTime();
+    long sink = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += function.applyAsInt(spectra);
+    }
+    if (sink == 42) {
+      logger.info("");
+    }
+    return (System.nanoTime() - start) / 1_000_000;
+  }
+}
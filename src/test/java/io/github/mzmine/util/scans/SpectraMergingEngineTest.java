@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.impl.SimpleMassSpectrum;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.maths.CenterFunction;
+import io.github.mzmine.util.maths.CenterMeasure;
+import io.github.mzmine.util.maths.Weighting;
+import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SpectraMergingEngineTest {
+
+  /**
+   * Spectra with jittered signals of the same ions, close signals within one spectrum and random
+   * noise
+   */
+  static List<MassSpectrum> createSpectra(long seed, int numSpectra, int numIons) {
+    final Random random = new Random(seed);
+    final double[] ions = new double[numIons];
+    for (int i = 0; i < numIons; i++) {
+      ions[i] = 100 + random.nextDouble() * 1400;
+    }
+
+    final List<MassSpectrum> spectra = new ArrayList<>();
+    for (int s = 0; s < numSpectra; s++) {
+      final List<double[]> dps = new ArrayList<>();
+      for (double ion : ions) {
+        if (random.nextDouble() < 0.7) {
+          final double intensity = 1E3 + random.nextDouble() * 1E5;
+          dps.add(new double[]{ion * (1 + random.nextGaussian() * 5E-6), intensity});
+          if (random.nextDouble() < 0.1) {
+            // second signal of the same spectrum within tolerance
+            dps.add(new double[]{ion + 0.002, intensity * random.nextDouble()});
+          }
+        }
+      }
+      for (int i = 0; i < numIons / 2; i++) {
+        dps.add(new double[]{100 + random.nextDouble() * 1400, random.nextDouble() * 2E3});
+      }
+      dps.sort((a, b) -> Double.compare(a[0], b[0]));
+      spectra.add(new SimpleMassSpectrum(dps.stream().mapToDouble(dp -> dp[0]).toArray(),
+          dps.stream().mapToDouble(dp -> dp[1]).toArray()));
+    }
+    return spectra;
+  }
+
+  @Test
+  void sameAsRangeMap() {
+    final MZTolerance tolerance = new MZTolerance(0.005, 15);
+    for (long seed = 0; seed < 2; seed++) {
+      final List<MassSpectrum> spectra = createSpectra(seed, 30, 200);
+      for (CenterMeasure measure : CenterMeasure.values()) {
+        for (Weighting weighting : Weighting.values()) {
+          final CenterFunction cf = new CenterFunction(measure, weighting);
+          for (IntensityMergingType type : IntensityMergingType.values()) {
+            assertSameAsRangeMap(spectra, tolerance, type, cf, null, null, null);
+            assertSameAsRangeMap(spectra, tolerance, type, cf, 500d, 5E4, 3);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void mergeSingleSpectrumSignals() {
+    final List<MassSpectrum> spectra = List.of(
+        new SimpleMassSpectrum(new double[]{200, 200.001, 300}, new double[]{10, 5, 20}),
+        new SimpleMassSpectrum(new double[]{200.002, 300.001}, new double[]{30, 20}));
+    final double[][] merged = SpectraMergingEngine.merge(spectra, new MZTolerance(0.005, 0),
+        IntensityMergingType.SUMMED, new CenterFunction(CenterMeasure.AVG, Weighting.NONE), null,
+        null, null);
+
+    assertNotNull(merged);
+    // 200.001 is from the same spectrum as the more intense 200 and is not merged
+    assertArrayEquals(new double[]{200.001, 300.0005}, merged[0], 1E-9);
+    assertArrayEquals(new double[]{40, 40}, merged[1], 1E-9);
+  }
+
+  private static void assertSameAsRangeMap(List<MassSpectrum> spectra, MZTolerance tolerance,
+      IntensityMergingType type, CenterFunction cf, Double inputNoise, Double outputNoise,
+      Integer minNumPeaks) {
+    final double[][] expected = SpectraMerging.calculatedMergedMzsAndIntensitiesRangeMap(spectra,
+        tolerance, type, cf, inputNoise, outputNoise, minNumPeaks);
+    final double[][] actual = SpectraMergingEngine.merge(spectra, tolerance, type, cf, inputNoise,
+        outputNoise, minNumPeaks);
+
+    assertNotNull(actual);
+    assertEquals(expected[0].length, actual[0].length);
+    assertArrayEquals(expected[0], actual[0], Arrays.toString(actual[0]));
+    assertArrayEquals(expected[1], actual[1]);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans.raster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class IntensityPyramidTest {
+
+  private static final int NUM_SCANS = 3000;
+  private static final Range<Double> MZ_RANGE = Range.closed(100d, 1100d);
+  private static final Range<Double> RT_RANGE = Range.closed(0d, 29.99d);
+  private static final double PEAK_MZ = 524.3;
+  private static final int PEAK_SCAN = 1234;
+  private static final double PEAK_INTENSITY = 1E7;
+
+  private static Scan[] scans;
+  private static IntensityPyramid pyramid;
+  private static double totalIntensity;
+
+  @BeforeAll
+  static void buildPyramid() throws IOException {
+    final RawDataFile file = new RawDataFileImpl("test", null, null, Color.BLACK);
+    final Random random = new Random(42);
+    scans = new Scan[NUM_SCANS];
+    for (int i = 0; i < NUM_SCANS; i++) {
+      final double[] mzs = new double[200];
+      final double[] intensities = new double[200];
+      for (int dp = 0; dp < mzs.length; dp++) {
+        mzs[dp] = 100 + dp * 5 + random.nextDouble() * 4;
+        intensities[dp] = random.nextDouble() * 1E4;
+      }
+      mzs[0] = MZ_RANGE.lowerEndpoint();
+      mzs[mzs.length - 1] = MZ_RANGE.upperEndpoint();
+      if (i == PEAK_SCAN) {
+        final int index = (int) ((PEAK_MZ - 100) / 5);
+        mzs[index] = PEAK_MZ;
+        intensities[index] = PEAK_INTENSITY;
+      }
+      totalIntensity += Arrays.stream(intensities).sum();
+      scans[i] = new SimpleScan(file, i, 1, i * 0.01f, null, mzs, intensities,
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", MZ_RANGE);
+    }
+    pyramid = IntensityPyramid.build(scans, MZ_RANGE, null, () -> false, p -> {
+    });
+  }
+
+  @Test
+  void testZoomedOutValues() {
+    assertNotNull(pyramid);
+    final int width = 300;
+    final int height = 200;
+    final double[][] max = pyramid.sampleMax(RT_RANGE, MZ_RANGE, width, height);
+    final double[][] sum = pyramid.sampleSum(RT_RANGE, MZ_RANGE, width, height);
+    assertNotNull(max);
+    assertNotNull(sum);
+
+    final double summed = Arrays.stream(sum).flatMapToDouble(Arrays::stream).sum();
+    assertEquals(totalIntensity, summed, totalIntensity * 1E-4);
+
+    // the peak is in its pixel or in a neighbor at the tile borders
+    final int peakX = (int) (scans[PEAK_SCAN].getRetentionTime() / 29.99 * width);
+    final int peakY = (int) ((PEAK_MZ - 100) / 1000 * height);
+    double peakMax = 0;
+    for (int x = peakX - 1; x <= peakX + 1; x++) {
+      for (int y = peakY - 1; y <= peakY + 1; y++) {
+        peakMax = Math.max(peakMax, max[x][y]);
+      }
+    }
+    assertEquals(PEAK_INTENSITY, peakMax, 1d);
+  }
+
+  @Test
+  void testZoomedInReturnsNull() {
+    // the base level has 1024 RT and 4096 m/z tiles, so narrower pixels need the scans
+    assertNull(pyramid.sampleMax(RT_RANGE, MZ_RANGE, 4000, 200));
+    assertNull(pyramid.sampleMax(RT_RANGE, Range.closed(500d, 510d), 300, 200));
+    assertNotNull(pyramid.sampleMax(Range.closed(10d, 20d), MZ_RANGE, 300, 200));
+  }
+
+  @Test
+  void testCovers() {
+    assertTrue(pyramid.covers(scans));
+    assertTrue(pyramid.covers(Arrays.copyOfRange(scans, 100, 500)));
+
+    final Scan[] gap = new Scan[]{scans[100], scans[102]};
+    assertFalse(pyramid.covers(gap));
+  }
+}
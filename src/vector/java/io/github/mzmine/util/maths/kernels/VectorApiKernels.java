@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.maths.kernels;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels based on the incubating Java Vector API. Only compiled with the gradle flag
+ * -PvectorApi and loaded by {@link Kernels} if the module jdk.incubator.vector is available.
+ */
+public class VectorApiKernels implements NumericKernels {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  @Override
+  public String getName() {
+    return "Vector API (" + SPECIES.length() + " lanes)";
+  }
+
+  @Override
+  public double dot(double[] a, double[] b, int length) {
+    DoubleVector acc = DoubleVector.zero(SPECIES);
+    final int bound = SPECIES.loopBound(length);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      acc = DoubleVector.fromArray(SPECIES, a, i).fma(DoubleVector.fromArray(SPECIES, b, i), acc);
+    }
+    double sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public double sumOfSquares(double[] a, int length) {
+    DoubleVector acc = DoubleVector.zero(SPECIES);
+    final int bound = SPECIES.loopBound(length);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      final DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+      acc = va.fma(va, acc);
+    }
+    double sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      sum += a[i] * a[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public double weightedSumOfSquares(double[] a, double[] weights, int length) {
+    DoubleVector acc = DoubleVector.zero(SPECIES);
+    final int bound = SPECIES.loopBound(length);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      final DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+      acc = va.mul(va).fma(DoubleVector.fromArray(SPECIES, weights, i), acc);
+    }
+    double sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      sum += weights[i] * a[i] * a[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public void convolve(double[] values, int length, double[] weights, double[] dst) {
+    final int fullWidth = weights.length;
+    final int halfWidth = (fullWidth - 1) / 2;
+    // vectorize over the results where all weights are inside the values
+    final int first = Math.min(halfWidth, length);
+    final int last = Math.max(first, length - halfWidth);
+    final int bound = first + SPECIES.loopBound(last - first);
+
+    ScalarKernels.convolveRange(values, length, weights, dst, 0, first);
+    int i = first;
+    for (; i < bound; i += SPECIES.length()) {
+      DoubleVector acc = DoubleVector.zero(SPECIES);
+      final int k = i - halfWidth;
+      for (int j = 0; j < fullWidth; j++) {
+        acc = DoubleVector.fromArray(SPECIES, values, k + j)
+            .fma(DoubleVector.broadcast(SPECIES, weights[j]), acc);
+      }
+      acc.intoArray(dst, i);
+    }
+    ScalarKernels.convolveRange(values, length, weights, dst, i, length);
+  }
+
+  @Override
+  public int compactAtLeast(double[] values, double[] paired, int length, double threshold,
+      double[] dstValues, double[] dstPaired) {
+    final int lanes = SPECIES.length();
+    final int bound = SPECIES.loopBound(length);
+    int count = 0;
+    int i = 0;
+    for (; i < bound; i += lanes) {
+      final DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+      final VectorMask<Double> keep = v.compare(VectorOperators.GE, threshold);
+      if (keep.allTrue()) {
+        // count <= i, so the destination always has space for all lanes
+        v.intoArray(dstValues, count);
+        DoubleVector.fromArray(SPECIES, paired, i).intoArray(dstPaired, count);
+        count += lanes;
+      } else if (keep.anyTrue()) {
+        count = ScalarKernels.compactAtLeastRange(values, paired, i, i + lanes, threshold,
+            dstValues, dstPaired, count);
+      }
+    }
+    return ScalarKernels.compactAtLeastRange(values, paired, i, length, threshold, dstValues,
+        dstPaired, count);
+  }
+
+  @Override
+  public double pearson(double[] a, double[] b, int length) {
+    if (length < 2) {
+      return Double.NaN;
+    }
+    final int bound = SPECIES.loopBound(length);
+    DoubleVector sumA = DoubleVector.zero(SPECIES);
+    DoubleVector sumB = DoubleVector.zero(SPECIES);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      sumA = sumA.add(DoubleVector.fromArray(SPECIES, a, i));
+      sumB = sumB.add(DoubleVector.fromArray(SPECIES, b, i));
+    }
+    double meanA = sumA.reduceLanes(VectorOperators.ADD);
+    double meanB = sumB.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      meanA += a[i];
+      meanB += b[i];
+    }
+    meanA /= length;
+    meanB /= length;
+
+    DoubleVector cov = DoubleVector.zero(SPECIES);
+    DoubleVector varA = DoubleVector.zero(SPECIES);
+    DoubleVector varB = DoubleVector.zero(SPECIES);
+    for (i = 0; i < bound; i += SPECIES.length()) {
+      final DoubleVector da = DoubleVector.fromArray(SPECIES, a, i).sub(meanA);
+      final DoubleVector db = DoubleVector.fromArray(SPECIES, b, i).sub(meanB);
+      cov = da.fma(db, cov);
+      varA = da.fma(da, varA);
+      varB = db.fma(db, varB);
+    }
+    double covSum = cov.reduceLanes(VectorOperators.ADD);
+    double varASum = varA.reduceLanes(VectorOperators.ADD);
+    double varBSum = varB.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++) {
+      final double da = a[i] - meanA;
+      final double db = b[i] - meanB;
+      covSum += da * db;
+      varASum += da * da;
+      varBSum += db * db;
+    }
+    return ScalarKernels.correlation(covSum, varASum, varBSum);
+  }
+}